@@ -0,0 +1,135 @@
+package net.elena.murat.bench;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+// Custom imports
+import net.elena.murat.gui.Utilities;
+import net.elena.murat.material.Material;
+import net.elena.murat.material.LambertMaterial;
+import net.elena.murat.math.*;
+import net.elena.murat.shape.*;
+import net.elena.murat.shape.letters.*;
+
+/**
+ * Shared inputs for the benchmarks: shapes and materials by class name,
+ * and fixed, seeded batches of rays and surface points so that every run
+ * measures the same work.
+ * Paths are relative to the project root, so run the benchmarks from there.
+ */
+final class BenchFixtures {
+
+  /** Rays or hit points processed by one benchmark invocation. */
+  static final int BATCH = 1024;
+
+  private BenchFixtures() {
+  }
+
+  /**
+   * Rays from points around the origin, aimed at random points inside a
+   * radius-1.5 ball, so most of them hit a unit-sized shape at the origin
+   * and some of them miss.
+   */
+  static Ray[] raysTowardOrigin(long seed) {
+    Random random = new Random(seed);
+    Ray[] rays = new Ray[BATCH];
+    for (int i = 0; i < BATCH; i++) {
+      Vector3 from = randomUnitVector(random).scale(6.0);
+      Vector3 to = randomUnitVector(random).scale(1.5 * random.nextDouble());
+      rays[i] = new Ray(new Point3(from.x, from.y, from.z), to.subtract(from));
+    }
+    return rays;
+  }
+
+  /**
+   * Points on the unit sphere with their outward normals, used as shading inputs.
+   */
+  static Point3[] spherePoints(long seed, Vector3[] normalsOut) {
+    Random random = new Random(seed);
+    Point3[] points = new Point3[BATCH];
+    for (int i = 0; i < BATCH; i++) {
+      Vector3 n = randomUnitVector(random);
+      points[i] = new Point3(n.x, n.y, n.z);
+      normalsOut[i] = n;
+    }
+    return points;
+  }
+
+  private static Vector3 randomUnitVector(Random random) {
+    double z = random.nextDouble() * 2.0 - 1.0;
+    double phi = random.nextDouble() * Math.PI * 2.0;
+    double r = Math.sqrt(1.0 - z * z);
+    return new Vector3(r * Math.cos(phi), r * Math.sin(phi), z);
+  }
+
+  /**
+   * Creates a shape of roughly unit size centered at the origin.
+   * @param type Simple class name from net.elena.murat.shape or shape.letters
+   */
+  static EMShape createShape(String type) throws IOException {
+    EMShape shape;
+    switch (type) {
+      case "Box": shape = new Box(2.0, 1.5, 1.0); break;
+      case "Cone": shape = new Cone(1.0, 2.0); break;
+      case "Crescent": shape = new Crescent(1.0, 0.5, 0.2); break;
+      case "Cube": shape = new Cube(2.0); break;
+      case "Cylinder": shape = new Cylinder(1.0, 2.0); break;
+      case "Ellipsoid": shape = new Ellipsoid(new Point3(0, 0, 0), 1.0, 0.8, 0.6); break;
+      case "EmojiBillboard": shape = new EmojiBillboard(2.0, 2.0, true, true,
+        ImageIO.read(new File("textures/turkeyFlag.png"))); break;
+      case "Hyperboloid": shape = new Hyperboloid(1.0, 1.0, 1.0, 2.0); break;
+      case "Plane": shape = new Plane(new Point3(0, 0, 0), new Vector3(0, 1, 0)); break;
+      case "Rectangle3D": shape = new Rectangle3D(new Point3(-1, -1, 0), new Point3(1, 1, 0), 0.1f); break;
+      case "RectangularPrism": shape = new RectangularPrism(2.0, 1.0, 0.5); break;
+      case "Sphere": shape = new Sphere(1.0); break;
+      case "Torus": shape = new Torus(1.0, 0.35); break;
+      case "TorusKnot": shape = new TorusKnot(1.0, 0.25, 2, 3); break;
+      case "TransparentPlane": shape = new TransparentPlane(new Point3(0, 0, 0), new Vector3(0, 0, 1), 0.1); break;
+      case "Triangle": shape = new Triangle(new Point3(-1, -1, 0), new Point3(1, -1, 0), new Point3(0, 1, 0)); break;
+      case "UnionCSG": shape = new UnionCSG(sphereAt(-0.4), sphereAt(0.4)); break;
+      case "IntersectionCSG": shape = new IntersectionCSG(sphereAt(-0.4), sphereAt(0.4)); break;
+      case "DifferenceCSG": shape = new DifferenceCSG(new Cube(1.6), sphereAt(0.5)); break;
+      case "Letter3D": shape = new Letter3D('E'); break;
+      case "Image3D": shape = new Image3D(glyphImage()); break;
+      default: throw new IllegalArgumentException("Unknown shape type: " + type);
+    }
+    shape.setMaterial(new LambertMaterial(Color.LIGHT_GRAY));
+    return shape;
+  }
+
+  private static EMShape sphereAt(double x) {
+    Sphere sphere = new Sphere(0.8);
+    sphere.setTransform(Matrix4.translate(x, 0, 0));
+    sphere.setMaterial(new LambertMaterial(Color.LIGHT_GRAY));
+    return sphere;
+  }
+
+  private static BufferedImage glyphImage() {
+    BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB);
+    java.awt.Graphics2D g = image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.setFont(new Font("Arial", Font.BOLD, 28));
+    g.drawString("R", 6, 27);
+    g.dispose();
+    return image;
+  }
+
+  /**
+   * Creates a material from the same default template the GUI offers for it.
+   * @param type Material type name as listed in {@link Utilities#MATERIAL_TYPES}
+   */
+  static Material createMaterial(String type) {
+    Material material = Utilities.createMaterialFromText(type, Utilities.getMaterialTemplate(type));
+    if (material == null) {
+      throw new IllegalArgumentException("Unknown material type: " + type);
+    }
+    material.setObjectTransform(Matrix4.identity());
+    return material;
+  }
+
+}
@@ -0,0 +1,97 @@
+package net.elena.murat.bench;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Custom imports
+import net.elena.murat.light.Light;
+import net.elena.murat.light.MuratPointLight;
+import net.elena.murat.material.Material;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Cost of one getColorAt call for every material the scene format knows,
+ * in net.elena.murat.material and material.pbr, built from the GUI's
+ * default template. Scores are per shaded point.
+ * MultiMixMaterial and CustomMaterial are left out: both need other
+ * materials or a user class to exist first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaterialBenchmark {
+
+  @Param({
+    "CheckerboardMaterial", "EmissiveMaterial", "ImageTextureMaterial",
+    "TextureMaterial", "TextDielectricMaterial", "SphereWordTextureMaterial",
+    "LambertMaterial", "TransparentPNGMaterial", "WordMaterial", "IsotropicMetalTextMaterial",
+    "AfricanKenteMaterial", "AmberMaterial", "AnisotropicMetalMaterial", "AnodizedMetalMaterial",
+    "AnodizedTextMaterial", "AuroraCeramicMaterial",
+    "BaklavaMaterial", "BlackHoleMaterial", "BrightnessMaterial", "BrunostCheeseMaterial",
+    "CalligraphyRuneMaterial", "CarpetTextureMaterial", "CeramicTilePBRMaterial", "CiniMaterial",
+    "CircleTextureMaterial", "ChromePBRMaterial", "CoffeeFjordMaterial", "ContrastMaterial",
+    "CopperMaterial", "CopperPBRMaterial", "CrystalClearMaterial", "CrystalMaterial",
+    "DamaskCeramicMaterial", "DewDropMaterial", "DiagonalCheckerMaterial", "DiamondMaterial",
+    "DielectricMaterial", "DiffuseMaterial",
+    "EdgeLightColorMaterial", "EmeraldMaterial",
+    "FjordCrystalMaterial", "FractalBarkMaterial", "FractalFireMaterial",
+    "GhostTextMaterial", "GlassicTilePBRMaterial", "GlassMaterial", "GoldMaterial", "GoldPBRMaterial",
+    "GradientChessMaterial", "GradientImageTextMaterial", "GradientTextMaterial", "GraniteMaterial",
+    "HamamSaunaMaterial", "HexagonalHoneycombMaterial", "HokusaiMaterial", "HologramDataMaterial",
+    "HolographicDiffractionMaterial", "HolographicPBRMaterial", "HotCopperMaterial", "HybridTextMaterial",
+    "InvertLightColorMaterial",
+    "KilimRosemalingMaterial",
+    "LavaFlowMaterial", "LightningMaterial", "LinearGradientMaterial",
+    "MarbleMaterial", "MarblePBRMaterial", "MetallicMaterial", "MirrorMaterial", "MoonSurfaceMaterial",
+    "MosaicMaterial",
+    "NazarMaterial", "NeutralMaterial", "NonScaledTransparentPNGMaterial", "NordicWeaveMaterial",
+    "NordicWoodMaterial", "NorthernLightMaterial", "NorwegianRoseMaterial",
+    "OpticalIllusionMaterial", "OrbitalMaterial",
+    "PhongElenaMaterial", "PhongMaterial", "PixelArtMaterial", "PlasticPBRMaterial", "PlatinumMaterial",
+    "PolkaDotMaterial", "ProceduralCloudMaterial", "ProceduralFlowerMaterial", "PureWaterMaterial",
+    "QuantumFieldMaterial",
+    "RadialGradientMaterial", "RandomMaterial", "ReflectiveMaterial", "RosemalingMaterial",
+    "RubyMaterial", "RuneStoneMaterial",
+    "SalmonMaterial", "SandMaterial", "SilverMaterial", "SilverPBRMaterial", "SimitMaterial",
+    "SolidCheckerboardMaterial", "SolidColorMaterial", "SquaredMaterial", "StainedGlassMaterial",
+    "StarfieldMaterial", "StarryNightMaterial", "StripedMaterial", "SultanKingMaterial",
+    "TelemarkPatternMaterial", "TexturedCheckerboardMaterial", "TexturedPhongMaterial",
+    "TransparentEmissivePNGMaterial", "TransparentEmojiMaterial", "TriangleMaterial", "TulipFjordMaterial",
+    "TurkishTileMaterial", "TurkishDelightMaterial",
+    "VikingMetalMaterial", "VikingRuneMaterial",
+    "WaterfallMaterial", "WaterPBRMaterial", "WoodMaterial", "WoodPBRMaterial", "WoodGrainMaterial",
+    "XRayMaterial"
+  })
+  public String material;
+
+  private Material target;
+  private Light light;
+  private Point3 viewer;
+  private Point3[] points;
+  private Vector3[] normals;
+
+  @Setup
+  public void setup() {
+    target = BenchFixtures.createMaterial(material);
+    light = new MuratPointLight(new Point3(3, 4, 5), Color.WHITE, 1.0);
+    viewer = new Point3(0, 0, 5);
+    normals = new Vector3[BenchFixtures.BATCH];
+    points = BenchFixtures.spherePoints(29L, normals);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void getColorAt(Blackhole bh) {
+    for (int i = 0; i < points.length; i++) {
+      bh.consume(target.getColorAt(points[i], normals[i], light, viewer));
+    }
+  }
+
+}
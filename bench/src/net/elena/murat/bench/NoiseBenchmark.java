@@ -0,0 +1,69 @@
+package net.elena.murat.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Custom imports
+import net.elena.murat.math.Point3;
+import net.elena.murat.util.NoiseUtil;
+
+/**
+ * Cost of the Perlin noise functions most procedural materials call
+ * several times per shaded point. Scores are per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoiseBenchmark {
+
+  @Param({"1", "4", "8"})
+  public int octaves;
+
+  private Point3[] points;
+  private double[] xs;
+  private double[] ys;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(5L);
+    points = new Point3[BenchFixtures.BATCH];
+    xs = new double[BenchFixtures.BATCH];
+    ys = new double[BenchFixtures.BATCH];
+    for (int i = 0; i < BenchFixtures.BATCH; i++) {
+      points[i] = new Point3(random.nextDouble() * 16.0, random.nextDouble() * 16.0, random.nextDouble() * 16.0);
+      xs[i] = random.nextDouble() * 16.0;
+      ys[i] = random.nextDouble() * 16.0;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void noise3(Blackhole bh) {
+    for (Point3 p : points) {
+      bh.consume(NoiseUtil.noise(p));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void noise2(Blackhole bh) {
+    for (int i = 0; i < xs.length; i++) {
+      bh.consume(NoiseUtil.noise(xs[i], ys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void turbulence(Blackhole bh) {
+    for (Point3 p : points) {
+      bh.consume(NoiseUtil.turbulence(p, octaves));
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+package net.elena.murat.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Custom imports
+import net.elena.murat.gui.SceneParser;
+import net.elena.murat.lovert.ElenaMuratRayTracer;
+
+/**
+ * Full-frame render() of the sample scenes, at the size each scene file
+ * asks for. Parsing happens once in setup and is not measured.
+ * Use -p threads=N to compare thread counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SceneRenderBenchmark {
+
+  @Param({
+    "cstmShape.txt", "diffo.txt", "flg.txt", "gul_rose.txt", "interboxes.txt",
+    "smshapes.txt", "sno_kar.txt", "testImage.txt", "unisph.txt"
+  })
+  public String scene;
+
+  @Param({"1"})
+  public int threads;
+
+  private ElenaMuratRayTracer tracer;
+
+  @Setup
+  public void setup() throws IOException {
+    SceneParser parser = new SceneParser();
+    parser.parseScene(new File("scenes", scene));
+    tracer = parser.createTracer();
+    tracer.setThreadCount(threads);
+  }
+
+  @Benchmark
+  public Object render() {
+    return tracer.render();
+  }
+
+}
@@ -0,0 +1,59 @@
+package net.elena.murat.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Custom imports
+import net.elena.murat.math.Ray;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Cost of one ray-shape test, for every shape in net.elena.murat.shape
+ * and shape.letters. Scores are per ray.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShapeBenchmark {
+
+  @Param({
+    "Box", "Cone", "Crescent", "Cube", "Cylinder", "Ellipsoid", "EmojiBillboard",
+    "Hyperboloid", "Plane", "Rectangle3D", "RectangularPrism", "Sphere",
+    "Torus", "TorusKnot", "TransparentPlane", "Triangle",
+    "UnionCSG", "IntersectionCSG", "DifferenceCSG",
+    "Letter3D", "Image3D"
+  })
+  public String shape;
+
+  private EMShape target;
+  private Ray[] rays;
+
+  @Setup
+  public void setup() throws IOException {
+    target = BenchFixtures.createShape(shape);
+    rays = BenchFixtures.raysTowardOrigin(17L);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void intersect(Blackhole bh) {
+    for (Ray ray : rays) {
+      bh.consume(target.intersect(ray));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void intersectAll(Blackhole bh) {
+    for (Ray ray : rays) {
+      bh.consume(target.intersectAll(ray));
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+package net.elena.murat.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Custom imports
+import net.elena.murat.math.Matrix4;
+import net.elena.murat.math.Ray;
+import net.elena.murat.shape.Torus;
+
+/**
+ * Torus intersection per ray, analytic quartic against the ray marcher,
+ * on the same rays. Scores are per ray.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TorusBenchmark {
+
+  @Param({"ANALYTIC", "RAY_MARCHING"})
+  public String mode;
+
+  private Torus torus;
+  private Ray[] rays;
+
+  @Setup
+  public void setup() {
+    torus = new Torus(1.0, 0.35);
+    torus.setTransform(Matrix4.createMatrixFromString(
+      "translate(0.0, 0.0, 0.0) * rotate(30.0, 50.0, 0.0) * scale(1.0, 1.0, 1.0)"));
+    torus.setIntersectionMode(Torus.IntersectionMode.valueOf(mode));
+    rays = BenchFixtures.raysTowardOrigin(17L);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void intersect(Blackhole bh) {
+    for (Ray ray : rays) {
+      bh.consume(torus.intersect(ray));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BenchFixtures.BATCH)
+  public void intersectAll(Blackhole bh) {
+    for (Ray ray : rays) {
+      bh.consume(torus.intersectAll(ray));
+    }
+  }
+
+}
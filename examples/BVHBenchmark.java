@@ -0,0 +1,134 @@
+import java.awt.image.BufferedImage;
+import java.awt.Color;
+import java.util.List;
+import java.util.Random;
+
+// Custom classes
+import net.elena.murat.shape.*;
+import net.elena.murat.lovert.*;
+import net.elena.murat.material.*;
+import net.elena.murat.math.*;
+import net.elena.murat.light.*;
+
+/**
+ * Shows how render time scales with the number of shapes now that
+ * Scene and the tracer search through a BVH.
+ * For each sphere count it prints the BVH build time, the full render time,
+ * and the time of the same closest-hit queries done with a linear scan.
+ *
+ * Usage: java -cp ../bin/elenaRT.jar:. BVHBenchmark [width] [height]
+ */
+final public class BVHBenchmark extends Object {
+
+  private static final int[] SPHERE_COUNTS = {10, 100, 1000, 10000};
+
+  private BVHBenchmark() {
+    super();
+  }
+
+  public String toString() {
+    return "BVHBenchmark";
+  }
+
+  final private static Scene createScene(int count) {
+    Scene scene = new Scene();
+    Random random = new Random(42L);
+
+    // Spheres fill a fixed volume, so they get smaller as the count grows
+    double radius = 2.0 / Math.cbrt(count);
+    for (int i = 0; i < count; i++) {
+      Sphere sphere = new Sphere(radius);
+      sphere.setMaterial(new LambertMaterial(new Color(
+        80 + random.nextInt(176), 80 + random.nextInt(176), 80 + random.nextInt(176))));
+      sphere.setTransform(Matrix4.translate(new Vector3(
+        random.nextDouble() * 12.0 - 6.0,
+        random.nextDouble() * 8.0 - 4.0,
+        random.nextDouble() * -10.0 - 2.0)));
+      scene.addShape(sphere);
+    }
+
+    Plane floor = new Plane(new Point3(0, 0, 0), new Vector3(0, 1, 0));
+    floor.setTransform(Matrix4.translate(new Vector3(0, -4.5, 0)));
+    floor.setMaterial(new LambertMaterial(new Color(120, 120, 120)));
+    scene.addShape(floor);
+
+    scene.addLight(new ElenaMuratAmbientLight(Color.WHITE, 0.3));
+    scene.addLight(new MuratPointLight(new Point3(4, 6, 4), Color.WHITE, 1.5));
+    return scene;
+  }
+
+  final private static long linearScanNanos(Scene scene, Ray[] rays) {
+    List<EMShape> shapes = scene.getShapes();
+    long start = System.nanoTime();
+    int hits = 0;
+    for (Ray ray : rays) {
+      double best = Double.POSITIVE_INFINITY;
+      for (EMShape shape : shapes) {
+        double d = shape.intersect(ray);
+        if (d > Ray.EPSILON && d < best) best = d;
+      }
+      if (best < Double.POSITIVE_INFINITY) hits++;
+    }
+    long elapsed = System.nanoTime() - start;
+    if (hits < 0) System.out.println(hits);
+    return elapsed;
+  }
+
+  final private static long bvhNanos(BVH bvh, Ray[] rays) {
+    double[] dist = new double[1];
+    long start = System.nanoTime();
+    int hits = 0;
+    for (Ray ray : rays) {
+      if (bvh.closestHit(ray, null, BVH.ALL, Ray.EPSILON, dist) >= 0) hits++;
+    }
+    long elapsed = System.nanoTime() - start;
+    if (hits < 0) System.out.println(hits);
+    return elapsed;
+  }
+
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 320;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 240;
+
+    Camera camera = new Camera();
+    camera.setCameraPosition(new Point3(0, 0, 6));
+    camera.setLookAt(new Point3(0, 0, -6));
+    camera.setUpVector(new Vector3(0, 1, 0));
+    camera.setFov(60.0);
+    camera.setMaxRecursionDepth(1);
+
+    // Fixed batch of rays through the view for the linear-vs-BVH comparison
+    Random random = new Random(7L);
+    Ray[] rays = new Ray[20000];
+    for (int i = 0; i < rays.length; i++) {
+      rays[i] = new Ray(camera.getCameraPosition(), new Vector3(
+        random.nextDouble() - 0.5, random.nextDouble() * 0.8 - 0.4, -1.0));
+    }
+
+    System.out.println("spheres  build(ms)  render(ms)  linear(ns/ray)  bvh(ns/ray)");
+    for (int count : SPHERE_COUNTS) {
+      Scene scene = createScene(count);
+
+      long t0 = System.nanoTime();
+      BVH bvh = scene.buildBVH();
+      long buildNanos = System.nanoTime() - t0;
+
+      ElenaMuratRayTracer tracer = new ElenaMuratRayTracer(scene, width, height, Color.BLACK);
+      tracer.setCamera(camera);
+
+      long t1 = System.nanoTime();
+      BufferedImage image = tracer.render();
+      long renderNanos = System.nanoTime() - t1;
+
+      long linear = linearScanNanos(scene, rays);
+      long accelerated = bvhNanos(bvh, rays);
+
+      System.out.println(String.format(java.util.Locale.US, "%7d  %9.2f  %10.1f  %14.1f  %11.1f",
+        count, buildNanos / 1e6, renderNanos / 1e6,
+        (double) linear / rays.length, (double) accelerated / rays.length));
+
+      if (image.getWidth() != width) throw new IllegalStateException();
+    }
+  }
+
+}
@@ -0,0 +1,153 @@
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+// Custom classes
+import net.elena.murat.shape.*;
+import net.elena.murat.lovert.*;
+import net.elena.murat.material.*;
+import net.elena.murat.math.*;
+import net.elena.murat.light.*;
+
+/**
+ * Measures time and heap allocation per ray for the basic shape
+ * intersection routines and for a full render.
+ * Allocation is read from the HotSpot per-thread allocation counter,
+ * so the numbers are only printed on JVMs that support it.
+ *
+ * Usage: java -cp ../bin/elenaRT.jar:. MathBenchmark [rays] [rounds]
+ */
+final public class MathBenchmark extends Object {
+
+  private MathBenchmark() {
+    super();
+  }
+
+  public String toString() {
+    return "MathBenchmark";
+  }
+
+  final private static com.sun.management.ThreadMXBean threadBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported()) {
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+      }
+    }
+    return null;
+  }
+
+  final private static long allocatedBytes(com.sun.management.ThreadMXBean bean) {
+    return bean == null ? 0L : bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  final private static EMShape[] createShapes() {
+    Matrix4 transform = Matrix4.translate(new Vector3(0.2, -0.1, -4.0))
+    .multiply(Matrix4.rotateY(25.0))
+    .multiply(Matrix4.scale(1.5, 1.2, 1.0));
+
+    EMShape[] shapes = {
+      new Sphere(1.0),
+      new Plane(new Point3(0, 0, 0), new Vector3(0, 0, 1)),
+      new Box(1.5, 1.0, 1.2),
+      new Cube(1.5),
+      new Triangle(new Point3(-1, -1, 0), new Point3(1, -1, 0), new Point3(0, 1, 0))
+    };
+    for (EMShape shape : shapes) {
+      shape.setTransform(transform);
+      shape.setMaterial(new LambertMaterial(Color.LIGHT_GRAY));
+    }
+    return shapes;
+  }
+
+  final private static Ray[] createRays(int count) {
+    Random random = new Random(11L);
+    Point3 origin = new Point3(0, 0, 2);
+    Ray[] rays = new Ray[count];
+    for (int i = 0; i < count; i++) {
+      rays[i] = new Ray(origin, new Vector3(
+        random.nextDouble() * 0.8 - 0.4, random.nextDouble() * 0.8 - 0.4, -1.0));
+    }
+    return rays;
+  }
+
+  // Returns {ns/ray, bytes/ray} of the fastest round
+  final private static double[] measureIntersect(EMShape shape, Ray[] rays, int rounds,
+    com.sun.management.ThreadMXBean bean) {
+    double bestNanos = Double.POSITIVE_INFINITY;
+    double bestBytes = Double.POSITIVE_INFINITY;
+    double sink = 0.0;
+    for (int round = 0; round < rounds; round++) {
+      long bytes0 = allocatedBytes(bean);
+      long t0 = System.nanoTime();
+      for (Ray ray : rays) {
+        sink += shape.intersect(ray);
+      }
+      long nanos = System.nanoTime() - t0;
+      long bytes = allocatedBytes(bean) - bytes0;
+      bestNanos = Math.min(bestNanos, (double) nanos / rays.length);
+      bestBytes = Math.min(bestBytes, (double) bytes / rays.length);
+    }
+    if (sink == 42.0) System.out.println(sink);
+    return new double[] {bestNanos, bestBytes};
+  }
+
+  final private static Scene createScene(EMShape[] shapes) {
+    Scene scene = new Scene();
+    for (EMShape shape : shapes) {
+      scene.addShape(shape);
+    }
+    scene.addLight(new ElenaMuratAmbientLight(Color.WHITE, 0.3));
+    scene.addLight(new MuratPointLight(new Point3(3, 4, 2), Color.WHITE, 1.2));
+    return scene;
+  }
+
+  public static void main(String[] args) {
+    int rayCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+
+    com.sun.management.ThreadMXBean bean = threadBean();
+    if (bean == null) {
+      System.out.println("Allocation counter not supported, bytes/ray will read 0");
+    }
+
+    EMShape[] shapes = createShapes();
+    Ray[] rays = createRays(rayCount);
+
+    System.out.println("shape      ns/ray  bytes/ray");
+    for (EMShape shape : shapes) {
+      double[] result = measureIntersect(shape, rays, rounds, bean);
+      System.out.println(String.format(java.util.Locale.US, "%-9s %7.1f  %9.1f",
+        shape.getClass().getSimpleName(), result[0], result[1]));
+    }
+
+    // One primary ray per pixel; shadow and secondary rays are included in the cost
+    int width = 320;
+    int height = 240;
+    Camera camera = new Camera();
+    camera.setCameraPosition(new Point3(0, 0, 2));
+    camera.setLookAt(new Point3(0, 0, -4));
+    camera.setUpVector(new Vector3(0, 1, 0));
+    camera.setFov(60.0);
+
+    ElenaMuratRayTracer tracer = new ElenaMuratRayTracer(createScene(shapes), width, height, Color.BLACK);
+    tracer.setCamera(camera);
+
+    double bestNanos = Double.POSITIVE_INFINITY;
+    double bestBytes = Double.POSITIVE_INFINITY;
+    for (int round = 0; round < rounds; round++) {
+      long bytes0 = allocatedBytes(bean);
+      long t0 = System.nanoTime();
+      tracer.render();
+      long nanos = System.nanoTime() - t0;
+      long bytes = allocatedBytes(bean) - bytes0;
+      bestNanos = Math.min(bestNanos, (double) nanos / (width * height));
+      bestBytes = Math.min(bestBytes, (double) bytes / (width * height));
+    }
+    System.out.println(String.format(java.util.Locale.US, "%-9s %7.1f  %9.1f",
+      "render", bestNanos, bestBytes));
+  }
+
+}
@@ -54,6 +54,7 @@ public class ElenaRayTracerGUI extends JFrame {
     private int FRAME_COUNT = 6;
 
     private boolean isCancelledAnimation = false;
+    private volatile AnimationEngine animationEngine;
 
     //private Point3 TEMPPOS = new Point3(0, 0, 0);
     //private Point3 ORIGCAMPOS = new Point3(0, 0, 0);
@@ -85,6 +86,8 @@ public class ElenaRayTracerGUI extends JFrame {
     private final JCheckBox reflcbox = ModernComponentFactory.createCheckbox("Reflective:");
     private final JCheckBox refrcbox = ModernComponentFactory.createCheckbox("Refractive:");
     private final JCheckBox shadowcbox = ModernComponentFactory.createCheckbox("Shadow:");
+    private final JCheckBox relightcbox = ModernComponentFactory.createCheckbox("Relight Light-Only Frames");
+    private final JCheckBox tileReusecbox = ModernComponentFactory.createCheckbox("Reuse Unchanged Tiles");
     //private final JCheckBox ortocbox = ModernComponentFactory.createCheckbox("Ortographic:");
 
     // Combos
@@ -400,6 +403,10 @@ public class ElenaRayTracerGUI extends JFrame {
         panel.add(countField);
         panel.add(ModernComponentFactory.createFormLabel("SumSub Camera Anim Pos:"));
         panel.add(camSumSubField);
+        relightcbox.setToolTipText("Faster light animations; keeps a G-buffer per frame in flight");
+        panel.add(relightcbox);
+        tileReusecbox.setToolTipText("Faster when few small shapes move; keeps a G-buffer per frame in flight");
+        panel.add(tileReusecbox);
 
         startBtn.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -446,6 +453,8 @@ public class ElenaRayTracerGUI extends JFrame {
             public void actionPerformed(ActionEvent e) {
                 try {
                     isCancelledAnimation = true;
+                    AnimationEngine engine = animationEngine;
+                    if (engine != null) engine.cancel();
                 } finally {
                     SwingUtilities.invokeLater(new Runnable() {
                         @Override
@@ -1737,219 +1746,89 @@ public class ElenaRayTracerGUI extends JFrame {
         originalIntensities.add(light.getIntensity());
     }
 
-    // Store end values of first half for second half
-    List<Matrix4> firstHalfEndTransforms = new ArrayList<>();
-    List<Double> firstHalfEndIntensities = new ArrayList<>();
-
     // Animation directory
     File animDir = new File("animImages/scene_" + Utilities.createDateString() + "_" + (String.format("%03d", ++CURSCN)));
     while(animDir.exists()) animDir = new File("animImages/scene_" + Utilities.createDateString() + "_" + (String.format("%03d", ++CURSCN)));
     animDir.mkdir();
-    new File("guiScenes/" + animDir.getName()).mkdir();
-
-    for (EMShape shape : Utilities.shapes) {
-        firstHalfEndTransforms.add(shape.getTransform()); // original values 
-    }
-    for (Light light : Utilities.lights) {
-        firstHalfEndIntensities.add(light.getIntensity());
-    }
-
-    // ALL FRAMES - One loop
-    for (int frame = 0; frame < totalFrames; frame++) {
-        if (isCancelledAnimation) break;
-
-        boolean isFirstHalf = frame < (totalFrames / 2);
-        int animIndex = isFirstHalf ? 0 : 1;
-        
-        // Relative frame
-        int relativeFrame;
-        if (isFirstHalf) {
-            relativeFrame = frame; // 0, 1, 2...
-        } else {
-            relativeFrame = frame - (totalFrames / 2); // 0, 1, 2...
+    File sceneDir = new File("guiScenes/" + animDir.getName());
+    sceneDir.mkdir();
+
+    // ALL FRAMES - computed before anything is rendered
+    List<AnimationFrame> frames = AnimationFrame.plan(Utilities.shapes, Utilities.lights,
+        originalCamPos, camDelta1, camDelta2, totalFrames);
+
+    // Each planned frame is applied to the scene itself, one frame at a time with
+    // every core on its tiles; shapes, lights and materials have no copy that
+    // would let two frames render side by side. PNGs are still written meanwhile.
+    final AnimatedScene animScene = new AnimatedScene(Utilities.shapes, Utilities.lights, camera);
+    AnimationEngine engine = new AnimationEngine(width, height, bgColor, new AnimationEngine.SceneFactory() {
+        @Override
+        public AnimatedScene create() {
+            return animScene;
         }
-
-        // CAMERA MOVEMENT
-        Point3 currentCamPos;
-        if (isFirstHalf) {
-            currentCamPos = originalCamPos.add(camDelta1.multiply(relativeFrame));
-        } else {
-            currentCamPos = originalCamPos.add(camDelta1.multiply(totalFrames/2))
-                                           .add(camDelta2.multiply(relativeFrame));
+    });
+    engine.setFramesInFlight(1);
+    engine.setThreadsPerFrame(Runtime.getRuntime().availableProcessors());
+    // Frames that only pulse the lights can be re-shaded from the last full render,
+    // and frames that move a few shapes re-render only the tiles those reach
+    engine.setRelight(relightcbox.isSelected());
+    engine.setTileReuse(tileReusecbox.isSelected());
+    engine.setImageDirectory(animDir);
+    engine.setSceneDirectory(sceneDir);
+
+    final String rendererText = currentTracer.toString();
+    engine.setSceneFormatter(new AnimationEngine.SceneFormatter() {
+        @Override
+        public String format(AnimationFrame frame, AnimatedScene scene, String fileName) {
+            return formatSceneFile(fileName, scene.getCamera(), rendererText,
+                                   scene.getLights(), scene.getShapes());
+        }
+    });
+    engine.setFrameListener(new AnimationEngine.FrameListener() {
+        @Override
+        public void frameWritten(AnimationFrame frame, final BufferedImage image) {
+            System.out.println("Frame " + (frame.getIndex() + 1) + "/" + (totalFrames) + " saved");
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    renderImage = image;
+                    renderPanel.setBufferedImage(image);
+                    renderPanel.repaint();
+                }
+            });
         }
-        camera.setCameraPosition(currentCamPos);
+    });
+
+    animationEngine = engine;
+    int written = 0;
+    try {
+        if (!isCancelledAnimation) written = engine.render(frames);
+    } finally {
+        animationEngine = null;
+
+        // RESTORE ORIGINAL VALUES
+        camera.setCameraPosition(originalCamPos);
         
         AnimationInfo ainfo = null;
-         
-        // UPDATE SHAPE TRANSFORMS
         for (int i = 0; i < Utilities.shapes.size(); i++) {
-            EMShape shape = Utilities.shapes.get(i);
-            Matrix4 animT = originalAnimTransforms.get(i)[animIndex];
-
-            Matrix4 scaledAnimT = new Matrix4();
-            // Transform 
-            int transformFrame = relativeFrame + 1;
-            scaledAnimT.setTx(animT.getTx() * transformFrame);
-            scaledAnimT.setTy(animT.getTy() * transformFrame);
-            scaledAnimT.setTz(animT.getTz() * transformFrame);
-            scaledAnimT.setRx(animT.getRx() * transformFrame);
-            scaledAnimT.setRy(animT.getRy() * transformFrame);
-            scaledAnimT.setRz(animT.getRz() * transformFrame);
-            scaledAnimT.setSx(((animT.getSx()-1) * transformFrame) + 1);
-            scaledAnimT.setSy(((animT.getSy()-1) * transformFrame) + 1);
-            scaledAnimT.setSz(((animT.getSz()-1) * transformFrame) + 1);
-
-            // Use different base values for second half
-            Matrix4 baseTransform;
-            if (isFirstHalf) {
-                baseTransform = originalTransforms.get(i);
-            } else {
-                // Security
-                if (i < firstHalfEndTransforms.size()) {
-                    baseTransform = firstHalfEndTransforms.get(i);
-                } else {
-                    baseTransform = originalTransforms.get(i);
-                }
-            }
-
-            Matrix4 newTransform = Matrix4.add(baseTransform, scaledAnimT);
-            shape.setTransform(newTransform);
-            
-            // firstHalfEndTransforms
-            if (isFirstHalf && frame == (totalFrames / 2) - 1) {
-                if (i < firstHalfEndTransforms.size()) {
-                    firstHalfEndTransforms.set(i, newTransform);
-                }
-            }
-            
-            String oinfo = shape.getOtherAnimationInfo();
-            String[] oinfos = oinfo.split(",");
-            final int clen = oinfos.length;
-            
-            if (oinfos != null && clen > 0 && frame < clen) {
-                ainfo = createAnimationInfo(oinfos[frame].trim().replaceAll(" ", ""));
-            } else if (originalAnimInfos != null && i < originalAnimInfos.size()) {
-                ainfo = originalAnimInfos.get(i);
-            } else {
-                ainfo = new AnimationInfo(
-                    shape.isVisible(), 
-                    shape.isShadowEnable(),
-                    shape.isShadowOnly(),
-                    shape.isReflective(),
-                    shape.isRefractive()
-                );
-            }
-            
-            shape.setVisible(ainfo.isVisible());
-            shape.setShadowEnable(ainfo.isShadowEnable());
-            shape.setShadowOnly(ainfo.isShadowOnly());
-            shape.setReflective(ainfo.isReflective());
-            shape.setRefractive(ainfo.isRefractive());
-            
-            // OBJECT TRANSFORM UPDATE:
-            Material mat = shape.getMaterial();
-            if (mat != null) {
-                mat.setObjectTransform(newTransform.inverse());
-            }
+            Utilities.shapes.get(i).setTransform(originalTransforms.get(i));
+            Utilities.shapes.get(i).setAnimationTransforms(originalAnimTransforms.get(i));
+            ainfo = originalAnimInfos.get(i);
+            Utilities.shapes.get(i).setVisible(ainfo.isVisible());
+            Utilities.shapes.get(i).setShadowEnable(ainfo.isShadowEnable());
+            Utilities.shapes.get(i).setShadowOnly(ainfo.isShadowOnly());
+            Utilities.shapes.get(i).setReflective(ainfo.isReflective());
+            Utilities.shapes.get(i).setRefractive(ainfo.isRefractive());
         }
-
-        // LIGHT INTENSITY UPDATES
         for (int i = 0; i < Utilities.lights.size(); i++) {
-            Light light = Utilities.lights.get(i);
-            double[] incDec = light.getIncDecIntensity();
-            double baseIntensity = originalIntensities.get(i);
-
-            if (isFirstHalf) {
-                double newIntensity = baseIntensity + (incDec[0] * relativeFrame);
-                light.setIntensity(newIntensity);
-                
-                // firstHalfEndIntensities
-                if (frame == (totalFrames / 2) - 1) {
-                    if (i < firstHalfEndIntensities.size()) {
-                        firstHalfEndIntensities.set(i, newIntensity);
-                    }
-                }
-            } else {
-                double firstHalfMax = baseIntensity + (incDec[0] * (totalFrames / 2));
-                double newIntensity = firstHalfMax + (incDec[1] * relativeFrame);
-                light.setIntensity(newIntensity);
-            }
+            Utilities.lights.get(i).setIntensity(originalIntensities.get(i));
         }
-
-        // RENDER
-        Scene scene = new Scene();
-        for (EMShape s : Utilities.shapes) scene.addShape(s);
-        for (Light l : Utilities.lights) scene.addLight(l);
-
-        ElenaMuratRayTracer tracer = new ElenaMuratRayTracer(scene, width, height, bgColor);
-        tracer.setCamera(camera);
-
-        renderImage = tracer.render();
-        renderPanel.setBufferedImage(renderImage);
-        renderPanel.repaint();
-
-        // SAVE
-        File file = new File(animDir.getPath() + "/animScene_" + String.format("%03d", frame) + ".png");
-        ImageIO.write(renderImage, "PNG", file);
-        saveSceneFile(file, Utilities.shapes, Utilities.lights, animDir.getName());
-
-        System.out.println("Frame " + (frame + 1) + "/" + (totalFrames) + " saved");
-        try { Thread.sleep(100); } catch (InterruptedException ex) { }
-    }
-
-    // RESTORE ORIGINAL VALUES
-    camera.setCameraPosition(originalCamPos);
-    
-    AnimationInfo ainfo = null;
-    for (int i = 0; i < Utilities.shapes.size(); i++) {
-        Utilities.shapes.get(i).setTransform(originalTransforms.get(i));
-        Utilities.shapes.get(i).setAnimationTransforms(originalAnimTransforms.get(i));
-        ainfo = originalAnimInfos.get(i);
-        Utilities.shapes.get(i).setVisible(ainfo.isVisible());
-        Utilities.shapes.get(i).setShadowEnable(ainfo.isShadowEnable());
-        Utilities.shapes.get(i).setShadowOnly(ainfo.isShadowOnly());
-        Utilities.shapes.get(i).setReflective(ainfo.isReflective());
-        Utilities.shapes.get(i).setRefractive(ainfo.isRefractive());
-    }
-    for (int i = 0; i < Utilities.lights.size(); i++) {
-        Utilities.lights.get(i).setIntensity(originalIntensities.get(i));
     }
 
     JOptionPane.showMessageDialog(renderPanel,
-    "<html><body><font color='red' size='5'>Animation completed! " + (totalFrames) + " frames</font></body></html>");
+    "<html><body><font color='red' size='5'>Animation completed! " + (written) + " frames</font></body></html>");
   }
 
-	private AnimationInfo createAnimationInfo(String mtext) {
-	    //veofr: visibility, shadowEnable, shadowOnly, reflectivity, refractivity
-	    AnimationInfo ainfo = new AnimationInfo(true, true, false, true, true);
-	    if (mtext.length() < 5) return ainfo;
-	    
-	    String text = mtext.toLowerCase();
-	    
-	    boolean isVisibleShape = true;
-	    boolean isShadowEnableShape = true;
-	    boolean isShadowOnlyShape = false;
-	    boolean isReflectiveShape = true;
-	    boolean isRefractiveShape = true;
-	    
-	    char chr = text.charAt(0);
-	    if (chr != 'v') isVisibleShape = false;
-	    chr = text.charAt(1);
-	    if (chr != 'e') isShadowEnableShape = false;
-	    chr = text.charAt(2);
-	    if (chr == 'o') isShadowOnlyShape = true;
-	    chr = text.charAt(3);
-	    if (chr != 'f') isReflectiveShape = false;
-	    chr = text.charAt(4);
-	    if (chr != 'r') isRefractiveShape = false;
-	    
-	    ainfo = new AnimationInfo(isVisibleShape, isShadowEnableShape,
-	                              isShadowOnlyShape, isReflectiveShape,
-	                              isRefractiveShape);
-	    
-	    return ainfo;
-	}
-	
     private void renderScene() {
         try {
             Scene scene = new Scene();
@@ -2133,31 +2012,23 @@ public class ElenaRayTracerGUI extends JFrame {
         return;
     }
 
-    private final void saveSceneFile(File fx,
-    java.util.List<EMShape> scShapes,
+    private final String formatSceneFile(String fileName,
+    Camera scCamera,
+    String rendererText,
     java.util.List<Light> scLights,
-    String sceneDirName) throws IOException {
-        String name = fx.getName();
-        int index = name.lastIndexOf(".");
-        if (index < 0) return;
-        name = name.substring(0, index);
-
-        name = "guiScenes/" + sceneDirName + "/" + name + ".txt";
-
-        File f = new File(name);
-
-        OutputStream fos = new FileOutputStream(f);
-        PrintStream ps = new PrintStream(fos, true, "UTF-8");
+    java.util.List<EMShape> scShapes) {
+        java.io.StringWriter sw = new java.io.StringWriter();
+        java.io.PrintWriter ps = new java.io.PrintWriter(sw);
 
         ps.println("# ===================================================");
-        ps.println("# " + f.getName());
+        ps.println("# " + fileName);
         ps.println("# ===================================================\n");
 
         ps.println("# Camera Settings");
-        ps.println(camera.toString());
+        ps.println(scCamera.toString());
 
         ps.println("# Renderer Settings");
-        ps.println(currentTracer.toString());
+        ps.println(rendererText);
 
         ps.println("# Lighting");
 
@@ -2176,14 +2047,9 @@ public class ElenaRayTracerGUI extends JFrame {
         }
 
         ps.println("\n-END-");
-
         ps.flush();
-        ps.close();
-        fos.flush();
-        fos.close();
 
-        System.out.println("Saved: " + f.getName());
-        return;
+        return sw.toString();
     }
 
     private final String toTransformString() {
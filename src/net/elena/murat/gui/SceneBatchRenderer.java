@@ -0,0 +1,343 @@
+// SceneBatchRenderer.java
+package net.elena.murat.gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+// CUSTOM
+import net.elena.murat.lovert.ElenaMuratRayTracer;
+
+/**
+ * Renders scene files to PNG without the GUI.
+ * <p>
+ * All scenes share one pool of render threads. A few scenes are kept in
+ * flight at once, so one scene's last tiles and the next scene's parsing
+ * and PNG writing overlap. Per scene timings are written to a CSV summary
+ * next to the images.
+ * </p>
+ * Usage:
+ * <pre>
+ * java -Djava.awt.headless=true -cp bin/coreElenaRT.jar net.elena.murat.gui.SceneBatchRenderer
+ *      [-out dir] [-width n] [-height n] [-threads n] [-jobs n] [-samples n] [-lightcull x] [-manylights n] scene.txt|sceneDir ...
+ * </pre>
+ * Only java.awt.image and javax.imageio are used, so no display is needed.
+ */
+public class SceneBatchRenderer {
+
+    public static final String SUMMARY_FILE = "render-summary.csv";
+
+    private static final class SceneResult {
+        final File scene;
+        File image;
+        int width;
+        int height;
+        long parseNanos;
+        long renderNanos;
+        long writeNanos;
+        String error;
+
+        SceneResult(File scene) {
+            this.scene = scene;
+        }
+    }
+
+    private final File outputDir;
+    private final int width;
+    private final int height;
+    private final int threads;
+    private final int jobs;
+    private int maxSamples = 1;
+    private double aaThreshold = 0.05;
+    private double lightCullThreshold = 0.0;
+    private int manyLightSamples = 0;
+
+    // Scene parsing goes through Utilities' static helpers; parse one file at a time
+    private final Object parseLock = new Object();
+
+    /**
+     * @param outputDir Directory for the PNGs and the summary
+     * @param width Image width, or 0 for the size in each scene file
+     * @param height Image height, or 0 for the size in each scene file
+     * @param threads Render threads shared by all scenes
+     * @param jobs Scenes in flight at once
+     */
+    public SceneBatchRenderer(File outputDir, int width, int height, int threads, int jobs) {
+        this.outputDir = outputDir;
+        this.width = width;
+        this.height = height;
+        this.threads = Math.max(1, threads);
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Renders with adaptive anti-aliasing, see
+     * {@link ElenaMuratRayTracer#setAntiAliasing(int, double)}.
+     */
+    public void setAntiAliasing(int maxSamples, double threshold) {
+        this.maxSamples = maxSamples;
+        this.aaThreshold = threshold;
+    }
+
+    /**
+     * See {@link ElenaMuratRayTracer#setLightCullThreshold(double)}.
+     */
+    public void setLightCullThreshold(double threshold) {
+        this.lightCullThreshold = threshold;
+    }
+
+    /**
+     * See {@link ElenaMuratRayTracer#setManyLights(int)}.
+     */
+    public void setManyLights(int samplesPerHit) {
+        this.manyLightSamples = samplesPerHit;
+    }
+
+    /**
+     * Renders every scene, writes the PNGs and the summary.
+     * @param scenes Scene files, rendered and listed in this order
+     * @return Number of scenes that failed
+     */
+    public int renderAll(List<File> scenes) throws IOException, InterruptedException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Can not create output directory: " + outputDir);
+        }
+
+        final ForkJoinPool renderPool = new ForkJoinPool(threads);
+        ExecutorService sceneExecutor = Executors.newFixedThreadPool(jobs);
+        List<Future<SceneResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try {
+            for (final File scene : scenes) {
+                futures.add(sceneExecutor.submit(new Callable<SceneResult>() {
+                    @Override
+                    public SceneResult call() {
+                        return renderOne(scene, renderPool);
+                    }
+                }));
+            }
+
+            List<SceneResult> results = new ArrayList<>();
+            for (Future<SceneResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // renderOne catches everything it can; this is an Error
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            writeSummary(results);
+
+            int failed = 0;
+            for (SceneResult r : results) {
+                if (r.error != null) failed++;
+            }
+            System.out.println(String.format(Locale.ROOT, "%d scenes, %d failed, %.1f ms total",
+                results.size(), failed, (System.nanoTime() - start) / 1e6));
+            return failed;
+        } finally {
+            sceneExecutor.shutdownNow();
+            renderPool.shutdown();
+        }
+    }
+
+    private SceneResult renderOne(File sceneFile, ForkJoinPool renderPool) {
+        SceneResult result = new SceneResult(sceneFile);
+        try {
+            long t0 = System.nanoTime();
+            ElenaMuratRayTracer tracer;
+            synchronized (parseLock) {
+                SceneParser parser = new SceneParser();
+                parser.parseScene(sceneFile);
+                result.width = width > 0 ? width : parser.getWidth();
+                result.height = height > 0 ? height : parser.getHeight();
+                tracer = parser.createTracer(result.width, result.height);
+            }
+            tracer.setRenderPool(renderPool);
+            tracer.setAntiAliasing(maxSamples, aaThreshold);
+            tracer.setLightCullThreshold(lightCullThreshold);
+            tracer.setManyLights(manyLightSamples);
+
+            long t1 = System.nanoTime();
+            BufferedImage image = tracer.render();
+
+            long t2 = System.nanoTime();
+            result.image = new File(outputDir, imageName(sceneFile));
+            if (!ImageIO.write(image, "PNG", result.image)) {
+                throw new IOException("No PNG writer available");
+            }
+
+            long t3 = System.nanoTime();
+            result.parseNanos = t1 - t0;
+            result.renderNanos = t2 - t1;
+            result.writeNanos = t3 - t2;
+
+            System.out.println(String.format(Locale.ROOT, "%s: %dx%d render %.1f ms",
+                sceneFile.getName(), result.width, result.height, result.renderNanos / 1e6));
+        } catch (Exception | LinkageError e) {
+            // LinkageError: a custom shape/material class from the scene did not load
+            result.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            System.err.println(sceneFile.getName() + ": " + result.error);
+        }
+        return result;
+    }
+
+    private static String imageName(File sceneFile) {
+        String name = sceneFile.getName();
+        int index = name.lastIndexOf(".");
+        if (index > 0) name = name.substring(0, index);
+        return name + ".png";
+    }
+
+    private void writeSummary(List<SceneResult> results) throws IOException {
+        File file = new File(outputDir, SUMMARY_FILE);
+        try (PrintStream ps = new PrintStream(file, "UTF-8")) {
+            ps.println("scene,image,width,height,parse_ms,render_ms,write_ms,status,error");
+            for (SceneResult r : results) {
+                ps.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.3f,%s,%s",
+                    csv(r.scene.getPath()),
+                    r.error == null ? csv(r.image.getPath()) : "",
+                    r.width, r.height,
+                    r.parseNanos / 1e6, r.renderNanos / 1e6, r.writeNanos / 1e6,
+                    r.error == null ? "ok" : "failed",
+                    r.error == null ? "" : csv(r.error)));
+            }
+        }
+        System.out.println("Summary: " + file.getPath());
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Expands directories to the .txt scene files directly inside them,
+     * sorted by name.
+     */
+    private static List<File> collectScenes(List<String> paths) throws IOException {
+        List<File> scenes = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children == null) throw new IOException("Can not list directory: " + path);
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isFile() && child.getName().toLowerCase(Locale.ROOT).endsWith(".txt")) {
+                        scenes.add(child);
+                    }
+                }
+            } else if (file.isFile()) {
+                scenes.add(file);
+            } else {
+                throw new IOException("No such scene file or directory: " + path);
+            }
+        }
+        return scenes;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -Djava.awt.headless=true -cp bin/coreElenaRT.jar "
+            + "net.elena.murat.gui.SceneBatchRenderer [options] scene.txt|sceneDir ...");
+        System.out.println("  -out <dir>      output directory for PNGs and " + SUMMARY_FILE + " (default: renders)");
+        System.out.println("  -width <n>      image width (default: from each scene)");
+        System.out.println("  -height <n>     image height (default: from each scene)");
+        System.out.println("  -threads <n>    render threads shared by all scenes (default: all cores)");
+        System.out.println("  -jobs <n>       scenes in flight at once (default: 2)");
+        System.out.println("  -samples <n>    adaptive anti-aliasing, up to n rays per pixel (default: 1, off)");
+        System.out.println("  -threshold <x>  color difference 0-1 that gets a pixel more rays (default: 0.05)");
+        System.out.println("  -lightcull <x>  skip lights estimated to add less than x (default: 0, off)");
+        System.out.println("  -manylights <n> shade n lights per hit picked from a light tree (default: 0, all lights)");
+    }
+
+    public static void main(String[] args) {
+        // Nothing here needs a display; make sure AWT never looks for one
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        if (args.length == 0 || args[0].equals("-help") || args[0].equals("--help")) {
+            printUsage();
+            return;
+        }
+
+        File outputDir = new File("renders");
+        int width = 0;
+        int height = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int jobs = 2;
+        int samples = 1;
+        double threshold = 0.05;
+        double lightCull = 0.0;
+        int manyLights = 0;
+        List<String> paths = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("-")) {
+                    paths.add(arg);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "-out": outputDir = new File(value); break;
+                    case "-width": width = parsePositive(arg, value); break;
+                    case "-height": height = parsePositive(arg, value); break;
+                    case "-threads": threads = parsePositive(arg, value); break;
+                    case "-jobs": jobs = parsePositive(arg, value); break;
+                    case "-samples": samples = parsePositive(arg, value); break;
+                    case "-threshold": threshold = Double.parseDouble(value); break;
+                    case "-lightcull": lightCull = Double.parseDouble(value); break;
+                    case "-manylights": manyLights = parsePositive(arg, value); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+
+            List<File> scenes = collectScenes(paths);
+            if (scenes.isEmpty()) {
+                throw new IllegalArgumentException("No scene files given");
+            }
+
+            SceneBatchRenderer renderer = new SceneBatchRenderer(outputDir, width, height, threads, jobs);
+            renderer.setAntiAliasing(samples, threshold);
+            renderer.setLightCullThreshold(lightCull);
+            renderer.setManyLights(manyLights);
+            int failed = renderer.renderAll(scenes);
+            System.exit(failed == 0 ? 0 : 1);
+        } catch (Exception e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.println("Use -help for usage information");
+            System.exit(2);
+        }
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) return n;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " needs a positive number: " + value);
+    }
+
+}
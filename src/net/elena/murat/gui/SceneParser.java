@@ -55,6 +55,40 @@ public class SceneParser {
         return render();
     }
 
+    /**
+     * Parses a scene file without rendering it. The result is available
+     * through the getters and {@link #createTracer()}.
+     */
+    public void parseScene(File file) throws IOException {
+        parseSceneFile(file);
+    }
+
+    /**
+     * Builds a tracer for the last parsed scene, with its camera,
+     * size and background color.
+     */
+    public ElenaMuratRayTracer createTracer() {
+        return createTracer(width, height);
+    }
+
+    /**
+     * Builds a tracer for the last parsed scene at the given size,
+     * with the scene's camera and background color.
+     */
+    public ElenaMuratRayTracer createTracer(int imageWidth, int imageHeight) {
+        Scene scene = new Scene();
+        for (EMShape shape : sceneShapes) {
+            scene.addShape(shape);
+        }
+        for (Light light : sceneLights) {
+            scene.addLight(light);
+        }
+
+        ElenaMuratRayTracer tracer = new ElenaMuratRayTracer(scene, imageWidth, imageHeight, bgColor);
+        tracer.setCamera(camera);
+        return tracer;
+    }
+
     private void parseSceneFile(String filename) throws IOException {
         parseSceneFile(new File(filename));
     }
@@ -151,67 +185,100 @@ public class SceneParser {
         }
     }
 
-    private void parseLight(String content) {
+    /**
+     * Builds a new light from one light block of a scene file, such as
+     * the text Light.toString() returns.
+     * @return The light, or null if the block could not be parsed
+     */
+    public Light createLight(String text) {
         try {
-            String[] lines = content.split("\n");
-            String firstLine = lines[0].trim();
+            String content = normalizeBlock(text);
+            String firstLine = content.split("\n")[0].trim();
             String lightType = firstLine.split(" ")[0];
-            String lightName = firstLine.split(" ")[1];
 
-            Light light = Utilities.createLightFromText(lightType, content);
-            if (light != null) {
-                lights.put(lightName, light);
-                System.out.println("Light parsed: " + lightName);
-            }
+            return Utilities.createLightFromText(lightType, content);
         } catch (Exception e) {
             System.err.println("Light parse error: " + e.getMessage());
+            return null;
         }
     }
 
-    private void parseShape(String content) {
+    /**
+     * Builds a new shape, with its transform and material, from one shape
+     * block of a scene file, such as the text EMShape.toString() returns.
+     * @return The shape, or null if the block could not be parsed
+     */
+    public EMShape createShape(String text) {
         try {
-            EMShape shape = null;
+            String content = normalizeBlock(text);
             String shapeType = "";
-            String originalName = "";
-
-            String[] lines = content.split("\n");
-            if (lines.length > 0) {
-                String firstLine = lines[0].trim();
-                String[] parts = firstLine.split("\\s+");
-                if (parts.length >= 2) {
-                    shapeType = parts[0];
-                    originalName = parts[1];
-                }
+
+            String firstLine = content.split("\n")[0].trim();
+            String[] parts = firstLine.split("\\s+");
+            if (parts.length >= 2) {
+                shapeType = parts[0];
             }
 
-            boolean isCSG = shapeType.contains("CSG");
+            if (shapeType.contains("CSG")) {
+                return parseCSGShape(content);
+            }
 
-            if (isCSG) {
-                shape = parseCSGShape(content);
-                if (shape == null) return;
+            EMShape shape = Utilities.createShapeFromText(shapeType, content);
+            if (shape != null) {
+                Matrix4 transform = parseTransformFromContent(content);
+                shape.setTransform(transform);
 
-                String uniqueName = originalName + "_" + (shapeCounter++);
-                shapes.put(uniqueName, shape);
+                Material material = extractMaterialFromShape(content);
+                if (material != null) {
+                    material.setObjectTransform(transform.inverse());
+                    shape.setMaterial(material);
+                }
+            }
+            return shape;
+        } catch (Exception e) {
+            System.err.println("Shape parse error: " + e.getMessage());
+            return null;
+        }
+    }
 
-            } else {
-                shape = Utilities.createShapeFromText(shapeType, content);
-                if (shape != null) {
-                    Matrix4 transform = parseTransformFromContent(content);
-                    shape.setTransform(transform);
+    // Same line cleanup readFileLines does for a whole file
+    private String normalizeBlock(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("//") && !line.startsWith("#")) {
+                sb.append(line).append("\n");
+            }
+        }
+        return sb.toString();
+    }
 
-                    Material material = extractMaterialFromShape(content);
-                    if (material != null) {
-                        material.setObjectTransform(transform.inverse());
-                        shape.setMaterial(material);
-                    }
+    private void parseLight(String content) {
+        try {
+            String firstLine = content.split("\n")[0].trim();
+            String lightName = firstLine.split(" ")[1];
 
-                    String uniqueName = originalName + "_" + (shapeCounter++);
-                    shapes.put(uniqueName, shape);
-                }
+            Light light = createLight(content);
+            if (light != null) {
+                lights.put(lightName, light);
+                System.out.println("Light parsed: " + lightName);
             }
-
         } catch (Exception e) {
-            System.err.println("Shape parse error: " + e.getMessage());
+            System.err.println("Light parse error: " + e.getMessage());
+        }
+    }
+
+    private void parseShape(String content) {
+        String originalName = "";
+        String[] parts = content.split("\n")[0].trim().split("\\s+");
+        if (parts.length >= 2) {
+            originalName = parts[1];
+        }
+
+        EMShape shape = createShape(content);
+        if (shape != null) {
+            String uniqueName = originalName + "_" + (shapeCounter++);
+            shapes.put(uniqueName, shape);
         }
     }
 
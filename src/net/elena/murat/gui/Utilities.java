@@ -28,7 +28,8 @@ import net.elena.murat.lovert.*;
 import net.elena.murat.util.*;
 
 public class Utilities extends Object {
-    private static JComponent pane = new JTextField("");
+    // Set by the GUI; stays null in headless use so no Swing class is created
+    private static JComponent pane = null;
 
     protected static java.util.List<EMShape> shapes = new ArrayList<>();
     protected static java.util.List<Light> lights = new ArrayList<>();
@@ -122,6 +123,15 @@ public class Utilities extends Object {
         pane = c;
     }
 
+    // Dialog in the GUI, stderr when there is no display (batch rendering)
+    private static void showParseError(String message) {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println(message);
+        } else {
+            JOptionPane.showMessageDialog(pane, message);
+        }
+    }
+
     public static boolean isMaterialLine(String line) {
         line = line.toLowerCase();
         return line.contains("material") &&
@@ -649,7 +659,7 @@ public class Utilities extends Object {
                 return new MuratPointLight(new Point3(5,5,5), Color.WHITE, 1.0);
             }
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(pane, "Light parse error: " + e.getMessage());
+            showParseError("Light parse error: " + e.getMessage());
             return new MuratPointLight(new Point3(5,5,5), Color.WHITE, 1.0);
         }
     }
@@ -1218,7 +1228,7 @@ public class Utilities extends Object {
                 return new Sphere(1.0);
             }
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(pane, "Shape parse error: " + e.getMessage());
+            showParseError("Shape parse error: " + e.getMessage());
             return null;
         }
     }
@@ -2458,7 +2468,7 @@ public class Utilities extends Object {
                 return new DiffuseMaterial(Color.GRAY);
             }
         } catch (Exception e) {
-            JOptionPane.showMessageDialog(pane, "Material parse error: " + e.getMessage());
+            showParseError("Material parse error: " + e.getMessage());
             return new DiffuseMaterial(Color.GRAY);
         }
     }
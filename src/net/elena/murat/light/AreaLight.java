@@ -1,7 +1,6 @@
 package net.elena.murat.light;
 
 import java.awt.Color;
-import java.util.random.RandomGenerator;
 
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
@@ -27,7 +26,6 @@ public class AreaLight implements Light {
   private double intensity; // Base intensity
   private final int samplesU;     // Number of horizontal samples
   private final int samplesV;     // Number of vertical samples
-  private final RandomGenerator random;
   private String name = "area";
   
   /**
@@ -54,7 +52,6 @@ public class AreaLight implements Light {
     this.intensity = Math.max(0, intensity);
     this.samplesU = Math.max(1, samplesU);
     this.samplesV = Math.max(1, samplesV);
-    this.random = RandomGenerator.getDefault();
   }
   
   /**
@@ -121,23 +118,63 @@ public class AreaLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Bounds the rectangle by the ball around its center through its
+   * corners, and attenuates by the distance to that ball.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double extent = getBoundingRadius();
+    double facing = Light.facingBound(point, normal, position, extent);
+    if (facing <= 0.0) return 0.0;
+    double distance = Math.max(0.0, getDistanceTo(point) - extent);
+    double attenuation = 1.0 + 0.1 * distance + 0.01 * distance * distance;
+    return Math.abs(intensity) / Math.max(attenuation, Ray.EPSILON) * facing;
+  }
+  
+  /**
+   * Half the diagonal of the rectangle.
+   */
+  @Override
+  public double getBoundingRadius() {
+    return 0.5 * Math.sqrt(width * width + height * height);
+  }
+  
+  @Override
+  public int getSampleCount() {
+    return samplesU * samplesV;
+  }
+  
+  /**
+   * Samples the rectangle on a samplesU x samplesV grid, one jittered
+   * point per cell. A single sample is the center, like a point light.
+   */
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    int count = samplesU * samplesV;
+    Point3 samplePoint = count > 1 ? generateSamplePoint(sample, index) : position;
+    Vector3 toLight = samplePoint.subtract(point);
+    double area = width * height;
+    sample.set(this, point,
+      toLight.length() < Ray.EPSILON ? new Vector3(0, 0, 0) : toLight.normalize(),
+      toLight.length(), area > 0 ? 1.0 / area : 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     // Multi-sample shadow testing for soft shadows
+    LightSample sample = new LightSample();
     int visibleSamples = 0;
-    int totalSamples = samplesU * samplesV;
+    int totalSamples = getSampleCount();
     
-    for (int i = 0; i < samplesU; i++) {
-      for (int j = 0; j < samplesV; j++) {
-        Point3 samplePoint = generateSamplePoint(i, j);
-        Vector3 direction = samplePoint.subtract(point).normalize();
-        double distance = samplePoint.distance(point);
-        
-        // Offset ray origin to prevent self-intersection
-        Ray shadowRay = new Ray(point.add(direction.scale(Ray.EPSILON * 10)), direction);
-        if (!scene.intersects(shadowRay, distance - Ray.EPSILON)) {
-          visibleSamples++;
-        }
+    for (int i = 0; i < totalSamples; i++) {
+      sample(point, i, sample);
+      Vector3 direction = sample.getDirection();
+      
+      // Offset ray origin to prevent self-intersection
+      Ray shadowRay = new Ray(point.add(direction.scale(Ray.EPSILON * 10)), direction);
+      if (!scene.intersects(shadowRay, sample.getDistance() - Ray.EPSILON)) {
+        visibleSamples++;
       }
     }
     
@@ -148,10 +185,13 @@ public class AreaLight implements Light {
   /**
    * Generates a sample point on the light surface using stratified sampling.
    */
-  private Point3 generateSamplePoint(int i, int j) {
+  private Point3 generateSamplePoint(LightSample sample, int index) {
+    int i = index % samplesU;
+    int j = (index / samplesU) % samplesV;
+    
     // Stratified sampling with jitter
-    double u = ((i + random.nextDouble()) / samplesU) - 0.5;
-    double v = ((j + random.nextDouble()) / samplesV) - 0.5;
+    double u = ((i + sample.jitter(index, 0)) / samplesU) - 0.5;
+    double v = ((j + sample.jitter(index, 1)) / samplesV) - 0.5;
     
     Vector3 offset = right.scale(u * width).add(up.scale(v * height));
     return position.add(offset);
@@ -106,6 +106,42 @@ public class BioluminescentLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Intensity of the closest organism, which is the brightest, with the
+   * best facing of all organisms.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double facing = 0.0;
+    for (int i = 0; i < organismPositions.size() && facing < 1.0; i++) {
+      facing = Math.max(facing, Light.facingBound(point, normal, organismPositions.get(i), 0.0));
+    }
+    return facing > 0.0 ? Math.abs(getAttenuatedIntensity(point)) * facing : 0.0;
+  }
+  
+  /**
+   * Distance from the first organism, which is the light's position, to
+   * the farthest one.
+   */
+  @Override
+  public double getBoundingRadius() {
+    Point3 first = organismPositions.get(0);
+    double radius = 0.0;
+    for (int i = 1; i < organismPositions.size(); i++) {
+      radius = Math.max(radius, first.distance(organismPositions.get(i)));
+    }
+    return radius;
+  }
+  
+  /**
+   * Shadows are cast towards the averaged organism direction, up to the
+   * closest organism.
+   */
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    sample.set(this, point, getDirectionAt(point), getClosestDistance(point), 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     Point3 closest = findClosestPosition(point);
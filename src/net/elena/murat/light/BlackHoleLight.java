@@ -95,6 +95,29 @@ public class BlackHoleLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Includes the warp factor, since getDirectionAt returns a scaled vector
+   * and materials take its dot product with the normal as is.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double dist = singularity.distance(point);
+    if (dist < eventHorizonRadius) return 0.0;
+    double facing = Light.facingBound(point, normal, singularity, 0.0);
+    if (facing <= 0.0) return 0.0;
+    double warpFactor = GRAVITATIONAL_WARP_FACTOR / (1.0 - Math.exp(-dist / eventHorizonRadius));
+    return Math.abs(getAttenuatedIntensity(point)) * facing * Math.abs(warpFactor);
+  }
+  
+  /**
+   * Straight line to the singularity; the warp only bends the shading.
+   */
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    Vector3 toLight = singularity.subtract(point);
+    sample.set(this, point, toLight.normalize(), toLight.length(), 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     if (isPointBeyondEventHorizon(point)) {
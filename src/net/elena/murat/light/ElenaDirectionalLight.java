@@ -74,6 +74,16 @@ public class ElenaDirectionalLight implements Light {
     return intensity; // Uniform intensity everywhere
   }
   
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    return Math.abs(intensity) * Math.max(0.0, -normal.dot(direction));
+  }
+  
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    sample.set(this, point, direction.negate().normalize(), Double.POSITIVE_INFINITY, 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     Ray shadowRay = new Ray(
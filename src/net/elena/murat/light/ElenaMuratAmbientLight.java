@@ -69,6 +69,14 @@ public class ElenaMuratAmbientLight implements Light {
     return intensity;
   }
   
+  /**
+   * Ambient light has no direction; the tracer never culls it.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    return Math.abs(intensity);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     return true; // Ambient light is always visible
@@ -4,6 +4,7 @@ import java.awt.Color;
 
 import net.elena.murat.math.*;
 import net.elena.murat.lovert.Scene;
+import net.elena.murat.util.NoiseUtil;
 
 public class FractalLight implements Light {
   private final Point3 position;
@@ -96,68 +97,9 @@ public class FractalLight implements Light {
   }
   
   private double fractalNoise(double x, double y, double z) {
-    double total = 0;
-    double amplitude = 1.0;
-    double maxAmplitude = 0;
-    double freq = frequency;
-    
-    for (int i = 0; i < octaves; i++) {
-      total += improvedNoise(x * freq, y * freq, z * freq) * amplitude;
-      maxAmplitude += amplitude;
-      amplitude *= persistence;
-      freq *= 2.0;
-    }
-    
-    return total / maxAmplitude;
-  }
-  
-  private double improvedNoise(double x, double y, double z) {
-    // Ken Perlin'in geliştirilmiş gürültü algoritması
-    int xi = (int)Math.floor(x) & 255;
-    int yi = (int)Math.floor(y) & 255;
-    int zi = (int)Math.floor(z) & 255;
-    
-    double xf = x - Math.floor(x);
-    double yf = y - Math.floor(y);
-    double zf = z - Math.floor(z);
-    
-    double u = fade(xf);
-    double v = fade(yf);
-    double w = fade(zf);
-    
-    int aaa = permutations[permutations[permutations[xi] + yi] + zi];
-    int aba = permutations[permutations[permutations[xi] + yi + 1] + zi];
-    int aab = permutations[permutations[permutations[xi] + yi] + zi + 1];
-    int abb = permutations[permutations[permutations[xi] + yi + 1] + zi + 1];
-    int baa = permutations[permutations[permutations[xi + 1] + yi] + zi];
-    int bba = permutations[permutations[permutations[xi + 1] + yi + 1] + zi];
-    int bab = permutations[permutations[permutations[xi + 1] + yi] + zi + 1];
-    int bbb = permutations[permutations[permutations[xi + 1] + yi + 1] + zi + 1];
-    
-    double x1 = lerp(u, grad(aaa, xf, yf, zf), grad(baa, xf-1, yf, zf));
-    double x2 = lerp(u, grad(aba, xf, yf-1, zf), grad(bba, xf-1, yf-1, zf));
-    double y1 = lerp(v, x1, x2);
-    
-    x1 = lerp(u, grad(aab, xf, yf, zf-1), grad(bab, xf-1, yf, zf-1));
-    x2 = lerp(u, grad(abb, xf, yf-1, zf-1), grad(bbb, xf-1, yf-1, zf-1));
-    double y2 = lerp(v, x1, x2);
-    
-    return (lerp(w, y1, y2) + 1) / 2; // [-1,1] -> [0,1] aralığına normalize
-  }
-  
-  private double fade(double t) {
-    return t * t * t * (t * (t * 6 - 15) + 10);
-  }
-  
-  private double lerp(double t, double a, double b) {
-    return a + t * (b - a);
-  }
-  
-  private double grad(int hash, double x, double y, double z) {
-    int h = hash & 15;
-    double u = h < 8 ? x : y;
-    double v = h < 4 ? y : (h == 12 || h == 14 ? x : z);
-    return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+    double n = NoiseUtil.fbm(permutations, x * frequency, y * frequency, z * frequency,
+      octaves, 2.0, persistence);
+    return (n + 1) / 2; // [-1,1] -> [0,1]
   }
   
   // Light interface diğer metodları
@@ -172,6 +114,21 @@ public class FractalLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * The noise stays close to [0, 1], so the intensity never exceeds the
+   * base intensity by much; 10% covers the overshoot of the gradient noise.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    return Math.abs(baseIntensity) * 1.1 * Light.facingBound(point, normal, position, 0.0);
+  }
+  
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    Vector3 toLight = position.subtract(point);
+    sample.set(this, point, toLight.normalize(), toLight.length(), 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     Vector3 lightDir = getDirectionTo(point);
@@ -28,6 +28,82 @@ public interface Light {
   
   boolean isVisibleFrom(Point3 point, Scene scene);
   
+  /**
+   * Radius of a ball around getPosition() holding every point the light
+   * shines from; 0 for lights that are a single point.
+   */
+  default double getBoundingRadius() {
+    return 0.0;
+  }
+  
+  /**
+   * Number of samples the tracer takes of this light at every shading
+   * point. Lights with a surface return more than one to get soft shadows.
+   */
+  default int getSampleCount() {
+    return 1;
+  }
+  
+  /**
+   * Fills one sample of this light seen from a surface point. The default
+   * aims at getPosition(), or along getDirectionAt for lights without one.
+   * @param point Surface point in world coordinates
+   * @param index Sample number, 0 to getSampleCount() - 1; lights with a
+   * surface spread the samples over it, one stratum per index
+   * @param sample Record to fill
+   */
+  default void sample(Point3 point, int index, LightSample sample) {
+    Point3 position = getPosition();
+    double distance = position != null ? position.distance(point) : Double.POSITIVE_INFINITY;
+    sample.set(this, point, getDirectionAt(point), distance, 1.0);
+  }
+  
+  /**
+   * Cheap upper bound on what this light can add at a surface point: the
+   * largest attenuated intensity it can have there, times the largest
+   * cosine between the normal and a direction towards it, 0 when the
+   * surface faces away or the point is out of reach (outside a spot cone,
+   * inside an event horizon).
+   * <p>
+   * The tracer may skip a light whose bound is below its cull threshold,
+   * shading and shadow ray included, so implementations must never return
+   * less than the light delivers. Lights that cannot tell keep this
+   * default, which is never skipped.
+   * </p>
+   * @param point Surface point in world coordinates
+   * @param normal Unit surface normal facing the viewer
+   * @return Upper bound, at least 0
+   */
+  default double estimateContribution(Point3 point, Vector3 normal) {
+    return Double.POSITIVE_INFINITY;
+  }
+  
+  /**
+   * Largest cosine between a normal and the directions from a point
+   * towards a ball-shaped light, used by estimateContribution.
+   * @param center Center of the light
+   * @param extent Radius of a ball around center holding the whole light, 0 for a point
+   * @return Cosine bound in [0, 1]; 1 when the point lies inside the ball
+   */
+  static double facingBound(Point3 point, Vector3 normal, Point3 center, double extent) {
+    double dx = center.x - point.x;
+    double dy = center.y - point.y;
+    double dz = center.z - point.z;
+    double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+    if (distance <= extent) return 1.0;
+    
+    double cos = (normal.x * dx + normal.y * dy + normal.z * dz) / distance;
+    if (extent <= 0.0) return Math.max(0.0, cos);
+    
+    // Tilt the direction to the center towards the normal by the ball's
+    // half angle: cos(angle - half) without calling acos and asin
+    double sinHalf = extent / distance;
+    double cosHalf = Math.sqrt(1.0 - sinHalf * sinHalf);
+    if (cos >= cosHalf) return 1.0;
+    double sin = Math.sqrt(Math.max(0.0, 1.0 - cos * cos));
+    return Math.max(0.0, cos * cosHalf + sin * sinHalf);
+  }
+  
   String getName();
   void setName(String name);
 }
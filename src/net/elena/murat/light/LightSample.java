@@ -0,0 +1,136 @@
+package net.elena.murat.light;
+
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * One sample of a light as seen from a surface point, filled by
+ * {@link Light#sample(Point3, int, LightSample)}.
+ * <p>
+ * The direction is the unit vector from the point towards the sampled spot
+ * of the light and the distance is measured along it, infinite for lights
+ * that have no position. The PDF is the density of picking that spot over
+ * the light's surface, 1 for lights that are a single point or direction.
+ * The radiance is the light's intensity arriving at the point; it is only
+ * worked out when asked for, since the tracer's shadow rays do not need it.
+ * </p>
+ * <p>
+ * The lights place their samples with {@link #jitter(int, int)}: one fixed
+ * stratified pattern, shifted per pixel (a Cranley-Patterson rotation). The
+ * shifts of neighbouring pixels follow a low-discrepancy sequence, so they
+ * spread evenly over the strata and a penumbra's error is a fine, even
+ * pattern rather than white noise.
+ * </p>
+ * A sample is reused for every light of one tile and is not thread-safe.
+ */
+public final class LightSample {
+
+  // Steps of the R3 low-discrepancy sequence, powers of one over the root of x^4 = x + 1
+  private static final double[] ROTATION_STEPS = {
+    0.8191725133961645, 0.6710436067037893, 0.5497004779019703
+  };
+
+  private Light light;
+  private Point3 point;
+  private Vector3 direction;
+  private double distance;
+  private double pdf;
+  private double radiance;
+  private boolean hasRadiance;
+
+  // Shift of each jitter dimension for the pixel being shaded
+  private final double[] rotation = new double[ROTATION_STEPS.length];
+
+  /**
+   * @param light Light that was sampled
+   * @param point Surface point the light is seen from
+   * @param direction Unit direction towards the sampled spot, or null when the light does not reach the point
+   * @param distance Distance to the sampled spot
+   * @param pdf Density of the sampled spot on the light, 1 for point and directional lights
+   */
+  public void set(Light light, Point3 point, Vector3 direction, double distance, double pdf) {
+    this.light = light;
+    this.point = point;
+    this.direction = direction;
+    this.distance = distance;
+    this.pdf = pdf;
+    this.hasRadiance = false;
+  }
+
+  /**
+   * @return Unit direction towards the light, or null when the light can
+   * not be sampled from this point
+   */
+  public Vector3 getDirection() {
+    return direction;
+  }
+
+  public double getDistance() {
+    return distance;
+  }
+
+  public double getPdf() {
+    return pdf;
+  }
+
+  /**
+   * @return The light's intensity at the point, {@link Light#getIntensityAt(Point3)}
+   */
+  public double getRadiance() {
+    if (!hasRadiance) {
+      radiance = light.getIntensityAt(point);
+      hasRadiance = true;
+    }
+    return radiance;
+  }
+
+  /**
+   * Selects the pixel whose samples are drawn next. Every pass over a
+   * pixel, such as each anti-aliasing sample, gets its own shift; the same
+   * pixel and pass always get the same samples, so re-renders do not
+   * flicker. Until this is called the pattern is not shifted.
+   * @param x Pixel column
+   * @param y Pixel row
+   * @param pass Pass over the pixel, 0 for its first
+   */
+  public void setPixel(int x, int y, int pass) {
+    final int n = ROTATION_STEPS.length;
+    for (int d = 0; d < n; d++) {
+      double r = x * ROTATION_STEPS[d] + y * ROTATION_STEPS[(d + 1) % n] + pass * ROTATION_STEPS[(d + 2) % n];
+      rotation[d] = r - Math.floor(r);
+    }
+  }
+
+  /**
+   * Offset in [0, 1) for placing sample number index inside its stratum:
+   * a fixed offset for the index and dimension, shifted by the pixel's
+   * rotation of that dimension. Dimensions 0 and 1 place a sample on a
+   * light, 2 picks a light.
+   */
+  public double jitter(int index, int dimension) {
+    long h = mix(((long) index << 8) | dimension);
+    double offset = (h >>> 11) * 0x1.0p-53;
+    if (dimension < rotation.length) {
+      offset += rotation[dimension];
+      if (offset >= 1.0) offset -= 1.0;
+    }
+    return offset;
+  }
+
+  // SplitMix64 finalizer
+  private static long mix(long z) {
+    z += 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public String toString() {
+    return "LightSample{direction=" + direction
+    + ", distance=" + distance
+    + ", pdf=" + pdf
+    + '}';
+  }
+
+}
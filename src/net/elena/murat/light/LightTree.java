@@ -0,0 +1,250 @@
+package net.elena.murat.light;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Hierarchy over a set of lights for picking a few of them per shading
+ * point instead of shading them all, for scenes with hundreds of lights.
+ * <p>
+ * Every node keeps a ball around the lights below it and their summed
+ * intensity. A pick walks down from the root and at each node takes a
+ * child in proportion to its importance: intensity times a facing bound,
+ * over the squared distance to the ball. The caller divides what the
+ * picked light adds by the returned probability, so the estimate is right
+ * on average. Every light keeps a non-zero chance, lights behind the
+ * surface included, because materials add a per-light ambient part that
+ * does not care about direction.
+ * </p>
+ * Lights without a position, such as directional lights, are left out;
+ * {@link #getUnboundedLight(int)} lists them for the caller to shade at
+ * every point. The tree is immutable and can be shared between threads.
+ */
+public final class LightTree {
+
+  // Share of a node's importance kept when it faces away from the surface
+  private static final double BACK_FACING_WEIGHT = 0.1;
+
+  // Floor for intensities and squared distances, so no light gets probability 0 or infinity
+  private static final double MIN_POWER = 1e-6;
+  private static final double MIN_DISTANCE_SQUARED = 1e-8;
+
+  private final int[] unbounded;
+  private final int boundedCount;
+
+  // Per node: bounding ball, summed power, children, and the light index for leaves (-1 otherwise)
+  private final Point3[] nodeCenter;
+  private final double[] nodeRadius;
+  private final double[] nodePower;
+  private final int[] nodeLeft;
+  private final int[] nodeRight;
+  private final int[] nodeLight;
+  private int nodeTotal;
+
+  /**
+   * @param lights Lights to build over; indices returned by {@link #sample}
+   * refer to this array
+   */
+  public LightTree(Light[] lights) {
+    List<Integer> bounded = new ArrayList<>();
+    List<Integer> infinite = new ArrayList<>();
+    final Point3[] centers = new Point3[lights.length];
+    final double[] radii = new double[lights.length];
+    final double[] powers = new double[lights.length];
+
+    for (int i = 0; i < lights.length; i++) {
+      Point3 position = lights[i].getPosition();
+      double radius = lights[i].getBoundingRadius();
+      if (position == null || Double.isInfinite(radius) || Double.isNaN(radius)) {
+        infinite.add(i);
+        continue;
+      }
+      centers[i] = position;
+      radii[i] = Math.max(0.0, radius);
+      double power = Math.abs(lights[i].getIntensity());
+      powers[i] = power > MIN_POWER ? power : MIN_POWER;
+      bounded.add(i);
+    }
+
+    this.unbounded = new int[infinite.size()];
+    for (int i = 0; i < unbounded.length; i++) {
+      unbounded[i] = infinite.get(i);
+    }
+    this.boundedCount = bounded.size();
+
+    int maxNodes = Math.max(1, 2 * boundedCount - 1);
+    this.nodeCenter = new Point3[maxNodes];
+    this.nodeRadius = new double[maxNodes];
+    this.nodePower = new double[maxNodes];
+    this.nodeLeft = new int[maxNodes];
+    this.nodeRight = new int[maxNodes];
+    this.nodeLight = new int[maxNodes];
+    this.nodeTotal = 0;
+
+    if (boundedCount > 0) {
+      build(bounded.toArray(new Integer[0]), 0, boundedCount, centers, radii, powers);
+    }
+  }
+
+  /**
+   * Emits the subtree for work[from, to), splitting at the median of the
+   * longest axis of the light positions.
+   * @return Index of the subtree's root
+   */
+  private int build(Integer[] work, int from, int to,
+    final Point3[] centers, final double[] radii, final double[] powers) {
+    int node = nodeTotal++;
+
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+    double power = 0.0;
+    for (int i = from; i < to; i++) {
+      int light = work[i];
+      Point3 c = centers[light];
+      double r = radii[light];
+      minX = Math.min(minX, c.x - r);
+      minY = Math.min(minY, c.y - r);
+      minZ = Math.min(minZ, c.z - r);
+      maxX = Math.max(maxX, c.x + r);
+      maxY = Math.max(maxY, c.y + r);
+      maxZ = Math.max(maxZ, c.z + r);
+      power += powers[light];
+    }
+
+    Point3 center = new Point3(0.5 * (minX + maxX), 0.5 * (minY + maxY), 0.5 * (minZ + maxZ));
+    double radius = 0.0;
+    for (int i = from; i < to; i++) {
+      int light = work[i];
+      radius = Math.max(radius, center.distance(centers[light]) + radii[light]);
+    }
+    nodeCenter[node] = center;
+    nodeRadius[node] = radius;
+    nodePower[node] = power;
+
+    if (to - from == 1) {
+      nodeLight[node] = work[from];
+      nodeLeft[node] = -1;
+      nodeRight[node] = -1;
+      return node;
+    }
+
+    double cMinX = Double.POSITIVE_INFINITY, cMinY = Double.POSITIVE_INFINITY, cMinZ = Double.POSITIVE_INFINITY;
+    double cMaxX = Double.NEGATIVE_INFINITY, cMaxY = Double.NEGATIVE_INFINITY, cMaxZ = Double.NEGATIVE_INFINITY;
+    for (int i = from; i < to; i++) {
+      Point3 c = centers[work[i]];
+      cMinX = Math.min(cMinX, c.x);
+      cMinY = Math.min(cMinY, c.y);
+      cMinZ = Math.min(cMinZ, c.z);
+      cMaxX = Math.max(cMaxX, c.x);
+      cMaxY = Math.max(cMaxY, c.y);
+      cMaxZ = Math.max(cMaxZ, c.z);
+    }
+    double ex = cMaxX - cMinX, ey = cMaxY - cMinY, ez = cMaxZ - cMinZ;
+    final int axis = (ex >= ey && ex >= ez) ? 0 : (ey >= ez ? 1 : 2);
+
+    Arrays.sort(work, from, to, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Double.compare(coordinate(centers[a], axis), coordinate(centers[b], axis));
+      }
+    });
+
+    int mid = (from + to) >>> 1;
+    nodeLight[node] = -1;
+    nodeLeft[node] = build(work, from, mid, centers, radii, powers);
+    nodeRight[node] = build(work, mid, to, centers, radii, powers);
+    return node;
+  }
+
+  private static double coordinate(Point3 p, int axis) {
+    return axis == 0 ? p.x : (axis == 1 ? p.y : p.z);
+  }
+
+  public int getUnboundedCount() {
+    return unbounded.length;
+  }
+
+  /**
+   * @return Index of the k-th light that is not in the tree
+   */
+  public int getUnboundedLight(int k) {
+    return unbounded[k];
+  }
+
+  /**
+   * @return Number of lights in the tree
+   */
+  public int getSampledCount() {
+    return boundedCount;
+  }
+
+  /**
+   * Picks one light for a shading point. Draws are stratified: taking
+   * draws 0 to draws - 1 spreads the picks over the lights better than
+   * independent ones would, while each is still picked with the returned
+   * probability.
+   * @param point Surface point in world coordinates
+   * @param normal Unit surface normal facing the viewer
+   * @param draw Number of this pick, 0 to draws - 1
+   * @param draws Number of picks made at this point
+   * @param jitter Offset of the pick inside its stratum, in [0, 1); see {@link LightSample#jitter(int, int)}
+   * @param pdf Receives the probability of the picked light in [0]
+   * @return Index of the picked light, or -1 when the tree is empty
+   */
+  public int sample(Point3 point, Vector3 normal, int draw, int draws, double jitter, double[] pdf) {
+    if (nodeTotal == 0) return -1;
+
+    double u = (draw + jitter) / draws;
+    double probability = 1.0;
+    int node = 0;
+    while (nodeLight[node] < 0) {
+      int left = nodeLeft[node];
+      int right = nodeRight[node];
+      double wLeft = importance(left, point, normal);
+      double wRight = importance(right, point, normal);
+      double pLeft = wLeft / (wLeft + wRight);
+      if (!(pLeft >= 0.0 && pLeft <= 1.0)) pLeft = 0.5;
+
+      if (u < pLeft) {
+        u = u / pLeft;
+        probability *= pLeft;
+        node = left;
+      } else {
+        u = (u - pLeft) / (1.0 - pLeft);
+        probability *= 1.0 - pLeft;
+        node = right;
+      }
+      // Keep u in [0, 1) against rounding
+      if (u >= 1.0) u = Math.nextDown(1.0);
+    }
+
+    pdf[0] = probability;
+    return nodeLight[node];
+  }
+
+  private double importance(int node, Point3 point, Vector3 normal) {
+    Point3 center = nodeCenter[node];
+    double radius = nodeRadius[node];
+    double dx = center.x - point.x;
+    double dy = center.y - point.y;
+    double dz = center.z - point.z;
+    double distanceSquared = Math.max(dx * dx + dy * dy + dz * dz, radius * radius);
+
+    double facing = Light.facingBound(point, normal, center, radius);
+    double weight = BACK_FACING_WEIGHT + (1.0 - BACK_FACING_WEIGHT) * facing;
+    return nodePower[node] * weight / Math.max(distanceSquared, MIN_DISTANCE_SQUARED);
+  }
+
+  @Override
+  public String toString() {
+    return "LightTree[sampled=" + boundedCount
+    + ", unbounded=" + unbounded.length
+    + ", nodes=" + nodeTotal + "]";
+  }
+
+}
@@ -87,6 +87,18 @@ public class MuratPointLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double facing = Light.facingBound(point, normal, position, 0.0);
+    return facing > 0.0 ? Math.abs(getAttenuatedIntensity(point)) * facing : 0.0;
+  }
+  
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    Vector3 toLight = position.subtract(point);
+    sample.set(this, point, toLight.normalize(), toLight.length(), 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     Vector3 lightDir = getDirectionTo(point);
@@ -114,6 +114,21 @@ public class PulsatingPointLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Uses the light's position at the current time; the pulse only scales
+   * the intensity down.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double facing = Light.facingBound(point, normal, getPosition(), 0.0);
+    return facing > 0.0 ? Math.abs(getAttenuatedIntensity(point)) * facing : 0.0;
+  }
+  
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    sample.set(this, point, getPosition().subtract(point).normalize(), getDistanceTo(point), 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     Vector3 lightDir = getDirectionTo(point);
@@ -1,7 +1,6 @@
 package net.elena.murat.light;
 
 import java.awt.Color;
-import java.util.random.RandomGenerator;
 
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
@@ -22,7 +21,6 @@ public class SphereLight implements Light {
   private final Color color;
   private double intensity;
   private final int sampleCount;
-  private final RandomGenerator random;
   private String name = "sphereLight";
   
   /**
@@ -41,7 +39,6 @@ public class SphereLight implements Light {
     this.color = color;
     this.intensity = Math.max(0, intensity);
     this.sampleCount = Math.max(1, sampleCount);
-    this.random = RandomGenerator.getDefault();
   }
   
   @Override
@@ -84,18 +81,49 @@ public class SphereLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Counts the whole sphere as visible from its nearest point.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double facing = Light.facingBound(point, normal, center, radius);
+    if (facing <= 0.0) return 0.0;
+    double distance = Math.max(0.0, getDistanceTo(point) - radius);
+    double attenuation = 1.0 + 0.1 * distance + 0.01 * distance * distance;
+    return Math.abs(intensity) / Math.max(attenuation, Ray.EPSILON) * facing;
+  }
+  
+  @Override
+  public double getBoundingRadius() {
+    return radius;
+  }
+  
+  /**
+   * Samples the sphere's surface uniformly, one band of equal area per
+   * sample. A single sample is the center, like a point light.
+   */
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    Point3 samplePoint = sampleCount > 1 ? generateSamplePoint(sample, index) : center;
+    Vector3 toLight = samplePoint.subtract(point);
+    double area = 4 * Math.PI * radius * radius;
+    sample.set(this, point,
+      toLight.length() < Ray.EPSILON ? new Vector3(0, 0, 0) : toLight.normalize(),
+      toLight.length(), area > 0 ? 1.0 / area : 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     // Multi-sample visibility test for soft shadows
+    LightSample sample = new LightSample();
     int visibleSamples = 0;
     
     for (int i = 0; i < sampleCount; i++) {
-      Point3 samplePoint = generateSamplePoint();
-      Vector3 direction = samplePoint.subtract(point).normalize();
-      double distance = samplePoint.distance(point);
+      sample(point, i, sample);
+      Vector3 direction = sample.getDirection();
       
       Ray shadowRay = new Ray(point.add(direction.scale(Ray.EPSILON * 10)), direction);
-      if (!scene.intersects(shadowRay, distance - Ray.EPSILON)) {
+      if (!scene.intersects(shadowRay, sample.getDistance() - Ray.EPSILON)) {
         visibleSamples++;
       }
     }
@@ -105,12 +133,13 @@ public class SphereLight implements Light {
   }
   
   /**
-   * Generates a random point on the sphere surface using uniform sampling.
+   * Generates a point on the sphere surface, uniform over the sphere and
+   * stratified by index.
    */
-  private Point3 generateSamplePoint() {
-    // Uniform sampling on sphere surface
-    double theta = 2 * Math.PI * random.nextDouble();
-    double phi = Math.acos(1 - 2 * random.nextDouble());
+  private Point3 generateSamplePoint(LightSample sample, int index) {
+    // Equal-area bands in cos(phi), random azimuth
+    double theta = 2 * Math.PI * sample.jitter(index, 1);
+    double phi = Math.acos(1 - 2 * ((index % sampleCount) + sample.jitter(index, 0)) / sampleCount);
     
     double x = center.x + radius * Math.sin(phi) * Math.cos(theta);
     double y = center.y + radius * Math.sin(phi) * Math.sin(theta);
@@ -149,6 +178,7 @@ public class SphereLight implements Light {
   /**
    * Gets the number of samples used for shadow calculation.
    */
+  @Override
   public int getSampleCount() {
     return sampleCount;
   }
@@ -1,7 +1,6 @@
 package net.elena.murat.light;
 
 import java.awt.Color;
-import java.util.random.RandomGenerator;
 
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
@@ -23,7 +22,6 @@ public class TubeLight implements Light {
   private final Color color;
   private double intensity;
   private final int sampleCount;
-  private final RandomGenerator random;
   private final Vector3 direction;
   private final double length;
   private String name = "tube";
@@ -46,7 +44,6 @@ public class TubeLight implements Light {
     this.color = color;
     this.intensity = Math.max(0, intensity);
     this.sampleCount = Math.max(1, sampleCount);
-    this.random = RandomGenerator.getDefault();
     
     this.direction = endPoint.subtract(startPoint);
     this.length = direction.length();
@@ -104,18 +101,55 @@ public class TubeLight implements Light {
     return getAttenuatedIntensity(point);
   }
   
+  /**
+   * Bounds the tube by the ball around its midpoint reaching both end caps.
+   */
+  @Override
+  public double estimateContribution(Point3 point, Vector3 normal) {
+    double extent = getBoundingRadius();
+    double facing = Light.facingBound(point, normal, getPosition(), extent);
+    if (facing <= 0.0) return 0.0;
+    double distance = Math.max(0.0, getDistanceTo(point) - extent);
+    double attenuation = 1.0 + 0.05 * distance + 0.005 * distance * distance;
+    return Math.abs(intensity) / Math.max(attenuation, Ray.EPSILON) * facing;
+  }
+  
+  @Override
+  public double getBoundingRadius() {
+    return 0.5 * length + radius;
+  }
+  
+  @Override
+  public int getSampleCount() {
+    return sampleCount;
+  }
+  
+  /**
+   * Samples the tube's mantle, one slice of its length per sample. A
+   * single sample is the midpoint, like a point light.
+   */
+  @Override
+  public void sample(Point3 point, int index, LightSample sample) {
+    Point3 samplePoint = sampleCount > 1 ? generateSamplePoint(sample, index) : getPosition();
+    Vector3 toLight = samplePoint.subtract(point);
+    double area = radius > 0 ? 2 * Math.PI * radius * length : length;
+    sample.set(this, point,
+      toLight.length() < Ray.EPSILON ? new Vector3(0, 0, 0) : toLight.normalize(),
+      toLight.length(), area > 0 ? 1.0 / area : 1.0);
+  }
+  
   @Override
   public boolean isVisibleFrom(Point3 point, Scene scene) {
     // Multi-sample visibility test along the tube length
+    LightSample sample = new LightSample();
     int visibleSamples = 0;
     
     for (int i = 0; i < sampleCount; i++) {
-      Point3 samplePoint = generateSamplePoint();
-      Vector3 sampleDirection = samplePoint.subtract(point).normalize();
-      double sampleDistance = samplePoint.distance(point);
+      sample(point, i, sample);
+      Vector3 sampleDirection = sample.getDirection();
       
       Ray shadowRay = new Ray(point.add(sampleDirection.scale(Ray.EPSILON * 10)), sampleDirection);
-      if (!scene.intersects(shadowRay, sampleDistance - Ray.EPSILON)) {
+      if (!scene.intersects(shadowRay, sample.getDistance() - Ray.EPSILON)) {
         visibleSamples++;
       }
     }
@@ -124,17 +158,17 @@ public class TubeLight implements Light {
   }
   
   /**
-   * Generates a random point along the tube surface.
+   * Generates a point on the tube surface, stratified along its length.
    */
-  private Point3 generateSamplePoint() {
-    // Random position along the tube length
-    double t = random.nextDouble();
+  private Point3 generateSamplePoint(LightSample sample, int index) {
+    // Position along the tube length, one slice per sample
+    double t = ((index % sampleCount) + sample.jitter(index, 0)) / sampleCount;
     Point3 linePoint = startPoint.add(direction.scale(t));
     
-    // Random point on circle perpendicular to tube direction
+    // Point on circle perpendicular to tube direction
     Vector3 tubeDir = direction.normalize();
     Vector3 randomDir = generatePerpendicularVector(tubeDir).normalize();
-    double angle = 2 * Math.PI * random.nextDouble();
+    double angle = 2 * Math.PI * sample.jitter(index, 1);
     
     Vector3 offset = randomDir.rotateAround(tubeDir, angle).scale(radius);
     return linePoint.add(offset);
@@ -0,0 +1,95 @@
+package net.elena.murat.lovert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//custom imports
+import net.elena.murat.light.Light;
+import net.elena.murat.material.Material;
+import net.elena.murat.math.Matrix4;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * One set of shapes, lights and camera that animation frames are applied to.
+ * <p>
+ * {@link AnimationEngine} keeps one instance per frame in flight, so every
+ * instance must own its objects: two instances must never share a shape,
+ * material, light or camera.
+ * </p>
+ */
+public final class AnimatedScene {
+
+  private final List<EMShape> shapes;
+  private final List<Light> lights;
+  private final Camera camera;
+
+  /**
+   * @param shapes Shapes, in the order the frames were planned with
+   * @param lights Lights, in the order the frames were planned with
+   * @param camera Camera whose position the frames move
+   */
+  public AnimatedScene(List<EMShape> shapes, List<Light> lights, Camera camera) {
+    this.shapes = new ArrayList<>(shapes);
+    this.lights = new ArrayList<>(lights);
+    this.camera = camera;
+  }
+
+  /**
+   * Moves the camera, shapes and lights to the given frame.
+   * @param frame Frame planned for the same number of shapes and lights
+   */
+  public void apply(AnimationFrame frame) {
+    if (frame.getShapeCount() != shapes.size() || frame.getLightCount() != lights.size()) {
+      throw new IllegalArgumentException("Frame " + frame.getIndex() + " was planned for "
+        + frame.getShapeCount() + " shapes and " + frame.getLightCount()
+        + " lights, scene has " + shapes.size() + " and " + lights.size());
+    }
+
+    camera.setCameraPosition(frame.getCameraPosition());
+
+    for (int i = 0; i < shapes.size(); i++) {
+      EMShape shape = shapes.get(i);
+      Matrix4 transform = frame.getTransform(i);
+      shape.setTransform(transform);
+
+      shape.setVisible(frame.hasFlag(i, AnimationFrame.VISIBLE));
+      shape.setShadowEnable(frame.hasFlag(i, AnimationFrame.SHADOW_ENABLE));
+      shape.setShadowOnly(frame.hasFlag(i, AnimationFrame.SHADOW_ONLY));
+      shape.setReflective(frame.hasFlag(i, AnimationFrame.REFLECTIVE));
+      shape.setRefractive(frame.hasFlag(i, AnimationFrame.REFRACTIVE));
+
+      Material material = shape.getMaterial();
+      if (material != null) {
+        material.setObjectTransform(transform.inverse());
+      }
+    }
+
+    for (int i = 0; i < lights.size(); i++) {
+      lights.get(i).setIntensity(frame.getLightIntensity(i));
+    }
+  }
+
+  /**
+   * @return A new Scene holding this scene's shapes and lights
+   */
+  public Scene toScene() {
+    Scene scene = new Scene();
+    for (EMShape shape : shapes) scene.addShape(shape);
+    for (Light light : lights) scene.addLight(light);
+    return scene;
+  }
+
+  public List<EMShape> getShapes() {
+    return Collections.unmodifiableList(shapes);
+  }
+
+  public List<Light> getLights() {
+    return Collections.unmodifiableList(lights);
+  }
+
+  public Camera getCamera() {
+    return camera;
+  }
+
+}
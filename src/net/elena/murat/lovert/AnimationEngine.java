@@ -0,0 +1,431 @@
+package net.elena.murat.lovert;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.ImageIO;
+
+//custom imports
+import net.elena.murat.math.BoundingBox;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Renders a planned animation without any GUI.
+ * <p>
+ * Up to framesInFlight frames are rendered at the same time, each on its own
+ * {@link AnimatedScene} from the scene factory. Finished frames go through a
+ * bounded queue to a single writer thread that encodes the PNG and writes the
+ * scene text file, so rendering never waits for the disk unless the queue is
+ * full. Files are named by frame index, so frames may finish in any order.
+ * </p>
+ * Usage:
+ * <pre>
+ * List&lt;AnimationFrame&gt; frames = AnimationFrame.plan(shapes, lights, camPos, d1, d2, 60);
+ * AnimationEngine engine = new AnimationEngine(width, height, background, factory);
+ * engine.setImageDirectory(new File("animImages/run1"));
+ * engine.render(frames);
+ * </pre>
+ */
+public class AnimationEngine {
+
+  /**
+   * Creates a scene that shares no shape, material, light or camera with
+   * any other scene it creates.
+   */
+  public interface SceneFactory {
+    AnimatedScene create() throws Exception;
+  }
+
+  /**
+   * Builds the scene file text of a frame. Called on the render thread,
+   * right after the frame is rendered and before its scene is reused.
+   */
+  public interface SceneFormatter {
+    String format(AnimationFrame frame, AnimatedScene scene, String fileName);
+  }
+
+  /**
+   * Called on the writer thread after a frame's files are written.
+   */
+  public interface FrameListener {
+    void frameWritten(AnimationFrame frame, BufferedImage image);
+  }
+
+  private static final class FrameResult {
+    final AnimationFrame frame;
+    final BufferedImage image;
+    final String sceneText;
+
+    FrameResult(AnimationFrame frame, BufferedImage image, String sceneText) {
+      this.frame = frame;
+      this.image = image;
+      this.sceneText = sceneText;
+    }
+  }
+
+  // Tells the writer thread that no more frames will come
+  private static final FrameResult END = new FrameResult(null, null, null);
+
+  /**
+   * A scene in flight, with the last frame it rendered, that frame's image
+   * and its G-buffer.
+   */
+  private static final class SceneSlot {
+    final AnimatedScene scene;
+    final GBuffer gbuffer = new GBuffer();
+    AnimationFrame previous;
+    BufferedImage image;
+
+    SceneSlot(AnimatedScene scene) {
+      this.scene = scene;
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final Color background;
+  private final SceneFactory factory;
+
+  private int framesInFlight = 1;
+  private int threadsPerFrame = Runtime.getRuntime().availableProcessors();
+  private int writerQueueSize = 4;
+  private String filePrefix = "animScene_";
+  private File imageDirectory;
+  private File sceneDirectory;
+  private SceneFormatter formatter;
+  private FrameListener listener;
+  private boolean relight = false;
+  private boolean tileReuse = false;
+
+  private volatile boolean cancelled = false;
+
+  public AnimationEngine(int width, int height, Color background, SceneFactory factory) {
+    this.width = width;
+    this.height = height;
+    this.background = background;
+    this.factory = factory;
+  }
+
+  /**
+   * @param frames Frames rendered at the same time; each needs its own scene
+   */
+  public void setFramesInFlight(int frames) {
+    this.framesInFlight = Math.max(1, frames);
+  }
+
+  /**
+   * @param threads Tile threads per frame in flight; the frames share one
+   * pool of that many workers per frame
+   */
+  public void setThreadsPerFrame(int threads) {
+    this.threadsPerFrame = Math.max(1, threads);
+  }
+
+  /**
+   * @param size Finished frames that may wait for the writer before
+   * rendering blocks
+   */
+  public void setWriterQueueSize(int size) {
+    this.writerQueueSize = Math.max(1, size);
+  }
+
+  public void setFilePrefix(String prefix) {
+    this.filePrefix = prefix;
+  }
+
+  /**
+   * @param dir Directory for the frame PNGs; null writes none
+   */
+  public void setImageDirectory(File dir) {
+    this.imageDirectory = dir;
+  }
+
+  /**
+   * @param dir Directory for the frame scene files; null writes none
+   */
+  public void setSceneDirectory(File dir) {
+    this.sceneDirectory = dir;
+  }
+
+  public void setSceneFormatter(SceneFormatter formatter) {
+    this.formatter = formatter;
+  }
+
+  public void setFrameListener(FrameListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Re-shades frames that differ from one their scene rendered before only
+   * in light intensities, such as pulsing lights under a still camera, from
+   * that frame's {@link GBuffer} instead of tracing them from scratch.
+   * Each scene in flight keeps one buffer of about 105 bytes per pixel,
+   * plus 4 bytes per pixel for every light sample.
+   * @param relight True to relight such frames; off by default
+   */
+  public void setRelight(boolean relight) {
+    this.relight = relight;
+  }
+
+  public boolean isRelight() {
+    return relight;
+  }
+
+  /**
+   * Renders frames in which only some shapes moved, under the camera and
+   * lights of the frame their scene rendered before, by tracing only the
+   * tiles those shapes can reach, directly or through shadows, and copying
+   * the rest from the previous frame. Tiles with reflective, refractive or
+   * see-through pixels are always traced again. A frame in which nothing
+   * changed at all reuses the previous image. Uses the same per-scene
+   * {@link GBuffer} as {@link #setRelight(boolean)}, plus the previous
+   * image; a frame is only captured into it when the next frame can use it.
+   * <p>
+   * Pays off when the moving shapes cover a small part of the picture. When
+   * they reach most tiles, capturing costs more than copying saves. Frames
+   * that move a shape without finite bounds, such as a plane, are rendered
+   * in full and not captured for this.
+   * </p>
+   * @param tileReuse True to reuse tiles; off by default
+   */
+  public void setTileReuse(boolean tileReuse) {
+    this.tileReuse = tileReuse;
+  }
+
+  public boolean isTileReuse() {
+    return tileReuse;
+  }
+
+  /**
+   * Stops starting new frames. Frames already rendering are still written.
+   * A cancelled engine stays cancelled, even when called before
+   * {@link #render(List)}.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Renders and writes the given frames, and returns when all of them are
+   * written, or when the animation was cancelled or failed. An engine
+   * renders one animation; after a cancel or a failure it renders nothing.
+   * @param frames Frames planned for the factory's scenes
+   * @return Number of frames written
+   * @throws Exception The first error from the factory, a render or a write
+   */
+  public int render(List<AnimationFrame> frames) throws Exception {
+    if (frames.isEmpty() || cancelled) return 0;
+
+    final int inFlight = Math.min(framesInFlight, frames.size());
+    final BlockingQueue<SceneSlot> scenes = new ArrayBlockingQueue<>(inFlight);
+    for (int i = 0; i < inFlight; i++) {
+      scenes.add(new SceneSlot(factory.create()));
+    }
+
+    final BlockingQueue<FrameResult> results = new ArrayBlockingQueue<>(writerQueueSize);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final AtomicInteger written = new AtomicInteger();
+
+    // Drains the queue until END whatever goes wrong, so that no render
+    // waits on a full queue for a writer that is gone
+    final Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (true) {
+          FrameResult result;
+          try {
+            result = results.take();
+          } catch (InterruptedException e) {
+            fail(error, e);
+            Thread.currentThread().interrupt();
+            return;
+          }
+          if (result == END) return;
+          // After an error the queue is only drained
+          if (error.get() != null) continue;
+          try {
+            writeFrame(result);
+            written.incrementAndGet();
+          } catch (Throwable t) {
+            fail(error, t);
+          }
+        }
+      }
+    }, "animation-writer");
+    writer.start();
+
+    // One set of tile workers for all frames in flight, for the whole animation
+    final ForkJoinPool tilePool = threadsPerFrame > 1 ? new ForkJoinPool(inFlight * threadsPerFrame) : null;
+    ExecutorService pool = Executors.newFixedThreadPool(inFlight);
+    try {
+      for (int i = 0; i < frames.size(); i++) {
+        final AnimationFrame frame = frames.get(i);
+        final AnimationFrame next = i + 1 < frames.size() ? frames.get(i + 1) : null;
+        pool.execute(new Runnable() {
+          @Override
+          public void run() {
+            if (cancelled) return;
+            try {
+              deliver(results, renderFrame(frame, next, scenes, tilePool), writer);
+            } catch (Throwable t) {
+              fail(error, t);
+            }
+          }
+        });
+      }
+    } finally {
+      pool.shutdown();
+      try {
+        while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+          // keep waiting; cancel() only skips frames that have not started
+        }
+      } finally {
+        if (tilePool != null) tilePool.shutdown();
+        deliver(results, END, writer);
+        writer.join();
+      }
+    }
+
+    Throwable t = error.get();
+    if (t instanceof Exception) throw (Exception) t;
+    if (t instanceof Error) throw (Error) t;
+    if (t != null) throw new Exception(t);
+    return written.get();
+  }
+
+  /**
+   * Puts a result on the writer's queue, or drops it once the writer
+   * thread has died and will never take it.
+   */
+  private static void deliver(BlockingQueue<FrameResult> results, FrameResult result,
+    Thread writer) throws InterruptedException {
+    while (!results.offer(result, 100, TimeUnit.MILLISECONDS)) {
+      if (!writer.isAlive()) return;
+    }
+  }
+
+  private FrameResult renderFrame(AnimationFrame frame, AnimationFrame next,
+    BlockingQueue<SceneSlot> scenes, ForkJoinPool tilePool) throws InterruptedException {
+    SceneSlot slot = scenes.take();
+    AnimatedScene scene = slot.scene;
+    try {
+      final AnimationFrame previous = slot.previous;
+      // A capture costs time and only pays off when the next frame can start from it
+      final boolean record = next != null && next.hasSameCamera(frame)
+        && (relight && next.hasSameGeometry(frame)
+          || tileReuse && next.hasSameLights(frame) && !movesUnboundedShape(frame, next, scene));
+      slot.previous = null;
+
+      // Bounds of the shapes that move, taken while the scene still stands at the previous frame.
+      // A moving shape without finite bounds may touch every tile, so nothing is reused then.
+      List<BoundingBox> changedBounds = null;
+      List<EMShape> changedShapes = null;
+      if (tileReuse && previous != null && frame.hasSameCamera(previous) && frame.hasSameLights(previous)
+        && !movesUnboundedShape(previous, frame, scene)) {
+        changedBounds = new ArrayList<>();
+        changedShapes = new ArrayList<>();
+        for (int i = 0; i < frame.getShapeCount(); i++) {
+          if (!frame.hasSameShape(i, previous)) {
+            EMShape shape = scene.getShapes().get(i);
+            changedShapes.add(shape);
+            changedBounds.add(shape.getWorldBounds());
+          }
+        }
+      }
+
+      scene.apply(frame);
+
+      ElenaMuratRayTracer tracer = new ElenaMuratRayTracer(scene.toScene(), width, height, background);
+      tracer.setCamera(scene.getCamera());
+      tracer.setRenderPool(tilePool);
+
+      BufferedImage image;
+      if (changedShapes != null && changedShapes.isEmpty() && slot.image != null) {
+        // Same camera, shapes and lights: the same picture
+        image = slot.image;
+      } else if (relight && previous != null && frame.hasSameGeometry(previous)
+        && tracer.canRelight(slot.gbuffer)) {
+        image = tracer.relight(slot.gbuffer);
+      } else if (changedShapes != null) {
+        for (EMShape shape : changedShapes) {
+          changedBounds.add(shape.getWorldBounds());
+        }
+        image = tracer.render(slot.gbuffer, slot.image, changedBounds);
+      } else if (record) {
+        image = tracer.render(slot.gbuffer);
+      } else {
+        image = tracer.render();
+      }
+
+      slot.previous = record ? frame : null;
+      slot.image = record ? image : null;
+
+      String sceneText = null;
+      if (formatter != null && sceneDirectory != null) {
+        sceneText = formatter.format(frame, scene, fileName(frame, ".txt"));
+      }
+      return new FrameResult(frame, image, sceneText);
+    } finally {
+      scenes.put(slot);
+    }
+  }
+
+  /**
+   * @return True when a shape that changes between the two frames has no
+   * finite bounds where it stands now
+   */
+  private static boolean movesUnboundedShape(AnimationFrame from, AnimationFrame to, AnimatedScene scene) {
+    for (int i = 0; i < to.getShapeCount(); i++) {
+      if (!to.hasSameShape(i, from) && scene.getShapes().get(i).getWorldBounds().isInfinite()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void writeFrame(FrameResult result) throws IOException {
+    if (imageDirectory != null) {
+      ImageIO.write(result.image, "PNG", new File(imageDirectory, fileName(result.frame, ".png")));
+    }
+
+    if (result.sceneText != null) {
+      File file = new File(sceneDirectory, fileName(result.frame, ".txt"));
+      try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+        out.write(result.sceneText);
+      }
+    }
+
+    if (listener != null) {
+      listener.frameWritten(result.frame, result.image);
+    }
+  }
+
+  private String fileName(AnimationFrame frame, String extension) {
+    return filePrefix + String.format("%03d", frame.getIndex()) + extension;
+  }
+
+  private void fail(AtomicReference<Throwable> error, Throwable t) {
+    error.compareAndSet(null, t);
+    cancelled = true;
+  }
+
+}
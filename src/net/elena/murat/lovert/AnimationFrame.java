@@ -0,0 +1,275 @@
+package net.elena.murat.lovert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//custom imports
+import net.elena.murat.light.Light;
+import net.elena.murat.math.Matrix4;
+import net.elena.murat.math.Point3;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * State of one animation frame: camera position, and per shape its transform
+ * and visibility/shadow/reflection flags, and per light its intensity.
+ * <p>
+ * Frames are computed up front by {@link #plan}, before anything is rendered,
+ * so several frames can be rendered at once on separate scene copies.
+ * Shapes and lights are addressed by their index in the animated scene.
+ * </p>
+ * The arrays and matrices are never changed after construction.
+ */
+public final class AnimationFrame {
+
+  public static final int VISIBLE = 1;
+  public static final int SHADOW_ENABLE = 2;
+  public static final int SHADOW_ONLY = 4;
+  public static final int REFLECTIVE = 8;
+  public static final int REFRACTIVE = 16;
+
+  // Used when a frame code is too short: visible, casts shadows, reflects and refracts
+  private static final int DEFAULT_FLAGS = VISIBLE | SHADOW_ENABLE | REFLECTIVE | REFRACTIVE;
+
+  private final int index;
+  private final Point3 cameraPosition;
+  private final Matrix4[] transforms;
+  private final int[] flags;
+  private final double[] lightIntensities;
+
+  AnimationFrame(int index, Point3 cameraPosition, Matrix4[] transforms,
+    int[] flags, double[] lightIntensities) {
+    this.index = index;
+    this.cameraPosition = cameraPosition;
+    this.transforms = transforms;
+    this.flags = flags;
+    this.lightIntensities = lightIntensities;
+  }
+
+  /**
+   * Computes every frame of the GUI's two-part animation.
+   * <p>
+   * In the first half each shape moves by its first animation transform
+   * per frame and the camera by camDelta1; in the second half they continue
+   * from where the first half ended, using the second transform and camDelta2.
+   * Light intensities change by the light's inc/dec values the same way.
+   * Shape flags come from the shape's per-frame "veofr" codes, or stay as
+   * they are once the codes run out.
+   * </p>
+   * The shapes and lights are only read.
+   * @param shapes Animated shapes, in scene order
+   * @param lights Animated lights, in scene order
+   * @param cameraPosition Camera position at the start
+   * @param camDelta1 Camera step per frame in the first half
+   * @param camDelta2 Camera step per frame in the second half
+   * @param totalFrames Number of frames
+   * @return The frames, in order
+   */
+  public static List<AnimationFrame> plan(List<EMShape> shapes, List<Light> lights,
+    Point3 cameraPosition, Point3 camDelta1, Point3 camDelta2, int totalFrames) {
+    final int shapeCount = shapes.size();
+    final int lightCount = lights.size();
+    final int half = totalFrames / 2;
+
+    Matrix4[] originalTransforms = new Matrix4[shapeCount];
+    Matrix4[][] animTransforms = new Matrix4[shapeCount][];
+    int[] originalFlags = new int[shapeCount];
+    String[][] frameCodes = new String[shapeCount][];
+    for (int i = 0; i < shapeCount; i++) {
+      EMShape shape = shapes.get(i);
+      originalTransforms[i] = shape.getTransform();
+      animTransforms[i] = shape.getAnimationTransforms();
+      originalFlags[i] = flagsOf(shape);
+      String info = shape.getOtherAnimationInfo();
+      frameCodes[i] = (info == null ? "" : info).split(",");
+    }
+
+    double[] originalIntensities = new double[lightCount];
+    double[][] incDec = new double[lightCount][];
+    for (int i = 0; i < lightCount; i++) {
+      originalIntensities[i] = lights.get(i).getIntensity();
+      incDec[i] = lights.get(i).getIncDecIntensity();
+    }
+
+    // The second half starts from the transforms the first half ended on
+    Matrix4[] firstHalfEndTransforms = originalTransforms.clone();
+
+    List<AnimationFrame> frames = new ArrayList<>(totalFrames);
+    for (int frame = 0; frame < totalFrames; frame++) {
+      boolean isFirstHalf = frame < half;
+      int animIndex = isFirstHalf ? 0 : 1;
+      int relativeFrame = isFirstHalf ? frame : frame - half;
+
+      Point3 camPos;
+      if (isFirstHalf) {
+        camPos = cameraPosition.add(camDelta1.multiply(relativeFrame));
+      } else {
+        camPos = cameraPosition.add(camDelta1.multiply(half))
+        .add(camDelta2.multiply(relativeFrame));
+      }
+
+      Matrix4[] transforms = new Matrix4[shapeCount];
+      int[] flags = new int[shapeCount];
+      for (int i = 0; i < shapeCount; i++) {
+        Matrix4 animT = animTransforms[i][animIndex];
+
+        Matrix4 scaledAnimT = new Matrix4();
+        int transformFrame = relativeFrame + 1;
+        scaledAnimT.setTx(animT.getTx() * transformFrame);
+        scaledAnimT.setTy(animT.getTy() * transformFrame);
+        scaledAnimT.setTz(animT.getTz() * transformFrame);
+        scaledAnimT.setRx(animT.getRx() * transformFrame);
+        scaledAnimT.setRy(animT.getRy() * transformFrame);
+        scaledAnimT.setRz(animT.getRz() * transformFrame);
+        scaledAnimT.setSx(((animT.getSx() - 1) * transformFrame) + 1);
+        scaledAnimT.setSy(((animT.getSy() - 1) * transformFrame) + 1);
+        scaledAnimT.setSz(((animT.getSz() - 1) * transformFrame) + 1);
+
+        Matrix4 baseTransform = isFirstHalf ? originalTransforms[i] : firstHalfEndTransforms[i];
+        transforms[i] = Matrix4.add(baseTransform, scaledAnimT);
+
+        if (isFirstHalf && frame == half - 1) {
+          firstHalfEndTransforms[i] = transforms[i];
+        }
+
+        // Codes are indexed by the absolute frame number
+        String[] codes = frameCodes[i];
+        if (codes.length > 0 && frame < codes.length) {
+          flags[i] = parseFlags(codes[frame].trim().replaceAll(" ", ""));
+        } else {
+          flags[i] = originalFlags[i];
+        }
+      }
+
+      double[] intensities = new double[lightCount];
+      for (int i = 0; i < lightCount; i++) {
+        if (isFirstHalf) {
+          intensities[i] = originalIntensities[i] + (incDec[i][0] * relativeFrame);
+        } else {
+          double firstHalfMax = originalIntensities[i] + (incDec[i][0] * half);
+          intensities[i] = firstHalfMax + (incDec[i][1] * relativeFrame);
+        }
+      }
+
+      frames.add(new AnimationFrame(frame, camPos, transforms, flags, intensities));
+    }
+    return frames;
+  }
+
+  /**
+   * Parses a five-letter frame code such as "veofr": v visible, e shadow
+   * enabled, o shadow only, f reflective, r refractive. Any other letter in
+   * a position turns that flag off (or, for 'o', leaves it off).
+   * @param code Frame code
+   * @return Flag bits
+   */
+  public static int parseFlags(String code) {
+    if (code.length() < 5) return DEFAULT_FLAGS;
+
+    String text = code.toLowerCase();
+    int result = 0;
+    if (text.charAt(0) == 'v') result |= VISIBLE;
+    if (text.charAt(1) == 'e') result |= SHADOW_ENABLE;
+    if (text.charAt(2) == 'o') result |= SHADOW_ONLY;
+    if (text.charAt(3) == 'f') result |= REFLECTIVE;
+    if (text.charAt(4) == 'r') result |= REFRACTIVE;
+    return result;
+  }
+
+  static int flagsOf(EMShape shape) {
+    int result = 0;
+    if (shape.isVisible()) result |= VISIBLE;
+    if (shape.isShadowEnable()) result |= SHADOW_ENABLE;
+    if (shape.isShadowOnly()) result |= SHADOW_ONLY;
+    if (shape.isReflective()) result |= REFLECTIVE;
+    if (shape.isRefractive()) result |= REFRACTIVE;
+    return result;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public Point3 getCameraPosition() {
+    return cameraPosition;
+  }
+
+  public int getShapeCount() {
+    return transforms.length;
+  }
+
+  public int getLightCount() {
+    return lightIntensities.length;
+  }
+
+  /**
+   * @param shapeIndex Index of the shape in the animated scene
+   * @return The shape's transform in this frame; must not be modified
+   */
+  public Matrix4 getTransform(int shapeIndex) {
+    return transforms[shapeIndex];
+  }
+
+  public int getFlags(int shapeIndex) {
+    return flags[shapeIndex];
+  }
+
+  public boolean hasFlag(int shapeIndex, int flag) {
+    return (flags[shapeIndex] & flag) != 0;
+  }
+
+  public double getLightIntensity(int lightIndex) {
+    return lightIntensities[lightIndex];
+  }
+
+  /**
+   * @return True when the other frame has the same camera position, shape
+   * transforms and flags, so the two differ at most in light intensities
+   */
+  public boolean hasSameGeometry(AnimationFrame other) {
+    if (!hasSameCamera(other) || other.transforms.length != transforms.length
+      || other.lightIntensities.length != lightIntensities.length) {
+      return false;
+    }
+
+    for (int i = 0; i < transforms.length; i++) {
+      if (!hasSameShape(i, other)) return false;
+    }
+    return true;
+  }
+
+  public boolean hasSameCamera(AnimationFrame other) {
+    Point3 a = cameraPosition;
+    Point3 b = other.cameraPosition;
+    return a.x == b.x && a.y == b.y && a.z == b.z;
+  }
+
+  /**
+   * @return True when the shape has the same transform and flags in both frames
+   */
+  public boolean hasSameShape(int shapeIndex, AnimationFrame other) {
+    return flags[shapeIndex] == other.flags[shapeIndex]
+      && sameMatrix(transforms[shapeIndex], other.transforms[shapeIndex]);
+  }
+
+  public boolean hasSameLights(AnimationFrame other) {
+    return Arrays.equals(lightIntensities, other.lightIntensities);
+  }
+
+  private static boolean sameMatrix(Matrix4 a, Matrix4 b) {
+    if (a == b) return true;
+    for (int row = 0; row < 4; row++) {
+      for (int col = 0; col < 4; col++) {
+        if (a.get(row, col) != b.get(row, col)) return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "AnimationFrame[index=" + index + ", camera=" + cameraPosition
+    + ", shapes=" + transforms.length + ", lights=" + lightIntensities.length + "]";
+  }
+
+}
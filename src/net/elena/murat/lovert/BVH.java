@@ -0,0 +1,383 @@
+package net.elena.murat.lovert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+//custom imports
+import net.elena.murat.math.BoundingBox;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Ray;
+import net.elena.murat.math.Vector3;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Bounding volume hierarchy over the world-space bounds of a list of shapes.
+ * <p>
+ * The tree is stored flat in depth-first order with a skip index per node,
+ * so traversal is a single loop with no stack and no allocation.
+ * Shapes whose bounds are infinite (planes, plugin shapes) are kept in a
+ * separate list that every query tests.
+ * </p>
+ * <p>
+ * Shapes report their hit distance in their own parameterisation (several
+ * normalise the ray in local space), so nodes are culled by box overlap
+ * only, never by the current closest distance. Ties between equal distances
+ * are resolved by scene order, which keeps results identical to a linear scan.
+ * </p>
+ * <p>
+ * An optional priority per shape orders the shapes inside each leaf and the
+ * unbounded list, highest first. It only changes which blocker
+ * {@link #firstHit} meets first, never any query's answer; the tracer feeds
+ * in how often each shape blocked shadow rays in the previous render.
+ * </p>
+ * The hierarchy captures the transforms at build time; rebuild it after
+ * moving shapes (the tracer does so at the start of every render).
+ */
+public class BVH {
+
+  /**
+   * Decides whether a shape takes part in a query.
+   */
+  public interface ShapeFilter {
+    boolean accept(EMShape shape);
+  }
+
+  /** Accepts every shape. */
+  public static final ShapeFilter ALL = new ShapeFilter() {
+    @Override
+    public boolean accept(EMShape shape) {
+      return true;
+    }
+  };
+
+  private static final int MAX_LEAF_SIZE = 4;
+
+  private final EMShape[] shapes;
+
+  // Bounded shape indices, grouped so that each leaf owns a contiguous range
+  private final int[] leafShapes;
+
+  // Shapes with infinite bounds, tested by every query
+  private final int[] unbounded;
+
+  // Per node: 6 bounds values, first leaf slot, slot count (0 for inner nodes),
+  // and the index of the next node outside this node's subtree.
+  private double[] nodeBounds;
+  private int[] nodeFirst;
+  private int[] nodeCount;
+  private int[] nodeSkip;
+  private int nodeTotal;
+
+  // Build-time only: shape priorities in scene order, or null
+  private final long[] priority;
+
+  /**
+   * Builds the hierarchy from the shapes' current world bounds.
+   * @param sceneShapes Shapes in scene order
+   */
+  public BVH(List<EMShape> sceneShapes) {
+    this(sceneShapes, null);
+  }
+
+  /**
+   * Builds the hierarchy from the shapes' current world bounds.
+   * @param sceneShapes Shapes in scene order
+   * @param priority Per shape in scene order, higher is tested first within
+   * a leaf; null keeps scene order
+   */
+  public BVH(List<EMShape> sceneShapes, final long[] priority) {
+    this.shapes = sceneShapes.toArray(new EMShape[0]);
+
+    final int n = shapes.length;
+    final BoundingBox[] bounds = new BoundingBox[n];
+    List<Integer> bounded = new ArrayList<>(n);
+    List<Integer> infinite = new ArrayList<>();
+
+    for (int i = 0; i < n; i++) {
+      BoundingBox b = shapes[i].getWorldBounds();
+      if (b == null || b.isInfinite() || b.isEmpty()) {
+        infinite.add(i);
+      } else {
+        bounds[i] = b;
+        bounded.add(i);
+      }
+    }
+
+    this.unbounded = new int[infinite.size()];
+    for (int i = 0; i < unbounded.length; i++) {
+      unbounded[i] = infinite.get(i);
+    }
+    this.priority = priority;
+    sortByPriority(unbounded, 0, unbounded.length);
+
+    Integer[] work = bounded.toArray(new Integer[0]);
+    this.leafShapes = new int[work.length];
+
+    int maxNodes = Math.max(1, 2 * work.length);
+    this.nodeBounds = new double[maxNodes * 6];
+    this.nodeFirst = new int[maxNodes];
+    this.nodeCount = new int[maxNodes];
+    this.nodeSkip = new int[maxNodes];
+    this.nodeTotal = 0;
+
+    if (work.length > 0) {
+      build(work, 0, work.length, bounds);
+    }
+  }
+
+  /**
+   * Recursively emits the subtree for work[from, to) in depth-first order.
+   */
+  private void build(Integer[] work, int from, int to, final BoundingBox[] bounds) {
+    int node = nodeTotal++;
+
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+    double cMinX = Double.POSITIVE_INFINITY, cMinY = Double.POSITIVE_INFINITY, cMinZ = Double.POSITIVE_INFINITY;
+    double cMaxX = Double.NEGATIVE_INFINITY, cMaxY = Double.NEGATIVE_INFINITY, cMaxZ = Double.NEGATIVE_INFINITY;
+
+    for (int i = from; i < to; i++) {
+      BoundingBox b = bounds[work[i]];
+      minX = Math.min(minX, b.minX); minY = Math.min(minY, b.minY); minZ = Math.min(minZ, b.minZ);
+      maxX = Math.max(maxX, b.maxX); maxY = Math.max(maxY, b.maxY); maxZ = Math.max(maxZ, b.maxZ);
+
+      double cx = (b.minX + b.maxX) * 0.5;
+      double cy = (b.minY + b.maxY) * 0.5;
+      double cz = (b.minZ + b.maxZ) * 0.5;
+      cMinX = Math.min(cMinX, cx); cMinY = Math.min(cMinY, cy); cMinZ = Math.min(cMinZ, cz);
+      cMaxX = Math.max(cMaxX, cx); cMaxY = Math.max(cMaxY, cy); cMaxZ = Math.max(cMaxZ, cz);
+    }
+
+    int o = node * 6;
+    nodeBounds[o] = minX; nodeBounds[o + 1] = minY; nodeBounds[o + 2] = minZ;
+    nodeBounds[o + 3] = maxX; nodeBounds[o + 4] = maxY; nodeBounds[o + 5] = maxZ;
+
+    int count = to - from;
+    if (count <= MAX_LEAF_SIZE) {
+      for (int i = from; i < to; i++) {
+        leafShapes[i] = work[i];
+      }
+      sortByPriority(leafShapes, from, to);
+      nodeFirst[node] = from;
+      nodeCount[node] = count;
+      nodeSkip[node] = nodeTotal;
+      return;
+    }
+
+    // Median split along the axis with the widest spread of centroids
+    double ex = cMaxX - cMinX;
+    double ey = cMaxY - cMinY;
+    double ez = cMaxZ - cMinZ;
+    final int axis = (ex >= ey && ex >= ez) ? 0 : (ey >= ez ? 1 : 2);
+
+    Arrays.sort(work, from, to, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        BoundingBox ba = bounds[a];
+        BoundingBox bb = bounds[b];
+        int c = Double.compare(ba.getMin(axis) + ba.getMax(axis), bb.getMin(axis) + bb.getMax(axis));
+        return c != 0 ? c : Integer.compare(a, b);
+      }
+    });
+
+    int mid = (from + to) >>> 1;
+    nodeFirst[node] = from;
+    nodeCount[node] = 0;
+    build(work, from, mid, bounds);
+    build(work, mid, to, bounds);
+    nodeSkip[node] = nodeTotal;
+  }
+
+  /**
+   * Insertion sort of a few shape indices, highest priority first, then scene order.
+   */
+  private void sortByPriority(int[] slots, int from, int to) {
+    if (priority == null) return;
+    for (int i = from + 1; i < to; i++) {
+      int idx = slots[i];
+      int j = i - 1;
+      while (j >= from && (priority[slots[j]] < priority[idx]
+          || (priority[slots[j]] == priority[idx] && slots[j] > idx))) {
+        slots[j + 1] = slots[j];
+        j--;
+      }
+      slots[j + 1] = idx;
+    }
+  }
+
+  /**
+   * Finds the closest accepted shape whose intersect distance is greater than minDistance.
+   * @param ray World-space ray
+   * @param exclude Shape to skip, may be null
+   * @param filter Filter deciding which shapes take part
+   * @param minDistance Distances at or below this value are ignored
+   * @param distanceOut Receives the hit distance at index 0 when a shape is found
+   * @return Index of the hit shape in scene order, or -1 on a miss
+   */
+  public int closestHit(Ray ray, EMShape exclude, ShapeFilter filter,
+    double minDistance, double[] distanceOut) {
+    return closestHit(ray, exclude, filter, minDistance, distanceOut, false);
+  }
+
+  /**
+   * Same as {@link #closestHit(Ray, EMShape, ShapeFilter, double, double[])},
+   * optionally with the alpha test: a hit that would become the closest one
+   * but falls on a see-through texel ({@link EMShape#isMaskedAt}) is passed
+   * over, and the search goes on behind it.
+   * @param alphaTest True to apply the alpha test
+   */
+  public int closestHit(Ray ray, EMShape exclude, ShapeFilter filter,
+    double minDistance, double[] distanceOut, boolean alphaTest) {
+    int best = -1;
+    double bestDist = Double.POSITIVE_INFINITY;
+
+    for (int k = 0; k < unbounded.length; k++) {
+      int idx = unbounded[k];
+      EMShape shape = shapes[idx];
+      if (shape == exclude || !filter.accept(shape)) continue;
+      double d = shape.intersect(ray);
+      if (d > minDistance && (d < bestDist || (d == bestDist && idx < best))
+          && !(alphaTest && shape.isMaskedAt(ray, d))) {
+        bestDist = d;
+        best = idx;
+      }
+    }
+
+    if (nodeTotal > 0) {
+      Point3 o = ray.getOrigin();
+      Vector3 dir = ray.getDirection();
+      double ox = o.x, oy = o.y, oz = o.z;
+      double ix = 1.0 / dir.x, iy = 1.0 / dir.y, iz = 1.0 / dir.z;
+
+      int node = 0;
+      while (node < nodeTotal) {
+        int b = node * 6;
+        if (!BoundingBox.intersects(ox, oy, oz, ix, iy, iz,
+            nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+            nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5])) {
+          node = nodeSkip[node];
+          continue;
+        }
+
+        int count = nodeCount[node];
+        if (count == 0) {
+          node++;
+          continue;
+        }
+
+        int first = nodeFirst[node];
+        for (int k = first; k < first + count; k++) {
+          int idx = leafShapes[k];
+          EMShape shape = shapes[idx];
+          if (shape == exclude || !filter.accept(shape)) continue;
+          double d = shape.intersect(ray);
+          if (d > minDistance && (d < bestDist || (d == bestDist && idx < best))
+              && !(alphaTest && shape.isMaskedAt(ray, d))) {
+            bestDist = d;
+            best = idx;
+          }
+        }
+        node = nodeSkip[node];
+      }
+    }
+
+    if (best >= 0 && distanceOut != null) {
+      distanceOut[0] = bestDist;
+    }
+    return best;
+  }
+
+  /**
+   * Tests whether any accepted shape is hit strictly between minDistance and maxDistance.
+   * Stops at the first such shape.
+   * @param ray World-space ray
+   * @param exclude Shape to skip, may be null
+   * @param filter Filter deciding which shapes take part
+   * @param minDistance Lower distance bound (exclusive)
+   * @param maxDistance Upper distance bound (exclusive)
+   * @return true if the ray is blocked
+   */
+  public boolean anyHit(Ray ray, EMShape exclude, ShapeFilter filter,
+    double minDistance, double maxDistance) {
+    return firstHit(ray, exclude, filter, minDistance, maxDistance) >= 0;
+  }
+
+  /**
+   * Same query as {@link #anyHit}, but tells which shape blocked the ray.
+   * That is the first blocker met in traversal order, not the closest one.
+   * @return Index of a blocking shape in scene order, or -1 if nothing blocks
+   */
+  public int firstHit(Ray ray, EMShape exclude, ShapeFilter filter,
+    double minDistance, double maxDistance) {
+    for (int k = 0; k < unbounded.length; k++) {
+      int idx = unbounded[k];
+      EMShape shape = shapes[idx];
+      if (shape == exclude || !filter.accept(shape)) continue;
+      double d = shape.intersect(ray);
+      if (d > minDistance && d < maxDistance) return idx;
+    }
+
+    if (nodeTotal == 0) return -1;
+
+    Point3 o = ray.getOrigin();
+    Vector3 dir = ray.getDirection();
+    double ox = o.x, oy = o.y, oz = o.z;
+    double ix = 1.0 / dir.x, iy = 1.0 / dir.y, iz = 1.0 / dir.z;
+
+    int node = 0;
+    while (node < nodeTotal) {
+      int b = node * 6;
+      if (!BoundingBox.intersects(ox, oy, oz, ix, iy, iz,
+          nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+          nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5])) {
+        node = nodeSkip[node];
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        node++;
+        continue;
+      }
+
+      int first = nodeFirst[node];
+      for (int k = first; k < first + count; k++) {
+        int idx = leafShapes[k];
+        EMShape shape = shapes[idx];
+        if (shape == exclude || !filter.accept(shape)) continue;
+        double d = shape.intersect(ray);
+        if (d > minDistance && d < maxDistance) return idx;
+      }
+      node = nodeSkip[node];
+    }
+    return -1;
+  }
+
+  /**
+   * @param index Index returned by {@link #closestHit}
+   * @return The shape at that index in scene order
+   */
+  public EMShape getShape(int index) {
+    return shapes[index];
+  }
+
+  public int getShapeCount() {
+    return shapes.length;
+  }
+
+  public int getNodeCount() {
+    return nodeTotal;
+  }
+
+  public int getUnboundedCount() {
+    return unbounded.length;
+  }
+
+  @Override
+  public String toString() {
+    return "BVH[shapes=" + shapes.length + ", nodes=" + nodeTotal + ", unbounded=" + unbounded.length + "]";
+  }
+
+}
@@ -7,15 +7,16 @@ package net.elena.murat.lovert;
 // Java native imports
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.awt.AlphaComposite;
+import java.awt.image.DataBufferInt;
 import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 // Custom imports
 import net.elena.murat.shape.*;
@@ -157,6 +158,47 @@ public class ElenaMuratRayTracer {
     private boolean isReflective;
     private double orthographicScale = 2.0;
 
+    private int threadCount = 1;
+
+    // Optional pool shared with other tracers; null means the tracer's own pool
+    private ForkJoinPool renderPool;
+
+    // Own pool of threadCount workers, made by the first multi-threaded render and kept for the next ones
+    private ForkJoinPool ownPool;
+
+    // Adaptive anti-aliasing, off (one ray per pixel) unless maxSamples > 1
+    private int maxSamples = 1;
+    private double aaThreshold = 0.05;
+
+    // Lights whose estimated contribution is below this are skipped; 0 skips none
+    private double lightCullThreshold = 0.0;
+
+    // Lights picked per hit from the light tree; 0 shades every light
+    private int manyLightSamples = 0;
+
+    // Refined pixels get samples in batches of this size between variance checks
+    private static final int AA_BATCH = 4;
+    // Rounds of spreading refinement from noisy pixels to their neighbours; fits a byte mark
+    private static final int AA_MAX_ROUNDS = 32;
+
+    // Frozen at the start of every render from the current scene state
+    private SceneSnapshot snapshot;
+
+    // Set for the length of a render that fills a G-buffer, or of a relight that reads one
+    private GBuffer gbuffer;
+    private boolean relighting;
+
+    // Set for the length of a render that copies unaffected tiles from the previous image
+    private int[] previousPixels;
+    private BoundingBox[] changedBounds;
+
+    // Camera basis, computed once per render instead of once per pixel
+    private Vector3 cameraXAxis;
+    private Vector3 cameraYAxis;
+    private Vector3 cameraZAxis;
+
+    private static final int TILE_SIZE = 32;
+
     private final Light TRANSPARENCY_LIGHT = new ElenaMuratAmbientLight(Color.WHITE, 1.0);
 
     public ElenaMuratRayTracer(Scene scene, int width, int height,
@@ -232,10 +274,16 @@ public class ElenaMuratRayTracer {
         this.camera = cmr;
     }
 
+    private void prepareCamera() {
+        cameraZAxis = (camera.getCameraPosition()).subtract(camera.getLookAt()).normalize();
+        cameraXAxis = (camera.getUpVector()).cross(cameraZAxis).normalize();
+        cameraYAxis = cameraZAxis.cross(cameraXAxis).normalize();
+    }
+
     private Ray generateCameraRay(double screenX, double screenY) {
-        Vector3 zAxis = (camera.getCameraPosition()).subtract(camera.getLookAt()).normalize();
-        Vector3 xAxis = (camera.getUpVector()).cross(zAxis).normalize();
-        Vector3 yAxis = zAxis.cross(xAxis).normalize();
+        Vector3 zAxis = cameraZAxis;
+        Vector3 xAxis = cameraXAxis;
+        Vector3 yAxis = cameraYAxis;
 
         if (camera.isOrthographic()) {
             double worldScreenWidth = camera.getOrthographicScale();
@@ -255,113 +303,784 @@ public class ElenaMuratRayTracer {
         }
     }
 
+    /**
+     * Sets how many worker threads {@link #render()} may use.
+     * A value of 1 renders on the calling thread; larger values split
+     * the image into tiles that are rendered on a work-stealing pool.
+     * @param threads Thread count, clamped to at least 1.
+     */
+    public void setThreadCount(int threads) {
+        threads = Math.max(1, threads);
+        if (threads != this.threadCount) shutdown();
+        this.threadCount = threads;
+    }
+
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+
+    /**
+     * Makes {@link #render()} run its tiles on the given pool instead of
+     * the tracer's own, so several tracers can share one set of worker
+     * threads. The thread count is ignored while a pool is set.
+     * The pool is not shut down by the tracer.
+     * @param pool Shared pool, or null to go back to the tracer's own pool
+     */
+    public void setRenderPool(ForkJoinPool pool) {
+        this.renderPool = pool;
+    }
+
+    /**
+     * Stops the worker threads of the tracer's own pool, which every
+     * multi-threaded render without a {@link #setRenderPool(ForkJoinPool)}
+     * pool shares, anti-aliasing rounds included. The next such render
+     * starts a new pool. Idle workers also end by themselves after a while.
+     */
+    public void shutdown() {
+        if (ownPool != null) {
+            ownPool.shutdown();
+            ownPool = null;
+        }
+    }
+
+    /**
+     * Turns on adaptive anti-aliasing. Every pixel first gets one ray
+     * through its center. A pixel whose color differs from one of its four
+     * neighbours by more than the threshold in any channel then gets extra
+     * jittered rays, one per cell of a stratified grid, in batches of
+     * four. Sampling stops when the standard error of the pixel's mean
+     * falls below the threshold, or when maxSamples is reached. Pixels whose
+     * samples disagree pass the refinement on to their neighbours in
+     * further rounds. Samples are averaged in floating point before
+     * conversion to 8 bits.
+     * <p>
+     * Flat regions keep their single ray; edges, fine textures and noisy
+     * materials get the extra samples.
+     * </p>
+     * @param maxSamples Ray cap per pixel; 1 or less turns anti-aliasing off
+     * @param threshold Color difference (0-1) that triggers refinement;
+     * 0.05 gives about the quality of 4x supersampling
+     */
+    public void setAntiAliasing(int maxSamples, double threshold) {
+        this.maxSamples = Math.max(1, maxSamples);
+        this.aaThreshold = Math.max(0.0, threshold);
+    }
+
+    public int getMaxSamples() {
+        return this.maxSamples;
+    }
+
+    public double getAntiAliasingThreshold() {
+        return this.aaThreshold;
+    }
+
+    /**
+     * Skips the shading and the shadow ray of every direct light whose
+     * {@link Light#estimateContribution(Point3, Vector3)} at the hit is
+     * below the threshold, e.g. lights behind the surface or far beyond
+     * their falloff.
+     * <p>
+     * Off by default. Materials add each light's ambient share whether or
+     * not the light reaches the point, and a blocked light still blends in
+     * its shadow color, so a culled light can change the picture even when
+     * its direct light is nil. Hits on see-through materials, which take
+     * light from behind as well, are never culled.
+     * </p>
+     * @param threshold Smallest estimated contribution still shaded; 0 turns culling off
+     */
+    public void setLightCullThreshold(double threshold) {
+        this.lightCullThreshold = Math.max(0.0, threshold);
+    }
+
+    public double getLightCullThreshold() {
+        return this.lightCullThreshold;
+    }
+
+    /**
+     * Turns on many-lights sampling. Instead of shading every direct light
+     * at every hit, the tracer picks the given number of lights from a
+     * hierarchy over their positions and intensities, favouring those that
+     * are near and facing the surface, and scales what they add by how
+     * unlikely each pick was. Lights without a position are still shaded
+     * at every hit. The cost per hit no longer grows with the number of
+     * lights, at the price of noise that anti-aliasing samples average out.
+     * <p>
+     * Scenes with no more lights than samples are shaded in full as before.
+     * </p>
+     * @param samplesPerHit Lights picked per hit; 0 turns sampling off
+     */
+    public void setManyLights(int samplesPerHit) {
+        this.manyLightSamples = Math.max(0, samplesPerHit);
+    }
+
+    public int getManyLightSamples() {
+        return this.manyLightSamples;
+    }
+
     public BufferedImage render() {
+        return render(null);
+    }
+
+    /**
+     * Renders the scene and records every pixel's primary hit and its
+     * shadow rays into the given buffer, for {@link #relight(GBuffer)} to
+     * re-shade later. The image is the same as {@link #render()}'s.
+     * <p>
+     * Nothing is recorded, and the buffer is cleared, when anti-aliasing,
+     * light culling or many-lights sampling is on: their results depend on
+     * the light intensities the buffer is meant to outlive.
+     * </p>
+     * @param capture Buffer to fill, or null to record nothing
+     * @return The rendered image
+     */
+    public BufferedImage render(GBuffer capture) {
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
 
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.CLEAR, 0.0f));
-        g2d.fillRect(0, 0, width, height);
+        // The last render's shadow statistics order this one's shadow casters
+        snapshot = scene.freeze(snapshot);
+        prepareCamera();
 
-        g2d.setComposite(AlphaComposite.SrcOver);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+        // Every pixel is written exactly once, straight into the raster.
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
 
-        FloatColor cxx = FloatColor.BLACK;
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        final int tileCount = tilesX * tilesY;
 
+        if (capture != null) {
+            if (canUseGBuffer()) {
+                capture.begin(snapshot, width, height, shouldCalculateShadows());
+            } else {
+                capture.clear();
+                capture = null;
+            }
+        }
+
+        if (maxSamples <= 1) {
+            gbuffer = capture;
+            try {
+                runTiles(tileCount, tilesX, pixels, null, null, 0);
+            } finally {
+                gbuffer = null;
+            }
+            return image;
+        }
+
+        // Round 0 fills the float buffer with one center sample per pixel.
+        // Each later round refines pixels next to a noisy pixel of an earlier
+        // round; rounds only read marks of earlier rounds, so the result
+        // does not depend on tile order.
+        final float[] centers = new float[width * height * 4];
+        final byte[] marks = new byte[width * height];
+        runTiles(tileCount, tilesX, pixels, centers, marks, 0);
+        for (int round = 1; round <= AA_MAX_ROUNDS; round++) {
+            runTiles(tileCount, tilesX, pixels, centers, marks, round);
+            if (!hasMark(marks, (byte) ((round << 1) | 1))) break;
+        }
+
+        return image;
+    }
+
+    /**
+     * Re-shades the view recorded by {@link #render(GBuffer)} under the
+     * lights' current intensities and colors. Camera rays and the primary
+     * hits' shadow rays are not traced again; everything else is, so
+     * reflections, refractions and see-through surfaces follow the new
+     * lighting too. The image equals what {@link #render()} would give.
+     * <p>
+     * The caller must make sure only light intensities or colors changed
+     * since the capture. When the buffer does not fit this tracer's size
+     * or settings, this renders in full and captures a new record instead.
+     * </p>
+     * @param gbuffer Record of an earlier render of this view
+     * @return The re-shaded image
+     */
+    public BufferedImage relight(GBuffer gbuffer) {
+        if (!canRelight(gbuffer)) {
+            return render(gbuffer);
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        // Indices in the record refer to the capture's BVHs
+        snapshot = gbuffer.getSnapshot();
+        prepareCamera();
+
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        this.gbuffer = gbuffer;
+        this.relighting = true;
+        try {
+            runTiles(tilesX * tilesY, tilesX, pixels, null, null, 0);
+        } finally {
+            this.gbuffer = null;
+            this.relighting = false;
+        }
+        return image;
+    }
+
+    /**
+     * Renders the scene again after some shapes changed, tracing only the
+     * tiles they can have changed and copying the others from the previous
+     * image. A tile is traced again when one of its pixels looks through a
+     * changed shape's bounds, before or after the change, along its camera
+     * ray or along a shadow ray of its recorded primary hit, or when the
+     * pixel traced reflected, refracted or see-through rays, which may end
+     * up anywhere in the scene. The image equals what {@link #render()}
+     * would give, and the buffer is brought up to date for the next frame.
+     * <p>
+     * The caller must make sure nothing but the given shapes changed: the
+     * camera, the lights and all other shapes and materials must be as they
+     * were. When the buffer or the image does not fit this tracer, the
+     * lights are not the recorded ones, or a changed bound is infinite,
+     * this renders in full.
+     * </p>
+     * @param gbuffer Record of the previous render, brought up to date
+     * @param previous Image of the previous render
+     * @param changedBounds World bounds of every changed shape, both before
+     * and after the change
+     * @return The new image
+     */
+    public BufferedImage render(GBuffer gbuffer, BufferedImage previous, List<BoundingBox> changedBounds) {
+        if (!canRelight(gbuffer) || previous == null || previous.getType() != BufferedImage.TYPE_INT_ARGB
+            || previous.getWidth() != width || previous.getHeight() != height) {
+            return render(gbuffer);
+        }
+        // Every camera ray meets an infinite box, so every tile would be traced anyway
+        for (BoundingBox b : changedBounds) {
+            if (b.isInfinite()) return render(gbuffer);
+        }
+
+        snapshot = scene.freeze(snapshot);
+        if (!gbuffer.update(snapshot)) {
+            return render(gbuffer);
+        }
+        prepareCamera();
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        final int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+        // Shadow rays leave the surface up to a shadow bias away from the recorded hit point
+        double margin = Ray.EPSILON;
+        for (EMShape shape : snapshot.visibleShapes) {
+            margin = Math.max(margin, Math.abs(shape.getShadowBias()));
+        }
+        BoundingBox[] bounds = new BoundingBox[changedBounds.size()];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = changedBounds.get(i).grow(margin);
+        }
+
+        this.gbuffer = gbuffer;
+        this.previousPixels = ((DataBufferInt) previous.getRaster().getDataBuffer()).getData();
+        this.changedBounds = bounds;
+        try {
+            runTiles(tilesX * tilesY, tilesX, pixels, null, null, 0);
+        } finally {
+            this.gbuffer = null;
+            this.previousPixels = null;
+            this.changedBounds = null;
+        }
+        return image;
+    }
+
+    /**
+     * @return True when {@link #relight(GBuffer)} can shade from the buffer
+     * rather than render in full
+     */
+    public boolean canRelight(GBuffer gbuffer) {
+        return gbuffer != null && canUseGBuffer()
+            && gbuffer.fits(width, height, shouldCalculateShadows());
+    }
+
+    private boolean canUseGBuffer() {
+        return maxSamples <= 1 && lightCullThreshold <= 0.0 && manyLightSamples <= 0;
+    }
+
+    private static boolean hasMark(byte[] marks, byte mark) {
+        for (byte m : marks) {
+            if (m == mark) return true;
+        }
+        return false;
+    }
+
+    private void runTiles(int tileCount, int tilesX, int[] pixels, float[] centers, byte[] marks, int round) {
+        ForkJoinPool pool = renderPool;
+        if (pool == null) {
+            if (threadCount <= 1 || tileCount <= 1) {
+                for (int i = 0; i < tileCount; i++) {
+                    runTile(i, tilesX, pixels, centers, marks, round);
+                }
+                return;
+            }
+            if (ownPool == null) {
+                ownPool = new ForkJoinPool(threadCount);
+            }
+            pool = ownPool;
+        }
+        pool.invoke(new TileTask(0, tileCount, tilesX, pixels, centers, marks, round));
+    }
+
+    private void runTile(int tileIndex, int tilesX, int[] pixels, float[] centers, byte[] marks, int round) {
+        if (round > 0) {
+            refineTile(tileIndex, tilesX, pixels, centers, marks, round);
+        } else {
+            renderTile(tileIndex, tilesX, pixels, centers);
+        }
+    }
+
+    /**
+     * Renders one TILE_SIZE x TILE_SIZE block of the image into the packed
+     * ARGB pixel array. Tiles never overlap, so workers need no locking.
+     * When centers is not null each color is also stored there before the
+     * 8-bit conversion, four floats (r, g, b, a) per pixel.
+     */
+    private void renderTile(int tileIndex, int tilesX, int[] pixels, float[] centers) {
         final int CERO = 0x0000;
 
         final double UNO = 1.0;
         final double DOS = 2.0;
         final double HALF = 0.5;
 
-        for (int y = CERO; y < height; y++) {
-            for (int x = CERO; x < width; x++) {
+        int x0 = (tileIndex % tilesX) * TILE_SIZE;
+        int y0 = (tileIndex / tilesX) * TILE_SIZE;
+        int x1 = Math.min(x0 + TILE_SIZE, width);
+        int y1 = Math.min(y0 + TILE_SIZE, height);
+
+        // Seeded by tile, so random material effects do not depend on the thread count
+        TraceState state = new TraceState(new ShadingContext(tileIndex), snapshot);
+
+        if (previousPixels != null && !isTileAffected(x0, y0, x1, y1, state)) {
+            for (int y = y0; y < y1; y++) {
+                int from = y * width + x0;
+                System.arraycopy(previousPixels, from, pixels, from, x1 - x0);
+            }
+            return;
+        }
+
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            for (int x = x0; x < x1; x++) {
                 double ndcX = (x + HALF)/width;
                 double ndcY = (y + HALF)/height;
                 double screenX = DOS*ndcX - UNO;
                 double screenY = UNO - DOS*ndcY;
 
                 Ray ray = generateCameraRay(screenX, screenY);
+                state.lightSample.setPixel(x, y, 0);
 
-                cxx = traceRay(ray, CERO, UNO);
+                FloatColor cxx = gbuffer == null
+                    ? traceRay(ray, CERO, UNO, state)
+                    : tracePrimaryRay(ray, row + x, state);
 
-                image.setRGB(x, y, cxx.toARGB());
+                pixels[row + x] = cxx.toARGB();
+
+                if (centers != null) {
+                    int i = (row + x) * 4;
+                    centers[i] = (float) cxx.r;
+                    centers[i + 1] = (float) cxx.g;
+                    centers[i + 2] = (float) cxx.b;
+                    centers[i + 3] = (float) cxx.a;
+                }
             }
         }
+        snapshot.addOcclusions(state.occlusions);
+    }
 
-        g2d.dispose ();
+    /**
+     * True when a pixel of the tile may look different now that the shapes
+     * in changedBounds moved, judged from the G-buffer of the previous
+     * render. A tile traced again in full gets the same random numbers as
+     * in a full render, so only whole tiles are traced or copied.
+     */
+    private boolean isTileAffected(int x0, int y0, int x1, int y1, TraceState state) {
+        final Light[] directLights = snapshot.directLights;
+        final boolean shadows = shouldCalculateShadows();
+        final LightSample sample = state.lightSample;
+
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int pixel = y * width + x;
+                if (gbuffer.hasTracedFurther(pixel)) return true;
+
+                Ray ray = generateCameraRay(2.0 * ((x + 0.5) / width) - 1.0, 1.0 - 2.0 * ((y + 0.5) / height));
+                if (touchesChangedShape(ray.getOrigin(), ray.getDirection())) return true;
+
+                if (!shadows || !gbuffer.getHit(pixel, state.hit)) continue;
+
+                sample.setPixel(x, y, 0);
+                Point3 point = state.hit.getPoint();
+                for (Light light : directLights) {
+                    int samples = light.getSampleCount();
+                    for (int k = 0; k < samples || k == 0; k++) {
+                        light.sample(point, k, sample);
+                        Vector3 lightDir = sample.getDirection();
+                        if (lightDir != null && touchesChangedShape(point, lightDir)) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
 
-        return image;
+    private boolean touchesChangedShape(Point3 origin, Vector3 direction) {
+        final double invX = 1.0 / direction.x;
+        final double invY = 1.0 / direction.y;
+        final double invZ = 1.0 / direction.z;
+        for (BoundingBox b : changedBounds) {
+            if (BoundingBox.intersects(origin.x, origin.y, origin.z, invX, invY, invZ,
+                b.minX, b.minY, b.minZ, b.maxX, b.maxY, b.maxZ)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One anti-aliasing round over one tile: adds jittered samples to the
+     * pixels that need them, and rewrites only those pixels. Round 1 takes
+     * pixels whose center differs from a neighbour's; later rounds take
+     * pixels next to one whose samples disagreed in an earlier round, which
+     * finds the aliased bands (a far checkerboard, say) where neighbouring
+     * centers happen to agree.
+     * <p>
+     * A refined pixel is marked (round &lt;&lt; 1), plus 1 when the standard
+     * deviation of its samples exceeds half the threshold.
+     * </p>
+     */
+    private void refineTile(int tileIndex, int tilesX, int[] pixels, float[] centers, byte[] marks, int round) {
+        final int x0 = (tileIndex % tilesX) * TILE_SIZE;
+        final int y0 = (tileIndex / tilesX) * TILE_SIZE;
+        final int x1 = Math.min(x0 + TILE_SIZE, width);
+        final int y1 = Math.min(y0 + TILE_SIZE, height);
+
+        final int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        final int tileCount = tilesX * tilesY;
+
+        // Own seeds per round, apart from round 0's, and again independent of thread count
+        final long seed = (long) round * tileCount + tileIndex;
+        TraceState state = new TraceState(new ShadingContext(seed + tileCount), snapshot);
+        Random jitter = new Random(0x5DEECE66DL ^ seed);
+
+        // Jittered sample k lands in cell order[k] of a grid x grid stratification
+        final int grid = (int) Math.ceil(Math.sqrt(maxSamples));
+        final int[] order = stratumOrder(grid);
+        final double halfThreshold = 0.5 * aaThreshold;
+
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            for (int x = x0; x < x1; x++) {
+                if (marks[row + x] != 0) continue;
+                if (round == 1 ? !differsFromNeighbours(centers, x, y) : !nextToNoisy(marks, x, y, round)) continue;
+
+                int i = (row + x) * 4;
+                double sr = centers[i], sg = centers[i + 1], sb = centers[i + 2], sa = centers[i + 3];
+                double qr = sr * sr, qg = sg * sg, qb = sb * sb;
+                int n = 1;
+
+                while (n < maxSamples) {
+                    int cell = order[(n - 1) % order.length];
+                    double px = x + ((cell % grid) + jitter.nextDouble()) / grid;
+                    double py = y + ((cell / grid) + jitter.nextDouble()) / grid;
+
+                    Ray ray = generateCameraRay(2.0 * px / width - 1.0, 1.0 - 2.0 * py / height);
+                    state.lightSample.setPixel(x, y, n);
+                    FloatColor c = traceRay(ray, 0, 1.0, state);
+
+                    sr += c.r; sg += c.g; sb += c.b; sa += c.a;
+                    qr += c.r * c.r; qg += c.g * c.g; qb += c.b * c.b;
+                    n++;
+
+                    // Error of the mean, from the largest per-channel variance of one sample
+                    if (n % AA_BATCH == 0 && sampleVariance(sr, sg, sb, qr, qg, qb, n) / n < aaThreshold * aaThreshold) {
+                        break;
+                    }
+                }
+
+                boolean noisy = sampleVariance(sr, sg, sb, qr, qg, qb, n) > halfThreshold * halfThreshold;
+                marks[row + x] = (byte) ((round << 1) | (noisy ? 1 : 0));
+                pixels[row + x] = new FloatColor(sr / n, sg / n, sb / n, sa / n).toARGB();
+            }
+        }
+        snapshot.addOcclusions(state.occlusions);
+    }
+
+    /**
+     * Cells of a grid x grid pixel stratification, ordered so that every
+     * run of four consecutive cells covers the pixel's four quadrants
+     * (bit-reversed Morton order). An early stop after any batch then still
+     * leaves the pixel evenly covered.
+     */
+    private static int[] stratumOrder(int grid) {
+        int bits = 0;
+        while ((1 << bits) < grid) bits++;
+
+        int[] order = new int[grid * grid];
+        int count = 0;
+        for (int k = 0; k < (1 << (2 * bits)); k++) {
+            int morton = Integer.reverse(k) >>> (32 - 2 * bits);
+            int cx = 0, cy = 0;
+            for (int b = 0; b < bits; b++) {
+                cx |= ((morton >> (2 * b)) & 1) << b;
+                cy |= ((morton >> (2 * b + 1)) & 1) << b;
+            }
+            if (cx < grid && cy < grid) order[count++] = cy * grid + cx;
+        }
+        return order;
+    }
+
+    private static double sampleVariance(double sr, double sg, double sb,
+    double qr, double qg, double qb, int n) {
+        double mr = sr / n, mg = sg / n, mb = sb / n;
+        return Math.max(qr / n - mr * mr, Math.max(qg / n - mg * mg, qb / n - mb * mb));
+    }
+
+    // True if a neighbour was refined in an earlier round and found its samples disagreeing
+    private boolean nextToNoisy(byte[] marks, int x, int y, int round) {
+        int p = y * width + x;
+        return (x > 0 && isNoisyBefore(marks[p - 1], round))
+            || (x < width - 1 && isNoisyBefore(marks[p + 1], round))
+            || (y > 0 && isNoisyBefore(marks[p - width], round))
+            || (y < height - 1 && isNoisyBefore(marks[p + width], round));
+    }
+
+    private static boolean isNoisyBefore(byte mark, int round) {
+        return (mark & 1) != 0 && (mark >> 1) < round;
+    }
+
+    private boolean differsFromNeighbours(float[] centers, int x, int y) {
+        int p = (y * width + x) * 4;
+        return (x > 0 && colorDistance(centers, p, p - 4) > aaThreshold)
+            || (x < width - 1 && colorDistance(centers, p, p + 4) > aaThreshold)
+            || (y > 0 && colorDistance(centers, p, p - width * 4) > aaThreshold)
+            || (y < height - 1 && colorDistance(centers, p, p + width * 4) > aaThreshold);
+    }
+
+    // Largest channel difference, alpha included
+    private static double colorDistance(float[] centers, int p, int q) {
+        double d = Math.abs(centers[p] - centers[q]);
+        d = Math.max(d, Math.abs(centers[p + 1] - centers[q + 1]));
+        d = Math.max(d, Math.abs(centers[p + 2] - centers[q + 2]));
+        return Math.max(d, Math.abs(centers[p + 3] - centers[q + 3]));
+    }
+
+    /**
+     * Splits a range of tiles in half until a single tile remains,
+     * letting idle workers steal the other half.
+     */
+    private final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int tilesX;
+        private final int[] pixels;
+        private final float[] centers;
+        private final byte[] marks;
+        private final int round;
+
+        TileTask(int from, int to, int tilesX, int[] pixels, float[] centers, byte[] marks, int round) {
+            this.from = from;
+            this.to = to;
+            this.tilesX = tilesX;
+            this.pixels = pixels;
+            this.centers = centers;
+            this.marks = marks;
+            this.round = round;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                runTile(from, tilesX, pixels, centers, marks, round);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(from, mid, tilesX, pixels, centers, marks, round),
+                      new TileTask(mid, to, tilesX, pixels, centers, marks, round));
+        }
+    }
+
+    /**
+     * Per-tile scratch shared by every ray traced in one tile. Values in it
+     * are only valid until the next query, so read them before recursing.
+     */
+    private static final class TraceState {
+        final ShadingContext context;
+        // Distance written by the last closest-hit query
+        final double[] hitDistance = new double[1];
+        // Filled by the hit shape for the hit being shaded; materials see it through the context
+        final HitRecord hit = new HitRecord();
+        // Per direct light: shadow BVH index of the last shape that blocked it, or -1.
+        // Neighbouring pixels are usually blocked by the same shape.
+        final int[] lastOccluder;
+        // Per shadow caster: shadow rays it blocked in this tile
+        final int[] occlusions;
+        // Filled by each light for each of its samples
+        final LightSample lightSample = new LightSample();
+        // Pick probability written by the light tree
+        final double[] lightPdf = new double[1];
+        // Pixel whose primary hit is being lit, while a G-buffer is filled or read; -1 otherwise
+        int gbufferPixel = -1;
+        // Calls of traceRay so far, to tell which primary hits traced further rays
+        int rays;
+        // Hit being shaded; materials without the two-phase API go through the adapter
+        final LegacyMaterialAdapter legacyMaterial = new LegacyMaterialAdapter();
+        final SurfaceProperties surface = new SurfaceProperties();
+        // Light at the hit: all direct lights, the light being shaded, and soft shadow scratch
+        final LightAccumulator directLight = new LightAccumulator();
+        final LightAccumulator light = new LightAccumulator();
+        final LightAccumulator shadowedLight = new LightAccumulator();
+        final LightAccumulator sampledLight = new LightAccumulator();
+
+        TraceState(ShadingContext context, SceneSnapshot snapshot) {
+            this.context = context;
+            context.setHit(hit);
+            this.lastOccluder = new int[snapshot.directLights.length];
+            Arrays.fill(lastOccluder, -1);
+            this.occlusions = new int[snapshot.shadowBVH.getShapeCount()];
+        }
+    }
+
+    /**
+     * traceRay for the camera ray of a pixel while a G-buffer is filled or
+     * read: the hit and the shadow casters of its direct lights are recorded,
+     * or taken from the record instead of searched for and filled again.
+     */
+    private FloatColor tracePrimaryRay(Ray ray, int pixel, TraceState state) {
+        if (!relighting) {
+            gbuffer.clearPixel(pixel);
+        }
+        if (camera.getMaxRecursionDepth() < 0) {
+            return backgroundColorFloat;
+        }
+
+        EMShape shape;
+        if (relighting) {
+            shape = gbuffer.getShape(pixel);
+            if (shape == null) {
+                return backgroundColorFloat;
+            }
+        } else {
+            shape = findClosestShape(ray, state.hitDistance);
+            if (shape == null) {
+                return backgroundColorFloat;
+            }
+        }
+
+        final int rays = state.rays;
+        state.gbufferPixel = pixel;
+        FloatColor color = shadeHit(ray, shape, 0, 1.0, state);
+        if (!relighting && state.rays != rays) {
+            gbuffer.setTracedFurther(pixel);
+        }
+        return color;
     }
 
     //Original traceRay
-    private FloatColor traceRay(Ray ray, int depth, double attenuationFactor) {
+    private FloatColor traceRay(Ray ray, int depth, double attenuationFactor, TraceState state) {
+        state.rays++;
+
         // 1. Check depth and attenuation factor
         if ((depth > camera.getMaxRecursionDepth()) || attenuationFactor < 1e-30) {
             return depth == 0 ? backgroundColorFloat : FloatColor.BLACK;
         }
 
         // 2. Intersection test
-        Optional<Intersection> hit = findClosestIntersection(ray);
-        if (!hit.isPresent()) {
+        EMShape shape = findClosestShape(ray, state.hitDistance);
+        if (shape == null) {
             return depth == 0 ? backgroundColorFloat : FloatColor.BLACK;
         }
 
-        Intersection intersection = hit.get();
-        EMShape shape = intersection.getShape();
+        return shadeHit(ray, shape, depth, attenuationFactor, state);
+    }
+
+    /**
+     * Shades the hit of a ray on a shape, at the distance in
+     * state.hitDistance, tracing further rays as the material asks.
+     */
+    private FloatColor shadeHit(Ray ray, EMShape shape, int depth, double attenuationFactor, TraceState state) {
+        // Only this hit's own direct lighting goes through the G-buffer, not that of further rays
+        final int gbufferPixel = state.gbufferPixel;
+        state.gbufferPixel = -1;
+
+        final ShadingContext context = state.context;
         Material material = shape.getMaterial();
-        Point3 hitPoint = intersection.getPoint();
-        Vector3 normal = intersection.getNormal().normalize();
+        final HitRecord hit = state.hit;
+        if (gbufferPixel >= 0 && relighting) {
+            // fillHit may rely on state its intersect call left behind, so use the copy
+            gbuffer.getHit(gbufferPixel, hit);
+        } else {
+            shape.fillHit(ray, state.hitDistance[0], hit);
+            if (gbufferPixel >= 0) gbuffer.setHit(gbufferPixel, hit);
+        }
+        Point3 hitPoint = hit.getPoint();
+        Vector3 normal = hit.getShadingNormal();
+        // Read now: tracing any further ray refills the record
+        final boolean entering = !hit.isInside();
 		
 		if (material == null) {
-            if (Math.random() < 0.001) {
+            if (context.getRandom().nextDouble() < 0.001) {
                 System.out.println("WARNING: NULL MATERIAL converted to DIFFUSEMATERIAL: " + shape.toString() + "");
             }
             material = new DiffuseMaterial(Color.RED);
         }
 
+        context.beginHit();
+
+        // Everything about the surface that does not depend on the light, once per hit
+        final SurfaceMaterial shading = material instanceof SurfaceMaterial
+            ? (SurfaceMaterial) material : state.legacyMaterial.bind(material);
+        final SurfaceProperties surface = state.surface;
+        surface.reset(hitPoint, normal, ray.getOrigin(), context);
+        shading.evaluateSurface(surface);
+
+        // Unlit color and alpha, seen under a plain white light
+        final LightAccumulator materialLight = state.light;
+        materialLight.reset();
+        shading.shadeLight(surface, TRANSPARENCY_LIGHT, materialLight);
+        materialLight.clamp();
+
         //////////////////////////
         if (shape.isVisibleSpecial() == false) {
-                Color materialColor = material.getColorAt(hitPoint, normal, TRANSPARENCY_LIGHT, ray.getOrigin());
-
-                if (materialColor.getAlpha() < 255) {
-                    Point3 offsetPoint = hitPoint.add(ray.getDirection().scale(Ray.EPSILON));
-                    Ray newRay = new Ray(offsetPoint, ray.getDirection());
-                    return traceRay(newRay, depth, attenuationFactor);
+                if (materialLight.getAlpha() < 1.0) {
+                    Point3 offsetPoint = hitPoint.addScaled(ray.getDirection(), Ray.EPSILON);
+                    Ray newRay = Ray.fromUnitDirection(offsetPoint, ray.getDirection());
+                    return traceRay(newRay, depth, attenuationFactor, state);
                 } else {
                     return new FloatColor(
-                    materialColor.getRed() / 255.0,
-                    materialColor.getGreen() / 255.0,
-                    materialColor.getBlue() / 255.0
+                    materialLight.getRed(),
+                    materialLight.getGreen(),
+                    materialLight.getBlue()
                     );
                 }
         }
         //////////////////////////
 
         // *** GENERAL TRANSPARENCY HANDLING - FOR ALL SHAPES ***
-        // Create a predefined ambient light for transparency checks to avoid null errors
-        //Light transparencyCheckLight = new ElenaMuratAmbientLight(Color.WHITE, 1.0);
-        Color materialColor = material.getColorAt(hitPoint, normal, TRANSPARENCY_LIGHT, ray.getOrigin());
-        int alpha = materialColor.getAlpha();
+        // TRANSPARENCY_LIGHT is a predefined ambient light for transparency checks to avoid null errors
+        final double alphaFactor = materialLight.getAlpha();
 
-        if (alpha < 255) {
+        if (alphaFactor < 1.0) {
             // Transparency exists - recursive ray continue
-            double transparency = material.getTransparency();
+            double transparency = context.getTransparency(material);
             if (transparency > 0.1) { // transparent sufficient
-                Point3 offsetPoint = hitPoint.add(ray.getDirection().scale(Ray.EPSILON));
-                Ray newRay = new Ray(offsetPoint, ray.getDirection());
-                FloatColor behindColor = traceRay(newRay, depth, attenuationFactor * transparency);
-
-                // Alpha blending
-                double alphaFactor = alpha / 255.0;
+                // Read before recursing, which reuses the accumulator
                 FloatColor materialFloat = new FloatColor(
-                materialColor.getRed() / 255.0,
-                materialColor.getGreen() / 255.0,
-                materialColor.getBlue() / 255.0
+                materialLight.getRed(),
+                materialLight.getGreen(),
+                materialLight.getBlue()
                 );
 
+                Point3 offsetPoint = hitPoint.addScaled(ray.getDirection(), Ray.EPSILON);
+                Ray newRay = Ray.fromUnitDirection(offsetPoint, ray.getDirection());
+                FloatColor behindColor = traceRay(newRay, depth, attenuationFactor * transparency, state);
+
+                // Alpha blending
+
                 // Blend: materialColor * alpha + behindColor * (1 - alpha)
                 return materialFloat.multiply(alphaFactor)
                 .add(behindColor.multiply(1.0 - alphaFactor));
@@ -370,8 +1089,8 @@ public class ElenaMuratRayTracer {
         //////////////////
 
         // Normal direction correction
-        boolean entering = ray.getDirection().dot(normal) < 0;
         Vector3 N = entering ? normal : normal.negate();
+        if (!entering) surface.flipNormal();
 
         // 3. Process based on material type
         if (material instanceof EmissiveMaterial) {
@@ -380,42 +1099,71 @@ public class ElenaMuratRayTracer {
             return new FloatColor(emat.getEmissiveColor()).multiply(emat.getEmissiveStrength());
         } else {
             // *** GENERAL MATERIALS (NON-PBR) ***
-            FloatColor finalColor = FloatColor.BLACK;
-
-            // Direct lighting
-            Color directLightingColor = calculateDirectLighting(hitPoint, N, material, ray, shape);
-            FloatColor directLightingFloat = new FloatColor(directLightingColor);
-            finalColor = finalColor.add(directLightingFloat);
+            // Summed in place; same arithmetic as chaining FloatColor.add from BLACK
+            double r = 0.0, g = 0.0, b = 0.0, a = 0.0;
+
+            // Direct lighting, saturating at white as a whole
+            final LightAccumulator directLight = state.directLight;
+            state.gbufferPixel = gbufferPixel;
+            calculateDirectLighting(shading, surface, material, ray, shape, state);
+            state.gbufferPixel = -1;
+            directLight.clamp();
+            r += directLight.getRed();
+            g += directLight.getGreen();
+            b += directLight.getBlue();
+            a = Math.max(a, directLight.isEmpty() ? 0.0 : 1.0);
 
             // Ambient light
-            for (Light light : scene.getLights()) {
-                if (light instanceof ElenaMuratAmbientLight) {
-                    Color ambientColor = material.getColorAt(hitPoint, N, light, ray.getOrigin());
-                    FloatColor ambientFloat = new FloatColor(ambientColor);
-                    finalColor = finalColor.add(ambientFloat);
-                }
+            final Light[] ambientLights = snapshot.ambientLights;
+            final LightAccumulator ambientLight = state.light;
+            for (int i = 0; i < ambientLights.length; i++) {
+                ambientLight.reset();
+                shading.shadeLight(surface, ambientLights[i], ambientLight);
+                r += ambientLight.getRed();
+                g += ambientLight.getGreen();
+                b += ambientLight.getBlue();
+                a = Math.max(a, ambientLight.getAlpha());
+            }
+
+            // Light the surface gives off by itself
+            Color emission = surface.getEmission();
+            if (emission != null) {
+                r += emission.getRed() / 255.0;
+                g += emission.getGreen() / 255.0;
+                b += emission.getBlue() / 255.0;
+                a = Math.max(a, emission.getAlpha() / 255.0);
             }
 
-            finalColor = finalColor.multiply(attenuationFactor);
+            r *= attenuationFactor;
+            g *= attenuationFactor;
+            b *= attenuationFactor;
+
+            // Per-hit values must be read before recursing, which reuses the context
+            final double reflectivity = context.getReflectivity(material);
+            final double transparency = context.getTransparency(material);
+            final double indexOfRefraction = context.getIndexOfRefraction(material);
 
             // Reflection ORIGINAL
-            if (shouldCalculateReflections(material, shape)) {
+            if (shouldCalculateReflections(reflectivity, shape)) {
                 Vector3 reflectedDir = ray.getDirection().reflect(N).normalize();
-                double newReflectedAttenuation = attenuationFactor * material.getReflectivity();
+                double newReflectedAttenuation = attenuationFactor * reflectivity;
 
                 double reflectionBias = shape.getShadowBias();
-                Point3 offsetPoint = hitPoint.add(N.scale(reflectionBias)); //Added
+                Point3 offsetPoint = hitPoint.addScaled(N, reflectionBias); //Added
 
                 //Point3 offsetPoint = hitPoint.add(N.scale(Ray.EPSILON)); //Original
-                Ray reflectedRay = new Ray(offsetPoint, reflectedDir);
-                FloatColor reflectedColor = traceRay(reflectedRay, depth + 1, newReflectedAttenuation);
-                finalColor = finalColor.add(reflectedColor);
+                Ray reflectedRay = Ray.fromUnitDirection(offsetPoint, reflectedDir);
+                FloatColor reflectedColor = traceRay(reflectedRay, depth + 1, newReflectedAttenuation, state);
+                r += reflectedColor.r;
+                g += reflectedColor.g;
+                b += reflectedColor.b;
+                a = Math.max(a, reflectedColor.a);
             }
 
             // Refraction
-            if (shouldCalculateRefractions(material, shape)) {
-                double n1 = entering ? 1.0 : material.getIndexOfRefraction();
-                double n2 = entering ? material.getIndexOfRefraction() : 1.0;
+            if (shouldCalculateRefractions(transparency, shape)) {
+                double n1 = entering ? 1.0 : indexOfRefraction;
+                double n2 = entering ? indexOfRefraction : 1.0;
 
                 double fresnel = Vector3.calculateFresnel(ray.getDirection(), N, n1, n2);
 
@@ -424,11 +1172,12 @@ public class ElenaMuratRayTracer {
                 //Optional<Vector3> refractedDir = ray.getDirection().refract(entering?N:N.negate(), n1, n2);
 
                 if (refractedDir.isPresent()) {
-                    Point3 refractedOffsetPoint = hitPoint.add(refractedDir.get().scale(Ray.EPSILON));
+                    Point3 refractedOffsetPoint = hitPoint.addScaled(refractedDir.get(), Ray.EPSILON);
                     //double newRefractedAttenuation = attenuationFactor * material.getTransparency(); //Original
-                    double newRefractedAttenuation = attenuationFactor * material.getTransparency() * (1.0-fresnel);
-                    Ray refractedRay = new Ray(refractedOffsetPoint, refractedDir.get());
-                    FloatColor refractedColor = traceRay(refractedRay, depth + 1, newRefractedAttenuation);
+                    double newRefractedAttenuation = attenuationFactor * transparency * (1.0-fresnel);
+                    // refract() already returns a unit vector
+                    Ray refractedRay = Ray.fromUnitDirection(refractedOffsetPoint, refractedDir.get());
+                    FloatColor refractedColor = traceRay(refractedRay, depth + 1, newRefractedAttenuation, state);
 
                     if (material instanceof GlassMaterial) {
                         Color glassColor = ((GlassMaterial)material).getColorForRefraction();
@@ -463,16 +1212,22 @@ public class ElenaMuratRayTracer {
                         refractedColor = refractedColor.multiply(diamondTint);
                     }
 
-                    finalColor = finalColor.add(refractedColor);
+                    r += refractedColor.r;
+                    g += refractedColor.g;
+                    b += refractedColor.b;
+                    a = Math.max(a, refractedColor.a);
                 }
             }
 
-            finalColor = new FloatColor(finalColor.r, finalColor.g, finalColor.b, finalColor.a);
-
-            return finalColor.clamp01();
+            return new FloatColor(
+                Math.max(0.0, Math.min(1.0, r)),
+                Math.max(0.0, Math.min(1.0, g)),
+                Math.max(0.0, Math.min(1.0, b)),
+                Math.max(0.0, Math.min(1.0, a))
+            );
         }
     }
-    // end of traceRay
+    // end of shadeHit
 
     // New helper methods (CAMERA CONTROLLED)
     private boolean shouldCalculateReflections(Material material) {
@@ -485,7 +1240,7 @@ public class ElenaMuratRayTracer {
         && material.getTransparency() > Ray.EPSILON;
     }
 
-	private boolean shouldCalculateReflections(Material material, EMShape shape) {
+	private boolean shouldCalculateReflections(double reflectivity, EMShape shape) {
 		// Check camera reflection setting
 		if (!camera.isReflective()) {
 			return false;
@@ -496,11 +1251,11 @@ public class ElenaMuratRayTracer {
 			return false;
 		}
     
-		// Check material's reflectivity value
-		return material.getReflectivity() > Ray.EPSILON;
+		// Check material's reflectivity value for this hit
+		return reflectivity > Ray.EPSILON;
 	}
 
-	private boolean shouldCalculateRefractions(Material material, EMShape shape) {
+	private boolean shouldCalculateRefractions(double transparency, EMShape shape) {
 		// Check camera refraction setting
 		if (!camera.isRefractive()) {
 			return false;
@@ -511,185 +1266,254 @@ public class ElenaMuratRayTracer {
 			return false;
 		}
     
-		// Check material's transparency value
-		return material.getTransparency() > Ray.EPSILON;
+		// Check material's transparency value for this hit
+		return transparency > Ray.EPSILON;
 	}
 
     private boolean shouldCalculateShadows() {
         return camera.isShadowsEnabled();
     }
 
-    private Color calculateDirectLighting(Point3 point, Vector3 normal,
-    Material material, Ray ray, EMShape tracerShape) {
-        Color directLightingColor = new Color(0f, 0f, 0f, 0f);
-
-        double shadowBias = tracerShape.getShadowBias();
-
-        for (Light light : scene.getLights()) {
-            if (light instanceof ElenaMuratAmbientLight) continue;
-
-            Vector3 lightDir = null;
-            double distance = Double.POSITIVE_INFINITY;
-
-            if (light instanceof MuratPointLight) {
-                MuratPointLight ptLight = (MuratPointLight) light;
-                lightDir = ptLight.getPosition().subtract(point).normalize();
-                distance = ptLight.getPosition().subtract(point).length();
-            } else if (light instanceof PulsatingPointLight) {
-                PulsatingPointLight pulsatingLight = (PulsatingPointLight) light;
-                lightDir = pulsatingLight.getPosition().subtract(point).normalize();
-                distance = pulsatingLight.getDistanceTo(point);
-            } else if (light instanceof ElenaDirectionalLight) {
-                ElenaDirectionalLight dl = (ElenaDirectionalLight) light;
-                lightDir = dl.getDirection().negate().normalize();
-                distance = Double.POSITIVE_INFINITY;
-            } else if (light instanceof SpotLight) {
-                SpotLight s = (SpotLight) light;
-                lightDir = s.getPosition().subtract(point).normalize();
-                distance = s.getPosition().subtract(point).length();
-            } else if (light instanceof FractalLight) {
-                FractalLight f = (FractalLight) light;
-                lightDir = f.getPosition().subtract(point).normalize();
-                distance = f.getPosition().subtract(point).length();
-            } else if (light instanceof BlackHoleLight) {
-                BlackHoleLight bh = (BlackHoleLight) light;
-                lightDir = bh.getPosition().subtract(point).normalize();
-                distance = bh.getPosition().subtract(point).length();
-            } else if (light instanceof BioluminescentLight) {
-                BioluminescentLight bio = (BioluminescentLight) light;
-                lightDir = bio.getDirectionAt(point);
-                distance = bio.getClosestDistance(point);
-            } else {
-                lightDir = light.getDirectionAt(point);
-                Point3 lightPosition = light.getPosition();
-                if (lightPosition != null) {
-                    distance = lightPosition.distance(point);
-                } else {
-                    distance = Double.POSITIVE_INFINITY;
-                }
+    /**
+     * Sums the direct lights at a hit into state.directLight.
+     */
+    private void calculateDirectLighting(SurfaceMaterial shading, SurfaceProperties surface,
+    Material material, Ray ray, EMShape tracerShape, TraceState state) {
+        final LightAccumulator directLight = state.directLight;
+        directLight.reset();
+
+        final Light[] directLights = snapshot.directLights;
+        final int draws = manyLightSamples;
+        if (draws > 0 && directLights.length > draws) {
+            LightTree tree = snapshot.lightTree();
+            if (tree.getSampledCount() > draws) {
+                sampleDirectLighting(tree, draws, shading, surface, material, ray, tracerShape, state);
+                return;
             }
+        }
 
-            if (lightDir == null) continue;
+        final LightAccumulator contribution = state.light;
+        for (int i = 0; i < directLights.length; i++) {
+            contribution.reset();
+            if (shadeLight(i, shading, surface, material, ray, tracerShape, state, false, contribution)) {
+                directLight.add(contribution);
+            }
+        }
+    }
 
-            if (material instanceof TransparentPNGMaterial ||
-            material instanceof TransparentColorMaterial ||
-            material instanceof GhostTextMaterial) {
-                Color contribution = material.getColorAt(point, normal, light, ray.getOrigin());
-                directLightingColor = ColorUtil.addSafe(directLightingColor, contribution);
-                continue;
+    /**
+     * Many-lights path: shades the lights without a position as usual and
+     * estimates the rest from a few lights picked by the light tree, each
+     * weighted by one over its pick probability. Picked lights are shadowed
+     * without clamping, so the weighted sum is an unbiased estimate of the
+     * unclamped one; only the final direct sum is clamped.
+     */
+    private void sampleDirectLighting(LightTree tree, int draws, SurfaceMaterial shading,
+    SurfaceProperties surface, Material material, Ray ray, EMShape tracerShape, TraceState state) {
+        final LightAccumulator directLight = state.directLight;
+        final LightAccumulator contribution = state.light;
+        final Point3 point = surface.getPoint();
+        final Vector3 normal = surface.getNormal();
+
+        for (int k = 0; k < tree.getUnboundedCount(); k++) {
+            contribution.reset();
+            if (shadeLight(tree.getUnboundedLight(k), shading, surface, material, ray, tracerShape,
+                state, false, contribution)) {
+                directLight.add(contribution);
             }
+        }
 
-            Point3 shadowOrigin = point.add(normal.scale(shadowBias));
+        for (int draw = 0; draw < draws; draw++) {
+            int i = tree.sample(point, normal, draw, draws, state.lightSample.jitter(draw, 2), state.lightPdf);
+            if (i < 0) break;
+            contribution.reset();
+            if (!shadeLight(i, shading, surface, material, ray, tracerShape, state, true, contribution)) continue;
 
-            if (!shouldCalculateShadows()) {
-                // Closed shadow
-                Color contribution = material.getColorAt(point, normal, light, ray.getOrigin());
-                directLightingColor = ColorUtil.addSafe(directLightingColor, contribution);
-            } else {
-                // Object that gives shadow
-                EMShape shadowCaster = findShadowCaster(shadowOrigin, lightDir, distance, tracerShape);
-                Color contribution = material.getColorAt(point, normal, light, ray.getOrigin());
+            directLight.add(contribution, 1.0 / (draws * state.lightPdf[0]));
+        }
+    }
 
-                if (shadowCaster == null) {
-                    // Is not in shadow
-                    directLightingColor = ColorUtil.addSafe(directLightingColor, contribution);
-                } else {
-                    // Is in shadow
-                    Color shadowedContribution = ColorUtil.applyShadowColor(
-                    contribution,
-                    shadowCaster.getShadowColor()
-                    );
-                    directLightingColor = ColorUtil.addSafe(directLightingColor, shadowedContribution);
-                }
-            }
+    /**
+     * Shades one direct light at a hit, shadows included.
+     * @param i Index of the light in the snapshot's direct lights
+     * @param estimate True when out is weighted into an estimate: shadows are then blended without clamping
+     * @param out Receives what the light adds
+     * @return False when the light is culled or can not be sampled from
+     * this point, in which case out is left alone
+     */
+    private boolean shadeLight(int i, SurfaceMaterial shading, SurfaceProperties surface,
+    Material material, Ray ray, EMShape tracerShape, TraceState state, boolean estimate,
+    LightAccumulator out) {
+        final Light light = snapshot.directLights[i];
+        final Point3 point = surface.getPoint();
+        final Vector3 normal = surface.getNormal();
+
+        final LightSample sample = state.lightSample;
+        light.sample(point, 0, sample);
+        Vector3 lightDir = sample.getDirection();
+        if (lightDir == null) return false;
+
+        if (material instanceof TransparentPNGMaterial ||
+        material instanceof TransparentColorMaterial ||
+        material instanceof GhostTextMaterial) {
+            shading.shadeLight(surface, light, out);
+            return true;
         }
 
-        return directLightingColor;
-    }
+        // See-through materials above are lit from both sides, which the estimate does not know
+        if (lightCullThreshold > 0.0 && light.estimateContribution(point, normal) < lightCullThreshold) {
+            return false;
+        }
 
-    private EMShape findShadowCaster(Point3 shadowOrigin, Vector3 lightDir,
-        double lightDistance, EMShape currentShape) {
-        Ray shadowRay = new Ray(shadowOrigin, lightDir);
+        if (!shouldCalculateShadows()) {
+            // Closed shadow
+            shading.shadeLight(surface, light, out);
+            return true;
+        }
 
-        EMShape closestShape = null;
-        double closestDist = Double.POSITIVE_INFINITY;
+        Point3 shadowOrigin = point.addScaled(normal, tracerShape.getShadowBias());
+
+        // Object that gives shadow
+        EMShape shadowCaster = shadowCaster(shadowOrigin, lightDir, sample.getDistance(),
+            tracerShape, i, 0, state);
+        shading.shadeLight(surface, light, out);
+
+        final int samples = light.getSampleCount();
+        if (samples > 1) {
+            // Soft shadow: trace the light's other samples too
+            shadeSampledLight(out, shadowCaster,
+                light, samples, point, shadowOrigin, tracerShape, i, estimate, state);
+        } else if (shadowCaster != null) {
+            // Is in shadow
+            shadow(out, shadowCaster.getShadowColor(), estimate);
+        }
+        return true;
+    }
 
-        for (EMShape shape : scene.getShapes()) {
-            if (shape == currentShape) {
-                continue;
-            }
-        
-            // SPECIAL LOGIC FOR SHADOW-ONLY SHAPES:
-            // If shape is shadow-only, ignore its visibility status
-            // Shadow-only shapes should cast shadows regardless of visibility
-            if (!shape.isShadowOnly()) {
-                // For normal shapes, check visibility
-                if (!shape.isVisible()) {
-                    continue; // Invisible normal shapes don't cast shadows
+    /**
+     * Averages a light's contribution over its samples: samples that reach
+     * the light keep it, blocked ones get the shadow color of their
+     * caster. Sample 0 has been traced already and blocked by firstCaster.
+     * The average replaces contribution.
+     */
+    private void shadeSampledLight(LightAccumulator contribution, EMShape firstCaster, Light light,
+        int samples, Point3 point, Point3 shadowOrigin, EMShape tracerShape, int lightIndex,
+        boolean estimate, TraceState state) {
+        final LightSample sample = state.lightSample;
+        final LightAccumulator shadowed = state.shadowedLight;
+        final LightAccumulator sum = state.sampledLight;
+        sum.reset();
+        int blocked = 0;
+        Color shadowColor = null;
+
+        EMShape caster = firstCaster;
+        for (int k = 0; ; ) {
+            if (caster != null) {
+                // Neighbouring samples mostly hit the same caster
+                if (blocked == 0 || caster.getShadowColor() != shadowColor) {
+                    shadowColor = caster.getShadowColor();
+                    shadowed.set(contribution);
+                    shadow(shadowed, shadowColor, estimate);
                 }
+                blocked++;
+                sum.add(shadowed);
             }
-        
-            // Check if shadow casting is enabled for this shape
-            if (!shape.isShadowEnable()) {
-                continue;
-            }
-
-            double dist = shape.intersect(shadowRay);
- 
-            if (dist < Ray.MIN_SHADOW_DISTANCE) {
-            continue;
-            }
+            if (++k == samples) break;
 
-            if (dist > Ray.MIN_SHADOW_DISTANCE && dist < closestDist) {
-                closestDist = dist;
-                closestShape = shape;
-            }
+            light.sample(point, k, sample);
+            Vector3 lightDir = sample.getDirection();
+            caster = lightDir == null ? null
+                : shadowCaster(shadowOrigin, lightDir, sample.getDistance(), tracerShape, lightIndex, k, state);
         }
 
-        if (closestShape == null) {
-            return null;
+        if (blocked == 0) return;
+
+        sum.add(contribution, samples - blocked);
+        contribution.reset();
+        contribution.add(sum, 1.0 / samples);
+    }
+
+    /**
+     * Blends a caster's shadow color over a light; unclamped when the light
+     * is a weighted sample of many.
+     */
+    private static void shadow(LightAccumulator light, Color shadowColor, boolean estimate) {
+        if (estimate) {
+            light.blendShadowColor(shadowColor);
+        } else {
+            light.applyShadowColor(shadowColor);
         }
+    }
 
-        if (lightDistance == Double.POSITIVE_INFINITY) {
-            return closestShape;
+    /**
+     * Shadow caster of one sample of a direct light, through the G-buffer
+     * when the hit is a recorded pixel's primary hit: found and recorded
+     * while capturing, read back while relighting.
+     * @return The blocking shape, or null when the sample reaches the light
+     */
+    private EMShape shadowCaster(Point3 shadowOrigin, Vector3 lightDir, double lightDistance,
+        EMShape currentShape, int lightIndex, int sampleIndex, TraceState state) {
+        final int pixel = state.gbufferPixel;
+        if (pixel >= 0 && relighting) {
+            return gbuffer.getCaster(pixel, lightIndex, sampleIndex);
         }
+        EMShape caster = findShadowCaster(shadowOrigin, lightDir, lightDistance, currentShape, lightIndex, state);
+        if (pixel >= 0) gbuffer.setCaster(pixel, lightIndex, sampleIndex, caster);
+        return caster;
+    }
 
-        if (closestDist < (lightDistance - Ray.MIN_SHADOW_DISTANCE)) {
-            return closestShape;
+    /**
+     * Finds the shape whose shadow color darkens this light, or null when
+     * the light is not blocked. That is the closest blocker, except when all
+     * casters share one shadow color: then the first blocker found will do,
+     * starting with the one that blocked this light last time.
+     */
+    private EMShape findShadowCaster(Point3 shadowOrigin, Vector3 lightDir,
+        double lightDistance, EMShape currentShape, int lightIndex, TraceState state) {
+        Ray shadowRay = new Ray(shadowOrigin, lightDir);
+        double maxDistance = lightDistance == Double.POSITIVE_INFINITY
+            ? Double.POSITIVE_INFINITY : lightDistance - Ray.MIN_SHADOW_DISTANCE;
+
+        final BVH casters = snapshot.shadowBVH;
+        int index;
+        if (snapshot.uniformShadowColor) {
+            index = state.lastOccluder[lightIndex];
+            if (index >= 0) {
+                EMShape cached = casters.getShape(index);
+                double d = cached == currentShape ? -1 : cached.intersect(shadowRay);
+                if (d > Ray.MIN_SHADOW_DISTANCE && d < maxDistance) {
+                    state.occlusions[index]++;
+                    return cached;
+                }
+            }
+            index = casters.firstHit(shadowRay, currentShape, BVH.ALL,
+                Ray.MIN_SHADOW_DISTANCE, maxDistance);
+            if (index < 0) return null;
+            // A miss keeps the old entry: the next pixel may be back in its shadow
+            state.lastOccluder[lightIndex] = index;
+        } else {
+            index = casters.closestHit(shadowRay, currentShape, BVH.ALL,
+                Ray.MIN_SHADOW_DISTANCE, state.hitDistance);
+            if (index < 0 || !(state.hitDistance[0] < maxDistance)) return null;
         }
 
-        return null;
+        state.occlusions[index]++;
+        return casters.getShape(index);
     }
 
-    private Optional<Intersection> findClosestIntersection(Ray ray) {
-        EMShape closestShape = null;
-        double closestDist = Double.POSITIVE_INFINITY;
+    /**
+     * Finds the closest visible shape along the ray.
+     * @param closestDist Receives the hit distance in [0] when a shape is found
+     * @return The hit shape, or null on a miss
+     */
+    private EMShape findClosestShape(Ray ray, double[] closestDist) {
+        final BVH visible = snapshot.visibleBVH;
+        // See-through texels of billboards and the like are skipped here rather than traced through
+        int index = visible.closestHit(ray, null, BVH.ALL, Ray.EPSILON, closestDist, true);
 
-        for (EMShape shape : scene.getShapes()) {
-            // Skip shapes that are not visible and are NOT shadow-only
-            // Shadow-only shapes should be invisible to ray intersection tests
-            if (!shape.isVisible() && !shape.isShadowOnly()) {
-                continue;
-            }
-        
-            // Skip shadow-only shapes from intersection calculations
-            // They exist only for casting shadows, not for visible rendering
-            if (shape.isShadowOnly()) {
-                continue;
-            }
-        
-            double dist = shape.intersect(ray);
-            if (dist > Ray.EPSILON && dist < closestDist) {
-                closestDist = dist;
-                closestShape = shape;
-            }
-        }
+        if (index < 0) return null;
 
-        if (closestShape == null) return Optional.empty();
- 
-        Point3 hitPoint = ray.pointAtParameter(closestDist);
-        Vector3 normal = closestShape.getNormalAt(hitPoint);
-        return Optional.of(new Intersection(hitPoint, normal, closestDist, closestShape));
+        return visible.getShape(index);
     }
 
     @Override
@@ -0,0 +1,286 @@
+package net.elena.murat.lovert;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//custom imports
+import net.elena.murat.light.Light;
+import net.elena.murat.math.HitRecord;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Per-pixel record of a render's primary hits, for re-shading the same view
+ * under different light intensities or colors without intersecting anything.
+ * <p>
+ * {@link ElenaMuratRayTracer#render(GBuffer)} fills it: for every pixel the
+ * camera ray's hit, with the shape, point, normals and texture coordinates
+ * the material shades from, whether the hit traced further rays, and for
+ * every sample of every direct light the shape that blocked the shadow ray,
+ * if any. The view vector follows from the pixel.
+ * {@link ElenaMuratRayTracer#relight(GBuffer)} then shades each pixel from the
+ * record. Reflections, refractions and see-through surfaces are still traced,
+ * but from the recorded hit on.
+ * </p>
+ * <p>
+ * Everything is kept in flat primitive arrays, shapes as their index in the
+ * scene, so a buffer holds no object per pixel: about 105 bytes per pixel,
+ * plus 4 bytes per pixel for every light sample.
+ * </p>
+ * <p>
+ * The record only holds while the camera, the shapes, their materials and
+ * transforms, and the light positions stay as they were; light intensities
+ * and colors may change. After some shapes moved,
+ * {@link ElenaMuratRayTracer#render(GBuffer, java.awt.image.BufferedImage, java.util.List)}
+ * uses the record to find the tiles they can not have changed, and records
+ * the tiles it renders again.
+ * </p>
+ * Not thread-safe while it is being filled.
+ */
+public final class GBuffer {
+
+  // Doubles per pixel in hitData: t, point, geometric normal, shading normal, u, v
+  private static final int HIT_DOUBLES = 12;
+
+  private static final byte INSIDE = 1;
+  private static final byte HAS_UV = 2;
+  private static final byte TRACED_FURTHER = 4;
+
+  private SceneSnapshot snapshot;
+  private int width;
+  private int height;
+  private boolean shadows;
+
+  // Index of each of the snapshot's shapes in its shapes array
+  private final Map<EMShape, Integer> shapeIndices = new IdentityHashMap<>();
+
+  // Per pixel: the hit shape's index, -1 for a miss, its primitive and flags, and HIT_DOUBLES values
+  private int[] hitShapes;
+  private int[] primitives;
+  private byte[] flags;
+  private double[] hitData;
+
+  // Per direct light: its first slot and sample count; slots run over all samples of all lights
+  private int[] slotOffsets;
+  private int[] sampleCounts;
+  private int slotCount;
+
+  // Per pixel and slot: index of the shape that blocked the sample, or -1
+  private int[] casters;
+
+  /**
+   * Starts a new record for a render of the given size.
+   * @param shadows Whether the render traces shadow rays; no casters are kept otherwise
+   */
+  void begin(SceneSnapshot snapshot, int width, int height, boolean shadows) {
+    final int pixelCount = width * height;
+    final Light[] lights = snapshot.directLights;
+
+    this.snapshot = snapshot;
+    this.width = width;
+    this.height = height;
+    this.shadows = shadows;
+
+    shapeIndices.clear();
+    for (int i = 0; i < snapshot.shapes.length; i++) {
+      shapeIndices.put(snapshot.shapes[i], i);
+    }
+
+    this.slotOffsets = new int[lights.length];
+    this.sampleCounts = new int[lights.length];
+    int slots = 0;
+    for (int i = 0; i < lights.length; i++) {
+      slotOffsets[i] = slots;
+      sampleCounts[i] = Math.max(1, lights[i].getSampleCount());
+      slots += sampleCounts[i];
+    }
+    this.slotCount = shadows ? slots : 0;
+
+    long casterCount = (long) pixelCount * slotCount;
+    if (casterCount > Integer.MAX_VALUE || (long) pixelCount * HIT_DOUBLES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("G-buffer of " + width + "x" + height
+        + " with " + slotCount + " light samples per pixel is too large");
+    }
+
+    if (hitShapes == null || hitShapes.length != pixelCount) {
+      hitShapes = new int[pixelCount];
+      primitives = new int[pixelCount];
+      flags = new byte[pixelCount];
+      hitData = new double[pixelCount * HIT_DOUBLES];
+    }
+    Arrays.fill(hitShapes, -1);
+    Arrays.fill(flags, (byte) 0);
+    if (casters == null || casters.length != (int) casterCount) {
+      casters = new int[(int) casterCount];
+    }
+    Arrays.fill(casters, -1);
+  }
+
+  /**
+   * Moves the record over to a new snapshot of the same scene, for a render
+   * that records only part of the pixels again.
+   * @return False, leaving the record alone, when the snapshot does not
+   * hold the recorded shapes and lights in the same order
+   */
+  boolean update(SceneSnapshot snapshot) {
+    if (this.snapshot == null || !Arrays.equals(snapshot.directLights, this.snapshot.directLights)) {
+      return false;
+    }
+    final EMShape[] shapes = this.snapshot.shapes;
+    if (snapshot.shapes.length != shapes.length) return false;
+    for (int i = 0; i < shapes.length; i++) {
+      if (snapshot.shapes[i] != shapes[i]) return false;
+    }
+    this.snapshot = snapshot;
+    return true;
+  }
+
+  /**
+   * Drops the record, keeping the arrays for the next capture.
+   */
+  public void clear() {
+    snapshot = null;
+    shapeIndices.clear();
+  }
+
+  /**
+   * @return True when a render has filled the buffer
+   */
+  public boolean isCaptured() {
+    return snapshot != null;
+  }
+
+  /**
+   * @return True when the record fits a render of this size, with shadows
+   * on or off as given, of lights that still take as many samples
+   */
+  boolean fits(int width, int height, boolean shadows) {
+    if (snapshot == null || width != this.width || height != this.height || shadows != this.shadows) {
+      return false;
+    }
+    final Light[] lights = snapshot.directLights;
+    for (int i = 0; i < lights.length; i++) {
+      if (Math.max(1, lights[i].getSampleCount()) != sampleCounts[i]) return false;
+    }
+    return true;
+  }
+
+  SceneSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Forgets what was recorded for the pixel, before it is recorded again.
+   */
+  void clearPixel(int pixel) {
+    hitShapes[pixel] = -1;
+    flags[pixel] = 0;
+    int from = pixel * slotCount;
+    Arrays.fill(casters, from, from + slotCount, -1);
+  }
+
+  /**
+   * Keeps the pixel's primary hit; values the hit works out later on
+   * demand, such as its local point, are not kept.
+   */
+  void setHit(int pixel, HitRecord hit) {
+    final Point3 point = hit.getPoint();
+    final Vector3 geometric = hit.getGeometricNormal();
+    final Vector3 shading = hit.getShadingNormal();
+    final int i = pixel * HIT_DOUBLES;
+
+    hitShapes[pixel] = indexOf(hit.getShape());
+    primitives[pixel] = hit.getPrimitive();
+    byte f = (byte) (flags[pixel] & TRACED_FURTHER);
+    if (hit.isInside()) f |= INSIDE;
+    if (hit.hasUV()) f |= HAS_UV;
+    flags[pixel] = f;
+
+    hitData[i] = hit.getT();
+    hitData[i + 1] = point.x;
+    hitData[i + 2] = point.y;
+    hitData[i + 3] = point.z;
+    hitData[i + 4] = geometric.x;
+    hitData[i + 5] = geometric.y;
+    hitData[i + 6] = geometric.z;
+    hitData[i + 7] = shading.x;
+    hitData[i + 8] = shading.y;
+    hitData[i + 9] = shading.z;
+    hitData[i + 10] = hit.getU();
+    hitData[i + 11] = hit.getV();
+  }
+
+  /**
+   * @return The shape the pixel's camera ray hit, or null when it missed
+   */
+  EMShape getShape(int pixel) {
+    int index = hitShapes[pixel];
+    return index < 0 ? null : snapshot.shapes[index];
+  }
+
+  /**
+   * Fills a record with the pixel's primary hit.
+   * @return False, leaving the record alone, when the camera ray missed
+   */
+  boolean getHit(int pixel, HitRecord hit) {
+    final int index = hitShapes[pixel];
+    if (index < 0) return false;
+
+    final int i = pixel * HIT_DOUBLES;
+    final byte f = flags[pixel];
+    hit.reset(snapshot.shapes[index], hitData[i],
+      new Point3(hitData[i + 1], hitData[i + 2], hitData[i + 3]));
+    final Vector3 geometric = new Vector3(hitData[i + 4], hitData[i + 5], hitData[i + 6]);
+    final Vector3 shading = hitData[i + 7] == geometric.x && hitData[i + 8] == geometric.y
+      && hitData[i + 9] == geometric.z
+      ? geometric : new Vector3(hitData[i + 7], hitData[i + 8], hitData[i + 9]);
+    hit.setNormals(geometric, shading, (f & INSIDE) != 0);
+    hit.setPrimitive(primitives[pixel]);
+    if ((f & HAS_UV) != 0) hit.setUV(hitData[i + 10], hitData[i + 11]);
+    return true;
+  }
+
+  void setTracedFurther(int pixel) {
+    flags[pixel] |= TRACED_FURTHER;
+  }
+
+  /**
+   * @return True when the pixel's color took more rays than the camera ray
+   * and its shadow rays: reflections, refractions or see-through surfaces
+   */
+  boolean hasTracedFurther(int pixel) {
+    return (flags[pixel] & TRACED_FURTHER) != 0;
+  }
+
+  void setCaster(int pixel, int lightIndex, int sampleIndex, EMShape caster) {
+    if (sampleIndex < sampleCounts[lightIndex]) {
+      casters[pixel * slotCount + slotOffsets[lightIndex] + sampleIndex] = caster == null ? -1 : indexOf(caster);
+    }
+  }
+
+  /**
+   * @return The shape that blocked the sample, or null when it reached the light
+   */
+  EMShape getCaster(int pixel, int lightIndex, int sampleIndex) {
+    if (sampleIndex >= sampleCounts[lightIndex]) return null;
+    int index = casters[pixel * slotCount + slotOffsets[lightIndex] + sampleIndex];
+    return index < 0 ? null : snapshot.shapes[index];
+  }
+
+  private int indexOf(EMShape shape) {
+    Integer index = shapeIndices.get(shape);
+    if (index == null) {
+      throw new IllegalStateException("Shape is not part of the recorded scene: " + shape);
+    }
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return "GBuffer[" + (snapshot == null ? "empty" : width + "x" + height
+      + ", lightSamples=" + slotCount) + "]";
+  }
+
+}
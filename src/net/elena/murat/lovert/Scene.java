@@ -1,6 +1,7 @@
 package net.elena.murat.lovert;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,12 +21,16 @@ public class Scene {
   private final List<EMShape> shapes = new ArrayList<>();
   private final List<Light> lights = new ArrayList<>();
   
+  // Over all shapes, for intersect/intersects; dropped by every freeze and built again on first use
+  private volatile BVH bvh;
+  
   /**
    * Adds a shape to the scene
    * @param shape The shape to add
    */
   public void addShape(EMShape shape) {
     shapes.add(shape);
+    bvh = null;
   }
   
   /**
@@ -37,11 +42,35 @@ public class Scene {
   }
   
   public List<EMShape> getShapes() {
-    return new ArrayList<>(shapes); // Return copy for immutability
+    return Collections.unmodifiableList(shapes); // Read-only view, no copy
   }
   
   public List<Light> getLights() {
-    return new ArrayList<>(lights); // Return copy for immutability
+    return Collections.unmodifiableList(lights); // Read-only view, no copy
+  }
+  
+  /**
+   * Takes an immutable, array-backed snapshot of the current shapes and lights,
+   * with lights split into ambient/direct and shapes pre-filtered by their
+   * visibility and shadow flags. The tracer takes one at the start of every render.
+   * Shapes may have moved since the last one, so the scene BVH is built again
+   * on its next use.
+   * @return A new snapshot
+   */
+  public SceneSnapshot freeze() {
+    bvh = null;
+    return new SceneSnapshot(shapes, lights);
+  }
+  
+  /**
+   * Same as {@link #freeze()}, with the shadow casters that blocked the most
+   * shadow rays in the previous snapshot tested first.
+   * @param previous Snapshot of the previous render, or null
+   * @return A new snapshot
+   */
+  public SceneSnapshot freeze(SceneSnapshot previous) {
+    bvh = null;
+    return new SceneSnapshot(shapes, lights, previous);
   }
   
   /**
@@ -49,6 +78,46 @@ public class Scene {
    */
   public void clearShapes() {
     shapes.clear();
+    bvh = null;
+  }
+  
+  /**
+   * Drops the bounding volume hierarchy, so that the next query builds it
+   * from where the shapes are now. Call it after moving shapes between
+   * two freezes; every freeze does it already.
+   */
+  public void invalidateBVH() {
+    bvh = null;
+  }
+  
+  /**
+   * (Re)builds the bounding volume hierarchy from the shapes' current
+   * transforms.
+   * @return The new hierarchy
+   */
+  public synchronized BVH buildBVH() {
+    BVH built = new BVH(shapes);
+    bvh = built;
+    return built;
+  }
+  
+  /**
+   * Returns the current hierarchy, building it on first use after a
+   * freeze or an {@link #invalidateBVH()}. Safe to call from the tiles
+   * of a render at once; only one of them builds it.
+   * @return The scene BVH
+   */
+  public BVH getBVH() {
+    BVH current = bvh;
+    if (current == null) {
+      synchronized (this) {
+        current = bvh;
+        if (current == null) {
+          return buildBVH();
+        }
+      }
+    }
+    return current;
   }
   
   /**
@@ -68,31 +137,22 @@ public class Scene {
   }
   
   /**
-   * Finds the closest ray-object intersection excluding a specific shape
+   * Finds the closest ray-object intersection excluding a specific shape.
+   * Shapes are found where they stood at the last freeze or
+   * {@link #invalidateBVH()}.
    * @param ray The ray to test
    * @param excludeShape Shape to exclude from intersection tests
    * @return Optional containing closest intersection if found
    */
   public Optional<Intersection> intersect(Ray ray, EMShape excludeShape) {
-    EMShape closestShape = null;
-    double minDistance = Double.POSITIVE_INFINITY;
-    Point3 closestHitPoint = null;
+    final BVH tree = getBVH();
+    double[] distance = new double[1];
+    int index = tree.closestHit(ray, excludeShape, BVH.ALL, Ray.EPSILON, distance);
     
-    for (EMShape shape : shapes) {
-      if (shape == excludeShape) {
-        continue;
-      }
-      
-      double distance = shape.intersect(ray);
-      
-      if (distance < minDistance && distance > Ray.EPSILON) {
-        minDistance = distance;
-        closestShape = shape;
-        closestHitPoint = ray.pointAtParameter(distance);
-      }
-    }
-    
-    if (closestShape != null) {
+    if (index >= 0) {
+      EMShape closestShape = tree.getShape(index);
+      double minDistance = distance[0];
+      Point3 closestHitPoint = ray.pointAtParameter(minDistance);
       Vector3 normal = closestShape.getNormalAt(closestHitPoint);
       // Normal orientation will be fixed during shading
       return Optional.of(new Intersection(
@@ -105,14 +165,12 @@ public class Scene {
     return Optional.empty();
   }
   
+  /**
+   * @return True when some shape is hit closer than maxDistance; shapes
+   * stand where {@link #intersect(Ray, EMShape)} finds them
+   */
   public boolean intersects(Ray ray, double maxDistance) {
-    for (EMShape shape : shapes) {
-      double distance = shape.intersect(ray);
-      if (distance > Ray.EPSILON && distance < maxDistance) {
-        return true;
-      }
-    }
-    return false;
+    return getBVH().anyHit(ray, null, BVH.ALL, Ray.EPSILON, maxDistance);
   }
   
   /**
@@ -0,0 +1,223 @@
+package net.elena.murat.lovert;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//custom imports
+import net.elena.murat.light.ElenaMuratAmbientLight;
+import net.elena.murat.light.Light;
+import net.elena.murat.light.LightTree;
+import net.elena.murat.shape.CSGShape;
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Frozen, array-backed view of a {@link Scene} taken at the start of a render.
+ * <p>
+ * Lights are pre-split into ambient and direct lights, and shapes are
+ * pre-filtered by their visibility and shadow flags, so the tracer's hot
+ * loops iterate plain arrays without copying lists or re-checking flags.
+ * Each shape group has its own {@link BVH}.
+ * </p>
+ * <p>
+ * The tracer counts, per shadow caster, how many shadow rays it blocked.
+ * A snapshot taken from a previous one tests the frequent blockers first.
+ * </p>
+ * The snapshot does not follow later changes to the scene or to shape flags;
+ * take a new one per render or per animation frame.
+ */
+public final class SceneSnapshot {
+
+  // Package-private so the tracer can iterate them directly; never modified
+  final EMShape[] shapes;
+  final Light[] lights;
+  final Light[] ambientLights;
+  final Light[] directLights;
+
+  /** Shapes hit by camera, reflection and refraction rays. */
+  final EMShape[] visibleShapes;
+
+  /** Shapes that block shadow rays, including shadow-only shapes. */
+  final EMShape[] shadowCasters;
+
+  /** Shapes that only cast shadows and are never seen directly. */
+  final EMShape[] shadowOnlyShapes;
+
+  final BVH visibleBVH;
+  final BVH shadowBVH;
+
+  /**
+   * True when every shadow caster has the same shadow color, so a shadow
+   * ray may stop at any blocker instead of looking for the closest one.
+   */
+  final boolean uniformShadowColor;
+
+  // Shadow rays blocked per caster, indexed like shadowCasters
+  private final long[] occlusionCounts;
+
+  // Built on the first many-lights lookup, over directLights
+  private volatile LightTree lightTree;
+
+  SceneSnapshot(List<EMShape> sceneShapes, List<Light> sceneLights) {
+    this(sceneShapes, sceneLights, null);
+  }
+
+  /**
+   * @param previous Snapshot of an earlier render whose occlusion counts
+   * order the shadow casters, or null
+   */
+  SceneSnapshot(List<EMShape> sceneShapes, List<Light> sceneLights, SceneSnapshot previous) {
+    this.shapes = sceneShapes.toArray(new EMShape[0]);
+    this.lights = sceneLights.toArray(new Light[0]);
+
+    // CSG nodes cull rays against their operands' bounds, which may have moved
+    for (EMShape shape : shapes) {
+      if (shape instanceof CSGShape) ((CSGShape) shape).refreshOperands();
+    }
+
+    List<Light> ambient = new ArrayList<>();
+    List<Light> direct = new ArrayList<>();
+    for (Light light : lights) {
+      if (light instanceof ElenaMuratAmbientLight) {
+        ambient.add(light);
+      } else {
+        direct.add(light);
+      }
+    }
+    this.ambientLights = ambient.toArray(new Light[0]);
+    this.directLights = direct.toArray(new Light[0]);
+
+    List<EMShape> visible = new ArrayList<>();
+    List<EMShape> casters = new ArrayList<>();
+    List<EMShape> shadowOnly = new ArrayList<>();
+    for (EMShape shape : shapes) {
+      if (shape.isShadowOnly()) {
+        shadowOnly.add(shape);
+      } else if (shape.isVisible()) {
+        visible.add(shape);
+      }
+
+      // Shadow-only shapes cast shadows regardless of visibility;
+      // invisible normal shapes don't cast shadows
+      if ((shape.isShadowOnly() || shape.isVisible()) && shape.isShadowEnable()) {
+        casters.add(shape);
+      }
+    }
+    this.visibleShapes = visible.toArray(new EMShape[0]);
+    this.shadowCasters = casters.toArray(new EMShape[0]);
+    this.shadowOnlyShapes = shadowOnly.toArray(new EMShape[0]);
+
+    boolean uniform = true;
+    Color first = shadowCasters.length > 0 ? shadowCasters[0].getShadowColor() : null;
+    for (EMShape caster : shadowCasters) {
+      Color c = caster.getShadowColor();
+      if (c == null ? first != null : !c.equals(first)) {
+        uniform = false;
+        break;
+      }
+    }
+    this.uniformShadowColor = uniform;
+    this.occlusionCounts = new long[shadowCasters.length];
+
+    this.visibleBVH = new BVH(visible);
+    this.shadowBVH = new BVH(casters, previous != null ? previous.priorityFor(shadowCasters) : null);
+  }
+
+  /**
+   * @return The previous counts of the given casters, 0 for new ones
+   */
+  private long[] priorityFor(EMShape[] casters) {
+    Map<EMShape, Long> counts = new IdentityHashMap<>();
+    synchronized (occlusionCounts) {
+      for (int i = 0; i < shadowCasters.length; i++) {
+        counts.put(shadowCasters[i], occlusionCounts[i]);
+      }
+    }
+    long[] priority = new long[casters.length];
+    for (int i = 0; i < casters.length; i++) {
+      Long count = counts.get(casters[i]);
+      priority[i] = count != null ? count : 0L;
+    }
+    return priority;
+  }
+
+  /**
+   * @return Hierarchy over the direct lights, built on first use
+   */
+  LightTree lightTree() {
+    LightTree tree = lightTree;
+    if (tree == null) {
+      synchronized (this) {
+        tree = lightTree;
+        if (tree == null) {
+          tree = new LightTree(directLights);
+          lightTree = tree;
+        }
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Adds one tile's blocked shadow rays to the totals.
+   * @param counts Per caster, indexed like the shadow BVH
+   */
+  void addOcclusions(int[] counts) {
+    synchronized (occlusionCounts) {
+      for (int i = 0; i < counts.length; i++) {
+        occlusionCounts[i] += counts[i];
+      }
+    }
+  }
+
+  public List<EMShape> getShapes() {
+    return Collections.unmodifiableList(Arrays.asList(shapes));
+  }
+
+  public List<Light> getLights() {
+    return Collections.unmodifiableList(Arrays.asList(lights));
+  }
+
+  public List<Light> getAmbientLights() {
+    return Collections.unmodifiableList(Arrays.asList(ambientLights));
+  }
+
+  public List<Light> getDirectLights() {
+    return Collections.unmodifiableList(Arrays.asList(directLights));
+  }
+
+  public List<EMShape> getVisibleShapes() {
+    return Collections.unmodifiableList(Arrays.asList(visibleShapes));
+  }
+
+  public List<EMShape> getShadowCasters() {
+    return Collections.unmodifiableList(Arrays.asList(shadowCasters));
+  }
+
+  public List<EMShape> getShadowOnlyShapes() {
+    return Collections.unmodifiableList(Arrays.asList(shadowOnlyShapes));
+  }
+
+  public BVH getVisibleBVH() {
+    return visibleBVH;
+  }
+
+  public BVH getShadowBVH() {
+    return shadowBVH;
+  }
+
+  @Override
+  public String toString() {
+    return "SceneSnapshot[shapes=" + shapes.length
+    + ", visible=" + visibleShapes.length
+    + ", shadowCasters=" + shadowCasters.length
+    + ", shadowOnly=" + shadowOnlyShapes.length
+    + ", ambientLights=" + ambientLights.length
+    + ", directLights=" + directLights.length + "]";
+  }
+
+}
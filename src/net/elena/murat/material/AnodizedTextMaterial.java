@@ -8,6 +8,7 @@ import java.util.Random;
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * AnodizedTextMaterial - Combines anodized metal material with text/image texture support.
@@ -32,6 +33,7 @@ public class AnodizedTextMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // --- ANODIZED METAL PROPERTIES (from AnodizedMetalMaterial) ---
   private final Color baseColor;
@@ -81,6 +83,7 @@ public class AnodizedTextMaterial implements Material {
     
     // Generate texture
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -267,7 +270,7 @@ public class AnodizedTextMaterial implements Material {
       return new Color(0, 0, 0, 0);
     }
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   // --- MATERIAL INTERFACE ---
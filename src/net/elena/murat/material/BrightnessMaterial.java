@@ -25,6 +25,12 @@ public class BrightnessMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     Color sourceColor = baseColor;
     
     if (useLightColor) {
@@ -34,7 +40,7 @@ public class BrightnessMaterial implements Material {
     int alfa = sourceColor.getAlpha ();
     double alpha = ((double)(alfa))/255.0;
     
-    setTransparency (1-alpha);
+    context.setTransparency(1-alpha);
     
     return applyBrightness(sourceColor, brightness);
   }
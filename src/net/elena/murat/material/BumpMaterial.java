@@ -66,6 +66,12 @@ public class BumpMaterial implements Material {
    */
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // Ensure inverse transform is valid
     if (objectInverseTransform == null) {
       System.err.println("Error: BumpMaterial's inverse transform is null. Returning black.");
@@ -74,7 +80,7 @@ public class BumpMaterial implements Material {
     // If no normal map, just use the base material with the original normal.
     // We check if normalMap is null, as ImageTexture itself might be null.
     if (normalMap == null) {
-      return baseMaterial.getColorAt(worldPoint, worldNormal, light, viewerPos);
+      return baseMaterial.getColorAt(worldPoint, worldNormal, light, viewerPos, context);
     }
     
     // 1. Transform world point and geometric normal to object's local space for UV mapping
@@ -83,7 +89,7 @@ public class BumpMaterial implements Material {
     
     if (localGeometricNormal == null) {
       System.err.println("Error: BumpMaterial's local geometric normal is null. Returning base material color with original normal.");
-      return baseMaterial.getColorAt(worldPoint, worldNormal, light, viewerPos);
+      return baseMaterial.getColorAt(worldPoint, worldNormal, light, viewerPos, context);
     }
     
     // 2. Calculate UV coordinates based on local point and local geometric normal
@@ -106,15 +112,15 @@ public class BumpMaterial implements Material {
     }
     
     // 3. Sample the normal map at the calculated UV coordinates using ImageTexture's method
-    Color normalMapColor = normalMap.getColorFromUV(u, v); // *** Düzeltilen kısım burası ***
+    int normalMapARGB = normalMap.getARGBFromUV(u, v); // *** Düzeltilen kısım burası ***
     
     // Convert RGB color from normal map to a tangent-space vector (range -1 to 1)
     // Normal maps typically store (X, Y, Z) components as (R, G, B) where R,G,B are 0-255.
     // Convert to -1 to 1 range: (value / 255.0) * 2.0 - 1.0
     Vector3 tangentSpaceNormal = new Vector3(
-      (normalMapColor.getRed() / 255.0) * 2.0 - 1.0,
-      (normalMapColor.getGreen() / 255.0) * 2.0 - 1.0,
-      (normalMapColor.getBlue() / 255.0) * 2.0 - 1.0
+      (((normalMapARGB >> 16) & 0xFF) / 255.0) * 2.0 - 1.0,
+      (((normalMapARGB >> 8) & 0xFF) / 255.0) * 2.0 - 1.0,
+      ((normalMapARGB & 0xFF) / 255.0) * 2.0 - 1.0
     ).normalize();
     
     // 4. Calculate Tangent and Bitangent vectors in world space
@@ -148,7 +154,7 @@ public class BumpMaterial implements Material {
     Vector3 finalNormal = worldNormal.lerp(worldSpacePerturbedNormal, strength).normalize();
     
     // 8. Delegate to the base material for actual color calculation using the perturbed normal
-    return baseMaterial.getColorAt(worldPoint, finalNormal, light, viewerPos);
+    return baseMaterial.getColorAt(worldPoint, finalNormal, light, viewerPos, context);
   }
   
   /**
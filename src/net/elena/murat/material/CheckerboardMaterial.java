@@ -53,9 +53,15 @@ public class CheckerboardMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Get checkerboard pattern color
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
-    Color patternColor = calculatePatternColor(localPoint, worldNormal);
+    Point3 localPoint = context.toLocal(objectInverseTransform, worldPoint);
+    Color patternColor = calculatePatternColor(localPoint, worldNormal, context);
     
     // 2. Handle light properties
     LightProperties props = getLightPropertiesX(light, worldPoint);
@@ -80,8 +86,8 @@ public class CheckerboardMaterial implements Material {
     return ColorUtil.combineColors(ambient, diffuse, specular);
   }
   
-  private Color calculatePatternColor(Point3 localPoint, Vector3 worldNormal) {
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+  private Color calculatePatternColor(Point3 localPoint, Vector3 worldNormal, ShadingContext context) {
+    Vector3 localNormal = context.toLocalNormal(objectInverseTransform, worldNormal);
     
     double u, v;
     double absNx = Math.abs(localNormal.x);
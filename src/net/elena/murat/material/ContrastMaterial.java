@@ -24,6 +24,12 @@ public class ContrastMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     Color sourceColor = baseColor;
     
     // Işık rengini kullanma seçeneği
@@ -34,7 +40,7 @@ public class ContrastMaterial implements Material {
     int alfa = sourceColor.getAlpha ();
     double alpha = ((double)(alfa))/255.0;
     
-    setTransparency (1-alpha);
+    context.setTransparency(1-alpha);
     
     // Kontrast uygula
     return applyContrast(sourceColor, contrast);
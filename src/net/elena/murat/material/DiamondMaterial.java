@@ -12,10 +12,6 @@ public class DiamondMaterial implements Material {
   private final double indexOfRefraction;
   private final double baseReflectivity;
   private final double baseTransparency;
-  private final Random random;
-  
-  private double currentReflectivity;
-  private double currentTransparency;
   private final double dispersionStrength;
   private final double fireEffect;
   
@@ -28,7 +24,6 @@ public class DiamondMaterial implements Material {
     this.baseTransparency = transparency;
     this.dispersionStrength = dispersionStrength;
     this.fireEffect = fireEffect;
-    this.random = new Random();
   }
   
   public DiamondMaterial(Color baseColor, double ior) {
@@ -45,13 +40,19 @@ public class DiamondMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     Vector3 viewDir = viewerPos.subtract(point).normalize();
     Vector3 lightDir = light.getDirectionTo(point).normalize();
     
     double fresnel = calculateEnhancedFresnel(viewDir, normal, 1.0, indexOfRefraction);
     
-    this.currentReflectivity = Math.min(0.97, baseReflectivity + (fresnel * 0.85));
-    this.currentTransparency = Math.max(0.02, baseTransparency * (1.0 - fresnel * 0.1));
+    context.setReflectivity(Math.min(0.97, baseReflectivity + (fresnel * 0.85)));
+    context.setTransparency(Math.max(0.02, baseTransparency * (1.0 - fresnel * 0.1)));
     
     double NdotL = Math.max(0.4, normal.dot(lightDir));
     double intensity = light.getIntensityAt(point);
@@ -64,7 +65,7 @@ public class DiamondMaterial implements Material {
     
     Color specularHighlight = ColorUtil.multiplyColor(light.getColor(), specular * 2.0 * intensity);
     
-    Color dispersionEffect = applyDispersionEffect(specularHighlight, fresnel);
+    Color dispersionEffect = applyDispersionEffect(specularHighlight, fresnel, context.getRandom());
     
     Color result = ColorUtil.addSafe(diffuse, specularHighlight);
     result = ColorUtil.addSafe(result, dispersionEffect);
@@ -83,7 +84,7 @@ public class DiamondMaterial implements Material {
     return Math.max(0.0, Math.min(1.0, fresnel));
   }
   
-  private Color applyDispersionEffect(Color baseColor, double fresnel) {
+  private Color applyDispersionEffect(Color baseColor, double fresnel, Random random) {
     if (dispersionStrength <= 0) return new Color(0, 0, 0, 0);
     
     double strength = dispersionStrength * fresnel * fireEffect;
@@ -106,12 +107,12 @@ public class DiamondMaterial implements Material {
   
   @Override
   public double getReflectivity() {
-    return currentReflectivity;
+    return baseReflectivity;
   }
   
   @Override
   public double getTransparency() {
-    return currentTransparency;
+    return baseTransparency;
   }
   
   @Override
@@ -20,8 +20,6 @@ public class DielectricMaterial implements Material {
   private Color filterColorInside;
   private Color filterColorOutside;
   
-  private double currentReflectivity;
-  private double currentTransparency;
   
   // Object transformation matrix
   private Matrix4 objectTransform;
@@ -38,8 +36,6 @@ public class DielectricMaterial implements Material {
     this.filterColorOutside = new Color(1.0f, 1.0f, 1.0f);
     this.objectTransform = new Matrix4().identity();
     
-    this.currentReflectivity = this.reflectivity;
-    this.currentTransparency = this.transparency;
   }
   
   /**
@@ -59,6 +55,12 @@ public class DielectricMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     Vector3 lightDir = light.getDirectionTo(point).normalize();
     double diffuseFactor = Math.max(0.1, normal.dot(lightDir)); // Min 0.1 for visibility
     
@@ -67,8 +69,8 @@ public class DielectricMaterial implements Material {
     double fresnel = Vector3.calculateFresnel(viewDir, normal, 1.0, indexOfRefraction);
     
     // Better energy conservation
-    this.currentReflectivity = Math.min(0.9, reflectivity + (fresnel * 0.6));
-    this.currentTransparency = Math.max(0.1, transparency * (1.0 - fresnel * 0.3));
+    context.setReflectivity(Math.min(0.9, reflectivity + (fresnel * 0.6)));
+    context.setTransparency(Math.max(0.1, transparency * (1.0 - fresnel * 0.3)));
     
     // Apply filter colors to diffuse
     Color filteredDiffuse = ColorUtil.multiplyColors(diffuseColor, filterColorOutside);
@@ -102,12 +104,12 @@ public class DielectricMaterial implements Material {
   
   @Override
   public double getTransparency() {
-    return currentTransparency;
+    return transparency;
   }
   
   @Override
   public double getReflectivity() {
-    return currentReflectivity;
+    return reflectivity;
   }
   
   // Getters and setters for dielectric properties
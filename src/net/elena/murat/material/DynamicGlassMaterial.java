@@ -1,6 +1,7 @@
 package net.elena.murat.material;
 
 import java.awt.Color;
+import java.util.Random;
 
 import net.elena.murat.light.*;
 import net.elena.murat.math.*;
@@ -9,8 +10,8 @@ import net.elena.murat.util.ColorUtil;
 /**
  * DynamicGlassMaterial - Glass material with optional per-pixel dynamic parameters.
  *
- * If per-pixel IOR, transparency or reflectivity are constant, set methods are not called inside getColorAt.
- * If per-pixel variation is needed, override getColorAt to update parameters via set methods.
+ * If per-pixel variation is enabled, the varied IOR, transparency and reflectivity
+ * are reported through the ShadingContext; the base values are never changed while shading.
  */
 public class DynamicGlassMaterial implements Material {
   
@@ -53,29 +54,40 @@ public class DynamicGlassMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     Vector3 viewDir = viewerPoint.subtract(point).normalize();
     
+    double ior = baseIOR;
+    double transparency = baseTransparency;
+    double reflectivity = baseReflectivity;
+    
     if (dynamicParametersEnabled) {
       // Example dynamic update: vary parameters based on angle between normal and viewDir
       double angleFactor = Math.abs(normal.dot(viewDir));
       
-      double dynamicIOR = 1.4 + 0.2 * angleFactor; // 1.4 - 1.6
-      double dynamicTransparency = 0.8 + 0.2 * (1.0 - angleFactor); // 0.8 - 1.0
-      double dynamicReflectivity = 0.05 + 0.1 * angleFactor; // 0.05 - 0.15
+      ior = clamp(1.4 + 0.2 * angleFactor, 1.0, 3.0); // 1.4 - 1.6
+      transparency = clamp(0.8 + 0.2 * (1.0 - angleFactor), 0.0, 1.0); // 0.8 - 1.0
+      reflectivity = clamp(0.05 + 0.1 * angleFactor, 0.0, 1.0); // 0.05 - 0.15
       
-      setBaseIOR(dynamicIOR);
-      setBaseTransparency(dynamicTransparency);
-      setBaseReflectivity(dynamicReflectivity);
+      context.setIndexOfRefraction(ior);
+      context.setTransparency(transparency);
+      context.setReflectivity(reflectivity);
     }
     
     // Chromatic aberration per channel
-    double iorR = clamp(baseIOR + chromaticAberrationStrength, 1.0, 3.0);
-    double iorG = clamp(baseIOR, 1.0, 3.0);
-    double iorB = clamp(baseIOR - chromaticAberrationStrength, 1.0, 3.0);
+    double iorR = clamp(ior + chromaticAberrationStrength, 1.0, 3.0);
+    double iorG = clamp(ior, 1.0, 3.0);
+    double iorB = clamp(ior - chromaticAberrationStrength, 1.0, 3.0);
     
-    Color colorR = calculateRefractReflectColor(point, normal, light, viewDir, iorR);
-    Color colorG = calculateRefractReflectColor(point, normal, light, viewDir, iorG);
-    Color colorB = calculateRefractReflectColor(point, normal, light, viewDir, iorB);
+    Random random = context.getRandom();
+    Color colorR = calculateRefractReflectColor(point, normal, light, viewDir, iorR, transparency, reflectivity, random);
+    Color colorG = calculateRefractReflectColor(point, normal, light, viewDir, iorG, transparency, reflectivity, random);
+    Color colorB = calculateRefractReflectColor(point, normal, light, viewDir, iorB, transparency, reflectivity, random);
     
     int r = clamp(colorR.getRed(), 0, 255);
     int g = clamp(colorG.getGreen(), 0, 255);
@@ -84,33 +96,34 @@ public class DynamicGlassMaterial implements Material {
     return new Color(r, g, b);
   }
   
-  private Color calculateRefractReflectColor(Point3 point, Vector3 normal, Light light, Vector3 viewDir, double ior) {
+  private Color calculateRefractReflectColor(Point3 point, Vector3 normal, Light light, Vector3 viewDir, double ior,
+    double transparency, double reflectivity, Random random) {
     double cosTheta = Math.abs(viewDir.dot(normal));
     double r0 = Math.pow((1.0 - ior) / (1.0 + ior), 2);
     double fresnel = r0 + (1.0 - r0) * Math.pow(1.0 - cosTheta, 5.0);
     
-    Vector3 perturbedNormal = perturbNormal(normal, roughness);
+    Vector3 perturbedNormal = perturbNormal(normal, roughness, random);
     
     Vector3 refractedDir = refract(viewDir, perturbedNormal, ior);
-    Color refractedColor = calculateLightTransport(point, refractedDir, light, baseTransparency * Math.exp(-density));
+    Color refractedColor = calculateLightTransport(point, refractedDir, light, transparency * Math.exp(-density));
     
     Vector3 reflectedDir = reflect(viewDir, perturbedNormal);
-    Color reflectedColor = calculateLightTransport(point, reflectedDir, light, baseReflectivity);
+    Color reflectedColor = calculateLightTransport(point, reflectedDir, light, reflectivity);
     
     return ColorUtil.add(
-      ColorUtil.multiplyColorFloat(refractedColor, (float)((1.0 - fresnel) * baseTransparency)),
-      ColorUtil.multiplyColorFloat(reflectedColor, (float)(fresnel * baseReflectivity))
+      ColorUtil.multiplyColorFloat(refractedColor, (float)((1.0 - fresnel) * transparency)),
+      ColorUtil.multiplyColorFloat(reflectedColor, (float)(fresnel * reflectivity))
     );
   }
   
-  private Vector3 perturbNormal(Vector3 normal, double roughness) {
+  private Vector3 perturbNormal(Vector3 normal, double roughness, Random random) {
     if (roughness <= 0.0) return normal;
     
     Vector3 tangent = generateTangent(normal);
     Vector3 bitangent = normal.cross(tangent);
     
-    double rand1 = (Math.random() - 0.5) * 2.0 * roughness;
-    double rand2 = (Math.random() - 0.5) * 2.0 * roughness;
+    double rand1 = (random.nextDouble() - 0.5) * 2.0 * roughness;
+    double rand2 = (random.nextDouble() - 0.5) * 2.0 * roughness;
     
     Vector3 perturbed = normal
     .add(tangent.multiply((float)rand1))
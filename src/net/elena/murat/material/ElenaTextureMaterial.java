@@ -9,9 +9,11 @@ import javax.imageio.ImageIO;
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 public class ElenaTextureMaterial implements Material {
   private final BufferedImage texture;
+  private final TextureSampler texels;
   private Matrix4 objectInverseTransform;
   
   private String imagePath = "textures/turkeyFlag.png";
@@ -36,6 +38,7 @@ public class ElenaTextureMaterial implements Material {
     double reflectivity, double ior, double transparency,
     Matrix4 objectInverseTransform) throws IOException {
     this.texture = ImageIO.read(new File(imagePath));
+    this.texels = TextureSampler.of(this.texture);
     this.objectInverseTransform = objectInverseTransform;
     this.ambientCoeff = ambientCoeff;
     this.diffuseCoeff = diffuseCoeff;
@@ -105,12 +108,9 @@ public class ElenaTextureMaterial implements Material {
     double fracX = x - x0;
     double fracY = y - y0;
     
-    Color c00 = new Color(texture.getRGB(x0, y0));
-    Color c10 = new Color(texture.getRGB(x1, y0));
-    Color c01 = new Color(texture.getRGB(x0, y1));
-    Color c11 = new Color(texture.getRGB(x1, y1));
-    
-    return ColorUtil.bilinearInterpolate(c00, c10, c01, c11, fracX, fracY);
+    return ColorUtil.bilinearInterpolate(
+      texels.getARGB(x0, y0), texels.getARGB(x1, y0),
+      texels.getARGB(x0, y1), texels.getARGB(x1, y1), fracX, fracY);
   }
   
   @Override public double getReflectivity() { return reflectivity; }
@@ -2,11 +2,11 @@ package net.elena.murat.material;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.Light;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * GhostTextMaterial - Transparent ghost material with text and image texture support
@@ -30,6 +30,7 @@ public class GhostTextMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // New transparent material properties
   //private final double baseTransparency;
@@ -39,7 +40,6 @@ public class GhostTextMaterial implements Material {
   private final Color surfaceColor;
   
   private Matrix4 objectTransform;
-  private final Random random;
   
   /**
    * ORIGINAL CONSTRUCTOR - 15 parameters
@@ -75,9 +75,9 @@ public class GhostTextMaterial implements Material {
     
     //this.baseTransparency = this.transparency;
     
-    this.random = new Random();
     this.objectTransform = new Matrix4().identity();
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -115,9 +115,9 @@ public class GhostTextMaterial implements Material {
     
     //this.baseTransparency = this.transparency;
     
-    this.random = new Random();
     this.objectTransform = new Matrix4().identity();
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -274,7 +274,7 @@ public class GhostTextMaterial implements Material {
     texX = Math.max(0, Math.min(texture.getWidth() - 1, texX));
     texY = Math.max(0, Math.min(texture.getHeight() - 1, texY));
     
-    int rgb = texture.getRGB(texX, texY);
+    int rgb = texels.getARGB(texX, texY);
     return new Color(rgb, true);
   }
   
@@ -1,7 +1,6 @@
 package net.elena.murat.material;
 
 import java.awt.Color;
-import java.util.Random;
 
 import net.elena.murat.light.Light;
 import net.elena.murat.math.*;
@@ -12,10 +11,6 @@ public class GlassMaterial implements Material {
   private final double indexOfRefraction;
   private final double reflectivity;
   private final double transparency;
-  private final Random random;
-  
-  private double currentReflectivity;
-  private double currentTransparency;
   
   public GlassMaterial(Color baseColor, double ior,
     double reflectivity, double transparency) {
@@ -23,10 +18,6 @@ public class GlassMaterial implements Material {
     this.indexOfRefraction = ior;
     this.reflectivity = reflectivity;
     this.transparency = transparency;
-    this.random = new Random();
-    
-    this.currentReflectivity = this.reflectivity;
-    this.currentTransparency = this.transparency;
   }
   
   public GlassMaterial(Color baseColor, double ior) {
@@ -43,13 +34,19 @@ public class GlassMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     Vector3 viewDir = viewerPos.subtract(point).normalize();
     Vector3 lightDir = light.getDirectionTo(point).normalize();
     
     double fresnel = Vector3.calculateFresnel(viewDir, normal, 1.0, indexOfRefraction);
     
-    this.currentReflectivity = Math.min(0.95, reflectivity + (fresnel * 0.8));
-    this.currentTransparency = Math.max(0.05, transparency * (1.0 - fresnel * 0.2));
+    context.setReflectivity(Math.min(0.95, reflectivity + (fresnel * 0.8)));
+    context.setTransparency(Math.max(0.05, transparency * (1.0 - fresnel * 0.2)));
     
     double NdotL = Math.max(0.3, normal.dot(lightDir));
     double intensity = light.getIntensityAt(point);
@@ -71,12 +68,12 @@ public class GlassMaterial implements Material {
   
   @Override
   public double getReflectivity() {
-    return currentReflectivity;
+    return reflectivity;
   }
   
   @Override
   public double getTransparency() {
-    return currentTransparency;
+    return transparency;
   }
   
   @Override
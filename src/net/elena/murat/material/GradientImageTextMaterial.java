@@ -6,6 +6,7 @@ import java.awt.image.*;
 import java.util.Random;
 import net.elena.murat.light.*;
 import net.elena.murat.math.*;
+import net.elena.murat.util.TextureSampler;
 
 public class GradientImageTextMaterial implements Material {
   private final Color bgStartColor;
@@ -27,6 +28,7 @@ public class GradientImageTextMaterial implements Material {
   private final float bgAlpha;
   private final float textAlpha;
   private BufferedImage texture;
+  private TextureSampler texels;
   private final boolean isWrap;
   
   private Random random = new Random();
@@ -61,6 +63,7 @@ public class GradientImageTextMaterial implements Material {
     this.isWrap = isWrap;
     
     this.texture = createCompositeTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   // Simplified constructor with default parameters
@@ -347,7 +350,7 @@ public class GradientImageTextMaterial implements Material {
       return new Color(0, 0, 0, 0);
     }
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   @Override
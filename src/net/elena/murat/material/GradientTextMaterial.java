@@ -6,6 +6,7 @@ import java.awt.image.*;
 import java.util.Random;
 import net.elena.murat.light.*;
 import net.elena.murat.math.*;
+import net.elena.murat.util.TextureSampler;
 
 public class GradientTextMaterial implements Material {
   private final Color bgStartColor;
@@ -23,6 +24,7 @@ public class GradientTextMaterial implements Material {
   private final int yOffset;
   
   private BufferedImage texture;
+  private TextureSampler texels;
   private Random random = new Random();
   
   // Main constructor with all parameters
@@ -47,6 +49,7 @@ public class GradientTextMaterial implements Material {
     this.yOffset = yOffset;
     
     this.texture = createCompositeTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   // Simplified constructor with default parameters
@@ -312,7 +315,7 @@ public class GradientTextMaterial implements Material {
       return new Color(0, 0, 0, 0);
     }
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   @Override
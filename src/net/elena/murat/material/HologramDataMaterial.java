@@ -18,6 +18,12 @@ public class HologramDataMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Grid position
     int gridX = (int)(point.x * resolution) % resolution;
     int gridY = (int)(point.z * resolution) % resolution;
@@ -28,7 +34,7 @@ public class HologramDataMaterial implements Material {
     
     // 3. Data pattern (ASCII art like)
     boolean isActive = (gridX + gridY + animOffset) % 4 == 0 &&
-    Math.random() < dataDensity;
+    context.getRandom().nextDouble() < dataDensity;
     
     // 4. Glitch effect
     double glitch = Math.sin(time * 3 + point.y * 10) * 0.1;
@@ -3,12 +3,12 @@ package net.elena.murat.material;
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.Light;
 import net.elena.murat.light.LightProperties;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * HybridTextMaterial — Combines dielectric material properties with text/image rendering.
@@ -36,6 +36,7 @@ public class HybridTextMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // --- DIELECTRIC PROPERTIES ---
   private Color diffuseColor;
@@ -45,9 +46,6 @@ public class HybridTextMaterial implements Material {
   private Color filterColorInside;
   private Color filterColorOutside;
   private Matrix4 objectTransform;
-  private final Random random;
-  private double currentReflectivity;
-  private double currentTransparency;
   
   // --- PHONG LIGHTING PROPERTIES ---
   private Color specularColor;
@@ -103,13 +101,11 @@ public class HybridTextMaterial implements Material {
     this.specularCoefficient = specularCoefficient;
     
     // Internal
-    this.random = new Random();
-    this.currentReflectivity = reflectivity;
-    this.currentTransparency = transparency;
     this.objectTransform = new Matrix4().identity();
     
     // Generate texture with improved visibility
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -216,6 +212,12 @@ public class HybridTextMaterial implements Material {
   // --- MATERIAL INTERFACE: CORE LIGHTING + TEXTURE + DIELECTRIC ---
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     // 1. Get texture color at this point
     Point3 localPoint = objectTransform.inverse().transformPoint(point);
     Color textureColor = getTextureColor(localPoint, normal);
@@ -232,8 +234,8 @@ public class HybridTextMaterial implements Material {
     Vector3 viewDir = viewerPoint.subtract(point).normalize();
     double fresnel = Vector3.calculateFresnel(viewDir, normal, 1.0, indexOfRefraction);
     
-    this.currentReflectivity = Math.min(0.95, reflectivity + (fresnel * 0.4));
-    this.currentTransparency = Math.max(0.05, transparency * (1.0 - fresnel * 0.3));
+    context.setReflectivity(Math.min(0.95, reflectivity + (fresnel * 0.4)));
+    context.setTransparency(Math.max(0.05, transparency * (1.0 - fresnel * 0.3)));
     
     // 5. Always use textured area lighting since we have valid texture color
     return calculateTexturedAreaLighting(textureColor, lightProps, viewDir, normal);
@@ -321,7 +323,7 @@ public class HybridTextMaterial implements Material {
       texY = Math.max(0, Math.min(texture.getHeight() - 1, texY));
       
       // Get raw ARGB value for proper alpha handling
-      int argb = texture.getRGB(texX, texY);
+      int argb = texels.getARGB(texX, texY);
       int alpha = (argb >> 24) & 0xFF;
       
       // Alpha threshold check
@@ -354,12 +356,12 @@ public class HybridTextMaterial implements Material {
   
   @Override
   public double getTransparency() {
-    return currentTransparency;
+    return transparency;
   }
   
   @Override
   public double getReflectivity() {
-    return currentReflectivity;
+    return reflectivity;
   }
   
   // --- GETTERS & SETTERS ---
@@ -414,8 +416,8 @@ public class HybridTextMaterial implements Material {
     sb.append("        imageVOffset = " + imageVOffset + ";\n");
     sb.append("        diffuseColor = " + net.elena.murat.util.ColorUtil.toColorString(diffuseColor) + ";\n");
     sb.append("        indexOfRefraction = " + indexOfRefraction + ";\n");
-    sb.append("        transparency = " + currentTransparency + ";\n");
-    sb.append("        reflectivity = " + currentReflectivity + ";\n");
+    sb.append("        transparency = " + transparency + ";\n");
+    sb.append("        reflectivity = " + reflectivity + ";\n");
     sb.append("        filterColorInside = " + net.elena.murat.util.ColorUtil.toColorString(filterColorInside) + ";\n");
     sb.append("        filterColorOutside = " + net.elena.murat.util.ColorUtil.toColorString(filterColorOutside) + ";\n");
     sb.append("        specularColor = " + net.elena.murat.util.ColorUtil.toColorString(specularColor) + ";\n");
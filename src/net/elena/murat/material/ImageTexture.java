@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.image.BufferedImage;
 
 import net.elena.murat.math.*;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Represents an image-based texture. It can return a color based on
@@ -12,6 +13,7 @@ import net.elena.murat.math.*;
  */
 public class ImageTexture {
   private final BufferedImage image;
+  private final TextureSampler texels;
   private final double scaleU;
   private final double scaleV;
   private final double offsetU;
@@ -23,6 +25,7 @@ public class ImageTexture {
   
   public ImageTexture(BufferedImage image, double scaleU, double scaleV, double offsetU, double offsetV) {
     this.image = image;
+    this.texels = TextureSampler.of(image);
     this.scaleU = scaleU;
     this.scaleV = scaleV;
     this.offsetU = offsetU;
@@ -37,6 +40,15 @@ public class ImageTexture {
    * @return The Color at the specified texture coordinates.
    */
   public Color getColorFromUV(double u, double v) { // Renamed to avoid conflict with Material.getColorAt
+    return new Color(getARGBFromUV(u, v));
+  }
+  
+  /**
+   * Same lookup as {@link #getColorFromUV(double, double)}, without
+   * allocating a Color.
+   * @return The texel as packed ARGB
+   */
+  public int getARGBFromUV(double u, double v) {
     // Apply scaling and offset
     u = u * scaleU + offsetU;
     v = v * scaleV + offsetV;
@@ -49,7 +61,7 @@ public class ImageTexture {
     imgX = Math.max(0, Math.min(image.getWidth() - 1, imgX));
     imgY = Math.max(0, Math.min(image.getHeight() - 1, imgY));
     
-    return new Color(image.getRGB(imgX, imgY));
+    return texels.getARGB(imgX, imgY);
   }
   
   /**
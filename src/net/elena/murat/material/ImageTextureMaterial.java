@@ -7,6 +7,7 @@ import net.elena.murat.light.Light;
 import net.elena.murat.light.LightProperties;
 import net.elena.murat.math.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 //import net.elena.murat.util.ImageUtils3D;
 
 /**
@@ -18,6 +19,7 @@ import net.elena.murat.util.ColorUtil;
  */
 public class ImageTextureMaterial implements Material {
   private final BufferedImage image;
+  private final TextureSampler texels;
   private final double uScale;
   private final double vScale;
   private final double uOffset;
@@ -58,6 +60,7 @@ public class ImageTextureMaterial implements Material {
     Matrix4 objectInverseTransform) {
     
     this.image = image;//ImageUtils3D.convertToTransparentImage(image, this.transparency);
+    this.texels = TextureSampler.of(image);
     this.uScale = uScale;
     this.vScale = vScale;
     this.uOffset = uOffset;
@@ -116,17 +119,23 @@ public class ImageTextureMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     if (objectInverseTransform == null) {
-      setTransparency (TRANSPARENT);
+      context.setTransparency(TRANSPARENT);
       return TRANSPARENT_COLOR;
     }
     
     // Transform to local coordinates
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+    Point3 localPoint = context.toLocal(objectInverseTransform, worldPoint);
+    Vector3 localNormal = context.toLocalNormal(objectInverseTransform, worldNormal);
     
     if (localNormal == null) {
-      setTransparency (TRANSPARENT);
+      context.setTransparency(TRANSPARENT);
       return TRANSPARENT_COLOR;
     }
     
@@ -135,10 +144,10 @@ public class ImageTextureMaterial implements Material {
     
     // TRANSPARENT PNG SUPPORT: If alpha is low, return fully transparent
     if (textureColor.getAlpha() < 6) {
-      setTransparency(TRANSPARENT);
+      context.setTransparency(TRANSPARENT);
       return TRANSPARENT_COLOR;
     } else {
-      setTransparency(OPAQUE);
+      context.setTransparency(OPAQUE);
     }
     
     // Get light properties using LightProperties utility
@@ -286,13 +295,13 @@ public class ImageTextureMaterial implements Material {
     y1 = wrapCoordinate(y1, imgHeight);
     
     // Get colors of surrounding pixels WITH ALPHA CHANNEL
-    Color c00 = new Color(image.getRGB(x0, y0), true);
-    Color c10 = new Color(image.getRGB(x1, y0), true);
-    Color c01 = new Color(image.getRGB(x0, y1), true);
-    Color c11 = new Color(image.getRGB(x1, y1), true);
+    int c00 = texels.getARGB(x0, y0);
+    int c10 = texels.getARGB(x1, y0);
+    int c01 = texels.getARGB(x0, y1);
+    int c11 = texels.getARGB(x1, y1);
     
     // TRANSPARENT PNG SUPPORT: If all pixels are transparent, return transparent
-    if (c00.getAlpha() < 6 && c10.getAlpha() < 6 && c01.getAlpha() < 6 && c11.getAlpha() < 6) {
+    if ((c00 >>> 24) < 6 && (c10 >>> 24) < 6 && (c01 >>> 24) < 6 && (c11 >>> 24) < 6) {
       return TRANSPARENT_COLOR;
     }
     
@@ -8,6 +8,7 @@ import net.elena.murat.light.Light;
 import net.elena.murat.light.LightProperties;
 import net.elena.murat.math.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * IsotropicMetalTextMaterial - Combines isotropic metal properties with text/image rendering
@@ -40,6 +41,7 @@ public class IsotropicMetalTextMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // Phong constants
   private final double ambientCoefficient = 0.15;
@@ -111,6 +113,7 @@ public class IsotropicMetalTextMaterial implements Material {
     this.imageVOffset = imageVOffset;
     
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -281,7 +284,7 @@ public class IsotropicMetalTextMaterial implements Material {
     int texY = (int) (v * texture.getHeight());
     texY = Math.max(0, Math.min(texture.getHeight() - 1, texY));
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   @Override
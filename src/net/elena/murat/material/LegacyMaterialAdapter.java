@@ -0,0 +1,82 @@
+package net.elena.murat.material;
+
+import java.awt.Color;
+
+import net.elena.murat.light.Light;
+import net.elena.murat.math.Matrix4;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Lets the tracer shade a material that only has getColorAt through the
+ * {@link SurfaceMaterial} steps. Evaluating the surface does nothing, and
+ * every light is one getColorAt call whose Color is added as it is, so the
+ * material renders exactly as before.
+ * <p>
+ * The adapter is bound to one material at a time; the tracer keeps one per
+ * tile and binds it to each hit's material. Not thread-safe.
+ * </p>
+ */
+public final class LegacyMaterialAdapter implements SurfaceMaterial {
+
+  private Material material;
+
+  /**
+   * @return This adapter, now shading the given material
+   */
+  public LegacyMaterialAdapter bind(Material material) {
+    this.material = material;
+    return this;
+  }
+
+  public Material getMaterial() {
+    return material;
+  }
+
+  @Override
+  public void evaluateSurface(SurfaceProperties surface) {
+  }
+
+  @Override
+  public void shadeLight(SurfaceProperties surface, Light light, LightAccumulator out) {
+    out.add(material.getColorAt(surface.getPoint(), surface.getNormal(), light,
+        surface.getViewerPos(), surface.getContext()));
+  }
+
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return material.getColorAt(point, normal, light, viewerPos);
+  }
+
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    return material.getColorAt(point, normal, light, viewerPos, context);
+  }
+
+  @Override
+  public double getReflectivity() {
+    return material.getReflectivity();
+  }
+
+  @Override
+  public double getIndexOfRefraction() {
+    return material.getIndexOfRefraction();
+  }
+
+  @Override
+  public double getTransparency() {
+    return material.getTransparency();
+  }
+
+  @Override
+  public void setObjectTransform(Matrix4 tm) {
+    material.setObjectTransform(tm);
+  }
+
+  @Override
+  public String toString() {
+    return "LegacyMaterialAdapter[" + material + "]";
+  }
+
+}
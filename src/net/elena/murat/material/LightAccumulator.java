@@ -0,0 +1,162 @@
+package net.elena.murat.material;
+
+import java.awt.Color;
+
+/**
+ * Running sum of the light a hit receives, in floating point and without
+ * clamping, filled by {@link SurfaceMaterial#shadeLight}.
+ * <p>
+ * Channels are kept in 8-bit units, the scale of java.awt.Color, so adding
+ * the Colors of materials that only have getColorAt gives exact integers
+ * and the same totals the tracer used to get by adding Colors. The getters
+ * return the usual 0..1 range and may go above 1.
+ * </p>
+ * Alpha is the largest alpha added. An accumulator is reused for every hit
+ * of one tile and is not thread-safe.
+ */
+public final class LightAccumulator {
+
+  private double red;
+  private double green;
+  private double blue;
+  private double alpha;
+  private boolean empty = true;
+
+  public void reset() {
+    red = 0.0;
+    green = 0.0;
+    blue = 0.0;
+    alpha = 0.0;
+    empty = true;
+  }
+
+  /**
+   * Adds a Color as is, alpha included.
+   */
+  public void add(Color color) {
+    red += color.getRed();
+    green += color.getGreen();
+    blue += color.getBlue();
+    alpha = Math.max(alpha, color.getAlpha() / 255.0);
+    empty = false;
+  }
+
+  /**
+   * Adds light given in 8-bit units, 255 being full white.
+   * @param opacity Alpha of the contribution, 0..1
+   */
+  public void add(double red, double green, double blue, double opacity) {
+    this.red += red;
+    this.green += green;
+    this.blue += blue;
+    this.alpha = Math.max(alpha, opacity);
+    this.empty = false;
+  }
+
+  public void add(LightAccumulator other) {
+    add(other, 1.0);
+  }
+
+  /**
+   * Adds another sum scaled by weight; used for averages and estimates.
+   */
+  public void add(LightAccumulator other, double weight) {
+    if (other.empty) return;
+    red += other.red * weight;
+    green += other.green * weight;
+    blue += other.blue * weight;
+    alpha = Math.max(alpha, other.alpha);
+    empty = false;
+  }
+
+  public void set(LightAccumulator other) {
+    red = other.red;
+    green = other.green;
+    blue = other.blue;
+    alpha = other.alpha;
+    empty = other.empty;
+  }
+
+  /**
+   * Blends a shadow color over the sum the way
+   * {@link net.elena.murat.util.ColorUtil#applyShadowColor(Color, Color)}
+   * does over a Color: channels clamped to 8 bits first, result opaque.
+   */
+  public void applyShadowColor(Color shadowColor) {
+    float shadowAlpha = shadowColor.getAlpha() / 255.0f;
+    red = shade(red, shadowColor.getRed(), shadowAlpha);
+    green = shade(green, shadowColor.getGreen(), shadowAlpha);
+    blue = shade(blue, shadowColor.getBlue(), shadowAlpha);
+    alpha = 1.0;
+    empty = false;
+  }
+
+  /**
+   * Blends a shadow color over the sum like {@link #applyShadowColor(Color)},
+   * but without clamping or rounding, so the result can still be weighted
+   * and summed as an estimate; the caller clamps the final sum.
+   */
+  public void blendShadowColor(Color shadowColor) {
+    double shadowAlpha = shadowColor.getAlpha() / 255.0;
+    red = shadowColor.getRed() * shadowAlpha + red * (1 - shadowAlpha);
+    green = shadowColor.getGreen() * shadowAlpha + green * (1 - shadowAlpha);
+    blue = shadowColor.getBlue() * shadowAlpha + blue * (1 - shadowAlpha);
+    alpha = 1.0;
+    empty = false;
+  }
+
+  private static int shade(double channel, int shadow, float shadowAlpha) {
+    float original = (float) Math.min(255.0, Math.max(0.0, channel)) / 255.0f;
+    float result = shadow / 255.0f * shadowAlpha + original * (1 - shadowAlpha);
+    return Math.max(0, Math.min(255, (int) (result * 255)));
+  }
+
+  /**
+   * Clamps every channel to full white.
+   */
+  public void clamp() {
+    red = Math.min(255.0, red);
+    green = Math.min(255.0, green);
+    blue = Math.min(255.0, blue);
+  }
+
+  /**
+   * @return True when nothing has been added since the last reset
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  public double getRed() {
+    return red / 255.0;
+  }
+
+  public double getGreen() {
+    return green / 255.0;
+  }
+
+  public double getBlue() {
+    return blue / 255.0;
+  }
+
+  public double getAlpha() {
+    return alpha;
+  }
+
+  /**
+   * @return The sum as a Color, channels clamped to 0..255 and truncated
+   */
+  public Color toColor() {
+    return new Color(
+      (int) Math.max(0.0, Math.min(255.0, red)),
+      (int) Math.max(0.0, Math.min(255.0, green)),
+      (int) Math.max(0.0, Math.min(255.0, blue)),
+      (int) (Math.max(0.0, Math.min(1.0, alpha)) * 255.0 + 0.5));
+  }
+
+  @Override
+  public String toString() {
+    return "LightAccumulator{" + getRed() + ", " + getGreen() + ", " + getBlue() + ", alpha=" + alpha + '}';
+  }
+
+}
@@ -11,9 +11,9 @@ import net.elena.murat.util.ColorUtil;
 public class LightningMaterial implements Material {
   private final Color baseColor;
   private final double intensity;
-  private final Random random;
-  private long lastStrikeTime;
-  private double[][] lightningPath;
+  // Replaced as a whole on every strike, so readers always see a complete path
+  private volatile long lastStrikeTime;
+  private volatile double[][] lightningPath;
   
   public LightningMaterial() {
     this(new Color(135, 206, 250), 1.5); // Electric blue
@@ -22,15 +22,14 @@ public class LightningMaterial implements Material {
   public LightningMaterial(Color baseColor, double intensity) {
     this.baseColor = baseColor;
     this.intensity = Math.max(0.5, Math.min(5.0, intensity));
-    this.random = new Random();
     this.lastStrikeTime = System.currentTimeMillis();
-    generateLightningPath();
+    this.lightningPath = generateLightningPath(new Random());
   }
   
-  private void generateLightningPath() {
+  private static double[][] generateLightningPath(Random random) {
     // Lichtenberg figure algorithm (fractal lightning)
     int segments = 50;
-    lightningPath = new double[segments][3]; // x,y,z
+    double[][] lightningPath = new double[segments][3]; // x,y,z
     
     double x = 0, y = 1, z = 0; // Start from ceiling
     lightningPath[0] = new double[]{x, y, z};
@@ -43,14 +42,24 @@ public class LightningMaterial implements Material {
       
       lightningPath[i] = new double[]{x, y, z};
     }
+    return lightningPath;
   }
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Lightning refresh check (at random intervals)
     long currentTime = System.currentTimeMillis();
-    if (currentTime - lastStrikeTime > 2000 + random.nextInt(3000)) {
-        generateLightningPath();
+    double[][] lightningPath = this.lightningPath;
+    if (currentTime - lastStrikeTime > 2000 + context.getRandom().nextInt(3000)) {
+        // Several threads may strike at once; the last complete path wins
+        lightningPath = generateLightningPath(context.getRandom());
+        this.lightningPath = lightningPath;
         lastStrikeTime = currentTime;
     }
     
@@ -11,7 +11,7 @@ import net.elena.murat.util.ColorUtil;
  * A material that simulates marble with natural veining patterns.
  * Uses Perlin noise for realistic marble texture generation.
  */
-public class MarbleMaterial implements Material {
+public class MarbleMaterial implements SurfaceMaterial {
   
   private final Color baseColor;       // Base color of the marble
   private final Color veinColor;      // Color of the veins
@@ -179,40 +179,48 @@ public class MarbleMaterial implements Material {
     return ((h&1) == 0 ? u : -u) + ((h&2) == 0 ? v : -v);
   }
   
+  /**
+   * Works out the marble pattern once per hit; each light only scales it.
+   */
   @Override
-  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+  public void evaluateSurface(SurfaceProperties surface) {
     if (objectInverseTransform == null) {
       System.err.println("Error: MarbleMaterial's inverse transform is null. Returning black.");
-      return Color.BLACK;
+      surface.setValid(false);
+      return;
     }
     
     // Transform to local space
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+    Point3 localPoint = surface.getContext().toLocal(objectInverseTransform, surface.getPoint());
     
-    if (localNormal == null) {
-      System.err.println("Error: MarbleMaterial's normal transform matrix is null or invalid. Returning black.");
-      return Color.BLACK;
+    // Get base marble color
+    surface.setAlbedo(getMarbleColor(localPoint));
+  }
+  
+  @Override
+  public void shadeLight(SurfaceProperties surface, Light light, LightAccumulator out) {
+    if (!surface.isValid()) {
+      out.add(Color.BLACK);
+      return;
     }
     
-    // Get base marble color
-    Color marbleBaseColor = getMarbleColor(localPoint);
+    Point3 worldPoint = surface.getPoint();
+    Vector3 worldNormal = surface.getNormal();
+    Point3 viewerPos = surface.getViewerPos();
+    Color marbleBaseColor = surface.getAlbedo();
     
     // Lighting calculation (same structure as other materials)
     Color lightColor = light.getColor();
     double attenuatedIntensity = 0.0;
     
     // Ambient component
-    int rAmbient = (int)(marbleBaseColor.getRed() * ambientCoefficient * lightColor.getRed() / 255.0);
-    int gAmbient = (int)(marbleBaseColor.getGreen() * ambientCoefficient * lightColor.getGreen() / 255.0);
-    int bAmbient = (int)(marbleBaseColor.getBlue() * ambientCoefficient * lightColor.getBlue() / 255.0);
+    double rAmbient = marbleBaseColor.getRed() * ambientCoefficient * lightColor.getRed() / 255.0;
+    double gAmbient = marbleBaseColor.getGreen() * ambientCoefficient * lightColor.getGreen() / 255.0;
+    double bAmbient = marbleBaseColor.getBlue() * ambientCoefficient * lightColor.getBlue() / 255.0;
     
     if (light instanceof ElenaMuratAmbientLight) {
-      return new Color(
-        Math.min(255, rAmbient),
-        Math.min(255, gAmbient),
-        Math.min(255, bAmbient)
-      );
+      out.add(rAmbient, gAmbient, bAmbient, 1.0);
+      return;
     }
     
     Vector3 lightDirection;
@@ -251,26 +259,24 @@ public class MarbleMaterial implements Material {
     
     // Diffuse component
     double NdotL = Math.max(0, worldNormal.dot(lightDirection));
-    int rDiffuse = (int)(marbleBaseColor.getRed() * diffuseCoefficient * lightColor.getRed() / 255.0 * attenuatedIntensity * NdotL);
-    int gDiffuse = (int)(marbleBaseColor.getGreen() * diffuseCoefficient * lightColor.getGreen() / 255.0 * attenuatedIntensity * NdotL);
-    int bDiffuse = (int)(marbleBaseColor.getBlue() * diffuseCoefficient * lightColor.getBlue() / 255.0 * attenuatedIntensity * NdotL);
+    double diffuse = diffuseCoefficient / 255.0 * attenuatedIntensity * NdotL;
+    double rDiffuse = marbleBaseColor.getRed() * lightColor.getRed() * diffuse;
+    double gDiffuse = marbleBaseColor.getGreen() * lightColor.getGreen() * diffuse;
+    double bDiffuse = marbleBaseColor.getBlue() * lightColor.getBlue() * diffuse;
     
     // Specular component
     Vector3 viewDir = viewerPos.subtract(worldPoint).normalize();
     Vector3 reflectionVector = lightDirection.negate().reflect(worldNormal);
     double RdotV = Math.max(0, reflectionVector.dot(viewDir));
-    double specFactor = Math.pow(RdotV, shininess);
-    
-    int rSpecular = (int)(specularColor.getRed() * specularCoefficient * lightColor.getRed() / 255.0 * attenuatedIntensity * specFactor);
-    int gSpecular = (int)(specularColor.getGreen() * specularCoefficient * lightColor.getGreen() / 255.0 * attenuatedIntensity * specFactor);
-    int bSpecular = (int)(specularColor.getBlue() * specularCoefficient * lightColor.getBlue() / 255.0 * attenuatedIntensity * specFactor);
+    double specular = specularCoefficient / 255.0 * attenuatedIntensity * Math.pow(RdotV, shininess);
     
-    // Sum up all components
-    int finalR = Math.min(255, rAmbient + rDiffuse + rSpecular);
-    int finalG = Math.min(255, gAmbient + gDiffuse + gSpecular);
-    int finalB = Math.min(255, bAmbient + bDiffuse + bSpecular);
+    double rSpecular = specularColor.getRed() * lightColor.getRed() * specular;
+    double gSpecular = specularColor.getGreen() * lightColor.getGreen() * specular;
+    double bSpecular = specularColor.getBlue() * lightColor.getBlue() * specular;
     
-    return new Color(finalR, finalG, finalB);
+    out.add(rAmbient + rDiffuse + rSpecular,
+      gAmbient + gDiffuse + gSpecular,
+      bAmbient + bDiffuse + bSpecular, 1.0);
   }
   
   @Override
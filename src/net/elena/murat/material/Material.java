@@ -23,6 +23,45 @@ public interface Material {
    */
   Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos);
   
+  /**
+   * Same as {@link #getColorAt(Point3, Vector3, Light, Point3)}, but with the
+   * calling thread's shading context. Materials whose result depends on random
+   * numbers or on per-hit values (such as a texture-driven transparency) override
+   * this method and keep all such state in the context, so that one instance can
+   * be shaded from several render threads at once.
+   * @param point The point in 3D space (world coordinates) where the light hits.
+   * @param normal The normal vector at the point (world coordinates).
+   * @param light The single light source affecting this point.
+   * @param viewerPos The position of the viewer/camera.
+   * @param context Per-thread shading context, never shared between threads.
+   * @return The color contribution from this specific light for the point.
+   */
+  default Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    return getColorAt(point, normal, light, viewerPos);
+  }
+  
+  /**
+   * Opacity of the surface at a point, worked out without shading it.
+   * The tracer relies on one value only: 0 means rays pass through as if the
+   * surface were not there, so hits there are dropped while looking for the
+   * closest shape instead of being shaded and traced again from behind.
+   * @param point The point in 3D space (world coordinates).
+   * @return 0 where fully see-through, up to 1 for opaque.
+   */
+  default double getOpacityAt(Point3 point) {
+    return 1.0;
+  }
+  
+  /**
+   * Tells whether {@link #getOpacityAt(Point3)} can return 0, i.e. whether hits
+   * on this material need the alpha test at all.
+   * @return True for materials with see-through texels.
+   */
+  default boolean hasAlphaMask() {
+    return false;
+  }
+  
   /**
    * Returns the reflectivity coefficient of the material.
    * This value determines how much light is reflected by the surface (0.0 for no reflection, 1.0 for full reflection).
@@ -40,6 +79,7 @@ public interface Material {
   /**
    * Returns the transparency coefficient of the material.
    * This value determines how much light passes through the surface (0.0 for opaque, 1.0 for fully transparent).
+   * Materials that vary it per hit report that value through {@link ShadingContext#getTransparency(Material)}.
    * @return The transparency value (0.0-1.0).
    */
   double getTransparency();
@@ -53,6 +53,12 @@ public class MultiMixMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     if (materials.isEmpty()) return Color.BLACK;
     
     double totalRatio = mixRatios.stream().mapToDouble(Double::doubleValue).sum();
@@ -62,10 +68,21 @@ public class MultiMixMaterial implements Material {
     double totalGreen = 0;
     double totalBlue = 0;
     
+    // Per-hit values of the mixed materials, weighted like the getters below
+    double mixedReflectivity = 0;
+    double mixedTransparency = 0;
+    double mixedIOR = 0;
+    
     for (int i = 0; i < materials.size(); i++) {
-      Color c = materials.get(i).getColorAt(point, normal, light, viewerPoint);
+      Material material = materials.get(i);
+      context.beginHit();
+      Color c = material.getColorAt(point, normal, light, viewerPoint, context);
       double weight = mixRatios.get(i) / totalRatio;
       
+      mixedReflectivity += context.getReflectivity(material) * weight;
+      mixedTransparency += context.getTransparency(material) * weight;
+      mixedIOR += context.getIndexOfRefraction(material) * weight;
+      
       // Apply gamma correction for perceptual linear mixing
       double r = Math.pow(c.getRed() / 255.0, 2.2);
       double g = Math.pow(c.getGreen() / 255.0, 2.2);
@@ -81,6 +98,11 @@ public class MultiMixMaterial implements Material {
     totalGreen = Math.pow(totalGreen, 1/2.2);
     totalBlue = Math.pow(totalBlue, 1/2.2);
     
+    context.beginHit();
+    context.setReflectivity(mixedReflectivity);
+    context.setTransparency(mixedTransparency);
+    context.setIndexOfRefraction(mixedIOR);
+    
     int r = (int) Math.min(255, Math.max(0, totalRed * 255));
     int g = (int) Math.min(255, Math.max(0, totalGreen * 255));
     int b = (int) Math.min(255, Math.max(0, totalBlue * 255));
@@ -6,6 +6,7 @@ import java.awt.image.BufferedImage;
 import net.elena.murat.light.Light;
 import net.elena.murat.math.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material that textures a surface with a transparent PNG image
@@ -15,8 +16,9 @@ import net.elena.murat.util.ColorUtil;
 public class NonScaledTransparentPNGMaterial implements Material {
   
   private BufferedImage texture;
+  private TextureSampler texels;
   private Matrix4 objectInverseTransform = new Matrix4();
-  private double transparency = 1.0;
+  private final double transparency = 1.0;
   
   private final int originalWidth;
   private final int originalHeight;
@@ -40,6 +42,7 @@ public class NonScaledTransparentPNGMaterial implements Material {
       throw new IllegalArgumentException("Texture cannot be null");
     }
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.originalWidth = texture.getWidth();
     this.originalHeight = texture.getHeight();
     
@@ -75,9 +78,48 @@ public class NonScaledTransparentPNGMaterial implements Material {
   // Original
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    int argb = texelAt(point);
+    int alpha = (argb >> 24) & 0xFF;
+    
+    if (alpha > 5) {
+      context.setTransparency(0.0);
+      int red = (argb >> 16) & 0xFF;
+      int green = (argb >> 8) & 0xFF;
+      int blue = argb & 0xFF;
+      Color linearColor = ColorUtil.sRGBToLinear(new Color(red, green, blue), gammaCorrection);
+      return linearColor;
+    }
+    
+    context.setTransparency(1.0);
+    return new Color(0, 0, 0, 0);
+  }
+  
+  /**
+   * 0 where the texel is see-through and getColorAt returns full
+   * transparency, 1 elsewhere.
+   */
+  @Override
+  public double getOpacityAt(Point3 point) {
+    return ((texelAt(point) >> 24) & 0xFF) > 5 ? 1.0 : 0.0;
+  }
+  
+  @Override
+  public boolean hasAlphaMask() {
+    return true;
+  }
+  
+  /**
+   * @return ARGB of the texel under a world point, or 0 when there is no texture
+   */
+  private int texelAt(Point3 point) {
     if (texture == null) {
-      setTransparency(1.0);
-      return new Color(0, 0, 0, 0);
+      return 0;
     }
     
     Point3 local = objectInverseTransform.transformPoint(point);
@@ -94,20 +136,7 @@ public class NonScaledTransparentPNGMaterial implements Material {
     int px = (int) (u * (originalWidth - 1));
     int py = (int) (v * (originalHeight - 1));
     
-    int argb = texture.getRGB(px, py);
-    int alpha = (argb >> 24) & 0xFF;
-    
-    if (alpha > 5) {
-      setTransparency(0.0);
-      int red = (argb >> 16) & 0xFF;
-      int green = (argb >> 8) & 0xFF;
-      int blue = argb & 0xFF;
-      Color linearColor = ColorUtil.sRGBToLinear(new Color(red, green, blue), gammaCorrection);
-      return linearColor;
-    }
-    
-    setTransparency(1.0);
-    return new Color(0, 0, 0, 0);
+    return texels.getARGB(px, py);
   }
   
   public boolean hasShadowAt(Point3 point) {
@@ -135,7 +164,7 @@ public class NonScaledTransparentPNGMaterial implements Material {
     xPixel = Math.min(Math.max(xPixel, 0), originalWidth - 1);
     yPixel = Math.min(Math.max(yPixel, 0), originalHeight - 1);
     
-    int argb = texture.getRGB(xPixel, yPixel);
+    int argb = texels.getARGB(xPixel, yPixel);
     int alpha = (argb >> 24) & 0xFF;
     
     return (alpha / 255.0) >= shadowAlphaThreshold;
@@ -160,10 +189,6 @@ public class NonScaledTransparentPNGMaterial implements Material {
     return transparency;
   }
   
-  private void setTransparency(double t) {
-    this.transparency = t;
-  }
-  
   public double getShadowAlphaThreshold() {
     return shadowAlphaThreshold;
   }
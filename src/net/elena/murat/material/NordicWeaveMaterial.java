@@ -6,7 +6,7 @@ import net.elena.murat.math.*;
 import net.elena.murat.light.*;
 import net.elena.murat.util.ColorUtil;
 
-public class NordicWeaveMaterial implements Material {
+public class NordicWeaveMaterial implements SurfaceMaterial {
   private final Color primaryColor;
   private final Color secondaryColor;
   private final Color accentColor;
@@ -40,31 +40,59 @@ public class NordicWeaveMaterial implements Material {
     this.objectTransform = tm;
   }
   
+  /**
+   * Inverts the object transform and looks up the pattern once per hit.
+   */
   @Override
-  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
-    Point3 objectPoint = objectTransform.inverse().transformPoint(worldPoint);
+  public void evaluateSurface(SurfaceProperties surface) {
+    Point3 objectPoint = objectTransform.inverse().transformPoint(surface.getPoint());
     
-    Color surfaceColor = calculateKilimPattern(objectPoint);
+    surface.setAlbedo(calculateKilimPattern(objectPoint));
+  }
+  
+  @Override
+  public void shadeLight(SurfaceProperties surface, Light light, LightAccumulator out) {
+    Point3 worldPoint = surface.getPoint();
+    Vector3 worldNormal = surface.getNormal();
+    Color surfaceColor = surface.getAlbedo();
     
     LightProperties props = LightProperties.getLightProperties(light, worldPoint);
-    if (props == null) return surfaceColor;
+    if (props == null) {
+      out.add(surfaceColor);
+      return;
+    }
     
-    Color ambient = ColorUtil.multiplyColors(surfaceColor, props.color, ambientCoeff);
+    Color lightColor = props.color;
+    double ambient = ambientCoeff / 255.0;
     
     if (light instanceof ElenaMuratAmbientLight) {
-      return ambient;
+      add(out, surfaceColor, lightColor, ambient, null, 0.0);
+      return;
     }
     
     double NdotL = Math.max(0, worldNormal.dot(props.direction));
-    Color diffuse = ColorUtil.multiplyColors(surfaceColor, props.color, diffuseCoeff * NdotL * props.intensity);
+    double diffuse = Math.max(0, diffuseCoeff * NdotL * props.intensity / 255.0);
     
-    Vector3 viewDir = viewerPos.subtract(worldPoint).normalize();
+    Vector3 viewDir = surface.getViewerPos().subtract(worldPoint).normalize();
     Vector3 reflectDir = props.direction.negate().reflect(worldNormal);
     double RdotV = Math.max(0, reflectDir.dot(viewDir));
-    double specFactor = Math.pow(RdotV, shininess) * props.intensity;
-    Color specular = ColorUtil.multiplyColors(accentColor, props.color, specularCoeff * specFactor);
+    double specular = Math.max(0, specularCoeff * Math.pow(RdotV, shininess) * props.intensity / 255.0);
     
-    return ColorUtil.combineColors(ambient, diffuse, specular);
+    add(out, surfaceColor, lightColor, ambient + diffuse, accentColor, specular);
+  }
+  
+  // out += base * light * baseFactor + accent * light * accentFactor
+  private static void add(LightAccumulator out, Color base, Color light, double baseFactor,
+      Color accent, double accentFactor) {
+    double r = base.getRed() * light.getRed() * baseFactor;
+    double g = base.getGreen() * light.getGreen() * baseFactor;
+    double b = base.getBlue() * light.getBlue() * baseFactor;
+    if (accent != null) {
+      r += accent.getRed() * light.getRed() * accentFactor;
+      g += accent.getGreen() * light.getGreen() * accentFactor;
+      b += accent.getBlue() * light.getBlue() * accentFactor;
+    }
+    out.add(r, g, b, 1.0);
   }
   
   private Color calculateKilimPattern(Point3 point) {
@@ -7,6 +7,7 @@ import java.awt.image.BufferedImage;
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * PhongTextMaterial - Combines text/image rendering capability with Phong lighting model.
@@ -31,6 +32,7 @@ public class PhongTextMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // --- PHONG MATERIAL PROPERTIES ---
   private final Color diffuseColor;   // Base color (can be overridden by texture)
@@ -88,6 +90,7 @@ public class PhongTextMaterial implements Material {
     
     // Generate texture
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -278,7 +281,7 @@ public class PhongTextMaterial implements Material {
       return new Color(0, 0, 0, 0);
     }
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   // --- MATERIAL INTERFACE ---
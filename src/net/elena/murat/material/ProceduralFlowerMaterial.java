@@ -26,6 +26,12 @@ public class ProceduralFlowerMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 normal, Light light, Point3 viewPos) {
+    return getColorAt(worldPoint, normal, light, viewPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 normal, Light light, Point3 viewPos,
+    ShadingContext context) {
     // Light information
     Color lightColor = light.getColor();
     double intensity = light.getIntensityAt(worldPoint);
@@ -50,8 +56,8 @@ public class ProceduralFlowerMaterial implements Material {
     else if (Math.abs(r - flowerR) < 0.05) {
       baseColor = petalColor; // Petals
     }
-    else if (r < 0.6 && Math.random() < 0.3) {
-      baseColor = new Color(0, 100 + (int)(155 * Math.random()), 0); // Green leaves
+    else if (r < 0.6 && context.getRandom().nextDouble() < 0.3) {
+      baseColor = new Color(0, 100 + (int)(155 * context.getRandom().nextDouble()), 0); // Green leaves
     }
     else {
       baseColor = Color.WHITE; // Background
@@ -99,13 +99,19 @@ public class RectangleCheckerMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     if (objectInverseTransform == null) {
       return Color.BLACK;
     }
     
     // Transform to object space
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+    Point3 localPoint = context.toLocal(objectInverseTransform, worldPoint);
+    Vector3 localNormal = context.toLocalNormal(objectInverseTransform, worldNormal);
     
     // Determine dominant axis for UV mapping
     double absX = Math.abs(localNormal.x);
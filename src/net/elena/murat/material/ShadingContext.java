@@ -0,0 +1,167 @@
+package net.elena.murat.material;
+
+import java.util.Random;
+
+import net.elena.murat.math.HitRecord;
+import net.elena.murat.math.Matrix4;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Per-thread state used while shading a hit.
+ * <p>
+ * Materials must not change their own fields inside getColorAt, since one
+ * material instance is shared by every render thread. Anything that varies
+ * per call goes through the context instead: random numbers come from
+ * {@link #getRandom()}, and per-hit values such as a texture-driven
+ * transparency are written with {@link #setTransparency(double)}.
+ * </p>
+ * <p>
+ * The tracer owns one context per tile, calls {@link #beginHit()} before
+ * shading each hit, and reads the results back through
+ * {@link #getTransparency(Material)} and friends, which fall back to the
+ * material's own values when nothing was written.
+ * </p>
+ * <p>
+ * The tracer also hands over the {@link HitRecord} it fills for each hit.
+ * Materials take points and normals to object space with
+ * {@link #toLocal(Matrix4, Point3)} and {@link #toLocalNormal(Matrix4, Vector3)},
+ * which reuse what the record already worked out for this hit and compute
+ * directly otherwise, so they are safe to call without a tracer.
+ * </p>
+ * A context is not thread-safe and must never be shared between threads.
+ */
+public final class ShadingContext {
+
+  private static final ThreadLocal<ShadingContext> CURRENT = new ThreadLocal<ShadingContext>() {
+    @Override
+    protected ShadingContext initialValue() {
+      return new ShadingContext();
+    }
+  };
+
+  private final Random random;
+
+  private double transparency;
+  private double reflectivity;
+  private double indexOfRefraction;
+  private boolean hasTransparency;
+  private boolean hasReflectivity;
+  private boolean hasIndexOfRefraction;
+
+  private HitRecord hit;
+
+  public ShadingContext() {
+    this.random = new Random();
+  }
+
+  /**
+   * @param seed Seed for the random generator, for repeatable renders
+   */
+  public ShadingContext(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Context of the calling thread. Used by the single-light getColorAt
+   * overloads of stateful materials when no context is passed in.
+   * @return The calling thread's context
+   */
+  public static ShadingContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Clears the per-hit values. Called by the tracer before shading a new hit.
+   */
+  public void beginHit() {
+    hasTransparency = false;
+    hasReflectivity = false;
+    hasIndexOfRefraction = false;
+  }
+
+  /**
+   * @param hit Record the tracer refills for every hit shaded with this context
+   */
+  public void setHit(HitRecord hit) {
+    this.hit = hit;
+  }
+
+  /**
+   * Only valid while the hit is being shaded; tracing another ray refills it.
+   * @return Record of the current hit, or null outside the tracer
+   */
+  public HitRecord getHit() {
+    return hit;
+  }
+
+  /**
+   * @return inverse.transformPoint(worldPoint), from the hit record when it has it
+   */
+  public Point3 toLocal(Matrix4 inverse, Point3 worldPoint) {
+    return hit != null ? hit.toLocal(inverse, worldPoint) : inverse.transformPoint(worldPoint);
+  }
+
+  /**
+   * @return inverse.inverseTransposeForNormal().transformVector(worldNormal).normalize(),
+   * from the hit record when it has it
+   */
+  public Vector3 toLocalNormal(Matrix4 inverse, Vector3 worldNormal) {
+    return hit != null ? hit.toLocalNormal(inverse, worldNormal)
+    : inverse.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+  }
+
+  /**
+   * @return Random generator owned by this context
+   */
+  public Random getRandom() {
+    return random;
+  }
+
+  public void setTransparency(double transparency) {
+    this.transparency = transparency;
+    this.hasTransparency = true;
+  }
+
+  public void setReflectivity(double reflectivity) {
+    this.reflectivity = reflectivity;
+    this.hasReflectivity = true;
+  }
+
+  public void setIndexOfRefraction(double indexOfRefraction) {
+    this.indexOfRefraction = indexOfRefraction;
+    this.hasIndexOfRefraction = true;
+  }
+
+  /**
+   * @param material Material of the current hit
+   * @return Transparency written for this hit, or the material's own value
+   */
+  public double getTransparency(Material material) {
+    return hasTransparency ? transparency : material.getTransparency();
+  }
+
+  /**
+   * @param material Material of the current hit
+   * @return Reflectivity written for this hit, or the material's own value
+   */
+  public double getReflectivity(Material material) {
+    return hasReflectivity ? reflectivity : material.getReflectivity();
+  }
+
+  /**
+   * @param material Material of the current hit
+   * @return Index of refraction written for this hit, or the material's own value
+   */
+  public double getIndexOfRefraction(Material material) {
+    return hasIndexOfRefraction ? indexOfRefraction : material.getIndexOfRefraction();
+  }
+
+  @Override
+  public String toString() {
+    return "ShadingContext[transparency=" + (hasTransparency ? transparency : "-")
+    + ", reflectivity=" + (hasReflectivity ? reflectivity : "-")
+    + ", ior=" + (hasIndexOfRefraction ? indexOfRefraction : "-") + "]";
+  }
+
+}
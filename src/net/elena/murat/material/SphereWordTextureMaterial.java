@@ -5,6 +5,7 @@ import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 
 import net.elena.murat.math.*;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material that applies a spherical texture with a word drawn on it.
@@ -34,6 +35,7 @@ public class SphereWordTextureMaterial implements Material {
   
   private Matrix4 objectInverseTransform;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   /**
    * Constructor with default background color (transparent black),
@@ -98,6 +100,7 @@ public class SphereWordTextureMaterial implements Material {
     this.objectInverseTransform = new Matrix4();
     
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -257,7 +260,7 @@ public class SphereWordTextureMaterial implements Material {
     }
     
     // Get pixel color from texture
-    int argb = texture.getRGB(texX, texY);
+    int argb = texels.getARGB(texX, texY);
     int alpha = (argb >> 24) & 0xFF;
     int red = (argb >> 16) & 0xFF;
     int green = (argb >> 8) & 0xFF;
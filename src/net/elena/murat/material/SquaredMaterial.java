@@ -102,6 +102,13 @@ public class SquaredMaterial implements Material {
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal,
     Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal,
+    Light light, Point3 viewerPos,
+    ShadingContext context) {
     // Check if inverse transform is valid before proceeding
     if (objectInverseTransform == null) {
       System.err.println("Error: SquaredMaterial's inverse transform is null. Returning black.");
@@ -109,11 +116,11 @@ public class SquaredMaterial implements Material {
     }
     
     // 1. Transform point to object's local space
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
+    Point3 localPoint = context.toLocal(objectInverseTransform, worldPoint);
     
     // 2. Transform the world normal to local space to determine the local face orientation
     // Normals transform with the inverse transpose of the model matrix.
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+    Vector3 localNormal = context.toLocalNormal(objectInverseTransform, worldNormal);
     // Check if the transformed normal is valid
     if (localNormal == null) {
       System.err.println("Error: SquaredMaterial's normal transform matrix is null or invalid. Returning black.");
@@ -0,0 +1,56 @@
+package net.elena.murat.material;
+
+import java.awt.Color;
+
+import net.elena.murat.light.Light;
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Material that shades in two steps: {@link #evaluateSurface} works out
+ * everything that does not depend on the light once per hit, and
+ * {@link #shadeLight} adds one light's contribution on top of it.
+ * <p>
+ * Patterns, noise and texture lookups belong in the first step, which the
+ * tracer calls once per hit however many lights the scene has. The second
+ * step should only be the lighting model itself, and adds to a
+ * {@link LightAccumulator} in floating point rather than returning a
+ * clamped Color. Materials that only implement
+ * {@link Material#getColorAt} are shaded through {@link LegacyMaterialAdapter}.
+ * </p>
+ * Both getColorAt methods are implemented on top of the two steps for
+ * callers outside the tracer.
+ */
+public interface SurfaceMaterial extends Material {
+
+  /**
+   * Fills the light-independent part of the record. Point, normal, viewer
+   * position and context are already set.
+   */
+  void evaluateSurface(SurfaceProperties surface);
+
+  /**
+   * Adds what one light contributes at the surface.
+   * @param surface Record filled by {@link #evaluateSurface} for this hit
+   * @param light Light to shade, ambient lights included
+   * @param out Sum to add to
+   */
+  void shadeLight(SurfaceProperties surface, Light light, LightAccumulator out);
+
+  @Override
+  default Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+
+  @Override
+  default Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    SurfaceProperties surface = new SurfaceProperties();
+    surface.reset(point, normal, viewerPos, context);
+    evaluateSurface(surface);
+    LightAccumulator sum = new LightAccumulator();
+    shadeLight(surface, light, sum);
+    return sum.toColor();
+  }
+
+}
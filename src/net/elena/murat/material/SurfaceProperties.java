@@ -0,0 +1,147 @@
+package net.elena.murat.material;
+
+import java.awt.Color;
+
+import net.elena.murat.math.Point3;
+import net.elena.murat.math.Vector3;
+
+/**
+ * What a {@link SurfaceMaterial} works out once per hit, before any light
+ * is looked at: the pattern or texture color, the normal used for
+ * lighting, roughness, opacity and emission.
+ * <p>
+ * The tracer fills in the point, the normal, the viewer position and the
+ * context with {@link #reset}, lets the material evaluate the rest, and
+ * then hands the record to {@link SurfaceMaterial#shadeLight} once per
+ * light. A material may replace the normal (bump mapping); the tracer
+ * flips whatever normal is there when the ray hit the back side.
+ * </p>
+ * A record is reused for every hit of one tile and is not thread-safe.
+ */
+public final class SurfaceProperties {
+
+  private Point3 point;
+  private Vector3 normal;
+  private Point3 viewerPos;
+  private ShadingContext context;
+
+  private Color albedo;
+  private Color emission;
+  private double roughness;
+  private double opacity;
+
+  // Set by materials for their own use between the two phases
+  private boolean valid;
+
+  /**
+   * Starts a new hit; albedo black, no emission, roughness 1, opaque.
+   */
+  public void reset(Point3 point, Vector3 normal, Point3 viewerPos, ShadingContext context) {
+    this.point = point;
+    this.normal = normal;
+    this.viewerPos = viewerPos;
+    this.context = context;
+    this.albedo = Color.BLACK;
+    this.emission = null;
+    this.roughness = 1.0;
+    this.opacity = 1.0;
+    this.valid = true;
+  }
+
+  public Point3 getPoint() {
+    return point;
+  }
+
+  /**
+   * @return Unit world normal used for lighting
+   */
+  public Vector3 getNormal() {
+    return normal;
+  }
+
+  public void setNormal(Vector3 normal) {
+    this.normal = normal;
+  }
+
+  /**
+   * Turns the normal around, for rays that hit the back of the surface.
+   */
+  public void flipNormal() {
+    this.normal = normal.negate();
+  }
+
+  public Point3 getViewerPos() {
+    return viewerPos;
+  }
+
+  public ShadingContext getContext() {
+    return context;
+  }
+
+  /**
+   * @return Surface color before lighting; its alpha is the texture's own
+   */
+  public Color getAlbedo() {
+    return albedo;
+  }
+
+  public void setAlbedo(Color albedo) {
+    this.albedo = albedo;
+  }
+
+  /**
+   * @return Light the surface gives off by itself, or null for none
+   */
+  public Color getEmission() {
+    return emission;
+  }
+
+  public void setEmission(Color emission) {
+    this.emission = emission;
+  }
+
+  /**
+   * @return 0 for a mirror-like surface up to 1 for a fully rough one
+   */
+  public double getRoughness() {
+    return roughness;
+  }
+
+  public void setRoughness(double roughness) {
+    this.roughness = roughness;
+  }
+
+  /**
+   * @return 1 for opaque down to 0 for fully see-through
+   */
+  public double getOpacity() {
+    return opacity;
+  }
+
+  public void setOpacity(double opacity) {
+    this.opacity = opacity;
+  }
+
+  /**
+   * @return False when the material could not evaluate this hit and
+   * shades it with a fallback
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  public void setValid(boolean valid) {
+    this.valid = valid;
+  }
+
+  @Override
+  public String toString() {
+    return "SurfaceProperties{point=" + point
+    + ", normal=" + normal
+    + ", albedo=" + (albedo != null ? net.elena.murat.util.ColorUtil.toColorString(albedo) : "null")
+    + ", roughness=" + roughness
+    + ", opacity=" + opacity
+    + '}';
+  }
+
+}
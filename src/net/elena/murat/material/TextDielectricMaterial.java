@@ -2,11 +2,11 @@ package net.elena.murat.material;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.Light;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * TextDielectricMaterial - Combines text rendering with dielectric material properties
@@ -31,6 +31,7 @@ public class TextDielectricMaterial implements Material {
   private final int imageUOffset;
   private final int imageVOffset;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   // Dielectric properties
   private Color diffuseColor;
@@ -40,9 +41,6 @@ public class TextDielectricMaterial implements Material {
   private Color filterColorInside;
   private Color filterColorOutside;
   private Matrix4 objectTransform;
-  private final Random random;
-  private double currentReflectivity;
-  private double currentTransparency;
   
   public TextDielectricMaterial(String word, Color textColor, Color gradientColor,
     String gradientType, Color bgColor,
@@ -78,12 +76,10 @@ public class TextDielectricMaterial implements Material {
     this.filterColorInside = filterColorInside;
     this.filterColorOutside = filterColorOutside;
     
-    this.random = new Random();
-    this.currentReflectivity = reflectivity;
-    this.currentTransparency = transparency;
     this.objectTransform = new Matrix4().identity();
     
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   public TextDielectricMaterial(String word, Color textColor,
@@ -179,6 +175,12 @@ public class TextDielectricMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     // Get texture color
     Point3 localPoint = objectTransform.inverse().transformPoint(point);
     Color textureColor = getTextureColor(localPoint, normal);
@@ -192,8 +194,8 @@ public class TextDielectricMaterial implements Material {
     double fresnel = Vector3.calculateFresnel(viewDir, normal, 1.0, indexOfRefraction);
     
     // Optimized reflection and transparency with better balance
-    this.currentReflectivity = Math.min(0.85, reflectivity + (fresnel * 0.7));
-    this.currentTransparency = Math.max(0.1, transparency * (1.0 - fresnel * 0.15));
+    context.setReflectivity(Math.min(0.85, reflectivity + (fresnel * 0.7)));
+    context.setTransparency(Math.max(0.1, transparency * (1.0 - fresnel * 0.15)));
     
     // Enhanced color processing
     Color boostedTexture = enhanceColorQuality(textureColor, 1.15f);
@@ -280,7 +282,7 @@ public class TextDielectricMaterial implements Material {
       return new Color(0, 0, 0, 0);
     }
     
-    return new Color(texture.getRGB(texX, texY), true);
+    return new Color(texels.getARGB(texX, texY), true);
   }
   
   @Override
@@ -295,12 +297,12 @@ public class TextDielectricMaterial implements Material {
   
   @Override
   public double getTransparency() {
-    return currentTransparency;
+    return transparency;
   }
   
   @Override
   public double getReflectivity() {
-    return currentReflectivity;
+    return reflectivity;
   }
   
   public Color getFilterColorInside() { return filterColorInside; }
@@ -351,8 +353,8 @@ public class TextDielectricMaterial implements Material {
     sb.append("        imageVOffset = " + imageVOffset + ";\n");
     sb.append("        diffuseColor = " + net.elena.murat.util.ColorUtil.toColorString(diffuseColor) + ";\n");
     sb.append("        ior = " + indexOfRefraction + ";\n");
-    sb.append("        transparency = " + currentTransparency + ";\n");
-    sb.append("        reflectivity = " + currentReflectivity + ";\n");
+    sb.append("        transparency = " + transparency + ";\n");
+    sb.append("        reflectivity = " + reflectivity + ";\n");
     sb.append("        filterColorInside = " + net.elena.murat.util.ColorUtil.toColorString(filterColorInside) + ";\n");
     sb.append("        filterColorOutside = " + net.elena.murat.util.ColorUtil.toColorString(filterColorOutside) + ";\n");
     sb.append("    }");
@@ -5,14 +5,16 @@ import java.awt.image.BufferedImage;
 
 import net.elena.murat.light.Light;
 import net.elena.murat.math.*;
+import net.elena.murat.util.TextureSampler;
 
 public class TextureMaterial implements Material {
   private final BufferedImage texture;
+  private final TextureSampler texels;
   private final int width;
   private final int height;
   private final boolean isTile;
   
-  private double transparency = 1.0;
+  private final double transparency = 1.0;
   private Matrix4 objectTransform = Matrix4.identity();
   
   public TextureMaterial(BufferedImage texture) {
@@ -24,6 +26,7 @@ public class TextureMaterial implements Material {
       throw new IllegalArgumentException("Texture cannot be null");
     }
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.width = texture.getWidth();
     this.height = texture.getHeight();
     this.isTile = isTile;
@@ -31,8 +34,14 @@ public class TextureMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     if (texture == null) {
-      transparency = 1.0;
+      context.setTransparency(1.0);
       return new Color(0, 0, 0, 0);
     }
     
@@ -53,18 +62,18 @@ public class TextureMaterial implements Material {
     int y = (int)(v * (height - 1));
     
     // Get raw ARGB value
-    int argb = texture.getRGB(x, y);
+    int argb = texels.getARGB(x, y);
     int alpha = (argb >> 24) & 0xFF;
     
     if (alpha > 5) {
       int red = (argb >> 16) & 0xFF;
       int green = (argb >> 8) & 0xFF;
       int blue = argb & 0xFF;
-      transparency = 0.0;
+      context.setTransparency(0.0);
       return new Color(red, green, blue, 255);
     }
     
-    transparency = 1.0;
+    context.setTransparency(1.0);
     return new Color(0, 0, 0, 0);
   }
   
@@ -14,6 +14,7 @@ import net.elena.murat.math.Vector3;
 import net.elena.murat.light.Light;
 import net.elena.murat.light.ElenaMuratAmbientLight;
 import net.elena.murat.util.ColorUtil;
+import net.elena.murat.util.TextureSampler;
 
 public class TexturedCheckerboardMaterial implements Material {
   
@@ -50,6 +51,7 @@ public class TexturedCheckerboardMaterial implements Material {
   
   private Matrix4 objectInverseTransform;
   private BufferedImage texture;
+  private TextureSampler texels;
   
   public TexturedCheckerboardMaterial(
     Color color1, Color color2, double size,
@@ -97,6 +99,7 @@ public class TexturedCheckerboardMaterial implements Material {
     this.objectInverseTransform = objectInverseTransform != null ? objectInverseTransform : new Matrix4();
     
     this.texture = createTexture();
+    this.texels = TextureSampler.of(texture);
   }
   
   private BufferedImage createTexture() {
@@ -173,12 +176,18 @@ public class TexturedCheckerboardMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos) {
+    return getColorAt(worldPoint, worldNormal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 worldPoint, Vector3 worldNormal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     if (texture == null) {
       return color1;
     }
     
-    Point3 localPoint = objectInverseTransform.transformPoint(worldPoint);
-    Vector3 localNormal = objectInverseTransform.inverseTransposeForNormal().transformVector(worldNormal).normalize();
+    Point3 localPoint = context.toLocal(objectInverseTransform, worldPoint);
+    Vector3 localNormal = context.toLocalNormal(objectInverseTransform, worldNormal);
     
     double phi = Math.atan2(localNormal.z, localNormal.x);
     double theta = Math.asin(localNormal.y);
@@ -192,7 +201,7 @@ public class TexturedCheckerboardMaterial implements Material {
     if (texY < 0) texY = 0;
     if (texY >= texture.getHeight()) texY = texture.getHeight() - 1;
     
-    Color baseColor = new Color(texture.getRGB(texX, texY), true);
+    Color baseColor = new Color(texels.getARGB(texX, texY), true);
     
     if (baseColor.getAlpha() == 0) {
       double scaledX = localPoint.x * size;
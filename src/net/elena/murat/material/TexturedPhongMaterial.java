@@ -8,6 +8,7 @@ import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
 import net.elena.murat.math.Matrix4;
 import net.elena.murat.math.Ray;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Represents a Phong material with added texture mapping capabilities.
@@ -30,6 +31,7 @@ public class TexturedPhongMaterial implements Material {
   
   // Texture property - now holding BufferedImage directly
   private final BufferedImage texture; // The image to be mapped onto the surface
+  private final TextureSampler texels;
   private final double uOffset;          // Horizontal texture offset
   private final double vOffset;          // Vertical texture offset
   private final double uScale;           // Horizontal texture tiling/scaling factor
@@ -72,6 +74,7 @@ public class TexturedPhongMaterial implements Material {
     this.ior = Math.max(1.0, ior); // IOR should be at least 1.0 (for vacuum/air)
     this.transparency = clamp01(transparency);
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.uOffset = uOffset;
     this.vOffset = vOffset;
     this.uScale = uScale;
@@ -315,7 +318,7 @@ public class TexturedPhongMaterial implements Material {
     texY = Math.min(Math.max(0, texY), texture.getHeight() - 1);
     
     // Get the RGB integer value from the texture
-    int rgb = texture.getRGB(texX, texY);
+    int rgb = texels.getARGB(texX, texY);
     // Ensure alpha channel is fully opaque (255) to prevent unexpected transparency issues
     return new Color(rgb | 0xFF000000);
   }
@@ -37,6 +37,12 @@ public class ThresholdMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint) {
+    return getColorAt(point, normal, light, viewerPoint, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPoint,
+    ShadingContext context) {
     Color sourceColor = baseColor;
     
     if (useLightColor) {
@@ -46,7 +52,7 @@ public class ThresholdMaterial implements Material {
     int alfa = sourceColor.getAlpha ();
     double alpha = ((double)(alfa))/255.0;
     
-    setTransparency (1-alpha);
+    context.setTransparency(1-alpha);
     
     return applyThreshold(sourceColor, threshold, aboveColor, belowColor, invertThreshold);
   }
@@ -7,6 +7,7 @@ import net.elena.murat.light.Light;
 import net.elena.murat.math.Matrix4;
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material that combines transparent PNG texture with emissive properties.
@@ -16,6 +17,7 @@ import net.elena.murat.math.Vector3;
 public class TransparentEmissivePNGMaterial implements Material {
   
   private BufferedImage texture;
+  private TextureSampler texels;
   private Matrix4 objectInverseTransform = new Matrix4();
   
   // UV parameters
@@ -28,7 +30,7 @@ public class TransparentEmissivePNGMaterial implements Material {
   // Emissive properties
   private Color emissiveColor;
   private double emissiveStrength;
-  private double transparency = 1.0;
+  private final double transparency = 1.0;
   
   // Billboard dimensions
   private double billboardWidth = 1.0;
@@ -42,6 +44,7 @@ public class TransparentEmissivePNGMaterial implements Material {
    */
   public TransparentEmissivePNGMaterial(BufferedImage texture, Color emissiveColor, double emissiveStrength) {
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.emissiveColor = new Color(
       emissiveColor.getRed(),
       emissiveColor.getGreen(),
@@ -57,6 +60,7 @@ public class TransparentEmissivePNGMaterial implements Material {
     double uScale, double vScale, boolean isRepeatTexture,
     Color emissiveColor, double emissiveStrength) {
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.uOffset = uOffset;
     this.vOffset = vOffset;
     this.uScale = (uScale > 0.0) ? uScale : 1.0;
@@ -81,9 +85,58 @@ public class TransparentEmissivePNGMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    int argb = texelAt(point);
+    
+    int alpha = (argb >> 24) & 0xFF;
+    int red = (argb >> 16) & 0xFF;
+    int green = (argb >> 8) & 0xFF;
+    int blue = argb & 0xFF;
+    
+    if (alpha > 5) {
+      context.setTransparency(0.0);
+      
+      int emissiveRed = (int) (emissiveColor.getRed() * emissiveStrength);
+      int emissiveGreen = (int) (emissiveColor.getGreen() * emissiveStrength);
+      int emissiveBlue = (int) (emissiveColor.getBlue() * emissiveStrength);
+      
+      int finalRed = clampColorValue(red + emissiveRed);
+      int finalGreen = clampColorValue(green + emissiveGreen);
+      int finalBlue = clampColorValue(blue + emissiveBlue);
+      
+      return new Color(finalRed, finalGreen, finalBlue, 255);
+    }
+    
+    context.setTransparency(1.0);
+    return new Color(0, 0, 0, 0);
+  }
+  
+  /**
+   * 0 where the texel is see-through and getColorAt returns full
+   * transparency, 1 where it glows.
+   */
+  @Override
+  public double getOpacityAt(Point3 point) {
+    return ((texelAt(point) >> 24) & 0xFF) > 5 ? 1.0 : 0.0;
+  }
+  
+  @Override
+  public boolean hasAlphaMask() {
+    return true;
+  }
+  
+  /**
+   * @return ARGB of the texel under a world point, or 0 when there is no
+   * texture or the point maps outside it
+   */
+  private int texelAt(Point3 point) {
     if (texture == null) {
-      setTransparency (1.0);
-      return new Color(0, 0, 0, 0);
+      return 0;
     }
     
     Point3 local = objectInverseTransform.transformPoint(point);
@@ -106,8 +159,7 @@ public class TransparentEmissivePNGMaterial implements Material {
       } else {
       // No tiling: if UV outside [0,1], return fully transparent color
       if (scaledU < 0.0 || scaledU > 1.0 || scaledV < 0.0 || scaledV > 1.0) {
-        setTransparency(1.0);
-        return new Color(0, 0, 0, 0);
+        return 0;
       }
       finalU = scaledU;
       finalV = scaledV;
@@ -116,29 +168,7 @@ public class TransparentEmissivePNGMaterial implements Material {
     int px = (int) (finalU * (texture.getWidth() - 1));
     int py = (int) (finalV * (texture.getHeight() - 1));
     
-    int argb = texture.getRGB(px, py);
-    
-    int alpha = (argb >> 24) & 0xFF;
-    int red = (argb >> 16) & 0xFF;
-    int green = (argb >> 8) & 0xFF;
-    int blue = argb & 0xFF;
-    
-    if (alpha > 5) {
-      setTransparency(0.0);
-      
-      int emissiveRed = (int) (emissiveColor.getRed() * emissiveStrength);
-      int emissiveGreen = (int) (emissiveColor.getGreen() * emissiveStrength);
-      int emissiveBlue = (int) (emissiveColor.getBlue() * emissiveStrength);
-      
-      int finalRed = clampColorValue(red + emissiveRed);
-      int finalGreen = clampColorValue(green + emissiveGreen);
-      int finalBlue = clampColorValue(blue + emissiveBlue);
-      
-      return new Color(finalRed, finalGreen, finalBlue, 255);
-    }
-    
-    setTransparency(1.0);
-    return new Color(0, 0, 0, 0);
+    return texels.getARGB(px, py);
   }
   
   /**
@@ -171,7 +201,7 @@ public class TransparentEmissivePNGMaterial implements Material {
     
     int px = (int) (finalU * (texture.getWidth() - 1));
     int py = (int) (finalV * (texture.getHeight() - 1));
-    int argb = texture.getRGB(px, py);
+    int argb = texels.getARGB(px, py);
     
     int alpha = (argb >> 24) & 0xFF;
     int red = (argb >> 16) & 0xFF;
@@ -222,10 +252,6 @@ public class TransparentEmissivePNGMaterial implements Material {
     return transparency;
   }
   
-  private void setTransparency (double tnw) {
-    this.transparency = tnw;
-  }
-  
   // Getters and setters for emissive properties
   public Color getEmissiveColor() {
     return new Color(
@@ -7,6 +7,7 @@ import net.elena.murat.light.Light;
 import net.elena.murat.math.Matrix4;
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material that displays a transparent emoji/image texture on a surface with
@@ -18,7 +19,8 @@ import net.elena.murat.math.Vector3;
  */
 public class TransparentEmojiMaterial implements Material {
   private final BufferedImage image;
-  private double transparency;
+  private final TextureSampler texels;
+  private final double transparency = 0.0;
   private final Color checkerColor1;
   private final Color checkerColor2;
   private final double checkerSize;
@@ -57,6 +59,7 @@ public class TransparentEmojiMaterial implements Material {
     boolean isRepeatTexture,
     boolean isMessy) {
     this.image = image;
+    this.texels = TextureSampler.of(image);
     this.checkerColor1 = checkerColor1;
     this.checkerColor2 = checkerColor2;
     this.checkerSize = Math.max(0.01, checkerSize);
@@ -124,6 +127,12 @@ public class TransparentEmojiMaterial implements Material {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // Transform world point to local object space
     Point3 localPoint = objectInverseTransform.transformPoint(point);
     
@@ -137,51 +146,27 @@ public class TransparentEmojiMaterial implements Material {
     
     if (isMessy) {
       if (backgroundColor.getAlpha () < 6) {
-        setTransparency (1.0);
+        context.setTransparency(1.0);
         return backgroundColor;
       }
     }
     
     // If no image, return background color immediately
     if (image == null) {
-      setTransparency(0.0);
+      context.setTransparency(0.0);
       return backgroundColor;
     }
     
-    // Base UV for texture
-    double u_tex = u_bg;
-    double v_tex = v_bg;
-    
-    // Apply scale and offset (do NOT normalize offset)
-    double scaledU = u_tex / uScale + uOffset;
-    double scaledV = v_tex / vScale + vOffset;
-    
-    double finalU, finalV;
+    long texel = imageTexelAt(u_bg, v_bg);
     
-    if (isRepeatTexture) {
-      // Wrap UVs for tiling
-      finalU = scaledU - Math.floor(scaledU);
-      finalV = scaledV - Math.floor(scaledV);
-      } else {
-      // No tiling: if UV outside [0,1], return background color immediately
-      if (scaledU < 0.0 || scaledU > 1.0 || scaledV < 0.0 || scaledV > 1.0) {
-        setTransparency(0.0);
-        return backgroundColor;
-      }
-      finalU = scaledU;
-      finalV = scaledV;
+    // No tiling: if UV outside [0,1], return background color immediately
+    if (texel < 0) {
+      context.setTransparency(0.0);
+      return backgroundColor;
     }
     
-    // Convert UV to pixel coordinates
-    int x = (int) (finalU * (image.getWidth() - 1));
-    int y = (int) (finalV * (image.getHeight() - 1));
-    
-    // Clamp pixel indices to valid range
-    x = Math.max(0, Math.min(image.getWidth() - 1, x));
-    y = Math.max(0, Math.min(image.getHeight() - 1, y));
-    
     // Get pixel ARGB
-    int argb = image.getRGB(x, y);
+    int argb = (int) texel;
     int alpha = (argb >> 24) & 0xFF;
     
     // Extract RGB
@@ -191,12 +176,12 @@ public class TransparentEmojiMaterial implements Material {
     
     if (alpha == 0) {
       // Fully transparent pixel: show checkerboard background
-      setTransparency(1.0);
+      context.setTransparency(1.0);
       return backgroundColor;
       } else {
       // Opaque or semi-transparent pixel: blend PNG color with background based on alpha
       
-      setTransparency(0.0);
+      context.setTransparency(0.0);
       
       float alphaF = alpha / 255f;
       
@@ -213,6 +198,81 @@ public class TransparentEmojiMaterial implements Material {
     }
   }
   
+  /**
+   * Opacity without shading: 0 only where getColorAt lets rays through
+   * untouched, that is a see-through checker square showing through a
+   * messy background or a transparent texel.
+   */
+  @Override
+  public double getOpacityAt(Point3 point) {
+    Point3 localPoint = objectInverseTransform.transformPoint(point);
+    
+    double u_bg = (localPoint.x / billboardWidth) + 0.5;
+    double v_bg = 1.0 - ((localPoint.y / billboardHeight) + 0.5);
+    
+    Color backgroundColor = getBackgroundCheckerboardColor(u_bg, v_bg);
+    double backgroundOpacity = backgroundColor.getAlpha() / 255.0;
+    
+    if (isMessy && backgroundColor.getAlpha() < 6) {
+      return backgroundOpacity;
+    }
+    
+    // Without an image, and outside it, the background is shaded as opaque
+    if (image == null) {
+      return 1.0;
+    }
+    long texel = imageTexelAt(u_bg, v_bg);
+    if (texel < 0) {
+      return 1.0;
+    }
+    
+    return ((texel >> 24) & 0xFF) == 0 ? backgroundOpacity : 1.0;
+  }
+  
+  @Override
+  public boolean hasAlphaMask() {
+    return true;
+  }
+  
+  /**
+   * Image texel at background UV, after scale, offset and tiling.
+   * @return ARGB of the texel as a non-negative value, or -1 when the UV
+   * falls outside the image and tiling is off
+   */
+  private long imageTexelAt(double u_bg, double v_bg) {
+    // Base UV for texture
+    double u_tex = u_bg;
+    double v_tex = v_bg;
+    
+    // Apply scale and offset (do NOT normalize offset)
+    double scaledU = u_tex / uScale + uOffset;
+    double scaledV = v_tex / vScale + vOffset;
+    
+    double finalU, finalV;
+    
+    if (isRepeatTexture) {
+      // Wrap UVs for tiling
+      finalU = scaledU - Math.floor(scaledU);
+      finalV = scaledV - Math.floor(scaledV);
+      } else {
+      if (scaledU < 0.0 || scaledU > 1.0 || scaledV < 0.0 || scaledV > 1.0) {
+        return -1;
+      }
+      finalU = scaledU;
+      finalV = scaledV;
+    }
+    
+    // Convert UV to pixel coordinates
+    int x = (int) (finalU * (image.getWidth() - 1));
+    int y = (int) (finalV * (image.getHeight() - 1));
+    
+    // Clamp pixel indices to valid range
+    x = Math.max(0, Math.min(image.getWidth() - 1, x));
+    y = Math.max(0, Math.min(image.getHeight() - 1, y));
+    
+    return texels.getARGB(x, y) & 0xFFFFFFFFL;
+  }
+  
   /**
    * Returns the checkerboard color at given UV coordinates.
    * Checkerboard pattern covers entire surface uniformly, ignoring scale and offset.
@@ -237,7 +297,7 @@ public class TransparentEmojiMaterial implements Material {
     if (x < 0 || x >= image.getWidth() || y < 0 || y >= image.getHeight()) {
       return new Color(0, 0, 0, 0);
     }
-    int rgb = image.getRGB(x, y);
+    int rgb = texels.getARGB(x, y);
     return new Color(
       (rgb >> 16) & 0xFF,
       (rgb >> 8) & 0xFF,
@@ -261,10 +321,6 @@ public class TransparentEmojiMaterial implements Material {
     return transparency;
   }
   
-  private void setTransparency(double tnw) {
-    this.transparency = tnw;
-  }
-  
   /**
    * Gets the first checkerboard color
    * @return First checkerboard color
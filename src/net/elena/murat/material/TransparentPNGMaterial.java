@@ -7,6 +7,7 @@ import net.elena.murat.light.Light;
 import net.elena.murat.math.Matrix4;
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material class that textures a surface with a transparent PNG image.
@@ -22,9 +23,10 @@ import net.elena.murat.math.Vector3;
 public class TransparentPNGMaterial implements Material {
   
   private BufferedImage texture;
+  private TextureSampler texels;
   private Matrix4 objectInverseTransform = new Matrix4(); // Identity by default
   
-  private double transparency = 1.0;
+  private final double transparency = 1.0;
   
   // UV offset and scale parameters with default values (no offset, scale=1)
   private double uOffset = 0.0;
@@ -45,6 +47,7 @@ public class TransparentPNGMaterial implements Material {
    */
   public TransparentPNGMaterial(BufferedImage texture) {
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -59,6 +62,7 @@ public class TransparentPNGMaterial implements Material {
   public TransparentPNGMaterial(BufferedImage texture, double uOffset, double vOffset,
     double uScale, double vScale, boolean isRepeatTexture) {
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
     this.uOffset = uOffset;
     this.vOffset = vOffset;
     this.uScale = (uScale > 0.0) ? uScale : 1.0; // Prevent zero or negative scale
@@ -71,6 +75,7 @@ public class TransparentPNGMaterial implements Material {
    */
   public TransparentPNGMaterial() {
     this.texture = null;
+    this.texels = null;
   }
   
   /**
@@ -102,9 +107,52 @@ public class TransparentPNGMaterial implements Material {
    */
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
+    // Get pixel color with alpha channel
+    int argb = texelAt(point);
+    int alpha = (argb >> 24) & 0xFF;
+    
+    // Otherwise return fully transparent color
+    if (alpha > 5) {
+      int red = (argb >> 16) & 0xFF;
+      int green = (argb >> 8) & 0xFF;
+      int blue = argb & 0xFF;
+      context.setTransparency(0.0); // Fully opaque
+      return new Color(red, green, blue, 255);
+    }
+    
+    // For any alpha value less than 255, return fully transparent
+    context.setTransparency(1.0); // Fully transparent
+    return new Color(0, 0, 0, 0);
+  }
+  
+  /**
+   * Opacity from the texel alone: 0 exactly where getColorAt returns
+   * full transparency, 1 elsewhere.
+   */
+  @Override
+  public double getOpacityAt(Point3 point) {
+    return ((texelAt(point) >> 24) & 0xFF) > 5 ? 1.0 : 0.0;
+  }
+  
+  @Override
+  public boolean hasAlphaMask() {
+    return true;
+  }
+  
+  /**
+   * Texel under a world point.
+   * @return ARGB of the texel, or 0 (fully transparent) when there is no
+   * texture or the point maps outside it
+   */
+  private int texelAt(Point3 point) {
     if (texture == null) {
-      setTransparency(1.0); // Fully transparent
-      return new Color(0, 0, 0, 0);
+      return 0; // Fully transparent
     }
     
     // Transform world coordinates to local object space
@@ -128,8 +176,7 @@ public class TransparentPNGMaterial implements Material {
       } else {
       // No tiling: if UV outside [0,1], return fully transparent color
       if (scaledU < 0.0 || scaledU > 1.0 || scaledV < 0.0 || scaledV > 1.0) {
-        setTransparency(1.0); // Fully transparent
-        return new Color(0, 0, 0, 0);
+        return 0; // Fully transparent
       }
       finalU = scaledU;
       finalV = scaledV;
@@ -143,22 +190,7 @@ public class TransparentPNGMaterial implements Material {
     px = Math.max(0, Math.min(texture.getWidth() - 1, px));
     py = Math.max(0, Math.min(texture.getHeight() - 1, py));
     
-    // Get pixel color with alpha channel
-    int argb = texture.getRGB(px, py);
-    int alpha = (argb >> 24) & 0xFF;
-    
-    // Otherwise return fully transparent color
-    if (alpha > 5) {
-      int red = (argb >> 16) & 0xFF;
-      int green = (argb >> 8) & 0xFF;
-      int blue = argb & 0xFF;
-      setTransparency(0.0); // Fully opaque
-      return new Color(red, green, blue, 255);
-    }
-    
-    // For any alpha value less than 255, return fully transparent
-    setTransparency(1.0); // Fully transparent
-    return new Color(0, 0, 0, 0);
+    return texels.getARGB(px, py);
   }
   
   /**
@@ -188,14 +220,6 @@ public class TransparentPNGMaterial implements Material {
     return transparency;
   }
   
-  /**
-   * Sets the transparency value.
-   * @param transparency transparency value (0.0 = opaque, 1.0 = fully transparent)
-   */
-  private void setTransparency(double transparency) {
-    this.transparency = transparency;
-  }
-  
   /**
    * Gets the horizontal texture offset.
    * @return U offset value
@@ -250,6 +274,7 @@ public class TransparentPNGMaterial implements Material {
    */
   public void setTexture(BufferedImage texture) {
     this.texture = texture;
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -13,16 +13,18 @@ import net.elena.murat.light.Light;
 import net.elena.murat.math.Matrix4;
 import net.elena.murat.math.Point3;
 import net.elena.murat.math.Vector3;
+import net.elena.murat.util.TextureSampler;
 
 /**
  * Material class that generates textures with rendered text and optional image on the fly.
  * Supports custom text, fonts, colors, gradients, transparent backgrounds, and image integration.
  * Uses planar UV mapping on XY plane (Z ignored) similar to TransparentPNGMaterial.
  */
-public class WordMaterial implements Material {
+public class WordMaterial implements SurfaceMaterial {
   private BufferedImage texture;
+  private TextureSampler texels;
   private Matrix4 objectInverseTransform = new Matrix4();
-  private double transparency = 1.0;
+  private final double transparency = 1.0;
   
   // UV parameters
   private double uOffset = 0.0;
@@ -143,6 +145,7 @@ public class WordMaterial implements Material {
     
     this.texture = createTextImage(sentence, textColor, backgroundColor, 
                                   sentenceFont, false, null, null, width, height);
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -181,6 +184,7 @@ public class WordMaterial implements Material {
     
     this.texture = createMultiLineTextImage(lines, textColor, backgroundColor, 
                                            sentenceFont, width, height);
+    this.texels = TextureSampler.of(texture);
   }
   
   /**
@@ -214,6 +218,7 @@ public class WordMaterial implements Material {
   
       this.texture = createTextImage(text, foregroundColor, backgroundColor, font,
       useGradient, gradientColor, wordImage, width, height);
+      this.texels = TextureSampler.of(texture);
    }
 
 	/**
@@ -406,22 +411,62 @@ public class WordMaterial implements Material {
 	}
 
   /**
-   * Returns the color at the given world point on the surface
+   * Looks up the texel under the hit once; the text is unlit, so every
+   * light gets the same color.
    * Uses planar UV mapping on XY plane similar to TransparentPNGMaterial
-   * @param point World space point on surface
-   * @param normal Surface normal
-   * @param light Light source
-   * @param viewerPos Viewer position
-   * @return Color with alpha channel
+   * @param surface Hit to evaluate; receives the texel, alpha included, as albedo
    */
   @Override
-  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+  public void evaluateSurface(SurfaceProperties surface) {
     if (texture == null) {
-      return new Color(0, 0, 0, 0); // Fully transparent
+      setTexel(surface, new Color(0, 0, 0, 0)); // Fully transparent
+      return;
     }
     
-    Point3 local = objectInverseTransform.transformPoint(point);
+    long texel = texelAt(surface.getContext().toLocal(objectInverseTransform, surface.getPoint()));
+    if (texel < 0) {
+      setTexel(surface, new Color(0, 0, 0, 0)); // Fully transparent for out-of-bounds
+      return;
+    }
+    
+    int argb = (int) texel;
+    
+    int alpha = (argb >> 24) & 0xFF;
+    int red = (argb >> 16) & 0xFF;
+    int green = (argb >> 8) & 0xFF;
+    int blue = argb & 0xFF;
     
+    // Set transparency based on actual pixel alpha
+    surface.getContext().setTransparency(1.0 - (alpha / 255.0));
+    
+    // Keep color with exact alpha from texture
+    setTexel(surface, new Color(red, green, blue, alpha));
+  }
+  
+  /**
+   * The texel's own alpha; 0 off the texture, where the material's
+   * transparency of 1 lets rays through as well.
+   */
+  @Override
+  public double getOpacityAt(Point3 point) {
+    if (texture == null) {
+      return 0.0;
+    }
+    long texel = texelAt(objectInverseTransform.transformPoint(point));
+    return texel < 0 ? 0.0 : ((texel >> 24) & 0xFF) / 255.0;
+  }
+  
+  @Override
+  public boolean hasAlphaMask() {
+    return true;
+  }
+  
+  /**
+   * @param local Point in the material's object space
+   * @return ARGB of the texel as a non-negative value, or -1 when the point
+   * maps outside the texture and repeating is off
+   */
+  private long texelAt(Point3 local) {
     double u = 0.0;
     double v = 0.0;
     
@@ -446,7 +491,7 @@ public class WordMaterial implements Material {
       finalV = scaledV - Math.floor(scaledV);
     } else {
       if (scaledU < 0.0 || scaledU > 1.0 || scaledV < 0.0 || scaledV > 1.0) {
-        return new Color(0, 0, 0, 0); // Fully transparent for out-of-bounds
+        return -1;
       }
       finalU = scaledU;
       finalV = scaledV;
@@ -459,18 +504,20 @@ public class WordMaterial implements Material {
     px = Math.max(0, Math.min(px, texture.getWidth() - 1));
     py = Math.max(0, Math.min(py, texture.getHeight() - 1));
     
-    int argb = texture.getRGB(px, py);
-    
-    int alpha = (argb >> 24) & 0xFF;
-    int red = (argb >> 16) & 0xFF;
-    int green = (argb >> 8) & 0xFF;
-    int blue = argb & 0xFF;
-    
-    // Set transparency based on actual pixel alpha
-    this.transparency = 1.0 - (alpha / 255.0);
-    
-    // Return color with exact alpha from texture
-    return new Color(red, green, blue, alpha);
+    return texels.getARGB(px, py) & 0xFFFFFFFFL;
+  }
+  
+  private static void setTexel(SurfaceProperties surface, Color texel) {
+    surface.setAlbedo(texel);
+    surface.setOpacity(texel.getAlpha() / 255.0);
+  }
+  
+  /**
+   * Adds the texel as it is, whatever the light.
+   */
+  @Override
+  public void shadeLight(SurfaceProperties surface, Light light, LightAccumulator out) {
+    out.add(surface.getAlbedo());
   }
   
   /**
@@ -737,6 +784,7 @@ public class WordMaterial implements Material {
   public void regenerateTexture() {
     this.texture = createTextImage(text, foregroundColor, backgroundColor, font,
     gradientEnabled, gradientColor, wordImage, width, height);
+    this.texels = TextureSampler.of(texture);
   }
   
   private String imagePath = "null";
@@ -1,17 +1,16 @@
 package net.elena.murat.material.pbr;
 
 import java.awt.Color;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
+import net.elena.murat.material.ShadingContext;
 import net.elena.murat.util.ColorUtil;
 
 public class CopperPBRMaterial implements PBRCapableMaterial {
   private final Color albedo;
   private final double roughness;
   private final double oxidation;
-  private final Random random = new Random();
   
   // Copper color constants
   public static final Color PURE_COPPER = new Color(184, 115, 51);
@@ -34,6 +33,12 @@ public class CopperPBRMaterial implements PBRCapableMaterial {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Oxidized color blend
     Color baseColor = ColorUtil.lerp(
       albedo,
@@ -48,7 +53,7 @@ public class CopperPBRMaterial implements PBRCapableMaterial {
     // 3. Reflection vector (with roughness perturbation)
     Vector3 reflected = Vector3.reflect(viewDir.negate(), normal);
     if (roughness > 0) {
-      Vector3 randomPerturbation = Vector3.randomInUnitSphere(random).scale(roughness);
+      Vector3 randomPerturbation = Vector3.randomInUnitSphere(context.getRandom()).scale(roughness);
       reflected = reflected.add(randomPerturbation).normalize();
     }
     
@@ -1,18 +1,17 @@
 package net.elena.murat.material.pbr;
 
 import java.awt.Color;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
 import net.elena.murat.material.Material;
+import net.elena.murat.material.ShadingContext;
 import net.elena.murat.util.ColorUtil;
 
 public class GoldPBRMaterial implements PBRCapableMaterial {
   private final Color albedo;
   private final double roughness;
   private final double metalness;
-  private final Random random = new Random();
   
   public GoldPBRMaterial(double roughness) {
     this(new Color(255, 215, 0), // Standard gold color (RGB)
@@ -32,6 +31,12 @@ public class GoldPBRMaterial implements PBRCapableMaterial {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Vector calculations (optimized)
     Vector3 viewDir = new Vector3(point, viewerPos).normalize();
     Vector3 lightDir = light.getDirectionTo(point).normalize();
@@ -45,7 +50,7 @@ public class GoldPBRMaterial implements PBRCapableMaterial {
     Vector3 reflected = Vector3.reflect(viewDir.negate(), normal);
     if (roughness > 0.001) { // Skip small roughness values
       reflected = reflected.add(
-        Vector3.randomInUnitSphere(random).scale(roughness * roughness) // roughness^2 looks more natural
+        Vector3.randomInUnitSphere(context.getRandom()).scale(roughness * roughness) // roughness^2 looks more natural
       ).normalize();
     }
     
@@ -36,13 +36,11 @@ public class MarblePBRMaterial implements PBRCapableMaterial {
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
     // 1. Advanced vein pattern (3D Perlin noise)
-    Point3 scaledPoint = new Point3(
-      point.x * veinScale,
-      point.y * veinScale,
-      point.z * veinScale * 0.5
-    );
+    double x = point.x * veinScale;
+    double y = point.y * veinScale;
+    double z = point.z * veinScale * 0.5;
     
-    double noise = NoiseUtil.turbulence(scaledPoint, 4);
+    double noise = NoiseUtil.turbulence(x, y, z, 4);
     double veins = Math.pow(Math.sin(noise * Math.PI * 3) * 0.5 + 0.5, veinContrast * 10);
     veins *= veinIntensity;
     
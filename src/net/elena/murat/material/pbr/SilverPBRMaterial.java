@@ -1,17 +1,16 @@
 package net.elena.murat.material.pbr;
 
 import java.awt.Color;
-import java.util.Random;
 
 import net.elena.murat.math.*;
 import net.elena.murat.light.*;
+import net.elena.murat.material.ShadingContext;
 import net.elena.murat.util.ColorUtil;
 
 public class SilverPBRMaterial implements PBRCapableMaterial {
   private final Color albedo;
   private final double roughness;
   private final double metalness;
-  private final Random random = new Random();
   
   // Silver color variations
   public static final Color PURE_SILVER = new Color(192, 192, 192);
@@ -30,6 +29,12 @@ public class SilverPBRMaterial implements PBRCapableMaterial {
   
   @Override
   public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos) {
+    return getColorAt(point, normal, light, viewerPos, ShadingContext.current());
+  }
+  
+  @Override
+  public Color getColorAt(Point3 point, Vector3 normal, Light light, Point3 viewerPos,
+    ShadingContext context) {
     // 1. Vector calculations
     Vector3 viewDir = new Vector3(point, viewerPos).normalize();
     Vector3 lightDir = light.getDirectionTo(point).normalize();
@@ -42,7 +47,7 @@ public class SilverPBRMaterial implements PBRCapableMaterial {
     Vector3 reflected = Vector3.reflect(viewDir.negate(), normal);
     if (roughness > 0.001) {
       reflected = reflected.add(
-        Vector3.randomInUnitSphere(random).scale(roughness * 0.5) // Less scattering than gold
+        Vector3.randomInUnitSphere(context.getRandom()).scale(roughness * 0.5) // Less scattering than gold
       ).normalize();
     }
     
@@ -11,7 +11,6 @@ public class WoodPBRMaterial implements PBRCapableMaterial {
   private final double tileSize;
   private final double roughness;
   private final double specularScale;
-  private boolean isAlternateTile = false;
   
   public WoodPBRMaterial() {
     this(new Color(160, 110, 60), new Color(130, 90, 50), 0.5, 0.3, 1.5);
@@ -31,7 +30,7 @@ public class WoodPBRMaterial implements PBRCapableMaterial {
     // 1. Checkerboard pattern
     int tileX = (int)(point.x / tileSize) % 2;
     int tileZ = (int)(point.z / tileSize) % 2;
-    isAlternateTile = (tileX + tileZ) % 2 == 0;
+    boolean isAlternateTile = (tileX + tileZ) % 2 == 0;
     
     // 2. Base color selection
     Color baseColor = isAlternateTile ? woodColor1 : woodColor2;
@@ -57,7 +56,7 @@ public class WoodPBRMaterial implements PBRCapableMaterial {
   }
   
   // PBR Properties
-  @Override public Color getAlbedo() { return isAlternateTile ? woodColor1 : woodColor2; }
+  @Override public Color getAlbedo() { return woodColor1; }
   @Override public double getRoughness() { return roughness; }
   @Override public double getMetalness() { return 0.0; }
   @Override public MaterialType getMaterialType() { return MaterialType.DIELECTRIC; }
@@ -0,0 +1,234 @@
+package net.elena.murat.math;
+
+/**
+ * Axis-aligned bounding box used by the acceleration structures.
+ * Boxes are immutable; an infinite box marks a shape (such as a Plane)
+ * whose extent cannot be bounded and must always be tested.
+ */
+public class BoundingBox {
+  public final double minX, minY, minZ;
+  public final double maxX, maxY, maxZ;
+
+  /**
+   * Bounds that contain all of space. Returned by shapes that cannot
+   * compute tight bounds.
+   */
+  public static final BoundingBox INFINITE = new BoundingBox(
+    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+    Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY
+  );
+
+  public BoundingBox(double minX, double minY, double minZ,
+    double maxX, double maxY, double maxZ) {
+    this.minX = minX;
+    this.minY = minY;
+    this.minZ = minZ;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.maxZ = maxZ;
+  }
+
+  public BoundingBox(Point3 min, Point3 max) {
+    this(Math.min(min.x, max.x), Math.min(min.y, max.y), Math.min(min.z, max.z),
+      Math.max(min.x, max.x), Math.max(min.y, max.y), Math.max(min.z, max.z));
+  }
+
+  /**
+   * Builds the world-space bounds of a local-space box by transforming its
+   * eight corners. The local box is padded by {@link Ray#EPSILON} first, since
+   * most shapes accept hits within that tolerance of their surface.
+   * @param minX Local minimum X
+   * @param minY Local minimum Y
+   * @param minZ Local minimum Z
+   * @param maxX Local maximum X
+   * @param maxY Local maximum Y
+   * @param maxZ Local maximum Z
+   * @param transform Local to world matrix, may be null for identity
+   * @return World-space bounds, or {@link #INFINITE} if the transform is missing or degenerate
+   */
+  public static BoundingBox fromLocal(double minX, double minY, double minZ,
+    double maxX, double maxY, double maxZ, Matrix4 transform) {
+    return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ).transform(transform);
+  }
+
+  /**
+   * Returns the bounds of this box after applying a transformation.
+   * @param transform Matrix to apply, null is treated as identity
+   * @return Transformed and padded bounds
+   */
+  public BoundingBox transform(Matrix4 transform) {
+    if (isInfinite()) {
+      return INFINITE;
+    }
+
+    double e = Ray.EPSILON;
+    double x0 = minX - e, y0 = minY - e, z0 = minZ - e;
+    double x1 = maxX + e, y1 = maxY + e, z1 = maxZ + e;
+
+    if (transform == null) {
+      return new BoundingBox(x0, y0, z0, x1, y1, z1);
+    }
+
+    double nx = Double.POSITIVE_INFINITY, ny = Double.POSITIVE_INFINITY, nz = Double.POSITIVE_INFINITY;
+    double xx = Double.NEGATIVE_INFINITY, xy = Double.NEGATIVE_INFINITY, xz = Double.NEGATIVE_INFINITY;
+
+    for (int i = 0; i < 8; i++) {
+      Point3 p = transform.transformPoint(new Point3(
+          (i & 1) == 0 ? x0 : x1,
+          (i & 2) == 0 ? y0 : y1,
+          (i & 4) == 0 ? z0 : z1));
+      nx = Math.min(nx, p.x); ny = Math.min(ny, p.y); nz = Math.min(nz, p.z);
+      xx = Math.max(xx, p.x); xy = Math.max(xy, p.y); xz = Math.max(xz, p.z);
+    }
+
+    BoundingBox result = new BoundingBox(nx, ny, nz, xx, xy, xz);
+    return result.isFinite() ? result : INFINITE;
+  }
+
+  /**
+   * Smallest box containing both boxes.
+   * @param other Other box
+   * @return The union
+   */
+  public BoundingBox union(BoundingBox other) {
+    return new BoundingBox(
+      Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+      Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ)
+    );
+  }
+
+  /**
+   * Overlap of both boxes. May be empty (min greater than max) when they are disjoint.
+   * @param other Other box
+   * @return The intersection
+   */
+  public BoundingBox intersection(BoundingBox other) {
+    return new BoundingBox(
+      Math.max(minX, other.minX), Math.max(minY, other.minY), Math.max(minZ, other.minZ),
+      Math.min(maxX, other.maxX), Math.min(maxY, other.maxY), Math.min(maxZ, other.maxZ)
+    );
+  }
+
+  /**
+   * @param margin Distance added on every side
+   * @return A box larger by the margin in every direction; infinite sides stay infinite
+   */
+  public BoundingBox grow(double margin) {
+    return new BoundingBox(minX - margin, minY - margin, minZ - margin,
+      maxX + margin, maxY + margin, maxZ + margin);
+  }
+
+  public boolean isEmpty() {
+    return minX > maxX || minY > maxY || minZ > maxZ;
+  }
+
+  /**
+   * @return true if any side of the box is unbounded or not a number
+   */
+  public boolean isInfinite() {
+    return !isFinite();
+  }
+
+  private boolean isFinite() {
+    return !Double.isInfinite(minX) && !Double.isInfinite(minY) && !Double.isInfinite(minZ)
+    && !Double.isInfinite(maxX) && !Double.isInfinite(maxY) && !Double.isInfinite(maxZ)
+    && !Double.isNaN(minX) && !Double.isNaN(minY) && !Double.isNaN(minZ)
+    && !Double.isNaN(maxX) && !Double.isNaN(maxY) && !Double.isNaN(maxZ);
+  }
+
+  public double getMin(int axis) {
+    switch(axis) {
+      case 0: return minX;
+      case 1: return minY;
+      case 2: return minZ;
+      default: throw new IllegalArgumentException("Axis must be 0, 1 or 2");
+    }
+  }
+
+  public double getMax(int axis) {
+    switch(axis) {
+      case 0: return maxX;
+      case 1: return maxY;
+      case 2: return maxZ;
+      default: throw new IllegalArgumentException("Axis must be 0, 1 or 2");
+    }
+  }
+
+  public Point3 getCenter() {
+    return new Point3((minX + maxX) * 0.5, (minY + maxY) * 0.5, (minZ + maxZ) * 0.5);
+  }
+
+  public double getSurfaceArea() {
+    double dx = maxX - minX;
+    double dy = maxY - minY;
+    double dz = maxZ - minZ;
+    return 2.0 * (dx * dy + dy * dz + dz * dx);
+  }
+
+  /**
+   * Slab test against the forward half of a ray.
+   * @param ray World-space ray
+   * @return true if the ray passes through the box at some t greater or equal to 0
+   */
+  public boolean intersects(Ray ray) {
+    Point3 o = ray.getOrigin();
+    Vector3 d = ray.getDirection();
+    return intersects(o.x, o.y, o.z, 1.0 / d.x, 1.0 / d.y, 1.0 / d.z,
+      minX, minY, minZ, maxX, maxY, maxZ);
+  }
+
+  /**
+   * Primitive slab test shared with the BVH traversal.
+   * A zero direction component yields an infinite inverse and is handled by
+   * checking whether the origin lies within that slab.
+   */
+  public static boolean intersects(double ox, double oy, double oz,
+    double invDx, double invDy, double invDz,
+    double minX, double minY, double minZ,
+    double maxX, double maxY, double maxZ) {
+    double tNear = 0.0;
+    double tFar = Double.POSITIVE_INFINITY;
+
+    if (Double.isInfinite(invDx)) {
+      if (ox < minX || ox > maxX) return false;
+    } else {
+      double t0 = (minX - ox) * invDx;
+      double t1 = (maxX - ox) * invDx;
+      if (t0 > t1) { double tmp = t0; t0 = t1; t1 = tmp; }
+      if (t0 > tNear) tNear = t0;
+      if (t1 < tFar) tFar = t1;
+      if (tNear > tFar) return false;
+    }
+
+    if (Double.isInfinite(invDy)) {
+      if (oy < minY || oy > maxY) return false;
+    } else {
+      double t0 = (minY - oy) * invDy;
+      double t1 = (maxY - oy) * invDy;
+      if (t0 > t1) { double tmp = t0; t0 = t1; t1 = tmp; }
+      if (t0 > tNear) tNear = t0;
+      if (t1 < tFar) tFar = t1;
+      if (tNear > tFar) return false;
+    }
+
+    if (Double.isInfinite(invDz)) {
+      if (oz < minZ || oz > maxZ) return false;
+    } else {
+      double t0 = (minZ - oz) * invDz;
+      double t1 = (maxZ - oz) * invDz;
+      if (t0 > t1) { double tmp = t0; t0 = t1; t1 = tmp; }
+      if (t0 > tNear) tNear = t0;
+      if (t1 < tFar) tFar = t1;
+      if (tNear > tFar) return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(java.util.Locale.ENGLISH, "BoundingBox[(%.3f, %.3f, %.3f) - (%.3f, %.3f, %.3f)]",
+      minX, minY, minZ, maxX, maxY, maxZ);
+  }
+
+}
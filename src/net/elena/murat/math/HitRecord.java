@@ -0,0 +1,240 @@
+package net.elena.murat.math;
+
+import net.elena.murat.shape.EMShape;
+
+/**
+ * Everything known about one ray hit, filled once by
+ * {@link EMShape#fillHit(Ray, double, HitRecord)} and read by the tracer and
+ * by materials instead of recomputing it.
+ * <p>
+ * The geometric normal is the true surface normal; the shading normal is the
+ * one lighting uses, which is the same unless the shape smooths or perturbs
+ * it. Both are unit length, in world space, and face the way the shape
+ * defines outside; {@link #isInside()} tells whether the ray came from behind.
+ * UV and the primitive index are only set by shapes that have them.
+ * </p>
+ * <p>
+ * The local point and the local normal are worked out on first use and kept
+ * until the next hit. {@link #toLocal(Matrix4, Point3)} and
+ * {@link #toLocalNormal(Matrix4, Vector3)} hand those cached values to a
+ * material that would otherwise transform the same point and normal on every
+ * light; their results equal the direct computation.
+ * </p>
+ * A record is reused for every hit of one tile and is not thread-safe.
+ */
+public final class HitRecord {
+
+  private EMShape shape;
+  private double t;
+  private Point3 point;
+  private Vector3 geometricNormal;
+  private Vector3 shadingNormal;
+  private boolean inside;
+  private int primitive;
+  private double u;
+  private double v;
+  private boolean hasUV;
+
+  // Local point under localFrame, null until asked for or set by the shape
+  private Matrix4 localFrame;
+  private Point3 localPoint;
+
+  // Last world normal taken to local space, and the matrices that did it
+  private Matrix4 normalFrame;
+  private Matrix4 normalMatrix;
+  private Vector3 normalKey;
+  private Vector3 localNormal;
+
+  /**
+   * Clears the record for a new hit.
+   * @param shape Shape that was hit
+   * @param t Ray parameter of the hit
+   * @param point World hit point
+   */
+  public void reset(EMShape shape, double t, Point3 point) {
+    this.shape = shape;
+    this.t = t;
+    this.point = point;
+    this.geometricNormal = null;
+    this.shadingNormal = null;
+    this.inside = false;
+    this.primitive = -1;
+    this.hasUV = false;
+    this.u = 0.0;
+    this.v = 0.0;
+    this.localFrame = null;
+    this.localPoint = null;
+    this.normalFrame = null;
+    this.normalMatrix = null;
+    this.normalKey = null;
+    this.localNormal = null;
+  }
+
+  /**
+   * Sets both normals to the same vector and the inside flag from the ray.
+   * @param normal Unit world normal pointing outside
+   * @param rayDirection Direction of the ray that hit
+   */
+  public void setNormal(Vector3 normal, Vector3 rayDirection) {
+    setNormals(normal, normal, rayDirection);
+  }
+
+  /**
+   * @param geometric Unit world normal of the surface itself
+   * @param shading Unit world normal used for lighting
+   * @param rayDirection Direction of the ray that hit; decides the inside flag
+   */
+  public void setNormals(Vector3 geometric, Vector3 shading, Vector3 rayDirection) {
+    this.geometricNormal = geometric;
+    this.shadingNormal = shading;
+    this.inside = !(rayDirection.dot(geometric) < 0.0);
+  }
+
+  /**
+   * Same as {@link #setNormals(Vector3, Vector3, Vector3)}, for a hit
+   * whose side is already known.
+   * @param inside True when the ray hit the back of the surface
+   */
+  public void setNormals(Vector3 geometric, Vector3 shading, boolean inside) {
+    this.geometricNormal = geometric;
+    this.shadingNormal = shading;
+    this.inside = inside;
+  }
+
+  /**
+   * Stores a local point the shape already has, so nobody transforms it again.
+   * @param inverse World to local matrix the point is in
+   * @param local Hit point in that space
+   */
+  public void setLocalPoint(Matrix4 inverse, Point3 local) {
+    this.localFrame = inverse;
+    this.localPoint = local;
+  }
+
+  public void setUV(double u, double v) {
+    this.u = u;
+    this.v = v;
+    this.hasUV = true;
+  }
+
+  /**
+   * @param primitive Face, triangle or other part index of the shape, -1 for none
+   */
+  public void setPrimitive(int primitive) {
+    this.primitive = primitive;
+  }
+
+  public EMShape getShape() {
+    return shape;
+  }
+
+  public double getT() {
+    return t;
+  }
+
+  public Point3 getPoint() {
+    return point;
+  }
+
+  public Vector3 getGeometricNormal() {
+    return geometricNormal;
+  }
+
+  public Vector3 getShadingNormal() {
+    return shadingNormal;
+  }
+
+  /**
+   * @return True when the ray hit the back of the surface, i.e. it
+   * travels along the normal rather than against it
+   */
+  public boolean isInside() {
+    return inside;
+  }
+
+  /**
+   * @return Face or part index, or -1 when the shape has none
+   */
+  public int getPrimitive() {
+    return primitive;
+  }
+
+  public boolean hasUV() {
+    return hasUV;
+  }
+
+  public double getU() {
+    return u;
+  }
+
+  public double getV() {
+    return v;
+  }
+
+  /**
+   * @return Hit point in the shape's local space
+   */
+  public Point3 getLocalPoint() {
+    return toLocal(shape.getInverseTransform(), point);
+  }
+
+  /**
+   * Same as inverse.transformPoint(worldPoint), answered from the record when
+   * the point is this hit's point and the matrix is the one already used.
+   */
+  public Point3 toLocal(Matrix4 inverse, Point3 worldPoint) {
+    if (!samePoint(worldPoint)) return inverse.transformPoint(worldPoint);
+    if (localPoint == null || localFrame != inverse) {
+      localPoint = inverse.transformPoint(worldPoint);
+      localFrame = inverse;
+    }
+    return localPoint;
+  }
+
+  /**
+   * Same as inverse.inverseTransposeForNormal().transformVector(worldNormal).normalize(),
+   * the way materials take a world normal into object space. The normal
+   * matrix is built once per hit and the last result is kept, including for
+   * the flipped normal the tracer passes on back-face hits.
+   */
+  public Vector3 toLocalNormal(Matrix4 inverse, Vector3 worldNormal) {
+    if (normalFrame != inverse) {
+      normalFrame = inverse;
+      normalMatrix = inverse.inverseTransposeForNormal();
+      normalKey = null;
+    }
+    if (normalKey != null) {
+      if (sameVector(worldNormal, normalKey.x, normalKey.y, normalKey.z)) {
+        return localNormal;
+      }
+      // Negation is exact, so the flipped result is the flipped computation
+      if (sameVector(worldNormal, -normalKey.x, -normalKey.y, -normalKey.z)) {
+        return localNormal.negate();
+      }
+    }
+    normalKey = worldNormal;
+    localNormal = normalMatrix.transformVector(worldNormal).normalize();
+    return localNormal;
+  }
+
+  private boolean samePoint(Point3 p) {
+    return p == point || (point != null && p.x == point.x && p.y == point.y && p.z == point.z);
+  }
+
+  private static boolean sameVector(Vector3 a, double x, double y, double z) {
+    return a.x == x && a.y == y && a.z == z;
+  }
+
+  @Override
+  public String toString() {
+    return "HitRecord{t=" + t
+    + ", point=" + point
+    + ", normal=" + shadingNormal
+    + ", inside=" + inside
+    + ", primitive=" + primitive
+    + (hasUV ? ", uv=(" + u + ", " + v + ")" : "")
+    + ", shape=" + (shape != null ? shape.getClass().getSimpleName() : "null")
+    + '}';
+  }
+
+}
@@ -6,7 +6,7 @@ import net.elena.murat.math.Ray;
  * Represents a 4x4 matrix for 3D transformations (translation, rotation, scaling).
  */
 public class Matrix4 {
-  private final double[][] m; // Matrix elements
+  private final double[] m; // Matrix elements, row-major: m[row * 4 + col]
   private double tx = 0.0, ty = 0.0, tz = 0.0;  // translation
   private double rx = 0.0, ry = 0.0, rz = 0.0;  // rotation (degrees)
   private double sx = 1.0, sy = 1.0, sz = 1.0;  // scale
@@ -15,11 +15,11 @@ public class Matrix4 {
    * Constructs an identity Matrix4.
    */
   public Matrix4() {
-    m = new double[4][4];
-    m[0][0] = 1.0; m[0][1] = 0.0; m[0][2] = 0.0; m[0][3] = 0.0;
-    m[1][0] = 0.0; m[1][1] = 1.0; m[1][2] = 0.0; m[1][3] = 0.0;
-    m[2][0] = 0.0; m[2][1] = 0.0; m[2][2] = 1.0; m[2][3] = 0.0;
-    m[3][0] = 0.0; m[3][1] = 0.0; m[3][2] = 0.0; m[3][3] = 1.0;
+    m = new double[16];
+    m[0] = 1.0; m[1] = 0.0; m[2] = 0.0; m[3] = 0.0;
+    m[4] = 0.0; m[5] = 1.0; m[6] = 0.0; m[7] = 0.0;
+    m[8] = 0.0; m[9] = 0.0; m[10] = 1.0; m[11] = 0.0;
+    m[12] = 0.0; m[13] = 0.0; m[14] = 0.0; m[15] = 1.0;
   }
   
   /**
@@ -29,11 +29,11 @@ public class Matrix4 {
     double m10, double m11, double m12, double m13,
     double m20, double m21, double m22, double m23,
     double m30, double m31, double m32, double m33) {
-    m = new double[4][4];
-    this.m[0][0] = m00; this.m[0][1] = m01; this.m[0][2] = m02; this.m[0][3] = m03;
-    this.m[1][0] = m10; this.m[1][1] = m11; this.m[1][2] = m12; this.m[1][3] = m13;
-    this.m[2][0] = m20; this.m[2][1] = m21; this.m[2][2] = m22; this.m[2][3] = m23;
-    this.m[3][0] = m30; this.m[3][1] = m31; this.m[3][2] = m32; this.m[3][3] = m33;
+    m = new double[16];
+    this.m[0] = m00; this.m[1] = m01; this.m[2] = m02; this.m[3] = m03;
+    this.m[4] = m10; this.m[5] = m11; this.m[6] = m12; this.m[7] = m13;
+    this.m[8] = m20; this.m[9] = m21; this.m[10] = m22; this.m[11] = m23;
+    this.m[12] = m30; this.m[13] = m31; this.m[14] = m32; this.m[15] = m33;
     updateTransformValues();
   }
   
@@ -42,10 +42,10 @@ public class Matrix4 {
    * @param other The Matrix4 object to copy.
    */
   public Matrix4(Matrix4 other) {
-    this(other.m[0][0], other.m[0][1], other.m[0][2], other.m[0][3],
-      other.m[1][0], other.m[1][1], other.m[1][2], other.m[1][3],
-      other.m[2][0], other.m[2][1], other.m[2][2], other.m[2][3],
-    other.m[3][0], other.m[3][1], other.m[3][2], other.m[3][3]);
+    this(other.m[0], other.m[1], other.m[2], other.m[3],
+      other.m[4], other.m[5], other.m[6], other.m[7],
+      other.m[8], other.m[9], other.m[10], other.m[11],
+    other.m[12], other.m[13], other.m[14], other.m[15]);
     this.tx = other.tx;
     this.ty = other.ty;
     this.tz = other.tz;
@@ -68,6 +68,16 @@ public class Matrix4 {
     return new Matrix4(); // The default constructor creates an identity matrix
   }
   
+  /**
+   * @return true if every element equals the identity's exactly
+   */
+  public boolean isIdentity() {
+    for (int i = 0; i < 16; i++) {
+      if (m[i] != ((i % 5 == 0) ? 1.0 : 0.0)) return false;
+    }
+    return true;
+  }
+  
   /**
    * Sets the value at the specified row and column.
    * @param row The row index (0-3)
@@ -80,7 +90,7 @@ public class Matrix4 {
       throw new IndexOutOfBoundsException("Matrix4 indices out of bounds: [" + row + "][" + col + "]");
     }
     
-    this.m[row][col] = value;
+    this.m[row * 4 + col] = value;
     updateTransformValues();
   }
   
@@ -90,7 +100,7 @@ public class Matrix4 {
    * @return The X scale factor
    */
   public double getScaleX() {
-    return Math.sqrt(m[0][0] * m[0][0] + m[1][0] * m[1][0] + m[2][0] * m[2][0]);
+    return Math.sqrt(m[0] * m[0] + m[4] * m[4] + m[8] * m[8]);
   }
   
   /**
@@ -99,7 +109,7 @@ public class Matrix4 {
    * @return The Y scale factor
    */
   public double getScaleY() {
-    return Math.sqrt(m[0][1] * m[0][1] + m[1][1] * m[1][1] + m[2][1] * m[2][1]);
+    return Math.sqrt(m[1] * m[1] + m[5] * m[5] + m[9] * m[9]);
   }
   
   /**
@@ -108,7 +118,7 @@ public class Matrix4 {
    * @return The Z scale factor
    */
   public double getScaleZ() {
-    return Math.sqrt(m[0][2] * m[0][2] + m[1][2] * m[1][2] + m[2][2] * m[2][2]);
+    return Math.sqrt(m[2] * m[2] + m[6] * m[6] + m[10] * m[10]);
   }
   
   public Ray transformRay(Ray ray) {
@@ -128,9 +138,9 @@ public class Matrix4 {
    * @return A new transformed Vector3
    */
   public Vector3 transformDirection(Vector3 v) {
-    double x = m[0][0] * v.x + m[0][1] * v.y + m[0][2] * v.z;
-    double y = m[1][0] * v.x + m[1][1] * v.y + m[1][2] * v.z;
-    double z = m[2][0] * v.x + m[2][1] * v.y + m[2][2] * v.z;
+    double x = m[0] * v.x + m[1] * v.y + m[2] * v.z;
+    double y = m[4] * v.x + m[5] * v.y + m[6] * v.z;
+    double z = m[8] * v.x + m[9] * v.y + m[10] * v.z;
     return new Vector3(x, y, z);
   }
   
@@ -145,7 +155,7 @@ public class Matrix4 {
     if (row < 0 || row >= 4 || col < 0 || col >= 4) {
       throw new IndexOutOfBoundsException("Matrix4 indices out of bounds: [" + row + "][" + col + "]");
     }
-    return m[row][col];
+    return m[row * 4 + col];
   }
   
   /**
@@ -167,9 +177,9 @@ public class Matrix4 {
     double y = normal.y;
     double z = normal.z;
     
-    double newX = normalMatrix.m[0][0] * x + normalMatrix.m[0][1] * y + normalMatrix.m[0][2] * z;
-    double newY = normalMatrix.m[1][0] * x + normalMatrix.m[1][1] * y + normalMatrix.m[1][2] * z;
-    double newZ = normalMatrix.m[2][0] * x + normalMatrix.m[2][1] * y + normalMatrix.m[2][2] * z;
+    double newX = normalMatrix.m[0] * x + normalMatrix.m[1] * y + normalMatrix.m[2] * z;
+    double newY = normalMatrix.m[4] * x + normalMatrix.m[5] * y + normalMatrix.m[6] * z;
+    double newZ = normalMatrix.m[8] * x + normalMatrix.m[9] * y + normalMatrix.m[10] * z;
     
     return new Vector3(newX, newY, newZ).normalize();
   }
@@ -183,9 +193,9 @@ public class Matrix4 {
     Matrix4 result = new Matrix4(); // Start with an identity matrix
     for (int i = 0; i < 4; i++) {
       for (int j = 0; j < 4; j++) {
-        result.m[i][j] = 0; // Reset element before summing
+        result.m[i * 4 + j] = 0; // Reset element before summing
         for (int k = 0; k < 4; k++) {
-          result.m[i][j] += this.m[i][k] * other.m[k][j];
+          result.m[i * 4 + j] += this.m[i * 4 + k] * other.m[k * 4 + j];
         }
       }
     }
@@ -200,9 +210,9 @@ public class Matrix4 {
    * @return The transformed Point3.
    */
   public Point3 transformPoint(Point3 point) {
-    double x = m[0][0] * point.x + m[0][1] * point.y + m[0][2] * point.z + m[0][3];
-    double y = m[1][0] * point.x + m[1][1] * point.y + m[1][2] * point.z + m[1][3];
-    double z = m[2][0] * point.x + m[2][1] * point.y + m[2][2] * point.z + m[2][3];
+    double x = m[0] * point.x + m[1] * point.y + m[2] * point.z + m[3];
+    double y = m[4] * point.x + m[5] * point.y + m[6] * point.z + m[7];
+    double z = m[8] * point.x + m[9] * point.y + m[10] * point.z + m[11];
     return new Point3(x, y, z);
   }
   
@@ -212,12 +222,66 @@ public class Matrix4 {
    * @return The transformed Vector3.
    */
   public Vector3 transformVector(Vector3 vector) {
-    double x = m[0][0] * vector.x + m[0][1] * vector.y + m[0][2] * vector.z;
-    double y = m[1][0] * vector.x + m[1][1] * vector.y + m[1][2] * vector.z;
-    double z = m[2][0] * vector.x + m[2][1] * vector.y + m[2][2] * vector.z;
+    double x = m[0] * vector.x + m[1] * vector.y + m[2] * vector.z;
+    double y = m[4] * vector.x + m[5] * vector.y + m[6] * vector.z;
+    double z = m[8] * vector.x + m[9] * vector.y + m[10] * vector.z;
     return new Vector3(x, y, z);
   }
   
+  /**
+   * Transforms a point into a caller-supplied vector, without allocating.
+   * Same result as {@link #transformPoint(Point3)}.
+   * @param px Point X
+   * @param py Point Y
+   * @param pz Point Z
+   * @param out Receives the transformed point
+   * @return out
+   */
+  public MutableVector3 transformPoint(double px, double py, double pz, MutableVector3 out) {
+    return out.set(
+      m[0] * px + m[1] * py + m[2] * pz + m[3],
+      m[4] * px + m[5] * py + m[6] * pz + m[7],
+      m[8] * px + m[9] * py + m[10] * pz + m[11]
+    );
+  }
+  
+  public MutableVector3 transformPoint(Point3 point, MutableVector3 out) {
+    return transformPoint(point.x, point.y, point.z, out);
+  }
+  
+  /**
+   * Transforms a vector into a caller-supplied vector, without allocating.
+   * Same result as {@link #transformVector(Vector3)}.
+   * @param vx Vector X
+   * @param vy Vector Y
+   * @param vz Vector Z
+   * @param out Receives the transformed vector
+   * @return out
+   */
+  public MutableVector3 transformVector(double vx, double vy, double vz, MutableVector3 out) {
+    return out.set(
+      m[0] * vx + m[1] * vy + m[2] * vz,
+      m[4] * vx + m[5] * vy + m[6] * vz,
+      m[8] * vx + m[9] * vy + m[10] * vz
+    );
+  }
+  
+  public MutableVector3 transformVector(Vector3 vector, MutableVector3 out) {
+    return transformVector(vector.x, vector.y, vector.z, out);
+  }
+  
+  /**
+   * Transforms a ray into this matrix's space without creating a new Ray.
+   * Shapes call this on their inverse transform to get the ray in local space.
+   * @param ray World-space ray
+   * @param originOut Receives the transformed origin
+   * @param directionOut Receives the transformed, normalized direction
+   */
+  public void transformRay(Ray ray, MutableVector3 originOut, MutableVector3 directionOut) {
+    transformPoint(ray.getOrigin(), originOut);
+    transformVector(ray.getDirection(), directionOut).normalize();
+  }
+  
   /**
    * Returns the inverse of this matrix. Returns null if the matrix is non-invertible.
    * This method is designed for affine transformations (rotation, translation, uniform scaling).
@@ -228,9 +292,9 @@ public class Matrix4 {
   public Matrix4 inverse() {
     // Extract the upper 3x3 rotation/scale part
     Matrix3 upperLeft = new Matrix3(
-      m[0][0], m[0][1], m[0][2],
-      m[1][0], m[1][1], m[1][2],
-      m[2][0], m[2][1], m[2][2]
+      m[0], m[1], m[2],
+      m[4], m[5], m[6],
+      m[8], m[9], m[10]
     );
     Matrix3 invUpperLeft = upperLeft.inverse(); // This performs its own determinant check
     
@@ -242,20 +306,20 @@ public class Matrix4 {
     Matrix4 inv = new Matrix4(); // Resulting inverse matrix, initialized to identity
     
     // Set the upper-left 3x3 of the inverse matrix (R^-1)
-    inv.m[0][0] = invUpperLeft.get(0,0); inv.m[0][1] = invUpperLeft.get(0,1); inv.m[0][2] = invUpperLeft.get(0,2);
-    inv.m[1][0] = invUpperLeft.get(1,0); inv.m[1][1] = invUpperLeft.get(1,1); inv.m[1][2] = invUpperLeft.get(1,2);
-    inv.m[2][0] = invUpperLeft.get(2,0); inv.m[2][1] = invUpperLeft.get(2,1); inv.m[2][2] = invUpperLeft.get(2,2);
+    inv.m[0] = invUpperLeft.get(0,0); inv.m[1] = invUpperLeft.get(0,1); inv.m[2] = invUpperLeft.get(0,2);
+    inv.m[4] = invUpperLeft.get(1,0); inv.m[5] = invUpperLeft.get(1,1); inv.m[6] = invUpperLeft.get(1,2);
+    inv.m[8] = invUpperLeft.get(2,0); inv.m[9] = invUpperLeft.get(2,1); inv.m[10] = invUpperLeft.get(2,2);
     
     // Calculate the inverse translation part: -R^-1 * t
-    Vector3 translation = new Vector3(m[0][3], m[1][3], m[2][3]);
+    Vector3 translation = new Vector3(m[3], m[7], m[11]);
     Vector3 invTranslation = invUpperLeft.transform(translation).negate();
     
-    inv.m[0][3] = invTranslation.x;
-    inv.m[1][3] = invTranslation.y;
-    inv.m[2][3] = invTranslation.z;
+    inv.m[3] = invTranslation.x;
+    inv.m[7] = invTranslation.y;
+    inv.m[11] = invTranslation.z;
     
     // Bottom row remains [0, 0, 0, 1] for affine transformations
-    inv.m[3][0] = 0.0; inv.m[3][1] = 0.0; inv.m[3][2] = 0.0; inv.m[3][3] = 1.0;
+    inv.m[12] = 0.0; inv.m[13] = 0.0; inv.m[14] = 0.0; inv.m[15] = 1.0;
     
     inv.updateTransformValues();
     return inv;
@@ -274,9 +338,9 @@ public class Matrix4 {
   public Matrix4 inverseTransposeForNormal() {
     // Extract the upper 3x3 part
     Matrix3 upperLeft = new Matrix3(
-      m[0][0], m[0][1], m[0][2],
-      m[1][0], m[1][1], m[1][2],
-      m[2][0], m[2][1], m[2][2]
+      m[0], m[1], m[2],
+      m[4], m[5], m[6],
+      m[8], m[9], m[10]
     );
     
     // Compute its inverse
@@ -412,10 +476,10 @@ public class Matrix4 {
   // Matrix4 sınıfına bu metodu ekleyin
   public Matrix4 transpose() {
     Matrix4 result = new Matrix4(
-      m[0][0], m[1][0], m[2][0], m[3][0],
-      m[0][1], m[1][1], m[2][1], m[3][1],
-      m[0][2], m[1][2], m[2][2], m[3][2],
-      m[0][3], m[1][3], m[2][3], m[3][3]
+      m[0], m[4], m[8], m[12],
+      m[1], m[5], m[9], m[13],
+      m[2], m[6], m[10], m[14],
+      m[3], m[7], m[11], m[15]
     );
     result.updateTransformValues();
     return result;
@@ -446,7 +510,7 @@ public class Matrix4 {
     Matrix4 result = new Matrix4();
     for (int i = 0; i < 4; i++) {
       for (int j = 0; j < 4; j++) {
-        result.m[i][j] = this.m[i][j] * scalar;
+        result.m[i * 4 + j] = this.m[i * 4 + j] * scalar;
       }
     }
     result.updateTransformValues();
@@ -458,9 +522,9 @@ public class Matrix4 {
    */
   private void updateTransformValues() {
     // Extract translation
-    this.tx = m[0][3];
-    this.ty = m[1][3];
-    this.tz = m[2][3];
+    this.tx = m[3];
+    this.ty = m[7];
+    this.tz = m[11];
     
     // Extract scale
     this.sx = getScaleX();
@@ -470,9 +534,9 @@ public class Matrix4 {
     // Extract rotation (simplified - for demonstration)
     // In a real implementation, you'd use more complex Euler angle extraction
     if (sx > 0 && sy > 0 && sz > 0) {
-      this.ry = Math.toDegrees(Math.asin(-m[2][0] / sx));
-      this.rx = Math.toDegrees(Math.atan2(m[2][1] / sy, m[2][2] / sz));
-      this.rz = Math.toDegrees(Math.atan2(m[1][0] / sx, m[0][0] / sx));
+      this.ry = Math.toDegrees(Math.asin(-m[8] / sx));
+      this.rx = Math.toDegrees(Math.atan2(m[9] / sy, m[10] / sz));
+      this.rz = Math.toDegrees(Math.atan2(m[4] / sx, m[0] / sx));
     }
   }
   
@@ -655,7 +719,7 @@ public class Matrix4 {
     for (int i = 0; i < 4; i++) {
       sb.append("| ");
       for (int j = 0; j < 4; j++) {
-        sb.append(String.format("%8.4f", m[i][j])).append(" ");
+        sb.append(String.format("%8.4f", m[i * 4 + j])).append(" ");
       }
       sb.append("|\n");
     }
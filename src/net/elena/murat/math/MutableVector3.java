@@ -0,0 +1,179 @@
+package net.elena.murat.math;
+
+/**
+ * Mutable 3D vector for allocation-free math in hot paths.
+ * <p>
+ * Intersection routines and the tracer keep a few of these as scratch space
+ * and overwrite them in place instead of creating a new {@link Vector3} or
+ * {@link Point3} for every intermediate result. All operations change this
+ * vector and return it, so calls can be chained.
+ * </p>
+ * The arithmetic matches the immutable classes exactly, so switching a routine
+ * from {@link Vector3} to this class does not change its results.
+ * An instance is not thread-safe; keep one per thread or per call.
+ */
+public final class MutableVector3 {
+  public double x, y, z;
+
+  public MutableVector3() {
+    this(0.0, 0.0, 0.0);
+  }
+
+  public MutableVector3(double x, double y, double z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  public MutableVector3 set(double x, double y, double z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+    return this;
+  }
+
+  public MutableVector3 set(Vector3 v) {
+    return set(v.x, v.y, v.z);
+  }
+
+  public MutableVector3 set(Point3 p) {
+    return set(p.x, p.y, p.z);
+  }
+
+  public MutableVector3 set(MutableVector3 v) {
+    return set(v.x, v.y, v.z);
+  }
+
+  /**
+   * Sets this vector to {@code to - from}.
+   */
+  public MutableVector3 setSub(Point3 to, Point3 from) {
+    return set(to.x - from.x, to.y - from.y, to.z - from.z);
+  }
+
+  /**
+   * Sets this vector to {@code a × b}. Either argument may be this vector.
+   */
+  public MutableVector3 setCross(MutableVector3 a, MutableVector3 b) {
+    return set(
+      a.y * b.z - a.z * b.y,
+      a.z * b.x - a.x * b.z,
+      a.x * b.y - a.y * b.x
+    );
+  }
+
+  public MutableVector3 setCross(MutableVector3 a, Vector3 b) {
+    return set(
+      a.y * b.z - a.z * b.y,
+      a.z * b.x - a.x * b.z,
+      a.x * b.y - a.y * b.x
+    );
+  }
+
+  /**
+   * Sets this vector to {@code origin + direction * t}, the same point
+   * {@link Ray#pointAtParameter(double)} returns.
+   */
+  public MutableVector3 setPointAt(Point3 origin, Vector3 direction, double t) {
+    return set(origin.x + direction.x * t, origin.y + direction.y * t, origin.z + direction.z * t);
+  }
+
+  public MutableVector3 add(double dx, double dy, double dz) {
+    x += dx;
+    y += dy;
+    z += dz;
+    return this;
+  }
+
+  public MutableVector3 add(Vector3 v) {
+    return add(v.x, v.y, v.z);
+  }
+
+  public MutableVector3 add(MutableVector3 v) {
+    return add(v.x, v.y, v.z);
+  }
+
+  public MutableVector3 sub(Vector3 v) {
+    return set(x - v.x, y - v.y, z - v.z);
+  }
+
+  public MutableVector3 sub(MutableVector3 v) {
+    return set(x - v.x, y - v.y, z - v.z);
+  }
+
+  public MutableVector3 scale(double s) {
+    x *= s;
+    y *= s;
+    z *= s;
+    return this;
+  }
+
+  /**
+   * Adds {@code v * s} to this vector.
+   */
+  public MutableVector3 addScaled(Vector3 v, double s) {
+    return add(v.x * s, v.y * s, v.z * s);
+  }
+
+  public MutableVector3 addScaled(MutableVector3 v, double s) {
+    return add(v.x * s, v.y * s, v.z * s);
+  }
+
+  public MutableVector3 negate() {
+    return set(-x, -y, -z);
+  }
+
+  /**
+   * Normalizes in place. A zero vector stays zero, as in {@link Vector3#normalize()}.
+   */
+  public MutableVector3 normalize() {
+    double len = length();
+    if (len > 0) {
+      return set(x / len, y / len, z / len);
+    }
+    return set(0, 0, 0);
+  }
+
+  public double dot(double ox, double oy, double oz) {
+    return x * ox + y * oy + z * oz;
+  }
+
+  public double dot(Vector3 v) {
+    return dot(v.x, v.y, v.z);
+  }
+
+  public double dot(MutableVector3 v) {
+    return dot(v.x, v.y, v.z);
+  }
+
+  public double length() {
+    return Math.sqrt(x * x + y * y + z * z);
+  }
+
+  public double lengthSquared() {
+    return x * x + y * y + z * z;
+  }
+
+  public double get(int axis) {
+    switch(axis) {
+      case 0: return x;
+      case 1: return y;
+      case 2: return z;
+      default: throw new IllegalArgumentException("Axis must be 0, 1 or 2");
+    }
+  }
+
+  public Vector3 toVector3() {
+    return new Vector3(x, y, z);
+  }
+
+  public Point3 toPoint3() {
+    return new Point3(x, y, z);
+  }
+
+  @Override
+  public String toString() {
+    return "MutableVector3(" + x + ", " + y + ", " + z + ")";
+  }
+
+}
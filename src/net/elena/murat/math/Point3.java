@@ -38,6 +38,13 @@ public class Point3 {
     return new Point3(x + p.x, y + p.y, z + p.z);
   }
   
+  /**
+   * Same as {@code add(v.scale(s))} without the intermediate vector.
+   */
+  public Point3 addScaled(Vector3 v, double s) {
+    return new Point3(x + v.x * s, y + v.y * s, z + v.z * s);
+  }
+  
   public Vector3 subtract(Point3 other) {
     return new Vector3(x - other.x, y - other.y, z - other.z);
   }
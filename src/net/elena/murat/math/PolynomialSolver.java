@@ -4,11 +4,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class PolynomialSolver {
   public static final double EPS = 1e-10; // Tighter tolerance
-  private static final double CUBIC_EPS = 1e-8; // Special tolerance for cubic equations
   
   // Helper method: Filters numbers close to zero
   private static boolean isApproxZero(double val, double epsilon) {
@@ -28,117 +26,162 @@ public class PolynomialSolver {
   // Quadratic equation solver (ax² + bx + c = 0)
   public static List<Double> solveQuadratic(double a, double b, double c) {
     if (isApproxZero(a, EPS)) return solveLinear(b, c);
-    
-    double discriminant = b*b - 4*a*c;
-    List<Double> roots = new ArrayList<>();
-    
-    if (discriminant < -EPS) return roots;
-    
-    if (isApproxZero(discriminant, EPS)) {
-      roots.add(-b / (2*a));
-      } else {
-      double sqrtDisc = Math.sqrt(discriminant);
-      roots.add((-b + sqrtDisc) / (2*a));
-      roots.add((-b - sqrtDisc) / (2*a));
-    }
-    return roots;
+    double[] roots = new double[2];
+    return toList(roots, solveQuadratic(a, b, c, roots));
   }
   
   // Cubic equation solver (x³ + a2x² + a1x + a0 = 0)
   public static List<Double> solveCubic(double a2, double a1, double a0) {
-    // Convert to depressed form: y³ + py + q = 0
-    double p = a1 - a2*a2/3.0;
-    double q = a0 - a2*a1/3.0 + 2*a2*a2*a2/27.0;
+    double[] roots = new double[4];
+    List<Double> result = toList(roots, solveCubic(a2, a1, a0, roots));
+    return result.stream().distinct().collect(Collectors.toList());
+  }
+  
+  // Quartic equation solver (x⁴ + a3x³ + a2x² + a1x + a0 = 0)
+  public static List<Double> solveQuartic(double a3, double a2, double a1, double a0) {
+    double[] roots = new double[4];
+    List<Double> result = toList(roots, solveQuartic(a3, a2, a1, a0, roots));
+    return result.stream().distinct().collect(Collectors.toList());
+  }
+  
+  private static List<Double> toList(double[] roots, int count) {
+    List<Double> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) list.add(roots[i]);
+    return list;
+  }
+  
+  /**
+   * Real roots of ax² + bx + c = 0, without allocating.
+   * Uses the cancellation-free form, so small roots keep their precision.
+   * @param roots Receives the roots, at least 2 long
+   * @return Number of roots written: 0, 1 (double or linear root) or 2
+   */
+  public static int solveQuadratic(double a, double b, double c, double[] roots) {
+    if (isApproxZero(a, EPS)) {
+      if (isApproxZero(b, EPS)) return 0;
+      roots[0] = -c / b;
+      return 1;
+    }
     
-    // Special case: p ≈ 0
-    if (isApproxZero(p, CUBIC_EPS)) {
-      return solveLinear(1.0, q).stream()
-      .map(y -> y - a2/3.0)
-      .collect(Collectors.toList());
+    double discriminant = b*b - 4*a*c;
+    if (discriminant < -EPS) return 0;
+    
+    if (isApproxZero(discriminant, EPS)) {
+      roots[0] = -b / (2*a);
+      return 1;
     }
     
-    double discriminant = q*q/4.0 + p*p*p/27.0;
-    List<Double> roots = new ArrayList<>();
+    double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+    roots[0] = q / a;
+    roots[1] = (q != 0.0) ? c / q : -roots[0];
+    return 2;
+  }
+  
+  /**
+   * Real roots of x³ + a2x² + a1x + a0 = 0, without allocating.
+   * @param roots Receives the roots, at least 3 long; repeated roots may appear twice
+   * @return Number of roots written: 1 or 3
+   */
+  public static int solveCubic(double a2, double a1, double a0, double[] roots) {
+    double q = (a2*a2 - 3*a1) / 9.0;
+    double r = (2*a2*a2*a2 - 9*a2*a1 + 27*a0) / 54.0;
     double offset = a2 / 3.0;
+    double q3 = q*q*q;
     
-    if (discriminant > EPS) { // 1 real root
-      double u = cbrt(-q/2.0 + Math.sqrt(discriminant));
-      double v = cbrt(-q/2.0 - Math.sqrt(discriminant));
-      roots.add(u + v - offset);
-    }
-    else if (discriminant < -EPS) { // 3 real roots
-      double angle = Math.acos(3*q/(2*p)*Math.sqrt(-3/p));
-      for (int k = 0; k < 3; k++) {
-        roots.add(2*Math.sqrt(-p/3.0) *
-        Math.cos((angle - 2*k*Math.PI)/3.0) - offset);
-      }
-    }
-    else { // Coincident roots
-      double root = cbrt(q/2.0) - offset;
-      Collections.addAll(roots, root, root, root);
+    if (r*r < q3) { // 3 real roots
+      double theta = Math.acos(Math.max(-1.0, Math.min(1.0, r / Math.sqrt(q3))));
+      double m = -2.0 * Math.sqrt(q);
+      roots[0] = m * Math.cos(theta / 3.0) - offset;
+      roots[1] = m * Math.cos((theta + 2*Math.PI) / 3.0) - offset;
+      roots[2] = m * Math.cos((theta - 2*Math.PI) / 3.0) - offset;
+      return 3;
     }
     
-    return roots.stream().distinct().collect(Collectors.toList());
+    double a = -Math.copySign(Math.cbrt(Math.abs(r) + Math.sqrt(r*r - q3)), r);
+    double b = (a != 0.0) ? q / a : 0.0;
+    roots[0] = a + b - offset;
+    return 1;
   }
   
-  public static List<Double> solveQuartic(double a3, double a2, double a1, double a0) {
+  /**
+   * Real roots of x⁴ + a3x³ + a2x² + a1x + a0 = 0, without allocating.
+   * <p>
+   * Ferrari's method on the depressed quartic, using the largest root of
+   * the resolvent cubic, then two Newton steps per root on the original
+   * polynomial to win back the precision the closed form loses.
+   * </p>
+   * @param roots Receives the roots in no particular order, at least 4 long
+   * @return Number of roots written, 0 to 4
+   */
+  public static int solveQuartic(double a3, double a2, double a1, double a0, double[] roots) {
+    double shift = a3 / 4.0;
     double p = a2 - 3*a3*a3/8.0;
     double q = a1 - a2*a3/2.0 + a3*a3*a3/8.0;
     double r = a0 - a1*a3/4.0 + a2*a3*a3/16.0 - 3*a3*a3*a3*a3/256.0;
     
-    // Biquadratic case (q ≈ 0)
-    if (isApproxZero(q, EPS*10)) {
-      List<Double> roots = solveQuadratic(1.0, p, r).stream()
-      .filter(z -> z >= -EPS)
-      .flatMap(z -> {
-          double sqrtZ = Math.sqrt(z);
-          return isApproxZero(sqrtZ, EPS) ?
-          Collections.singletonList(sqrtZ).stream() :
-          Stream.of(sqrtZ, -sqrtZ);
-      })
-      .collect(Collectors.toList());
-      
-      return roots.stream()
-      .map(y -> y - a3/4.0)
-      .collect(Collectors.toList());
-    }
-    
-    // Ferrari's method
-    List<Double> cubicRoots = solveCubic(
-      2*p,
-      p*p - 4*r,
-      -q*q
-    ).stream()
-    .filter(z -> z >= -EPS)
-    .collect(Collectors.toList());
-    
-    if (cubicRoots.isEmpty()) return Collections.emptyList();
-    
-    double z = cubicRoots.get(0);
-    double sqrt2z = Math.sqrt(2*z);
+    // Resolvent cubic u³ + 2pu² + (p² - 4r)u - q² = 0; take its largest root
+    int cubicCount = solveCubic(2*p, p*p - 4*r, -q*q, roots);
+    double u = roots[0];
+    for (int i = 1; i < cubicCount; i++) u = Math.max(u, roots[i]);
     
-    // Two quadratic equations
-    List<Double> roots = new ArrayList<>();
-    double[] params = {
-      sqrt2z, z + p/2.0 + q/(2*sqrt2z),
-      -sqrt2z, z + p/2.0 - q/(2*sqrt2z)
-    };
-    
-    for (int i = 0; i < 2; i++) {
-      solveQuadratic(1.0, params[2*i], params[2*i+1]).stream()
-      .map(y -> y - a3/4.0)
-      .forEach(roots::add);
+    int count = 0;
+    if (u <= EPS) {
+      // Biquadratic: y⁴ + py² + r = 0
+      double disc = p*p - 4*r;
+      if (disc < 0) return 0;
+      double sqrtDisc = Math.sqrt(disc);
+      for (int sign = -1; sign <= 1; sign += 2) {
+        double z = (-p + sign * sqrtDisc) / 2.0;
+        if (z < -EPS) continue;
+        double y = Math.sqrt(Math.max(0.0, z));
+        roots[count++] = y - shift;
+        if (y > 0) roots[count++] = -y - shift;
+      }
+    } else {
+      // (y² + sy + A - B)(y² - sy + A + B) with s = √u
+      double s = Math.sqrt(u);
+      double halfSum = (p + u) / 2.0;
+      double b = q / (2*s);
+      count = addQuadraticRoots(s, halfSum - b, shift, roots, count);
+      count = addQuadraticRoots(-s, halfSum + b, shift, roots, count);
     }
     
-    return roots.stream()
-    .filter(t -> !Double.isNaN(t))
-    .distinct()
-    .collect(Collectors.toList());
+    for (int i = 0; i < count; i++) {
+      roots[i] = polishQuartic(a3, a2, a1, a0, roots[i]);
+    }
+    return count;
   }
   
-  // Cube root calculation (sign-preserving)
-  private static double cbrt(double x) {
-    return x < 0 ? -Math.pow(-x, 1.0/3.0) : Math.pow(x, 1.0/3.0);
+  // Adds the roots of y² + by + c = 0, minus shift, to roots[count..]
+  private static int addQuadraticRoots(double b, double c, double shift, double[] roots, int count) {
+    double discriminant = b*b - 4*c;
+    if (discriminant < 0) {
+      // Slightly negative from rounding: a double root
+      if (discriminant > -EPS * Math.max(1.0, b*b)) {
+        roots[count++] = -b / 2.0 - shift;
+      }
+      return count;
+    }
+    double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+    if (q == 0.0) {
+      roots[count++] = -shift;
+      return count;
+    }
+    roots[count++] = q - shift;
+    roots[count++] = c / q - shift;
+    return count;
+  }
+  
+  private static double polishQuartic(double a3, double a2, double a1, double a0, double x) {
+    for (int i = 0; i < 2; i++) {
+      double f = (((x + a3) * x + a2) * x + a1) * x + a0;
+      double df = ((4*x + 3*a3) * x + 2*a2) * x + a1;
+      if (df == 0.0) break;
+      double next = x - f / df;
+      if (Double.isNaN(next) || Double.isInfinite(next)) break;
+      x = next;
+    }
+    return x;
   }
   
 }
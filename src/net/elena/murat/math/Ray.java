@@ -35,11 +35,30 @@ public class Ray {
    * @param energy Initial energy of the ray (0.0 to 1.0).
    */
   public Ray(Point3 origin, Vector3 direction, double energy) {
+    this(origin, direction, energy, true);
+  }
+  
+  /**
+   * @param normalize False when the direction is already unit length
+   */
+  private Ray(Point3 origin, Vector3 direction, double energy, boolean normalize) {
     this.origin = origin;
-    this.direction = direction.normalize();
+    this.direction = normalize ? direction.normalize() : direction;
     this.energy = Math.max(0, Math.min(1, energy)); // clamp
   }
   
+  /**
+   * Creates a ray from a direction that is already unit length, skipping
+   * the normalization the constructors do. Used for reflected and
+   * refracted rays whose directions are built from unit vectors.
+   * @param origin The origin point of the ray.
+   * @param unitDirection Normalized direction, used as is.
+   * @return New Ray with full energy.
+   */
+  public static Ray fromUnitDirection(Point3 origin, Vector3 unitDirection) {
+    return new Ray(origin, unitDirection, 1.0, false);
+  }
+  
   /**
    * Gets the current energy of the ray.
    * @return Energy value between 0.0 and 1.0.
@@ -79,7 +98,17 @@ public class Ray {
   }
   
   public Point3 pointAtParameter(double t) {
-    return origin.add(direction.scale(t));
+    return origin.addScaled(direction, t);
+  }
+  
+  /**
+   * Writes the point at distance t into out instead of allocating.
+   * @param t Distance along the ray
+   * @param out Receives the point
+   * @return out
+   */
+  public MutableVector3 pointAtParameter(double t, MutableVector3 out) {
+    return out.setPointAt(origin, direction, t);
   }
   
   /**
@@ -38,6 +38,13 @@ public class Box implements EMShape {
   
   private String name = "box";
   
+  // Local face normals, indexed by face number
+  private static final Vector3[] FACE_NORMALS = {
+    new Vector3(1, 0, 0), new Vector3(-1, 0, 0),
+    new Vector3(0, 1, 0), new Vector3(0, -1, 0),
+    new Vector3(0, 0, 1), new Vector3(0, 0, -1)
+  };
+  
   /**
    * Constructs a Box with specified dimensions.
    * The prism is initially axis-aligned and centered at (0,0,0) in its local space.
@@ -124,10 +131,9 @@ public class Box implements EMShape {
     }
     
     // 1. Transform the ray into the prism's local space
-    Ray localRay = new Ray(
-      inverseTransform.transformPoint(ray.getOrigin()),
-      inverseTransform.transformVector(ray.getDirection()).normalize() // Normalize direction after transformation
-    );
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
     double tMin = Double.NEGATIVE_INFINITY;
     double tMax = Double.POSITIVE_INFINITY;
@@ -139,13 +145,13 @@ public class Box implements EMShape {
     
     // Intersection with X-planes (slab method)
     // Handle cases where ray direction component is zero to avoid division by zero
-    if (Math.abs(localRay.getDirection().x) < Ray.EPSILON) {
-      if (localRay.getOrigin().x < -halfWidth || localRay.getOrigin().x > halfWidth) {
+    if (Math.abs(localDirection.x) < Ray.EPSILON) {
+      if (localOrigin.x < -halfWidth || localOrigin.x > halfWidth) {
         return Double.POSITIVE_INFINITY; // Ray is parallel and outside the slab
       }
       } else {
-      double t1 = (-halfWidth - localRay.getOrigin().x) / localRay.getDirection().x;
-      double t2 = (halfWidth - localRay.getOrigin().x) / localRay.getDirection().x;
+      double t1 = (-halfWidth - localOrigin.x) / localDirection.x;
+      double t2 = (halfWidth - localOrigin.x) / localDirection.x;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; } // Ensure t1 is min, t2 is max
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -153,13 +159,13 @@ public class Box implements EMShape {
       }
     
     // Intersection with Y-planes (slab method)
-    if (Math.abs(localRay.getDirection().y) < Ray.EPSILON) {
-      if (localRay.getOrigin().y < -halfHeight || localRay.getOrigin().y > halfHeight) {
+    if (Math.abs(localDirection.y) < Ray.EPSILON) {
+      if (localOrigin.y < -halfHeight || localOrigin.y > halfHeight) {
         return Double.POSITIVE_INFINITY;
       }
       } else {
-      double t1 = (-halfHeight - localRay.getOrigin().y) / localRay.getDirection().y;
-      double t2 = (halfHeight - localRay.getOrigin().y) / localRay.getDirection().y;
+      double t1 = (-halfHeight - localOrigin.y) / localDirection.y;
+      double t2 = (halfHeight - localOrigin.y) / localDirection.y;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -167,13 +173,13 @@ public class Box implements EMShape {
     }
     
     // Intersection with Z-planes (slab method)
-    if (Math.abs(localRay.getDirection().z) < Ray.EPSILON) {
-      if (localRay.getOrigin().z < -halfDepth || localRay.getOrigin().z > halfDepth) {
+    if (Math.abs(localDirection.z) < Ray.EPSILON) {
+      if (localOrigin.z < -halfDepth || localOrigin.z > halfDepth) {
         return Double.POSITIVE_INFINITY;
       }
       } else {
-      double t1 = (-halfDepth - localRay.getOrigin().z) / localRay.getDirection().z;
-      double t2 = (halfDepth - localRay.getOrigin().z) / localRay.getDirection().z;
+      double t1 = (-halfDepth - localOrigin.z) / localDirection.z;
+      double t2 = (halfDepth - localOrigin.z) / localDirection.z;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -274,13 +280,49 @@ public class Box implements EMShape {
     }
     
     Point3 localPoint = this.getInverseTransform().transformPoint(worldPoint);
+    return this.inverseTransposeTransformForNormal.transformVector(FACE_NORMALS[faceAt(localPoint)]).normalize();
+  }
+  
+  /**
+   * Fills the hit with the local point, the face index (the order of
+   * FACE_NORMALS: +X, -X, +Y, -Y, +Z, -Z) and UV running 0..1 across that face.
+   */
+  @Override
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    if (inverseTransform == null || inverseTransposeTransformForNormal == null) {
+      EMShape.super.fillHit(ray, t, hit);
+      return;
+    }
     
+    Point3 worldPoint = ray.pointAtParameter(t);
+    Point3 localPoint = inverseTransform.transformPoint(worldPoint);
+    int face = faceAt(localPoint);
+    
+    hit.reset(this, t, worldPoint);
+    hit.setLocalPoint(inverseTransform, localPoint);
+    hit.setNormal(inverseTransposeTransformForNormal.transformVector(FACE_NORMALS[face]).normalize(),
+      ray.getDirection());
+    hit.setPrimitive(face);
+    
+    double u = (localPoint.x + width / 2.0) / width;
+    double v = (localPoint.y + height / 2.0) / height;
+    double w = (localPoint.z + depth / 2.0) / depth;
+    switch (face >> 1) {
+      case 0: hit.setUV(w, v); break;
+      case 1: hit.setUV(u, w); break;
+      default: hit.setUV(u, v); break;
+    }
+  }
+  
+  /**
+   * Face nearest to a local point, always picking the closest plane.
+   * @return Index into FACE_NORMALS
+   */
+  private int faceAt(Point3 localPoint) {
     double halfWidth = width / 2.0;
     double halfHeight = height / 2.0;
     double halfDepth = depth / 2.0;
     
-    double epsilon = 1e-5;
-    
     // Basit ve güvenli yaklaşım - her zaman en yakın yüzeyi seç
     double[] dists = {
       Math.abs(localPoint.x - halfWidth), Math.abs(localPoint.x + halfWidth),
@@ -294,20 +336,9 @@ public class Box implements EMShape {
         minIndex = i;
       }
     }
-    
-    Vector3 localNormal;
-    switch(minIndex) {
-      case 0: localNormal = new Vector3(1, 0, 0); break;
-      case 1: localNormal = new Vector3(-1, 0, 0); break;
-      case 2: localNormal = new Vector3(0, 1, 0); break;
-      case 3: localNormal = new Vector3(0, -1, 0); break;
-      case 4: localNormal = new Vector3(0, 0, 1); break;
-      case 5: localNormal = new Vector3(0, 0, -1); break;
-      default: localNormal = new Vector3(0, 1, 0);
-    }
-    
-    return this.inverseTransposeTransformForNormal.transformVector(localNormal).normalize();
+    return minIndex;
   }
+
   
   @Override
   public void setAnimationTransforms(Matrix4[] atm) {
@@ -318,6 +349,18 @@ public class Box implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the centered local box transformed to world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double hw = Math.abs(width) / 2.0;
+    double hh = Math.abs(height) / 2.0;
+    double hd = Math.abs(depth) / 2.0;
+    return BoundingBox.fromLocal(-hw, -hh, -hd, hw, hh, hd, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -1,17 +1,37 @@
 package net.elena.murat.shape;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import net.elena.murat.math.*;
 import net.elena.murat.material.Material;
 
+/**
+ * Base of the CSG operations. Rays are evaluated against an n-ary list of
+ * operands: nested nodes of a kind that can be merged into this one (see
+ * {@link #absorbs}) contribute their operands directly. Operands whose
+ * bounds the ray misses are not queried, and the operand intervals are
+ * merged in per-thread primitive buffers. Each surface of the result keeps
+ * the Intersection of the operand it came from, normal facing out of the
+ * combined solid.
+ */
 public abstract class CSGShape implements EMShape {
   protected final EMShape left;
   protected final EMShape right;
   
+  // getNormalAt uses the last hit when the point is within this of it
+  private static final double HIT_TOLERANCE = 1e-9;
+  private static final double PROBE_DISTANCE = 1e-3;
+  
   private Matrix4 transform;
   private Matrix4 inverseTransform;
+  private Matrix4 normalTransform;
+  
+  // Replaced whole by refreshOperands, read once per ray
+  private volatile Operands operands;
   
   private Color shadowColor = Color.BLACK;
   private double shadowBias = 0.001;
@@ -32,12 +52,15 @@ public abstract class CSGShape implements EMShape {
     this.right = right;
     this.transform = Matrix4.identity();
     this.inverseTransform = Matrix4.identity();
+    this.normalTransform = Matrix4.identity();
+    refreshOperands();
   }
   
   @Override
   public void setTransform(Matrix4 transform) {
     this.transform = new Matrix4(transform);
     this.inverseTransform = transform.inverse();
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
   }
   
   @Override
@@ -62,74 +85,437 @@ public abstract class CSGShape implements EMShape {
   
   @Override
   public List<IntersectionInterval> intersectAll(Ray ray) {
-    // 1. Ray to CSG's local space
+    Ray localRay = toLocal(ray);
+    SweepStack stack = SWEEPS.get();
+    Sweep s = stack.push();
+    try {
+      if (!sweep(localRay, s) || s.boundaries < 2) {
+        return Collections.emptyList();
+      }
+      
+      List<IntersectionInterval> intervals = new ArrayList<>(s.boundaries / 2);
+      // A trailing entry without an exit only comes from malformed operand intervals
+      for (int b = 0; b + 1 < s.boundaries; b += 2) {
+        Intersection in = s.boundaryHit(b);
+        Intersection out = s.boundaryHit(b + 1);
+        intervals.add(new IntersectionInterval(s.boundaryT[b], s.boundaryT[b + 1], in, out));
+      }
+      return intervals;
+    } finally {
+      stack.pop();
+    }
+  }
+  
+  /**
+   * First surface of the combined solid in front of the ray: the entry of
+   * the first interval, or its exit for a ray starting inside. The hit
+   * and its normal are remembered for {@link #getNormalAt(Point3)}.
+   */
+  @Override
+  public double intersect(Ray ray) {
+    Ray localRay = toLocal(ray);
+    SweepStack stack = SWEEPS.get();
+    Sweep s = stack.push();
+    try {
+      if (!sweep(localRay, s)) return Double.POSITIVE_INFINITY;
+      
+      for (int b = 0; b < s.boundaries; b++) {
+        double t = s.boundaryT[b];
+        if (t > Ray.EPSILON) {
+          Intersection hit = s.hit[s.boundaryEvent[b]];
+          if (hit != null && hit.getNormal() != null) {
+            Vector3 n = hit.getNormal();
+            double sign = s.boundaryFlip[b] ? -1.0 : 1.0;
+            LAST_HIT.get().set(this, ray, t, sign * n.x, sign * n.y, sign * n.z);
+          }
+          return t;
+        }
+      }
+      return Double.POSITIVE_INFINITY;
+    } finally {
+      stack.pop();
+    }
+  }
+  
+  private Ray toLocal(Ray ray) {
     Point3 localOrigin = inverseTransform.transformPoint(ray.getOrigin());
     Vector3 localDirection = inverseTransform.transformVector(ray.getDirection()).normalize();
-    Ray localRay = new Ray(localOrigin, localDirection);
+    return new Ray(localOrigin, localDirection);
+  }
+  
+  /**
+   * Collects the operands' intervals along a local ray into s and sweeps
+   * them in ray order, keeping the points where the ray enters or leaves
+   * the combined solid.
+   * @return false if the ray misses the solid without a full sweep
+   */
+  private boolean sweep(Ray localRay, Sweep s) {
+    Operands ops = operands;
+    int n = ops.shapes.length;
+    s.reset(n);
+    
+    Point3 o = localRay.getOrigin();
+    Vector3 d = localRay.getDirection();
+    double ix = 1.0 / d.x, iy = 1.0 / d.y, iz = 1.0 / d.z;
+    
+    for (int i = 0; i < n; i++) {
+      List<IntersectionInterval> list = null;
+      int b = i * 6;
+      if (!ops.bounded[i] || BoundingBox.intersects(o.x, o.y, o.z, ix, iy, iz,
+          ops.bounds[b], ops.bounds[b + 1], ops.bounds[b + 2],
+          ops.bounds[b + 3], ops.bounds[b + 4], ops.bounds[b + 5])) {
+        list = ops.shapes[i].intersectAll(localRay);
+      }
+      if (list == null || list.isEmpty()) {
+        if (requires(i)) return false;
+        continue;
+      }
+      for (int k = 0; k < list.size(); k++) {
+        IntersectionInterval interval = list.get(k);
+        s.addEvent(interval.tIn, i, true, interval.in);
+        s.addEvent(interval.tOut, i, false, interval.out);
+      }
+    }
     
-    // 2. Intersects of inner shapes
-    List<IntersectionInterval> a = left.intersectAll(localRay);
-    List<IntersectionInterval> b = right.intersectAll(localRay);
+    s.sortEvents();
     
-    // 3. Combine
-    return combine(a, b);
+    boolean keepThin = keepsThinIntervals();
+    boolean inside = false;
+    int insideCount = 0;
+    for (int k = 0; k < s.count; k++) {
+      int e = s.order[k];
+      int operand = s.code[e] >> 1;
+      boolean entry = (s.code[e] & 1) != 0;
+      
+      if (entry) {
+        if (s.depth[operand]++ == 0) insideCount++;
+      } else {
+        if (s.depth[operand] == 0) continue;
+        if (--s.depth[operand] == 0) insideCount--;
+      }
+      
+      boolean now = contains(s.depth[0] > 0, insideCount, n);
+      if (now != inside) {
+        // Leaving the solid through an operand's entry, or entering it
+        // through an exit, shows that surface from the other side
+        s.addBoundary(e, now, now != entry, keepThin);
+        inside = now;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Whether a point is inside the combined solid.
+   * @param insideFirst Whether it is inside the first operand
+   * @param insideCount Number of operands it is inside, the first included
+   * @param operandCount Number of operands
+   */
+  protected abstract boolean contains(boolean insideFirst, int insideCount, int operandCount);
+  
+  /**
+   * @return true if the solid is empty where operand index is, so a ray
+   * missing that operand misses the solid
+   */
+  protected abstract boolean requires(int index);
+  
+  /**
+   * Whether a child CSG node with identity transform can be merged into
+   * this node's operand list without changing the solid.
+   * @param isLeft Whether it is this node's left operand
+   */
+  protected abstract boolean absorbs(CSGShape child, boolean isLeft);
+  
+  /**
+   * @return true if the surface of operand index faces into the solid
+   */
+  protected boolean isSubtracted(int index) {
+    return false;
   }
   
-  protected abstract List<IntersectionInterval> combine(
-    List<IntersectionInterval> a,
-    List<IntersectionInterval> b
-  );
+  /**
+   * @return true to keep pieces of the result shorter than Ray.EPSILON,
+   * such as a plane's point interval in a union
+   */
+  protected boolean keepsThinIntervals() {
+    return false;
+  }
+  
+  /**
+   * Operands after merging nested nodes; see {@link #absorbs}. They are
+   * merged when the node is made and again by {@link #refreshOperands()}.
+   */
+  public List<EMShape> getOperands() {
+    return Collections.unmodifiableList(Arrays.asList(operands.shapes));
+  }
+  
+  /**
+   * Merges nested nodes again and takes the operands' current bounds, which
+   * rays are culled against, for this node and every CSG node below it.
+   * Call it after moving an operand; every scene freeze does it for the
+   * CSG shapes of the scene. Not to be called while the shape is rendered.
+   */
+  public void refreshOperands() {
+    List<EMShape> shapes = new ArrayList<>();
+    collect(left, true, shapes);
+    collect(right, false, shapes);
+    this.operands = new Operands(shapes.toArray(new EMShape[0]));
+  }
+  
+  private void collect(EMShape shape, boolean isLeft, List<EMShape> out) {
+    if (shape instanceof CSGShape) {
+      CSGShape child = (CSGShape) shape;
+      child.refreshOperands();
+      if (absorbs(child, isLeft) && child.getTransform().isIdentity()) {
+        Collections.addAll(out, child.operands.shapes);
+        return;
+      }
+    }
+    out.add(shape);
+  }
   
+  /**
+   * Bounds of the operands, combined in CSG local space and transformed to world space.
+   * @return World-space bounds for the current transform.
+   */
   @Override
-  public double intersect(Ray ray) {
-    List<IntersectionInterval> intervals = intersectAll(ray);
-    return intervals.isEmpty() ? -1 : intervals.get(0).tIn;
+  public BoundingBox getWorldBounds() {
+    BoundingBox a = left.getWorldBounds();
+    BoundingBox b = right.getWorldBounds();
+    return combineBounds(a, b).transform(transform);
+  }
+  
+  /**
+   * Combines the local bounds of both operands. Union is the safe default;
+   * subclasses narrow it when the operation allows.
+   * @param a Bounds of the left operand
+   * @param b Bounds of the right operand
+   * @return Bounds of the combined solid
+   */
+  protected BoundingBox combineBounds(BoundingBox a, BoundingBox b) {
+    if (a.isInfinite() || b.isInfinite()) {
+      return BoundingBox.INFINITE;
+    }
+    return a.union(b);
   }
   
   /**
    * Calculates the normal vector at a given point on the CSG shape's surface in WORLD coordinates.
-   * This is a placeholder implementation that uses the left operand's normal.
-   * For accurate results, CSG operations should calculate normals based on the surface hit.
+   * For the point found by the last {@link #intersect(Ray)} on this thread
+   * this is the normal carried by the operand interval that was hit. For
+   * other points each operand's surface is probed along its own normal
+   * and the nearest one is used.
    * @param worldPoint The point on the CSG shape's surface in world coordinates.
    * @return The normalized normal vector at that point in world coordinates.
    */
   @Override
   public Vector3 getNormalAt(Point3 worldPoint) {
-    // 1. Transform the world point to the CSG operation's local space
-    Point3 localPoint = inverseTransform.transformPoint(worldPoint);
+    LastHit hit = LAST_HIT.get();
+    Vector3 localNormal;
+    if (hit.owner == this
+      && Math.abs(worldPoint.x - hit.x) <= HIT_TOLERANCE
+      && Math.abs(worldPoint.y - hit.y) <= HIT_TOLERANCE
+      && Math.abs(worldPoint.z - hit.z) <= HIT_TOLERANCE) {
+      localNormal = new Vector3(hit.nx, hit.ny, hit.nz);
+    } else {
+      localNormal = probeNormal(inverseTransform.transformPoint(worldPoint));
+    }
+    return normalTransform.transformVector(localNormal).normalize();
+  }
+  
+  private Vector3 probeNormal(Point3 localPoint) {
+    EMShape[] shapes = operands.shapes;
+    Vector3 best = null;
+    double bestMiss = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < shapes.length; i++) {
+      Vector3 n = shapes[i].getNormalAt(localPoint);
+      if (n == null || n.lengthSquared() == 0.0) continue;
+      n = n.normalize();
+      
+      // A ray from just outside, back along the normal, lands right on the
+      // point only if the point is on this operand's surface
+      Ray probe = new Ray(localPoint.add(n.scale(PROBE_DISTANCE)), n.negate());
+      double miss = Math.abs(shapes[i].intersect(probe) - PROBE_DISTANCE);
+      if (miss < bestMiss) {
+        bestMiss = miss;
+        best = isSubtracted(i) ? n.negate() : n;
+      }
+    }
+    return (best != null) ? best : shapes[0].getNormalAt(localPoint);
+  }
+  
+  private static final class Operands {
+    final EMShape[] shapes;
+    final boolean[] bounded;
+    // Local bounds, 6 per operand
+    final double[] bounds;
+    
+    Operands(EMShape[] shapes) {
+      this.shapes = shapes;
+      this.bounded = new boolean[shapes.length];
+      this.bounds = new double[shapes.length * 6];
+      for (int i = 0; i < shapes.length; i++) {
+        BoundingBox box = shapes[i].getWorldBounds();
+        if (box == null || box.isInfinite()) continue;
+        bounded[i] = true;
+        bounds[i * 6] = box.minX;
+        bounds[i * 6 + 1] = box.minY;
+        bounds[i * 6 + 2] = box.minZ;
+        bounds[i * 6 + 3] = box.maxX;
+        bounds[i * 6 + 4] = box.maxY;
+        bounds[i * 6 + 5] = box.maxZ;
+      }
+    }
+  }
+  
+  /**
+   * Merge buffers for one CSG node. Grown on demand and reused for every
+   * ray on the thread.
+   */
+  private static final class Sweep {
+    // Operand interval ends: t, operand * 2 + 1 for an entry or + 0 for an exit, hit
+    double[] t = new double[16];
+    int[] code = new int[16];
+    Intersection[] hit = new Intersection[16];
+    int[] order = new int[16];
+    int count;
     
-    // 2. Determine which operand was hit and use its normal
-    // This is a simple heuristic: check the distance to the surfaces of left and right
-    // A more accurate method would be to know which interval was hit in intersectAll
-    Vector3 normalA = left.getNormalAt(localPoint);
-    Vector3 normalB = right.getNormalAt(localPoint);
+    // Intervals of each operand the sweep is inside
+    int[] depth = new int[4];
     
-    // Calculate the distance from the localPoint to the surfaces of A and B
-    // This is a crude approximation using the dot product with the normal
-    // A point is "on" a surface if it's very close to it
-    double distA = Math.abs(localPoint.subtract(left.getTransform().transformPoint(new Point3(0,0,0))).dot(normalA));
-    double distB = Math.abs(localPoint.subtract(right.getTransform().transformPoint(new Point3(0,0,0))).dot(normalB));
+    // Surfaces of the combined solid, alternately entries and exits
+    double[] boundaryT = new double[16];
+    int[] boundaryEvent = new int[16];
+    boolean[] boundaryFlip = new boolean[16];
+    int boundaries;
     
-    Vector3 localNormal;
-    if (distA < distB) {
-      // Hit on A's surface
-      localNormal = normalA;
-      } else {
-      // Hit on B's surface
-      // For DifferenceCSG, if we're on B's surface, the normal should point inwards
-      // because B is being subtracted
-      if (this instanceof DifferenceCSG) {
-        localNormal = normalB.negate();
-        } else {
-        localNormal = normalB;
+    void reset(int operandCount) {
+      if (depth.length < operandCount) depth = new int[operandCount];
+      Arrays.fill(depth, 0, operandCount, 0);
+      // Drop the previous ray's hits so they can be collected
+      Arrays.fill(hit, 0, count, null);
+      count = 0;
+      boundaries = 0;
+    }
+    
+    void addEvent(double time, int operand, boolean entry, Intersection h) {
+      if (count == t.length) {
+        int size = count * 2;
+        t = Arrays.copyOf(t, size);
+        code = Arrays.copyOf(code, size);
+        hit = Arrays.copyOf(hit, size);
+        order = new int[size];
+        boundaryT = Arrays.copyOf(boundaryT, size);
+        boundaryEvent = Arrays.copyOf(boundaryEvent, size);
+        boundaryFlip = Arrays.copyOf(boundaryFlip, size);
       }
+      t[count] = time;
+      code[count] = operand * 2 + (entry ? 1 : 0);
+      hit[count] = h;
+      count++;
     }
     
-    // 3. Transform the local normal back to world space
-    Matrix4 normalTransformMatrix = this.inverseTransform.inverseTransposeForNormal();
-    return normalTransformMatrix.transformVector(localNormal).normalize();
+    /**
+     * Insertion sort of the event order by t, entries first on ties so
+     * touching pieces join. There are rarely more than a dozen events.
+     */
+    void sortEvents() {
+      for (int i = 0; i < count; i++) {
+        int e = i;
+        int j = i - 1;
+        while (j >= 0 && before(e, order[j])) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = e;
+      }
+    }
+    
+    private boolean before(int a, int b) {
+      if (t[a] != t[b]) return t[a] < t[b];
+      return (code[a] & 1) > (code[b] & 1);
+    }
+    
+    void addBoundary(int event, boolean entering, boolean flip, boolean keepThin) {
+      double time = t[event];
+      if (boundaries > 0 && time - boundaryT[boundaries - 1] < Ray.EPSILON
+        && (entering || !keepThin)) {
+        // Entering right after leaving closes the gap; leaving right after
+        // entering drops the sliver
+        boundaries--;
+        return;
+      }
+      boundaryT[boundaries] = time;
+      boundaryEvent[boundaries] = event;
+      boundaryFlip[boundaries] = flip;
+      boundaries++;
+    }
+    
+    Intersection boundaryHit(int b) {
+      Intersection h = hit[boundaryEvent[b]];
+      if (!boundaryFlip[b] || h == null || h.getNormal() == null) return h;
+      return new Intersection(h.getPoint(), h.getNormal().negate(), h.getT(), h.getShape());
+    }
+  }
+  
+  /**
+   * Sweeps of nested nodes evaluated on one thread; a node takes the
+   * next level while its operands may still use the ones below.
+   */
+  private static final class SweepStack {
+    Sweep[] levels = new Sweep[4];
+    int depth;
+    
+    Sweep push() {
+      if (depth == levels.length) levels = Arrays.copyOf(levels, depth * 2);
+      Sweep s = levels[depth];
+      if (s == null) {
+        s = new Sweep();
+        levels[depth] = s;
+      }
+      depth++;
+      return s;
+    }
+    
+    void pop() {
+      depth--;
+    }
+  }
+  
+  /**
+   * World point and local normal of the last hit intersect() returned on a thread.
+   */
+  private static final class LastHit {
+    CSGShape owner;
+    double x, y, z;
+    double nx, ny, nz;
+    
+    void set(CSGShape owner, Ray ray, double t, double nx, double ny, double nz) {
+      Point3 p = ray.pointAtParameter(t);
+      this.owner = owner;
+      this.x = p.x;
+      this.y = p.y;
+      this.z = p.z;
+      this.nx = nx;
+      this.ny = ny;
+      this.nz = nz;
+    }
   }
   
+  private static final ThreadLocal<SweepStack> SWEEPS = new ThreadLocal<SweepStack>() {
+    @Override
+    protected SweepStack initialValue() {
+      return new SweepStack();
+    }
+  };
+  
+  private static final ThreadLocal<LastHit> LAST_HIT = new ThreadLocal<LastHit>() {
+    @Override
+    protected LastHit initialValue() {
+      return new LastHit();
+    }
+  };
+  
   @Override
   public Material getMaterial() {
     return left.getMaterial();
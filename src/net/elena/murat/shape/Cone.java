@@ -419,6 +419,17 @@ public class Cone implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local cone (base at origin, apex on +Y) in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double r = Math.abs(localRadius);
+    return BoundingBox.fromLocal(localBaseCenter.x - r, localBaseCenter.y, localBaseCenter.z - r,
+      localBaseCenter.x + r, localBaseCenter.y + localHeight, localBaseCenter.z + r, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -295,6 +295,17 @@ public class Crescent implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the main sphere in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    // The crescent is carved out of the main sphere, so its bounds suffice.
+    double r = Math.abs(radius);
+    return BoundingBox.fromLocal(-r, -r, -r, r, r, r, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
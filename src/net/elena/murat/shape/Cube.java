@@ -36,6 +36,13 @@ public class Cube implements EMShape {
   
   private String name = "cube";
   
+  // Local face normals, indexed by face number
+  private static final Vector3[] FACE_NORMALS = {
+    new Vector3(1, 0, 0), new Vector3(-1, 0, 0),
+    new Vector3(0, 1, 0), new Vector3(0, -1, 0),
+    new Vector3(0, 0, 1), new Vector3(0, 0, -1)
+  };
+  
   /**
    * Constructs a Cube with the given side length, centered at the origin in its local space.
    * @param sideLength The length of each side of the cube.
@@ -116,23 +123,22 @@ public class Cube implements EMShape {
     }
     
     // 1. Transform the ray into the cube's local space
-    Ray localRay = new Ray(
-      inverseTransform.transformPoint(ray.getOrigin()),
-      inverseTransform.transformVector(ray.getDirection()).normalize() // Normalize direction after transformation
-    );
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
     double tMin = Double.NEGATIVE_INFINITY;
     double tMax = Double.POSITIVE_INFINITY;
     
     // Kesişim hesaplamaları için minBounds ve maxBounds kullanılıyor
     // X-düzlemleriyle kesişim
-    if (Math.abs(localRay.getDirection().x) < Ray.EPSILON) {
-      if (localRay.getOrigin().x < minBounds.x || localRay.getOrigin().x > maxBounds.x) {
+    if (Math.abs(localDirection.x) < Ray.EPSILON) {
+      if (localOrigin.x < minBounds.x || localOrigin.x > maxBounds.x) {
         return Double.POSITIVE_INFINITY;
       }
       } else {
-      double t1 = (minBounds.x - localRay.getOrigin().x) / localRay.getDirection().x;
-      double t2 = (maxBounds.x - localRay.getOrigin().x) / localRay.getDirection().x;
+      double t1 = (minBounds.x - localOrigin.x) / localDirection.x;
+      double t2 = (maxBounds.x - localOrigin.x) / localDirection.x;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -140,13 +146,13 @@ public class Cube implements EMShape {
     }
     
     // Y-düzlemleriyle kesişim
-    if (Math.abs(localRay.getDirection().y) < Ray.EPSILON) {
-      if (localRay.getOrigin().y < minBounds.y || localRay.getOrigin().y > maxBounds.y) {
+    if (Math.abs(localDirection.y) < Ray.EPSILON) {
+      if (localOrigin.y < minBounds.y || localOrigin.y > maxBounds.y) {
         return Double.POSITIVE_INFINITY;
       }
       } else {
-      double t1 = (minBounds.y - localRay.getOrigin().y) / localRay.getDirection().y;
-      double t2 = (maxBounds.y - localRay.getOrigin().y) / localRay.getDirection().y;
+      double t1 = (minBounds.y - localOrigin.y) / localDirection.y;
+      double t2 = (maxBounds.y - localOrigin.y) / localDirection.y;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -154,13 +160,13 @@ public class Cube implements EMShape {
     }
     
     // Z-düzlemleriyle kesişim
-    if (Math.abs(localRay.getDirection().z) < Ray.EPSILON) {
-      if (localRay.getOrigin().z < minBounds.z || localRay.getOrigin().z > maxBounds.z) {
+    if (Math.abs(localDirection.z) < Ray.EPSILON) {
+      if (localOrigin.z < minBounds.z || localOrigin.z > maxBounds.z) {
         return Double.POSITIVE_INFINITY;
       }
       } else {
-      double t1 = (minBounds.z - localRay.getOrigin().z) / localRay.getDirection().z;
-      double t2 = (maxBounds.z - localRay.getOrigin().z) / localRay.getDirection().z;
+      double t1 = (minBounds.z - localOrigin.z) / localDirection.z;
+      double t2 = (maxBounds.z - localOrigin.z) / localDirection.z;
       if (t1 > t2) { double temp = t1; t1 = t2; t2 = temp; }
         tMin = Math.max(tMin, t1);
       tMax = Math.min(tMax, t2);
@@ -261,58 +267,87 @@ public class Cube implements EMShape {
     
     // Transform the world point to the cube's local space
     Point3 localPoint = this.getInverseTransform().transformPoint(worldPoint);
-    Vector3 localNormal = null;
     
+    // Transform the local normal back to world space
+    // Use inverse transpose for correct normal transformation
+    return this.inverseTransposeTransformForNormal.transformVector(FACE_NORMALS[faceAt(localPoint)]).normalize();
+  }
+  
+  /**
+   * Fills the hit with the local point, the face index (the order of
+   * FACE_NORMALS: +X, -X, +Y, -Y, +Z, -Z) and UV running 0..1 across that face.
+   */
+  @Override
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    if (inverseTransform == null || inverseTransposeTransformForNormal == null) {
+      EMShape.super.fillHit(ray, t, hit);
+      return;
+    }
+    
+    Point3 worldPoint = ray.pointAtParameter(t);
+    Point3 localPoint = inverseTransform.transformPoint(worldPoint);
+    int face = faceAt(localPoint);
+    
+    hit.reset(this, t, worldPoint);
+    hit.setLocalPoint(inverseTransform, localPoint);
+    hit.setNormal(inverseTransposeTransformForNormal.transformVector(FACE_NORMALS[face]).normalize(),
+      ray.getDirection());
+    hit.setPrimitive(face);
+    
+    double u = (localPoint.x - minBounds.x) / (maxBounds.x - minBounds.x);
+    double v = (localPoint.y - minBounds.y) / (maxBounds.y - minBounds.y);
+    double w = (localPoint.z - minBounds.z) / (maxBounds.z - minBounds.z);
+    switch (face >> 1) {
+      case 0: hit.setUV(w, v); break;
+      case 1: hit.setUV(u, w); break;
+      default: hit.setUV(u, v); break;
+    }
+  }
+  
+  /**
+   * Face a local point lies on: the first face within a small distance,
+   * else the nearest one.
+   * @return Index into FACE_NORMALS
+   */
+  private int faceAt(Point3 localPoint) {
     // Use a slightly larger epsilon for normal calculation to avoid ambiguity at edges/corners
     //double normalEpsilon = Ray.EPSILON * 10;
     double normalEpsilon = 1e-3;
     
     // Determine which face was hit to get the normal (based on min/max bounds)
     if (Math.abs(localPoint.x - maxBounds.x) < normalEpsilon) {
-      localNormal = new Vector3(1, 0, 0);
+      return 0;
       } else if (Math.abs(localPoint.x - minBounds.x) < normalEpsilon) {
-      localNormal = new Vector3(-1, 0, 0);
+      return 1;
       } else if (Math.abs(localPoint.y - maxBounds.y) < normalEpsilon) {
-      localNormal = new Vector3(0, 1, 0);
+      return 2;
       } else if (Math.abs(localPoint.y - minBounds.y) < normalEpsilon) {
-      localNormal = new Vector3(0, -1, 0);
+      return 3;
       } else if (Math.abs(localPoint.z - maxBounds.z) < normalEpsilon) {
-      localNormal = new Vector3(0, 0, 1);
+      return 4;
       } else if (Math.abs(localPoint.z - minBounds.z) < normalEpsilon) {
-      localNormal = new Vector3(0, 0, -1);
-      } else {
-      // Fallback for floating point inaccuracies near edges/corners.
-      // This attempts to find the closest face based on the local point's coordinates.
-      double[] dists = {
-        Math.abs(localPoint.x - maxBounds.x),
-        Math.abs(localPoint.x - minBounds.x),
-        Math.abs(localPoint.y - maxBounds.y),
-        Math.abs(localPoint.y - minBounds.y),
-        Math.abs(localPoint.z - maxBounds.z),
-        Math.abs(localPoint.z - minBounds.z)
-      };
-      int minIdx = 0;
-      for(int i = 1; i < 6; i++) {
-        if (dists[i] < dists[minIdx]) {
-          minIdx = i;
-        }
-      }
-      switch(minIdx) {
-        case 0: localNormal = new Vector3(1, 0, 0); break;
-        case 1: localNormal = new Vector3(-1, 0, 0); break;
-        case 2: localNormal = new Vector3(0, 1, 0); break;
-        case 3: localNormal = new Vector3(0, -1, 0); break;
-        case 4: localNormal = new Vector3(0, 0, 1); break;
-        case 5: localNormal = new Vector3(0, 0, -1); break;
-        default: localNormal = new Vector3(0, 1, 0); // Should not happen
-        }
-      //System.err.println("Warning: Cube normal fallback used due to floating point inaccuracy.");
+      return 5;
     }
     
-    // Transform the local normal back to world space
-    // Use inverse transpose for correct normal transformation
-    return this.inverseTransposeTransformForNormal.transformVector(localNormal).normalize();
+    // Fallback for floating point inaccuracies near edges/corners.
+    // This attempts to find the closest face based on the local point's coordinates.
+    double[] dists = {
+      Math.abs(localPoint.x - maxBounds.x),
+      Math.abs(localPoint.x - minBounds.x),
+      Math.abs(localPoint.y - maxBounds.y),
+      Math.abs(localPoint.y - minBounds.y),
+      Math.abs(localPoint.z - maxBounds.z),
+      Math.abs(localPoint.z - minBounds.z)
+    };
+    int minIdx = 0;
+    for(int i = 1; i < 6; i++) {
+      if (dists[i] < dists[minIdx]) {
+        minIdx = i;
+      }
+    }
+    return minIdx;
   }
+
   
   @Override
   public void setAnimationTransforms(Matrix4[] atm) {
@@ -323,6 +358,15 @@ public class Cube implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local min/max corners transformed to world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    return new BoundingBox(minBounds, maxBounds).transform(transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -322,6 +322,17 @@ public class Cylinder implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local cylinder (base at origin, axis along +Y) in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double r = Math.abs(localRadius);
+    return BoundingBox.fromLocal(localBaseCenter.x - r, localBaseCenter.y, localBaseCenter.z - r,
+      localBaseCenter.x + r, localBaseCenter.y + localHeight, localBaseCenter.z + r, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -20,12 +20,63 @@ public interface EMShape {
   void setAnimationTransforms(Matrix4[] transform);
   
   Vector3 getNormalAt(Point3 point);
+  
+  /**
+   * Fills the hit record for a hit this shape's intersect call just found.
+   * The tracer calls it once per hit and shades from the record, so shapes
+   * that know more than a normal (UV, face index, the local point) override
+   * it to write everything in one pass. The normals must be the ones
+   * getNormalAt would give. This default serves plugin shapes: it sets the
+   * point, the normal from getNormalAt and the inside flag, and leaves the
+   * local point to be worked out if somebody asks for it.
+   * @param ray Ray that hit this shape
+   * @param t Ray parameter returned by intersect
+   * @param hit Record to overwrite
+   */
+  default void fillHit(Ray ray, double t, HitRecord hit) {
+    Point3 point = ray.pointAtParameter(t);
+    hit.reset(this, t, point);
+    hit.setNormal(getNormalAt(point).normalize(), ray.getDirection());
+  }
   Material getMaterial();
   
+  /**
+   * True for shapes a ray meets at most once, such as planes, billboards and
+   * triangles. Only these drop hits on see-through texels while the scene is
+   * searched; a closed shape would lose its far side along with the near one.
+   */
+  default boolean isFlat() {
+    return false;
+  }
+  
+  /**
+   * Alpha test for a hit this shape's intersect call just found.
+   * @param ray Ray that hit this shape
+   * @param t Ray parameter returned by intersect
+   * @return True when the hit lands where the material lets rays through
+   * untouched, so the search should go on as if the shape were not there
+   */
+  default boolean isMaskedAt(Ray ray, double t) {
+    if (!isFlat()) return false;
+    Material material = getMaterial();
+    return material != null && material.hasAlphaMask()
+      && material.getOpacityAt(ray.pointAtParameter(t)) <= 0.0;
+  }
+  
   Matrix4 getTransform();
   Matrix4 getInverseTransform();
   Matrix4[] getAnimationTransforms();
   
+  /**
+   * Returns conservative world-space bounds of this shape for the current
+   * transform, used to build the scene BVH. Shapes that cannot be bounded
+   * (infinite planes, plugin shapes) keep this default and are always tested.
+   * @return World-space bounds, or BoundingBox.INFINITE
+   */
+  default BoundingBox getWorldBounds() {
+    return BoundingBox.INFINITE;
+  }
+  
   Color getShadowColor();
   void setShadowColor(Color color);
   
@@ -180,6 +180,16 @@ public class Ellipsoid implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the origin-centered local ellipsoid in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double ax = Math.abs(a), by = Math.abs(b), cz = Math.abs(c);
+    return BoundingBox.fromLocal(-ax, -by, -cz, ax, by, cz, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -97,6 +97,11 @@ public class EmojiBillboard implements EMShape {
     return this.material;
   }
   
+  @Override
+  public boolean isFlat() {
+    return true;
+  }
+  
   @Override
   public double intersect(Ray ray) {
     if (isRectangle) {
@@ -220,6 +225,17 @@ public class EmojiBillboard implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local billboard quad (z = 0) in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double hw = Math.abs(width) / 2.0;
+    double hh = Math.abs(height) / 2.0;
+    return BoundingBox.fromLocal(-hw, -hh, 0.0, hw, hh, 0.0, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
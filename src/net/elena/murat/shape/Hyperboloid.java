@@ -246,6 +246,19 @@ public class Hyperboloid implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the height-limited local hyperboloid in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    // |z| is limited to height, so the widest cross-section is at z = +/-height.
+    double spread = Math.sqrt(1.0 + (height * height) / (c * c));
+    double rx = Math.abs(a) * spread;
+    double ry = Math.abs(b) * spread;
+    return BoundingBox.fromLocal(-rx, -ry, -height, rx, ry, height, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
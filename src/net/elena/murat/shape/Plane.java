@@ -18,6 +18,11 @@ public class Plane implements EMShape {
   
   private Matrix4 transform;
   private Matrix4 inverseTransform; // Inverse transform'u burada tutacağız
+  private Matrix4 normalTransform;  // Inverse transpose for the normal, null if not invertible
+  
+  // Local in-plane axes for UV, perpendicular to the normal and to each other
+  private final Vector3 tangent;
+  private final Vector3 bitangent;
   
   private Color shadowColor = Color.BLACK;
   private double shadowBias = 0.001;
@@ -39,6 +44,12 @@ public class Plane implements EMShape {
     
     this.transform = new Matrix4();
     this.inverseTransform = new Matrix4(); // Başlangıçta identity olarak ayarla
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
+    
+    // Any helper axis not parallel to the normal; X gives u = x, v = z for a floor
+    Vector3 helper = Math.abs(this.normal.x) < 0.9 ? new Vector3(1, 0, 0) : new Vector3(0, 0, 1);
+    this.tangent = helper.subtract(this.normal.scale(this.normal.dot(helper))).normalize();
+    this.bitangent = tangent.cross(this.normal);
   }
   
   @Override
@@ -51,6 +62,11 @@ public class Plane implements EMShape {
     return this.material;
   }
   
+  @Override
+  public boolean isFlat() {
+    return true;
+  }
+  
   @Override
   public void setTransform(Matrix4 transform) {
     this.transform = transform;
@@ -58,6 +74,7 @@ public class Plane implements EMShape {
     if (this.inverseTransform == null) {
       System.err.println("Warning: Plane's transform is non-invertible. Inverse transform set to null.");
     }
+    this.normalTransform = inverseTransform != null ? inverseTransform.inverseTransposeForNormal() : null;
   }
   
   @Override
@@ -78,21 +95,20 @@ public class Plane implements EMShape {
       return -1;
     }
     
-    Point3 localOrigin = this.inverseTransform.transformPoint(ray.getOrigin());
-    Vector3 localDirection = this.inverseTransform.transformVector(ray.getDirection()).normalize();
-    Ray localRay = new Ray(localOrigin, localDirection);
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    this.inverseTransform.transformRay(ray, localOrigin, localDirection);
     
-    double denom = localRay.getDirection().dot(this.normal);
+    double denom = localDirection.dot(this.normal);
     
+    // Parallel to the plane, whether or not the ray lies in it
     if (Math.abs(denom) < Ray.EPSILON) {
-      double num = this.pointOnPlane.subtract(localRay.getOrigin()).dot(this.normal);
-      if (Math.abs(num) < Ray.EPSILON) {
-        return -1;
-      }
       return -1;
     }
     
-    double t = this.pointOnPlane.subtract(localRay.getOrigin()).dot(this.normal) / denom;
+    double t = ((this.pointOnPlane.x - localOrigin.x) * this.normal.x
+      + (this.pointOnPlane.y - localOrigin.y) * this.normal.y
+      + (this.pointOnPlane.z - localOrigin.z) * this.normal.z) / denom;
     
     if (t > Ray.EPSILON) {
       return t;
@@ -146,12 +162,28 @@ public class Plane implements EMShape {
       System.err.println("Error: Plane's inverse transform is null during getNormalAt. Returning default normal.");
       return new Vector3(0, 1, 0);
     }
-    Matrix4 normalTransformMatrix = this.inverseTransform.inverseTransposeForNormal();
-    if (normalTransformMatrix == null) {
+    if (this.normalTransform == null) {
       System.err.println("Error: Plane's normal transform matrix is null. Returning default normal.");
       return new Vector3(0, 1, 0);
     }
-    return normalTransformMatrix.transformVector(this.normal).normalize();
+    return this.normalTransform.transformVector(this.normal).normalize();
+  }
+  
+  /**
+   * Fills the hit with the local point and planar UV: distances from
+   * pointOnPlane along two in-plane axes, in local units and not wrapped.
+   */
+  @Override
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    Point3 worldPoint = ray.pointAtParameter(t);
+    hit.reset(this, t, worldPoint);
+    hit.setNormal(getNormalAt(worldPoint).normalize(), ray.getDirection());
+    if (this.inverseTransform == null) return;
+    
+    Point3 localPoint = this.inverseTransform.transformPoint(worldPoint);
+    hit.setLocalPoint(this.inverseTransform, localPoint);
+    Vector3 offset = localPoint.subtract(this.pointOnPlane);
+    hit.setUV(offset.dot(this.tangent), offset.dot(this.bitangent));
   }
   
   @Override
@@ -175,6 +175,17 @@ public class Rectangle3D implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local rectangle slab in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double ht = Math.abs(thickness) / 2.0;
+    return BoundingBox.fromLocal(Math.min(p1.x, p2.x), Math.min(p1.y, p2.y), -ht,
+      Math.max(p1.x, p2.x), Math.max(p1.y, p2.y), ht, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
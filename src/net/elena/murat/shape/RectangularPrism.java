@@ -346,6 +346,18 @@ public class RectangularPrism implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the centered local prism transformed to world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double hw = Math.abs(width) / 2.0;
+    double hh = Math.abs(height) / 2.0;
+    double hd = Math.abs(depth) / 2.0;
+    return BoundingBox.fromLocal(-hw, -hh, -hd, hw, hh, hd, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
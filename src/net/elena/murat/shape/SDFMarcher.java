@@ -0,0 +1,307 @@
+package net.elena.murat.shape;
+
+import net.elena.murat.math.MutableVector3;
+
+/**
+ * Sphere tracer for {@link SignedDistanceField} shapes, in the field's
+ * local coordinates.
+ * <p>
+ * Every ray is clipped to the field's bounding box or sphere first, so rays
+ * that miss it cost one slab test and no distance evaluations. Inside the
+ * clipped span the ray takes over-relaxed steps of omega times the safe
+ * distance. When two consecutive step spheres stop overlapping, the last
+ * step may have jumped over the surface; the tracer then goes back and
+ * continues with plain steps. A ray is on the surface once the safe
+ * distance drops below minTolerance + relativeTolerance * t, so far hits
+ * stop sooner than near ones.
+ * </p>
+ * A ray that starts on the surface, as secondary rays do, first steps off
+ * it, and then traces from whichever side it is on, so rays starting inside
+ * find the way out. A ray entering the bounds right at the surface hits it
+ * there. Configure before rendering; the query methods keep no
+ * state and may be called from any thread.
+ */
+public final class SDFMarcher {
+  
+  public static final int DEFAULT_MAX_STEPS = 200;
+  public static final double DEFAULT_RELAXATION = 1.6;
+  
+  private final SignedDistanceField field;
+  
+  private double lipschitz = 1.0;
+  private double relaxation = DEFAULT_RELAXATION;
+  private double minTolerance = 0.001;
+  private double relativeTolerance = 1e-4;
+  private int maxSteps = DEFAULT_MAX_STEPS;
+  private double maxDistance = 100.0;
+  
+  // Bounds: a box, a sphere, or neither
+  private boolean hasBox = false;
+  private double minX, minY, minZ, maxX, maxY, maxZ;
+  private boolean hasSphere = false;
+  private double centerX, centerY, centerZ, radius;
+  
+  public SDFMarcher(SignedDistanceField field) {
+    this.field = field;
+  }
+  
+  public SignedDistanceField getField() {
+    return field;
+  }
+  
+  /**
+   * Clips rays to a local box. Replaces a bounding sphere.
+   * The field's surface must lie inside, with minTolerance to spare.
+   */
+  public void setBoundingBox(double minX, double minY, double minZ,
+    double maxX, double maxY, double maxZ) {
+    this.minX = minX;
+    this.minY = minY;
+    this.minZ = minZ;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.maxZ = maxZ;
+    this.hasBox = true;
+    this.hasSphere = false;
+  }
+  
+  /**
+   * Clips rays to a local sphere. Replaces a bounding box.
+   */
+  public void setBoundingSphere(double centerX, double centerY, double centerZ, double radius) {
+    this.centerX = centerX;
+    this.centerY = centerY;
+    this.centerZ = centerZ;
+    this.radius = radius;
+    this.hasSphere = true;
+    this.hasBox = false;
+  }
+  
+  /**
+   * @param lipschitz How much faster than the true distance the field may
+   * change; 1 for an exact distance function, more for approximate ones.
+   * Steps are divided by it.
+   */
+  public void setLipschitz(double lipschitz) {
+    this.lipschitz = Math.max(1e-6, lipschitz);
+  }
+  
+  public double getLipschitz() {
+    return lipschitz;
+  }
+  
+  /**
+   * @param omega Step multiplier, 1 (plain sphere tracing) to just under 2
+   */
+  public void setRelaxation(double omega) {
+    this.relaxation = Math.max(1.0, Math.min(omega, 1.99));
+  }
+  
+  public double getRelaxation() {
+    return relaxation;
+  }
+  
+  /**
+   * A ray hits the surface where the safe distance is below
+   * minTolerance + relativeTolerance * t.
+   */
+  public void setHitTolerance(double minTolerance, double relativeTolerance) {
+    this.minTolerance = Math.max(1e-9, minTolerance);
+    this.relativeTolerance = Math.max(0.0, relativeTolerance);
+  }
+  
+  public double getMinTolerance() {
+    return minTolerance;
+  }
+  
+  public double getRelativeTolerance() {
+    return relativeTolerance;
+  }
+  
+  /**
+   * @param maxSteps Distance evaluations per surface crossing
+   */
+  public void setMaxSteps(int maxSteps) {
+    this.maxSteps = Math.max(1, maxSteps);
+  }
+  
+  public int getMaxSteps() {
+    return maxSteps;
+  }
+  
+  /**
+   * @param maxDistance Rays stop here even inside the bounds; the only
+   * limit for an unbounded field
+   */
+  public void setMaxDistance(double maxDistance) {
+    this.maxDistance = maxDistance;
+  }
+  
+  public double getMaxDistance() {
+    return maxDistance;
+  }
+  
+  /**
+   * First surface crossing after tMin.
+   * @param dx Local ray direction, unit length
+   * @return Ray distance of the hit, or Double.POSITIVE_INFINITY
+   */
+  public double march(double ox, double oy, double oz,
+    double dx, double dy, double dz, double tMin) {
+    double[] span = new double[2];
+    if (!clip(ox, oy, oz, dx, dy, dz, tMin, span)) return Double.POSITIVE_INFINITY;
+    // A ray clipped to the bounds enters from outside and may hit at once
+    boolean clipped = span[0] > tMin;
+    return trace(ox, oy, oz, dx, dy, dz, span[0], span[1], !clipped, null);
+  }
+  
+  /**
+   * Entry and exit distances of every stretch of the ray inside the field
+   * after tMin. A ray that starts inside enters at its start.
+   * @param out Receives tIn, tOut pairs in ray order; at most
+   * out.length / 2 pairs are written
+   * @return Number of values written, twice the number of pairs
+   */
+  public int marchAll(double ox, double oy, double oz,
+    double dx, double dy, double dz, double tMin, double[] out) {
+    double[] span = new double[2];
+    if (!clip(ox, oy, oz, dx, dy, dz, tMin, span)) return 0;
+    
+    int[] side = new int[1];
+    boolean leaveSurface = !(span[0] > tMin);
+    double t = span[0];
+    double tIn = span[0];
+    int count = 0;
+    while (count + 2 <= out.length) {
+      double hit = trace(ox, oy, oz, dx, dy, dz, t, span[1], leaveSurface, side);
+      if (hit == Double.POSITIVE_INFINITY) break;
+      if (side[0] > 0) {
+        // Reached from outside; a second entry without an exit was a graze
+        tIn = hit;
+      } else {
+        out[count++] = tIn;
+        out[count++] = hit;
+      }
+      t = hit;
+      leaveSurface = true;
+    }
+    return count;
+  }
+  
+  /**
+   * Field gradient at a local point by four tetrahedral samples,
+   * normalized; zero where the field is flat.
+   */
+  public MutableVector3 normal(double x, double y, double z, double eps, MutableVector3 out) {
+    double a = field.distance(x + eps, y - eps, z - eps);
+    double b = field.distance(x - eps, y - eps, z + eps);
+    double c = field.distance(x - eps, y + eps, z - eps);
+    double d = field.distance(x + eps, y + eps, z + eps);
+    out.set(a - b - c + d, -a - b + c + d, -a + b - c + d);
+    return out.lengthSquared() > 0.0 ? out.normalize() : out;
+  }
+  
+  private double tolerance(double t) {
+    return minTolerance + relativeTolerance * t;
+  }
+  
+  /**
+   * Sphere-traces from t to the next surface crossing before tEnd.
+   * @param leaveSurface Whether a start on the surface is stepped off
+   * rather than reported as a hit
+   * @param side If not null, receives 1 when the surface was reached from
+   * outside and -1 from inside
+   */
+  private double trace(double ox, double oy, double oz,
+    double dx, double dy, double dz, double t, double tEnd, boolean leaveSurface, int[] side) {
+    int steps = 0;
+    double f = field.distance(ox + t * dx, oy + t * dy, oz + t * dz);
+    
+    if (!leaveSurface && Math.abs(f) < tolerance(t)) {
+      if (side != null) side[0] = 1;
+      return t;
+    }
+    
+    // Step off a surface the ray starts on
+    while (Math.abs(f) < tolerance(t)) {
+      t += tolerance(t);
+      if (t > tEnd || ++steps >= maxSteps) return Double.POSITIVE_INFINITY;
+      f = field.distance(ox + t * dx, oy + t * dy, oz + t * dz);
+    }
+    
+    double sign = (f < 0.0) ? -1.0 : 1.0;
+    if (side != null) side[0] = (int) sign;
+    
+    double omega = relaxation;
+    double tPrev = t;
+    double prevRadius = 0.0;
+    double step = 0.0;
+    
+    for (; steps < maxSteps; steps++) {
+      double r = sign * f / lipschitz;
+      
+      if (omega > 1.0 && (r < 0.0 || r + prevRadius < step)) {
+        // The spheres around the last two points do not overlap, so the
+        // relaxed step may have skipped the surface: redo it unrelaxed
+        omega = 1.0;
+        t = tPrev + prevRadius;
+        f = field.distance(ox + t * dx, oy + t * dy, oz + t * dz);
+        continue;
+      }
+      
+      if (r < tolerance(t)) return t;
+      
+      tPrev = t;
+      prevRadius = r;
+      step = r * omega;
+      t += step;
+      if (t > tEnd) {
+        // A relaxed step out of the bounds may also have skipped the surface
+        if (omega == 1.0 || tPrev + prevRadius > tEnd) return Double.POSITIVE_INFINITY;
+        omega = 1.0;
+        t = tPrev + prevRadius;
+      }
+      f = field.distance(ox + t * dx, oy + t * dy, oz + t * dz);
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+  
+  /**
+   * Clips [tMin, maxDistance] to the bounds.
+   * @param span Receives the clipped start and end
+   * @return false if nothing is left
+   */
+  private boolean clip(double ox, double oy, double oz,
+    double dx, double dy, double dz, double tMin, double[] span) {
+    double t0 = tMin;
+    double t1 = maxDistance;
+    
+    if (hasBox) {
+      double invX = 1.0 / dx;
+      double invY = 1.0 / dy;
+      double invZ = 1.0 / dz;
+      double ax = (minX - ox) * invX, bx = (maxX - ox) * invX;
+      double ay = (minY - oy) * invY, by = (maxY - oy) * invY;
+      double az = (minZ - oz) * invZ, bz = (maxZ - oz) * invZ;
+      t0 = Math.max(t0, Math.max(Math.min(ax, bx), Math.max(Math.min(ay, by), Math.min(az, bz))));
+      t1 = Math.min(t1, Math.min(Math.max(ax, bx), Math.min(Math.max(ay, by), Math.max(az, bz))));
+    } else if (hasSphere) {
+      double px = ox - centerX;
+      double py = oy - centerY;
+      double pz = oz - centerZ;
+      double b = px * dx + py * dy + pz * dz;
+      double disc = b * b - (px * px + py * py + pz * pz - radius * radius);
+      if (disc < 0.0) return false;
+      double sqrtDisc = Math.sqrt(disc);
+      t0 = Math.max(t0, -b - sqrtDisc);
+      t1 = Math.min(t1, -b + sqrtDisc);
+    }
+    
+    // NaN (a zero direction component on a slab edge) fails here too
+    if (!(t0 <= t1)) return false;
+    span[0] = t0;
+    span[1] = t1;
+    return true;
+  }
+  
+}
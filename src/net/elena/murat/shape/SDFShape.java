@@ -0,0 +1,267 @@
+package net.elena.murat.shape;
+
+import java.awt.Color;
+import java.util.List;
+
+import net.elena.murat.math.*;
+import net.elena.murat.material.Material;
+
+/**
+ * Base class for shapes given only by a signed distance function.
+ * <p>
+ * A subclass implements {@link #distance(double, double, double)} in local
+ * coordinates and calls {@link #setLocalBounds} from its constructor;
+ * intersection, CSG intervals, normals, world bounds and the EMShape
+ * bookkeeping all come from here. With a no-argument constructor such a
+ * class can be compiled on its own and loaded as a custom shape:
+ * </p>
+ * <pre>
+ * public class RoundBox extends SDFShape {
+ *   public RoundBox() {
+ *     setLocalBounds(-1.2, -1.2, -1.2, 1.2, 1.2, 1.2);
+ *   }
+ *   public double distance(double x, double y, double z) {
+ *     double qx = Math.max(Math.abs(x) - 1.0, 0.0);
+ *     double qy = Math.max(Math.abs(y) - 1.0, 0.0);
+ *     double qz = Math.max(Math.abs(z) - 1.0, 0.0);
+ *     return Math.sqrt(qx * qx + qy * qy + qz * qz) - 0.2;
+ *   }
+ * }
+ * </pre>
+ * Marching parameters are tuned through {@link #getMarcher()}.
+ */
+public abstract class SDFShape implements EMShape, SignedDistanceField {
+  
+  private static final double NORMAL_EPSILON = 0.001;
+  private static final int MAX_INTERVALS = 8;
+  
+  private final SDFMarcher marcher = new SDFMarcher(this);
+  
+  // Local bounds; null until setLocalBounds
+  private double[] localBounds;
+  
+  private Material material;
+  private Matrix4 transform = Matrix4.identity();
+  private Matrix4 inverseTransform = Matrix4.identity();
+  private Color shadowColor = Color.BLACK;
+  private double shadowBias = 0.001;
+  private Matrix4[] animTransforms = new Matrix4[] {new Matrix4(), new Matrix4()};
+  
+  private String otherAnimationInfo = "veofr,0e0fr,veofr";
+  private boolean isVisibleSpecial = true;
+  private boolean isVisible = true;
+  private boolean isShadowEnable = true;
+  private boolean isShadowOnly = false;
+  private boolean isReflective = true;
+  private boolean isRefractive = true;
+  
+  private String name = "sdfshape";
+  
+  /**
+   * Local box the whole surface lies in. Rays are clipped to it before
+   * marching and the scene BVH uses it; without one the shape is
+   * marched up to the marcher's max distance and tested for every ray.
+   */
+  protected void setLocalBounds(double minX, double minY, double minZ,
+    double maxX, double maxY, double maxZ) {
+    double pad = marcher.getMinTolerance();
+    localBounds = new double[] {minX - pad, minY - pad, minZ - pad, maxX + pad, maxY + pad, maxZ + pad};
+    marcher.setBoundingBox(localBounds[0], localBounds[1], localBounds[2],
+      localBounds[3], localBounds[4], localBounds[5]);
+  }
+  
+  public SDFMarcher getMarcher() {
+    return marcher;
+  }
+  
+  @Override
+  public double intersect(Ray ray) {
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
+    return marcher.march(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON);
+  }
+  
+  @Override
+  public List<IntersectionInterval> intersectAll(Ray ray) {
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
+    
+    double[] hits = new double[2 * MAX_INTERVALS];
+    int count = marcher.marchAll(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON, hits);
+    if (count == 0) {
+      return java.util.Collections.emptyList();
+    }
+    
+    List<IntersectionInterval> intervals = new java.util.ArrayList<>(count / 2);
+    for (int i = 0; i < count; i += 2) {
+      double tIn = hits[i];
+      double tOut = hits[i + 1];
+      Point3 worldIn = ray.pointAtParameter(tIn);
+      Point3 worldOut = ray.pointAtParameter(tOut);
+      Intersection in = new Intersection(worldIn, getNormalAt(worldIn), tIn, this);
+      Intersection out = new Intersection(worldOut, getNormalAt(worldOut), tOut, this);
+      intervals.add(new IntersectionInterval(tIn, tOut, in, out));
+    }
+    return intervals;
+  }
+  
+  @Override
+  public Vector3 getNormalAt(Point3 worldPoint) {
+    Point3 localPoint = inverseTransform.transformPoint(worldPoint);
+    MutableVector3 n = marcher.normal(localPoint.x, localPoint.y, localPoint.z,
+      NORMAL_EPSILON, new MutableVector3());
+    Vector3 localNormal = new Vector3(n.x, n.y, n.z);
+    return inverseTransform.inverseTransposeForNormal().transformVector(localNormal).normalize();
+  }
+  
+  @Override
+  public BoundingBox getWorldBounds() {
+    if (localBounds == null) return BoundingBox.INFINITE;
+    return BoundingBox.fromLocal(localBounds[0], localBounds[1], localBounds[2],
+      localBounds[3], localBounds[4], localBounds[5], transform);
+  }
+  
+  @Override
+  public void setTransform(Matrix4 transform) {
+    this.transform = new Matrix4(transform);
+    this.inverseTransform = transform.inverse();
+  }
+  
+  @Override
+  public Matrix4 getTransform() {
+    return new Matrix4(transform);
+  }
+  
+  @Override
+  public Matrix4 getInverseTransform() {
+    return new Matrix4(inverseTransform);
+  }
+  
+  @Override
+  public Material getMaterial() {
+    return material;
+  }
+  
+  @Override
+  public void setMaterial(Material material) {
+    this.material = material;
+  }
+  
+  @Override
+  public void setAnimationTransforms(Matrix4[] atm) {
+    this.animTransforms = atm;
+  }
+  
+  @Override
+  public Matrix4[] getAnimationTransforms() {
+    return this.animTransforms;
+  }
+  
+  @Override
+  public Color getShadowColor() {
+    return this.shadowColor;
+  }
+  
+  @Override
+  public void setShadowColor(Color color) {
+    this.shadowColor = color;
+  }
+  
+  @Override
+  public double getShadowBias() {
+    return this.shadowBias;
+  }
+  
+  @Override
+  public void setShadowBias(double bias) {
+    this.shadowBias = bias;
+  }
+  
+  @Override
+  public String getNameInfo() {
+    return (getClass().getSimpleName() + ": " + getTransform().toString());
+  }
+  
+  @Override
+  public String getOtherAnimationInfo() {
+    return this.otherAnimationInfo;
+  }
+  
+  @Override
+  public void setOtherAnimationInfo(String str) {
+    this.otherAnimationInfo = str;
+  }
+  
+  @Override
+  public boolean isVisible() {
+    return this.isVisible;
+  }
+  
+  @Override
+  public boolean isShadowEnable() {
+    return this.isShadowEnable;
+  }
+  
+  @Override
+  public boolean isShadowOnly() {
+    return this.isShadowOnly;
+  }
+  
+  @Override
+  public boolean isReflective() {
+    return this.isReflective;
+  }
+  
+  @Override
+  public boolean isRefractive() {
+    return this.isRefractive;
+  }
+  
+  @Override
+  public void setVisible(boolean visible) {
+    this.isVisible = visible;
+  }
+  
+  @Override
+  public void setShadowEnable(boolean enable) {
+    this.isShadowEnable = enable;
+  }
+  
+  @Override
+  public void setShadowOnly(boolean only) {
+    this.isShadowOnly = only;
+  }
+  
+  @Override
+  public void setReflective(boolean rfl) {
+    this.isReflective = rfl;
+  }
+  
+  @Override
+  public void setRefractive(boolean rfr) {
+    this.isRefractive = rfr;
+  }
+  
+  @Override
+  public boolean isVisibleSpecial() {
+    return this.isVisibleSpecial;
+  }
+  
+  @Override
+  public void setVisibleSpecial(boolean visible) {
+    this.isVisibleSpecial = visible;
+  }
+  
+  @Override
+  public String getName() {
+    return this.name;
+  }
+  
+  @Override
+  public void setName(String name) {
+    this.name = name;
+  }
+  
+}
@@ -0,0 +1,17 @@
+package net.elena.murat.shape;
+
+/**
+ * A shape given by its signed distance function in local coordinates:
+ * negative inside, positive outside, zero on the surface.
+ * <p>
+ * The value does not have to be the exact distance. It must not change
+ * faster than the Lipschitz bound the {@link SDFMarcher} is given, so
+ * that |value| / bound never reaches past the surface.
+ * </p>
+ * Implementations are called from all render threads at once.
+ */
+public interface SignedDistanceField {
+  
+  double distance(double x, double y, double z);
+  
+}
@@ -19,6 +19,7 @@ public class Sphere implements EMShape {
   // Transformation matrices
   private Matrix4 transform;        // Local to World transformation matrix
   private Matrix4 inverseTransform; // World to Local transformation matrix
+  private Matrix4 normalTransform;  // Inverse transpose for normals, cached with the transform
 
   private Color shadowColor = Color.BLACK;
   private double shadowBias = 0.001;
@@ -47,6 +48,7 @@ public class Sphere implements EMShape {
     // Initialize with identity transform by default
     this.transform = new Matrix4();
     this.inverseTransform = new Matrix4();
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
   }
   
   // The getCenter() method is no longer directly applicable for the world position
@@ -77,6 +79,7 @@ public class Sphere implements EMShape {
   public void setTransform(Matrix4 transform) {
     this.transform = transform;
     this.inverseTransform = transform.inverse(); // Pre-compute inverse for efficiency
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
   }
   
   /**
@@ -111,15 +114,19 @@ public class Sphere implements EMShape {
     // This effectively transforms the problem from intersecting a transformed sphere
     // with a world-space ray, to intersecting a canonical sphere with a
     // locally-transformed ray.
-    Point3 localOrigin = inverseTransform.transformPoint(ray.getOrigin());
-    Vector3 localDirection = inverseTransform.transformVector(ray.getDirection()).normalize(); // Normalize after transform
+    // Scratch vectors never leave this method, so the JIT keeps them off the heap
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection); // Direction is normalized
     
-    // Use local references for calculations to simplify
-    Vector3 oc = localOrigin.subtract(localCenter); // localCenter is (0,0,0), so this is just localOrigin
+    // localCenter is (0,0,0), so oc is just localOrigin
+    double ocx = localOrigin.x - localCenter.x;
+    double ocy = localOrigin.y - localCenter.y;
+    double ocz = localOrigin.z - localCenter.z;
     
     double a = localDirection.dot(localDirection);
-    double b = 2.0 * oc.dot(localDirection);
-    double c = oc.dot(oc) - localRadius * localRadius;
+    double b = 2.0 * localDirection.dot(ocx, ocy, ocz);
+    double c = (ocx * ocx + ocy * ocy + ocz * ocz) - localRadius * localRadius;
     double discriminant = b * b - 4 * a * c;
     
     if (discriminant < 0) {
@@ -221,8 +228,28 @@ public class Sphere implements EMShape {
     // 3. Transform the local normal back to world space.
     // Normals transform with the inverse transpose of the model matrix.
     //Matrix4 normalTransformMatrix = this.inverseTransform.transpose(); // M_normal = (M^-1)^T
-    Matrix4 normalTransformMatrix = this.inverseTransform.inverseTransposeForNormal(); // Normaller için yeni metod
-    return normalTransformMatrix.transformVector(localNormal).normalize(); // Ensure normalized after transform
+    return normalTransform.transformVector(localNormal).normalize(); // Ensure normalized after transform
+  }
+  
+  /**
+   * Fills the hit from one local-space evaluation: local point, the normal
+   * getNormalAt gives, and latitude/longitude UV (u around the local Y axis
+   * starting at -X, v from the top pole down).
+   */
+  @Override
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    Point3 worldPoint = ray.pointAtParameter(t);
+    Point3 localHitPoint = inverseTransform.transformPoint(worldPoint);
+    Vector3 localNormal = localHitPoint.subtract(localCenter).normalize();
+    Vector3 normal = normalTransform.transformVector(localNormal).normalize();
+    
+    hit.reset(this, t, worldPoint);
+    hit.setLocalPoint(inverseTransform, localHitPoint);
+    hit.setNormal(normal, ray.getDirection());
+    
+    double ny = Math.max(-1.0, Math.min(1.0, localNormal.y));
+    hit.setUV(0.5 + Math.atan2(localNormal.z, localNormal.x) / (2 * Math.PI),
+      0.5 - Math.asin(ny) / Math.PI);
   }
   
   @Override
@@ -234,6 +261,17 @@ public class Sphere implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the local sphere transformed to world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double r = Math.abs(localRadius);
+    return BoundingBox.fromLocal(localCenter.x - r, localCenter.y - r, localCenter.z - r,
+      localCenter.x + r, localCenter.y + r, localCenter.z + r, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -7,6 +7,17 @@ import net.elena.murat.math.*;
 import net.elena.murat.material.Material;
 
 public class Torus implements EMShape {
+  
+  /**
+   * How rays are intersected with the torus.
+   */
+  public enum IntersectionMode {
+    /** Solves the ray-torus quartic; exact at any angle. The default. */
+    ANALYTIC,
+    /** Sphere-traces the distance function with an {@link SDFMarcher} */
+    RAY_MARCHING
+  }
+  
   // Definition of torus in local coordinate system
   // Canonical Torus: centered at (0,0,0), aligned with Y axis
   private final double majorRadius; // R
@@ -30,9 +41,11 @@ public class Torus implements EMShape {
   private boolean isRefractive = true;
   
   // Ray Marching Parameters
-  private static final int MAX_MARCH_STEPS = 200;
   private static final double HIT_THRESHOLD = 0.001; // Threshold for distance function
-  private static final double MAX_MARCH_DISTANCE = 100.0; // Maximum marching distance
+  
+  private final SDFMarcher marcher;
+  
+  private IntersectionMode intersectionMode = IntersectionMode.ANALYTIC;
   
   private String name = "torus";
   
@@ -50,6 +63,12 @@ public class Torus implements EMShape {
     // Initialize with identity transformation matrices by default
     this.transform = new Matrix4();
     this.inverseTransform = new Matrix4();
+    
+    this.marcher = new SDFMarcher(this::distanceLocal);
+    this.marcher.setHitTolerance(HIT_THRESHOLD, 1e-4);
+    double outer = Math.abs(majorRadius) + Math.abs(minorRadius) + HIT_THRESHOLD;
+    double tube = Math.abs(minorRadius) + HIT_THRESHOLD;
+    this.marcher.setBoundingBox(-outer, -tube, -outer, outer, tube, outer);
   }
   
   @Override
@@ -62,6 +81,24 @@ public class Torus implements EMShape {
     this.material = material;
   }
   
+  public IntersectionMode getIntersectionMode() {
+    return intersectionMode;
+  }
+  
+  /**
+   * @param mode ANALYTIC, or RAY_MARCHING to trace the distance function
+   */
+  public void setIntersectionMode(IntersectionMode mode) {
+    this.intersectionMode = (mode != null) ? mode : IntersectionMode.ANALYTIC;
+  }
+  
+  /**
+   * Marcher used in RAY_MARCHING mode.
+   */
+  public SDFMarcher getMarcher() {
+    return marcher;
+  }
+  
   // --- EMShape Interface Implementations ---
   
   /**
@@ -99,128 +136,171 @@ public class Torus implements EMShape {
   }
   
   /**
-   * Calculates the SDF distance of a given point in the torus's local coordinate system.
-   * This method assumes the torus is centered at origin and aligned with Y axis.
-   * @param p Point in object's local space.
-   * @return SDF distance from point to torus.
+   * Signed distance to the torus in its local coordinate system: centered
+   * at the origin, main circle of radius R in the XZ plane, tube radius r.
    */
-  private double calculateSDFLocal(Point3 p) {
-    // q.x gives distance to torus's main circle (in XZ plane)
-    // q.y gives distance along torus's Z axis (donut along Y axis)
-    // Note: Previous code used Z as Y, which is a common approach in SDFs
-    // (x, y, z) -> (x, z, y) or (sqrt(x^2+y^2)-R, z)
-    // If torus's main circle is in XY plane:
-    // double q_x = new Vector3(p.x, p.y, 0).length() - majorRadius; // sqrt(x^2 + y^2) - R
-    // double q_y = p.z; // Z component
-    
-    // Following previous code's logic (majorRadius in XY plane, minorRadius in Z direction)
-    // So, Torus rotates around Y axis and its main plane is XZ plane.
-    double q_x_dist = new Vector3(p.x, p.z, 0).length() - majorRadius; // Circular distance in XZ plane - major radius
-    double q_y_val = p.y; // Torus's own "height" axis (minorRadius direction)
-    
-    return Math.sqrt(q_x_dist * q_x_dist + q_y_val * q_y_val) - minorRadius;
+  private double distanceLocal(double x, double y, double z) {
+    double ringDistance = Math.sqrt(x * x + z * z) - majorRadius; // From the Y axis, less R
+    return Math.sqrt(ringDistance * ringDistance + y * y) - minorRadius;
   }
   
   /**
-   * Checks if a ray intersects this Torus object using Ray Marching technique.
+   * Checks if a ray intersects this Torus object.
    *
    * @param ray Ray to test for intersection (in world space).
    * @return Distance from ray origin to intersection point (t) if exists, otherwise Double.POSITIVE_INFINITY.
    */
   @Override
   public double intersect(Ray ray) {
-    // 1. Transform ray into object's local coordinate system
-    Point3 localRayOrigin = inverseTransform.transformPoint(ray.getOrigin());
-    Vector3 localRayDirection = inverseTransform.transformVector(ray.getDirection()).normalize();
+    if (intersectionMode == IntersectionMode.RAY_MARCHING) {
+      return marchIntersect(ray);
+    }
     
-    double totalDistanceMarched = 0.0;
-    Point3 currentLocalRayPosition = localRayOrigin; // Ray's current position (in local space)
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
-    for (int i = 0; i < MAX_MARCH_STEPS; i++) {
-      // Calculate distance from current position to torus (in local space)
-      double distanceToTorus = calculateSDFLocal(currentLocalRayPosition);
-      
-      // If distance is below threshold, we found an intersection
-      if (distanceToTorus < HIT_THRESHOLD) {
-        return totalDistanceMarched; // Return total marched distance
-      }
-      
-      // Advance ray by distance to object (in local space)
-      currentLocalRayPosition = currentLocalRayPosition.add(localRayDirection.scale(distanceToTorus));
-      totalDistanceMarched += distanceToTorus;
-      
-      // If total marched distance exceeds maximum distance, no intersection
-      if (totalDistanceMarched >= MAX_MARCH_DISTANCE) {
-        return Double.POSITIVE_INFINITY; // No intersection
+    double[] roots = new double[4];
+    int count = solveLocal(localOrigin, localDirection, roots);
+    
+    double closest = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      if (roots[i] > Ray.EPSILON && roots[i] < closest) {
+        closest = roots[i];
       }
     }
-    // If maximum steps reached without finding intersection
-    return Double.POSITIVE_INFINITY;
+    return closest;
+  }
+  
+  /**
+   * Intersects a local-space ray with the torus surface
+   * (x² + y² + z² + R² - r²)² = 4R²(x² + z²).
+   * Rays that miss the bounding sphere of radius R + r return no roots
+   * without reaching the quartic solver; the others are solved from where
+   * they enter that sphere, which keeps the quartic's coefficients small.
+   * @param o Local ray origin
+   * @param d Local ray direction, unit length
+   * @param roots Receives the hit distances along d, at least 4 long
+   * @return Number of roots written
+   */
+  private int solveLocal(MutableVector3 o, MutableVector3 d, double[] roots) {
+    final double R = majorRadius;
+    final double r = minorRadius;
+    
+    // Bounding sphere: |o + t d|² = (R + r)²
+    double bound = Math.abs(R) + Math.abs(r);
+    double b = o.x * d.x + o.y * d.y + o.z * d.z;
+    double c = o.x * o.x + o.y * o.y + o.z * o.z - bound * bound;
+    double disc = b * b - c;
+    if (disc < 0) return 0;
+    double sqrtDisc = Math.sqrt(disc);
+    if (-b + sqrtDisc < Ray.EPSILON) return 0;
+    double start = Math.max(0.0, -b - sqrtDisc);
+    
+    double ox = o.x + start * d.x;
+    double oy = o.y + start * d.y;
+    double oz = o.z + start * d.z;
+    
+    double f = ox * d.x + oy * d.y + oz * d.z;
+    double e = ox * ox + oy * oy + oz * oz + R * R - r * r;
+    double fourR2 = 4.0 * R * R;
+    
+    int count = PolynomialSolver.solveQuartic(
+      4.0 * f,
+      4.0 * f * f + 2.0 * e - fourR2 * (d.x * d.x + d.z * d.z),
+      4.0 * f * e - 2.0 * fourR2 * (ox * d.x + oz * d.z),
+      e * e - fourR2 * (ox * ox + oz * oz),
+      roots);
+    
+    for (int i = 0; i < count; i++) {
+      roots[i] += start;
+    }
+    return count;
   }
   
   /**
-   * Calculates all intersection intervals between a ray and this torus using ray marching.
-   * Detects both entry (tIn) and exit (tOut) points by monitoring the SDF sign change.
+   * Ray marching version of {@link #intersect(Ray)}.
+   *
+   * @param ray Ray to test for intersection (in world space).
+   * @return Distance from ray origin to intersection point (t) if exists, otherwise Double.POSITIVE_INFINITY.
+   */
+  private double marchIntersect(Ray ray) {
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
+    return marcher.march(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON);
+  }
+  
+  /**
+   * Calculates all intersection intervals between a ray and this torus.
+   * The sorted hit distances are paired into entry/exit intervals; a ray
+   * through the hole gives two intervals.
    * @param ray The ray to test, in world coordinates.
    * @return A list of IntersectionInterval objects. Empty if no valid interval.
    */
   @Override
   public List<IntersectionInterval> intersectAll(Ray ray) {
-    // 1. Transform the ray into local space
-    Point3 localOrigin = inverseTransform.transformPoint(ray.getOrigin());
-    Vector3 localDirection = inverseTransform.transformVector(ray.getDirection()).normalize();
+    if (intersectionMode == IntersectionMode.RAY_MARCHING) {
+      return marchIntersectAll(ray);
+    }
     
-    double totalDistance = 0.0;
-    Point3 currentPosition = localOrigin;
-    List<IntersectionInterval> intervals = new java.util.ArrayList<>();
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
-    // Track if we are currently inside the shape
-    boolean isInside = false;
-    double tIn = -1;
+    double[] roots = new double[4];
+    int count = solveLocal(localOrigin, localDirection, roots);
+    if (count < 2) {
+      return java.util.Collections.emptyList();
+    }
+    java.util.Arrays.sort(roots, 0, count);
     
-    for (int i = 0; i < MAX_MARCH_STEPS; i++) {
-      double sdf = calculateSDFLocal(currentPosition);
-      
-      boolean wasInside = isInside;
-      isInside = sdf < HIT_THRESHOLD;
-      
-      // Entry: from outside to inside
-      if (!wasInside && isInside && tIn < 0) {
-        tIn = totalDistance;
-      }
-      
-      // Exit: from inside to outside
-      if (wasInside && !isInside && tIn >= 0) {
-        double tOut = totalDistance;
-        
-        // Create Intersection objects
-        Point3 pointIn = ray.pointAtParameter(tIn);
-        Point3 pointOut = ray.pointAtParameter(tOut);
-        Vector3 normalIn = getNormalAt(pointIn);
-        Vector3 normalOut = getNormalAt(pointOut);
-        Intersection in = new Intersection(pointIn, normalIn, tIn, this);
-        Intersection out = new Intersection(pointOut, normalOut, tOut, this);
-        
-        intervals.add(new IntersectionInterval(tIn, tOut, in, out));
-        tIn = -1; // Reset for next interval
-      }
+    List<IntersectionInterval> intervals = new java.util.ArrayList<>(2);
+    // An odd count means a tangent double root was found once; the last root is dropped
+    for (int i = 0; i + 1 < count; i += 2) {
+      double tIn = roots[i];
+      double tOut = roots[i + 1];
+      if (tOut <= Ray.EPSILON) continue;
       
-      // Move ray forward
-      double step = Math.max(sdf, 0.01); // Avoid zero step
-      currentPosition = currentPosition.add(localDirection.scale(step));
-      totalDistance += step;
-      
-      if (totalDistance > MAX_MARCH_DISTANCE) {
-        break;
-      }
+      Point3 pointIn = ray.pointAtParameter(tIn);
+      Point3 pointOut = ray.pointAtParameter(tOut);
+      Intersection in = new Intersection(pointIn, getNormalAt(pointIn), tIn, this);
+      Intersection out = new Intersection(pointOut, getNormalAt(pointOut), tOut, this);
+      intervals.add(new IntersectionInterval(tIn, tOut, in, out));
     }
+    return intervals;
+  }
+  
+  /**
+   * Ray marching version of {@link #intersectAll(Ray)}.
+   * @param ray The ray to test, in world coordinates.
+   * @return A list of IntersectionInterval objects. Empty if no valid interval.
+   */
+  private List<IntersectionInterval> marchIntersectAll(Ray ray) {
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
+    
+    double[] hits = new double[4];
+    int count = marcher.marchAll(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON, hits);
     
+    List<IntersectionInterval> intervals = new java.util.ArrayList<>(2);
+    for (int i = 0; i < count; i += 2) {
+      double tIn = hits[i];
+      double tOut = hits[i + 1];
+      Point3 pointIn = ray.pointAtParameter(tIn);
+      Point3 pointOut = ray.pointAtParameter(tOut);
+      Intersection in = new Intersection(pointIn, getNormalAt(pointIn), tIn, this);
+      Intersection out = new Intersection(pointOut, getNormalAt(pointOut), tOut, this);
+      intervals.add(new IntersectionInterval(tIn, tOut, in, out));
+    }
     return intervals;
   }
   
   /**
    * Calculates the surface normal at intersection point.
-   * Normal is approximated using gradient of SDF function (via finite differences method).
+   * The normal points away from the nearest point of the tube's center circle,
+   * which is the exact gradient of the SDF.
    *
    * @param worldPoint Intersection point (in world space).
    * @return Normalized surface normal at intersection point (in world space).
@@ -230,15 +310,15 @@ public class Torus implements EMShape {
     // 1. Transform intersection point to object's local space
     Point3 localIntersectionPoint = inverseTransform.transformPoint(worldPoint);
     
-    final double h = 0.0001; // Small perturbation (epsilon) for gradient calculation
+    double x = localIntersectionPoint.x;
+    double y = localIntersectionPoint.y;
+    double z = localIntersectionPoint.z;
     
-    // Calculate normal in local space (numerical differentiation - approximate gradient)
-    // Using SDF value changes with dx, dy, dz increments
-    double nx = calculateSDFLocal(localIntersectionPoint.add(new Vector3(h, 0, 0))) - calculateSDFLocal(localIntersectionPoint.add(new Vector3(-h, 0, 0)));
-    double ny = calculateSDFLocal(localIntersectionPoint.add(new Vector3(0, h, 0))) - calculateSDFLocal(localIntersectionPoint.add(new Vector3(0, -h, 0)));
-    double nz = calculateSDFLocal(localIntersectionPoint.add(new Vector3(0, 0, h))) - calculateSDFLocal(localIntersectionPoint.add(new Vector3(0, 0, -h)));
+    // Nearest point on the center circle (radius R in the XZ plane)
+    double rho = Math.sqrt(x * x + z * z);
+    double scale = (rho > 1e-12) ? majorRadius / rho : 0.0;
     
-    Vector3 localNormal = new Vector3(nx, ny, nz).normalize();
+    Vector3 localNormal = new Vector3(x - x * scale, y, z - z * scale).normalize();
     
     // 2. Transform local normal back to world space
     // Normals are transformed using inverse transpose of model matrix
@@ -255,6 +335,17 @@ public class Torus implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the torus (main circle in the local XZ plane) in world space, padded by the marching hit threshold.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    double outer = Math.abs(majorRadius) + Math.abs(minorRadius) + HIT_THRESHOLD;
+    double tube = Math.abs(minorRadius) + HIT_THRESHOLD;
+    return BoundingBox.fromLocal(-outer, -tube, -outer, outer, tube, outer, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
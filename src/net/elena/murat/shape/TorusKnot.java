@@ -32,134 +32,108 @@ public class TorusKnot implements EMShape {
   
   private String name = "torusknot";
   
+  // Tube radius as a fraction of r
+  private static final double TUBE_FACTOR = 0.3;
+  private static final double HIT_THRESHOLD = 0.005;
+  private static final double NORMAL_EPSILON = 0.001;
+  // Tube stretches reported per ray by intersectAll
+  private static final int MAX_INTERVALS = 16;
+  
+  private final SDFMarcher marcher;
+  
   public TorusKnot(double R, double r, int p, int q) {
     this.R = Math.max(0.1, R);
     this.r = Math.max(0.05, r);
     this.p = p;
     this.q = q;
+    
+    this.marcher = new SDFMarcher(this::distanceLocal);
+    this.marcher.setLipschitz(2.0);
+    this.marcher.setHitTolerance(HIT_THRESHOLD, 1e-4);
+    double outer = this.R + this.r * (1.0 + TUBE_FACTOR) + HIT_THRESHOLD;
+    double tube = this.r * (1.0 + TUBE_FACTOR) + HIT_THRESHOLD;
+    this.marcher.setBoundingBox(-outer, -outer, -tube, outer, outer, tube);
+  }
+  
+  /**
+   * Marcher behind intersect and intersectAll, for tuning its
+   * relaxation, step count or tolerance.
+   */
+  public SDFMarcher getMarcher() {
+    return marcher;
   }
   
   @Override
   public double intersect(Ray ray) {
-    Ray localRay = new Ray(
-      inverseTransform.transformPoint(ray.getOrigin()),
-      inverseTransform.transformVector(ray.getDirection()).normalize()
-    );
-    
-    // Sphere marching ile kesişim
-    double t = 0.0;
-    double stepSize = 0.05;
-    int maxSteps = 200;
-    double threshold = 0.005;
-    
-    for (int i = 0; i < maxSteps; i++) {
-      Point3 point = localRay.pointAtParameter(t);
-      double dist = signedDistanceFunction(point);
-      
-      if (dist < threshold) {
-        if (t > Ray.EPSILON) {
-          return t;
-        }
-        break;
-      }
-      
-      if (t > 100.0) break;
-      t += Math.max(dist * 0.5, stepSize);
-    }
-    
-    return -1.0;
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
+    return marcher.march(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON);
   }
   
   /**
-   * Calculates all intersection intervals between a ray and this torus knot using ray marching.
-   * Detects both entry (tIn) and exit (tOut) points by monitoring the SDF sign change.
+   * Calculates all intersection intervals between a ray and this torus knot
+   * by marching from one surface crossing to the next.
    * @param ray The ray to test, in world coordinates.
    * @return A list of IntersectionInterval objects. Empty if no valid interval.
    */
   @Override
   public List<IntersectionInterval> intersectAll(Ray ray) {
-    // 1. Transform the ray into local space
-    Ray localRay = new Ray(
-      inverseTransform.transformPoint(ray.getOrigin()),
-      inverseTransform.transformVector(ray.getDirection()).normalize()
-    );
-    
-    double t = 0.0;
-    double stepSize = 0.05;
-    int maxSteps = 200;
-    double threshold = 0.005;
-    double maxDistance = 100.0;
+    MutableVector3 o = new MutableVector3();
+    MutableVector3 d = new MutableVector3();
+    inverseTransform.transformRay(ray, o, d);
     
-    List<IntersectionInterval> intervals = new java.util.ArrayList<>();
-    boolean isInside = false;
-    double tIn = -1;
-    
-    for (int i = 0; i < maxSteps; i++) {
-      Point3 point = localRay.pointAtParameter(t);
-      double dist = signedDistanceFunction(point);
-      
-      boolean wasInside = isInside;
-      isInside = dist < threshold;
-      
-      // Entry: from outside to inside
-      if (!wasInside && isInside && tIn < 0 && t > Ray.EPSILON) {
-        tIn = t;
-      }
-      
-      // Exit: from inside to outside
-      if (wasInside && !isInside && tIn >= 0) {
-        double tOut = t;
-        
-        // Create Intersection objects
-        Point3 worldIn = ray.pointAtParameter(tIn);
-        Point3 worldOut = ray.pointAtParameter(tOut);
-        Vector3 normalIn = getNormalAt(worldIn);
-        Vector3 normalOut = getNormalAt(worldOut);
-        Intersection in = new Intersection(worldIn, normalIn, tIn, this);
-        Intersection out = new Intersection(worldOut, normalOut, tOut, this);
-        
-        intervals.add(new IntersectionInterval(tIn, tOut, in, out));
-        tIn = -1; // Reset for next interval
-      }
-      
-      // Move forward
-      t += Math.max(dist * 0.5, stepSize);
-      
-      if (t > maxDistance) {
-        // Handle case where ray ends inside (optional)
-        break;
-      }
+    double[] hits = new double[2 * MAX_INTERVALS];
+    int count = marcher.marchAll(o.x, o.y, o.z, d.x, d.y, d.z, Ray.EPSILON, hits);
+    if (count == 0) {
+      return java.util.Collections.emptyList();
     }
     
+    List<IntersectionInterval> intervals = new java.util.ArrayList<>(count / 2);
+    for (int i = 0; i < count; i += 2) {
+      double tIn = hits[i];
+      double tOut = hits[i + 1];
+      Point3 worldIn = ray.pointAtParameter(tIn);
+      Point3 worldOut = ray.pointAtParameter(tOut);
+      Intersection in = new Intersection(worldIn, getNormalAt(worldIn), tIn, this);
+      Intersection out = new Intersection(worldOut, getNormalAt(worldOut), tOut, this);
+      intervals.add(new IntersectionInterval(tIn, tOut, in, out));
+    }
     return intervals;
   }
   
-  private double signedDistanceFunction(Point3 p) {
-    double theta = Math.atan2(p.y, p.x);
-    double phi = (this.q * theta) / this.p; // Düzeltme: this.p kullanıldı
-    
-    Point3 knotPos = new Point3(
-      (R + r * Math.cos(phi)) * Math.cos(theta),
-      (R + r * Math.cos(phi)) * Math.sin(theta),
-      r * Math.sin(phi)
-    );
+  /**
+   * Distance to the tube around the knot curve, in local coordinates.
+   * The curve winds p times around the Z axis, so a half-plane through
+   * that axis cuts it at p points; the nearest of them is used. Taking the
+   * curve point at the same angle rather than the truly nearest one
+   * overestimates the distance a little, hence the Lipschitz bound of 2.
+   */
+  private double distanceLocal(double x, double y, double z) {
+    double theta = Math.atan2(y, x);
+    double cosTheta = Math.cos(theta);
+    double sinTheta = Math.sin(theta);
+    int strands = Math.max(1, Math.abs(p));
     
-    return p.subtract(knotPos).length() - (r * 0.3);
+    double nearest = Double.POSITIVE_INFINITY;
+    for (int k = 0; k < strands; k++) {
+      double phi = (q * (theta + 2.0 * Math.PI * k)) / p;
+      double ring = R + r * Math.cos(phi);
+      double ex = x - ring * cosTheta;
+      double ey = y - ring * sinTheta;
+      double ez = z - r * Math.sin(phi);
+      nearest = Math.min(nearest, ex * ex + ey * ey + ez * ez);
+    }
+    return Math.sqrt(nearest) - TUBE_FACTOR * r;
   }
   
   @Override
   public Vector3 getNormalAt(Point3 worldPoint) {
     Point3 localPoint = inverseTransform.transformPoint(worldPoint);
     
-    double eps = 0.001;
-    double dx = signedDistanceFunction(localPoint.add(new Vector3(eps, 0, 0))) -
-    signedDistanceFunction(localPoint.add(new Vector3(-eps, 0, 0)));
-    double dy = signedDistanceFunction(localPoint.add(new Vector3(0, eps, 0))) -
-    signedDistanceFunction(localPoint.add(new Vector3(0, -eps, 0)));
-    double dz = signedDistanceFunction(localPoint.add(new Vector3(0, 0, eps))) -
-    signedDistanceFunction(localPoint.add(new Vector3(0, 0, -eps)));
-    
-    Vector3 localNormal = new Vector3(dx, dy, dz).normalize();
+    MutableVector3 n = marcher.normal(localPoint.x, localPoint.y, localPoint.z,
+      NORMAL_EPSILON, new MutableVector3());
+    Vector3 localNormal = new Vector3(n.x, n.y, n.z);
     return inverseTransform.inverseTransposeForNormal().transformVector(localNormal).normalize();
   }
   
@@ -198,6 +172,19 @@ public class TorusKnot implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the knot tube in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    // Knot curve stays within R + r of the Z axis and r of the XY plane;
+    // the tube adds 0.3r and marching accepts hits up to HIT_THRESHOLD away.
+    double outer = R + r * (1.0 + TUBE_FACTOR) + HIT_THRESHOLD;
+    double tube = r * (1.0 + TUBE_FACTOR) + HIT_THRESHOLD;
+    return BoundingBox.fromLocal(-outer, -outer, -tube, outer, outer, tube, transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
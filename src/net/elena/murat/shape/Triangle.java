@@ -14,6 +14,8 @@ import net.elena.murat.math.*;
 public class Triangle implements EMShape {
   // Vertices defined in the triangle's LOCAL coordinate system
   private final Point3 localV0, localV1, localV2;
+  // Edges v1 - v0 and v2 - v0, reused by every intersection test
+  private final Vector3 localEdge1, localEdge2;
   private Material material;
   
   private Color shadowColor = Color.BLACK;
@@ -31,6 +33,7 @@ public class Triangle implements EMShape {
   // Transformation matrices
   private Matrix4 transform;        // Local to World transformation matrix
   private Matrix4 inverseTransform; // World to Local transformation matrix
+  private Matrix4 normalTransform;  // Inverse transpose for normals, cached with the transform
   
   // Precomputed local normal for optimization (recalculated if vertices change, not transform)
   private Vector3 precomputedLocalNormal;
@@ -49,11 +52,14 @@ public class Triangle implements EMShape {
     this.localV0 = v0;
     this.localV1 = v1;
     this.localV2 = v2;
+    this.localEdge1 = v1.subtract(v0);
+    this.localEdge2 = v2.subtract(v0);
     this.material = null;
     
     // Initialize with identity transform by default
     this.transform = new Matrix4();
     this.inverseTransform = new Matrix4();
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
     
     precomputeLocalNormal(); // Compute normal based on local vertices
   }
@@ -70,6 +76,11 @@ public class Triangle implements EMShape {
     return this.material;
   }
   
+  @Override
+  public boolean isFlat() {
+    return true;
+  }
+  
   /**
    * Sets the transformation matrix that converts points/vectors from the triangle's
    * local space to world space. When this is set, the inverse transform is also computed.
@@ -86,6 +97,7 @@ public class Triangle implements EMShape {
       System.err.println("Warning: Could not compute inverse transform for Triangle (determinant zero). Using identity matrix.");
       this.inverseTransform = new Matrix4();
     }
+    this.normalTransform = inverseTransform.inverseTransposeForNormal();
   }
   
   /**
@@ -114,9 +126,7 @@ public class Triangle implements EMShape {
    * when viewed from the front face.
    */
   private void precomputeLocalNormal() {
-    Vector3 edge1 = localV1.subtract(localV0);
-    Vector3 edge2 = localV2.subtract(localV0);
-    this.precomputedLocalNormal = edge1.cross(edge2).normalize();
+    this.precomputedLocalNormal = localEdge1.cross(localEdge2).normalize();
   }
   
   /**
@@ -129,21 +139,19 @@ public class Triangle implements EMShape {
   @Override
   public double intersect(Ray ray) {
     // 1. Transform the world ray into the triangle's local coordinate system
-    Point3 localOrigin = inverseTransform.transformPoint(ray.getOrigin());
     // Normalize localDirection in case of non-uniform scaling affecting length,
     // although for Moller-Trumbore, the length of the direction vector affects 't' linearly.
     // It's crucial for normal transformations later if using transformVector with non-uniform scale.
-    Vector3 localDirection = inverseTransform.transformVector(ray.getDirection()).normalize();
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
-    // Create a local ray for intersection testing
-    Ray localRay = new Ray(localOrigin, localDirection);
+    // Vertices and edges are already in local space
+    Vector3 edge1 = localEdge1;
+    Vector3 edge2 = localEdge2;
     
-    // Vertices for intersection are already in local space (localV0, localV1, localV2)
-    Vector3 edge1 = localV1.subtract(localV0);
-    Vector3 edge2 = localV2.subtract(localV0);
-    
-    Vector3 pvec = localRay.getDirection().cross(edge2);
-    double det = edge1.dot(pvec);
+    MutableVector3 pvec = new MutableVector3().setCross(localDirection, edge2);
+    double det = pvec.dot(edge1);
     
     // Check for parallel ray (determinant close to zero)
     if (det > -Ray.EPSILON && det < Ray.EPSILON) {
@@ -152,7 +160,8 @@ public class Triangle implements EMShape {
     
     double invDet = 1.0 / det;
     
-    Vector3 tvec = localRay.getOrigin().subtract(localV0);
+    MutableVector3 tvec = new MutableVector3(
+      localOrigin.x - localV0.x, localOrigin.y - localV0.y, localOrigin.z - localV0.z);
     double u = tvec.dot(pvec) * invDet;
     
     // Check barycentric coordinate U
@@ -160,15 +169,15 @@ public class Triangle implements EMShape {
       return Double.POSITIVE_INFINITY;
     }
     
-    Vector3 qvec = tvec.cross(edge1);
-    double v = localRay.getDirection().dot(qvec) * invDet;
+    MutableVector3 qvec = new MutableVector3().setCross(tvec, edge1);
+    double v = localDirection.dot(qvec) * invDet;
     
     // Check barycentric coordinate V
     if (v < -Ray.EPSILON || u + v > 1.0 + Ray.EPSILON) { // Add epsilon for robustness
       return Double.POSITIVE_INFINITY;
     }
     
-    double t = edge2.dot(qvec) * invDet;
+    double t = qvec.dot(edge2) * invDet;
     
     // Check if the intersection point is in front of the ray origin
     if (t > Ray.EPSILON) {
@@ -248,8 +257,34 @@ public class Triangle implements EMShape {
     // Normals transform with the inverse transpose of the model matrix.
     // For triangles, the normal is constant across the surface.
     //Matrix4 normalTransformMatrix = this.inverseTransform.transpose(); // M_normal = (M^-1)^T
-    Matrix4 normalTransformMatrix = this.inverseTransform.inverseTransposeForNormal(); // Normaller için yeni metod
-    return normalTransformMatrix.transformVector(precomputedLocalNormal).normalize(); // Ensure normalized after transform
+    return normalTransform.transformVector(precomputedLocalNormal).normalize(); // Ensure normalized after transform
+  }
+  
+  /**
+   * Fills the hit with the local point and the barycentric coordinates as UV:
+   * u is the weight of v1 and v the weight of v2, as in the intersection
+   * test. The primitive index is always 0.
+   */
+  @Override
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    Point3 worldPoint = ray.pointAtParameter(t);
+    Point3 localPoint = inverseTransform.transformPoint(worldPoint);
+    
+    hit.reset(this, t, worldPoint);
+    hit.setLocalPoint(inverseTransform, localPoint);
+    hit.setNormal(getNormalAt(worldPoint).normalize(), ray.getDirection());
+    hit.setPrimitive(0);
+    
+    Vector3 d = localPoint.subtract(localV0);
+    double d00 = localEdge1.dot(localEdge1);
+    double d01 = localEdge1.dot(localEdge2);
+    double d11 = localEdge2.dot(localEdge2);
+    double d20 = d.dot(localEdge1);
+    double d21 = d.dot(localEdge2);
+    double denom = d00 * d11 - d01 * d01;
+    if (denom != 0.0) {
+      hit.setUV((d11 * d20 - d01 * d21) / denom, (d00 * d21 - d01 * d20) / denom);
+    }
   }
   
   // You might still want these getters for debugging or specific use cases,
@@ -275,6 +310,22 @@ public class Triangle implements EMShape {
   public Matrix4[] getAnimationTransforms() {
     return this.animTransforms;
   }
+  /**
+   * Bounds of the three local vertices in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    return BoundingBox.fromLocal(
+      Math.min(localV0.x, Math.min(localV1.x, localV2.x)),
+      Math.min(localV0.y, Math.min(localV1.y, localV2.y)),
+      Math.min(localV0.z, Math.min(localV1.z, localV2.z)),
+      Math.max(localV0.x, Math.max(localV1.x, localV2.x)),
+      Math.max(localV0.y, Math.max(localV1.y, localV2.y)),
+      Math.max(localV0.z, Math.max(localV1.z, localV2.z)),
+      transform);
+  }
+
   
   @Override
   public Color getShadowColor() {
@@ -4,14 +4,17 @@ import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
 
 import net.elena.murat.math.*;
 import net.elena.murat.material.Material;
 import net.elena.murat.shape.EMShape;
 import net.elena.murat.util.ImageUtils3D;
+import net.elena.murat.util.PixelMesh;
 
 public class Image3D implements EMShape {
+  // How far, in the unit image box, a point may be from the last hit to count as that hit
+  private static final double HIT_TOLERANCE = 1e-6;
+  
   private final BufferedImage bimg;
   private final int baseSize;
   private final double widthScale;
@@ -20,10 +23,20 @@ public class Image3D implements EMShape {
   private Matrix4 transform;
   private Matrix4 inverseTransform;
   private Material material;
-  private final ImageUtils3D.ImageMesh mesh;
+  private final PixelMesh mesh;
   private Color shadowColor = Color.BLACK;
   private double shadowBias = 0.001;
   private Matrix4[] animTransforms = new Matrix4[] {new Matrix4(), new Matrix4()};
+  
+  // Last closest hit on each thread: t, local hit point, face (-1 after a miss).
+  // getNormalAt reads the face back instead of searching the mesh for it.
+  private final ThreadLocal<double[]> lastHit = new ThreadLocal<double[]>() {
+    @Override
+    protected double[] initialValue() {
+      return new double[] {0, 0, 0, 0, -1};
+    }
+  };
+  
   private String imagePath = "textures/turkeyFlag.png";
   
   private String otherAnimationInfo = "veofr,0e0fr,veofr";
@@ -54,135 +67,91 @@ public class Image3D implements EMShape {
     // Original render (slow but correct)
     BufferedImage img = ImageUtils3D.getBufferedImage(bimg, widthScale, heightScale, baseSize);
     
-    // DEBUG
-    try {
-      javax.imageio.ImageIO.write(img, "PNG", new java.io.File("x3dImage.png"));
-      System.out.println ("Created x3dImage.png file.");
-    } catch (java.io.IOException ioe)
-    {}
-    
     boolean[][] pixelData = ImageUtils3D.getImagePixelData(img);
     this.mesh = ImageUtils3D.getImageMeshData(pixelData, thickness);
   }
   
   @Override
   public List<IntersectionInterval> intersectAll(Ray worldRay) {
-    if (!intersectBoundingBox(worldRay)) {
-      return Collections.emptyList();
-    }
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(worldRay, localOrigin, localDirection);
     
-    Ray localRay = new Ray(
-      inverseTransform.transformPoint(worldRay.getOrigin()),
-      inverseTransform.transformVector(worldRay.getDirection())
+    final Ray localRay = Ray.fromUnitDirection(
+      new Point3(localOrigin.x, localOrigin.y, localOrigin.z),
+      new Vector3(localDirection.x, localDirection.y, localDirection.z)
     );
     
-    List<IntersectionInterval> intervals = new ArrayList<>(16);
+    final List<IntersectionInterval> intervals = new ArrayList<>(16);
     
-    for (ImageUtils3D.Face face : mesh.faces) {
-      ImageUtils3D.Vertex v1 = mesh.vertices.get(face.v1);
-      ImageUtils3D.Vertex v2 = mesh.vertices.get(face.v2);
-      ImageUtils3D.Vertex v3 = mesh.vertices.get(face.v3);
-      
-      Point3 p1 = new Point3(v1.x, v1.y, v1.z);
-      Point3 p2 = new Point3(v2.x, v2.y, v2.z);
-      Point3 p3 = new Point3(v3.x, v3.y, v3.z);
-      
-      Vector3 edge1 = p2.subtract(p1);
-      Vector3 edge2 = p3.subtract(p1);
-      Vector3 normal = edge1.cross(edge2);
-      double denom = normal.dot(localRay.getDirection());
-      
-      if (denom > -Ray.EPSILON && denom < Ray.EPSILON) continue;
-      
-      double t = normal.dot(p1.toVector().subtract(localRay.getOrigin().toVector())) / denom;
-      if (t < Ray.EPSILON) continue;
-      
-      Point3 hitPoint = localRay.pointAtParameter(t);
-      
-      if (isPointInTriangle(hitPoint, p1, p2, p3)) {
+    mesh.allHits(localOrigin.x, localOrigin.y, localOrigin.z,
+      localDirection.x, localDirection.y, localDirection.z, Ray.EPSILON,
+      (t, face) -> {
+        Point3 hitPoint = localRay.pointAtParameter(t);
+        Vector3 normal = mesh.getNormal(face);
         intervals.add(new IntersectionInterval(t, t,
-            new Intersection(hitPoint, normal.normalize(), t, this),
-        new Intersection(hitPoint, normal.normalize(), t, this)));
-      }
-    }
+            new Intersection(hitPoint, normal, t, this),
+        new Intersection(hitPoint, normal, t, this)));
+    });
     
     intervals.sort((a, b) -> Double.compare(a.tIn, b.tIn));
     return intervals;
   }
   
-  private boolean intersectBoundingBox(Ray worldRay) {
-    Point3 boundsMin = new Point3(0, 0, -thickness/2);
-    Point3 boundsMax = new Point3(1, 1, thickness/2);
-    Point3 localOrigin = inverseTransform.transformPoint(worldRay.getOrigin());
-    Vector3 localDir = inverseTransform.transformVector(worldRay.getDirection());
-    double tMin = Double.NEGATIVE_INFINITY;
-    double tMax = Double.POSITIVE_INFINITY;
-    
-    for (int i = 0; i < 3; i++) {
-      double invD = 1.0 / localDir.get(i);
-      double t0 = (boundsMin.get(i) - localOrigin.get(i)) * invD;
-      double t1 = (boundsMax.get(i) - localOrigin.get(i)) * invD;
-      
-      if (invD < 0.0) {
-        double temp = t0;
-        t0 = t1;
-        t1 = temp;
-      }
-      
-      tMin = Math.max(t0, tMin);
-      tMax = Math.min(t1, tMax);
-      
-      if (tMax <= tMin) return false;
-    }
-    return true;
-  }
-  
-  private boolean isPointInTriangle(Point3 p, Point3 a, Point3 b, Point3 c) {
-    Vector3 v0 = c.subtract(a);
-    Vector3 v1 = b.subtract(a);
-    Vector3 v2 = p.subtract(a);
-    
-    double dot00 = v0.dot(v0);
-    double dot01 = v0.dot(v1);
-    double dot02 = v0.dot(v2);
-    double dot11 = v1.dot(v1);
-    double dot12 = v1.dot(v2);
+  @Override public double intersect(Ray ray) {
+    MutableVector3 localOrigin = new MutableVector3();
+    MutableVector3 localDirection = new MutableVector3();
+    inverseTransform.transformRay(ray, localOrigin, localDirection);
     
-    double invDenom = 1.0 / (dot00 * dot11 - dot01 * dot01);
-    double u = (dot11 * dot02 - dot01 * dot12) * invDenom;
-    double v = (dot00 * dot12 - dot01 * dot02) * invDenom;
+    double[] hit = lastHit.get();
+    int face = mesh.closestHit(localOrigin.x, localOrigin.y, localOrigin.z,
+      localDirection.x, localDirection.y, localDirection.z, Ray.EPSILON, hit);
+    hit[4] = face;
+    if (face < 0) return Double.POSITIVE_INFINITY;
     
-    return (u >= 0) && (v >= 0) && (u + v <= 1);
+    double t = hit[0];
+    hit[1] = localOrigin.x + t * localDirection.x;
+    hit[2] = localOrigin.y + t * localDirection.y;
+    hit[3] = localOrigin.z + t * localDirection.z;
+    return t;
   }
   
-  @Override public double intersect(Ray ray) {
-    List<IntersectionInterval> intervals = intersectAll(ray);
-    return intervals.isEmpty() ? Double.POSITIVE_INFINITY : intervals.get(0).tIn;
+  @Override
+  public Vector3 getNormalAt(Point3 point) {
+    return worldNormal(faceAt(inverseTransform.transformPoint(point)));
   }
   
+  /**
+   * Fills the hit with the local point and the mesh face as primitive index,
+   * found once for both the face and the normal.
+   */
   @Override
-  public Vector3 getNormalAt(Point3 point) {
+  public void fillHit(Ray ray, double t, HitRecord hit) {
+    Point3 point = ray.pointAtParameter(t);
     Point3 localPoint = inverseTransform.transformPoint(point);
-    double minDistance = Double.POSITIVE_INFINITY;
-    Vector3 closestNormal = new Vector3(0, 1, 0);
+    int face = faceAt(localPoint);
     
-    for (ImageUtils3D.Face face : mesh.faces) {
-      ImageUtils3D.Vertex v1 = mesh.vertices.get(face.v1);
-      ImageUtils3D.Vertex v2 = mesh.vertices.get(face.v2);
-      ImageUtils3D.Vertex v3 = mesh.vertices.get(face.v3);
-      
-      Point3 p1 = new Point3(v1.x, v1.y, v1.z);
-      Point3 p2 = new Point3(v2.x, v2.y, v2.z);
-      Point3 p3 = new Point3(v3.x, v3.y, v3.z);
-      
-      Vector3 normal = p2.subtract(p1).cross(p3.subtract(p1)).normalize();
-      double distance = Math.abs(normal.dot(localPoint.toVector().subtract(p1.toVector())));
-      
-      if (distance < minDistance) {
-        minDistance = distance;
-        closestNormal = normal;
-      }
+    hit.reset(this, t, point);
+    hit.setLocalPoint(inverseTransform, localPoint);
+    hit.setNormal(worldNormal(face).normalize(), ray.getDirection());
+    hit.setPrimitive(face);
+  }
+  
+  private int faceAt(Point3 localPoint) {
+    // Normally the point is the one the last intersect call found on this thread
+    double[] hit = lastHit.get();
+    int face = (int) hit[4];
+    if (face < 0
+      || Math.abs(localPoint.x - hit[1]) > HIT_TOLERANCE
+      || Math.abs(localPoint.y - hit[2]) > HIT_TOLERANCE
+      || Math.abs(localPoint.z - hit[3]) > HIT_TOLERANCE) {
+      face = mesh.nearestFace(localPoint.x, localPoint.y, localPoint.z);
     }
+    return face;
+  }
+  
+  private Vector3 worldNormal(int face) {
+    Vector3 closestNormal = face >= 0 ? mesh.getNormal(face) : new Vector3(0, 1, 0);
     
     Vector3 scaledNormal = inverseTransform.transformNormal(closestNormal);
     return new Vector3(
@@ -221,6 +190,17 @@ public class Image3D implements EMShape {
   public Matrix4[] getAnimationTransforms() {
 	return this.animTransforms;
   }
+
+  /**
+   * Bounds of the unit image box in world space.
+   * @return World-space bounds for the current transform.
+   */
+  @Override
+  public BoundingBox getWorldBounds() {
+    // Same local box that intersectAll already uses to reject rays.
+    double ht = Math.abs(thickness) / 2.0;
+    return BoundingBox.fromLocal(0, 0, -ht, 1, 1, ht, transform);
+  }
   
   @Override
   public Color getShadowColor() {
@@ -329,18 +309,18 @@ public class Image3D implements EMShape {
   }
   ///////////////////////
  
-  @Override
-  public String toString() {
-    StringBuffer sb = new StringBuffer();
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
     sb.append("Image3D " + name + " {\n");
-    sb.append("    name = " + name + ";\n");
-    sb.append("    imagePath = " + getImagePath() + ";\n");
-    sb.append("    baseSize = " + baseSize + ";\n");
-    sb.append("    widthScale = " + widthScale + ";\n");
-    sb.append("    heightScale = " + heightScale + ";\n");
-    sb.append("    thickness = " + thickness + ";\n");
-    sb.append("\n");
-    sb.append("    transform = " + getTransform().toString() + ";\n");
+    sb.append("    name = " + name + ";\n");
+    sb.append("    imagePath = " + getImagePath() + ";\n");
+    sb.append("    baseSize = " + baseSize + ";\n");
+    sb.append("    widthScale = " + widthScale + ";\n");
+    sb.append("    heightScale = " + heightScale + ";\n");
+    sb.append("    thickness = " + thickness + ";\n");
+    sb.append("\n");
+    sb.append("    transform = " + getTransform().toString() + ";\n");
     sb.append("\n");
     sb.append("    firstAnim_" + animTransforms[0].toString() + "\n");
     sb.append("    secondAnim_" + animTransforms[1].toString() + "\n");
@@ -355,9 +335,9 @@ public class Image3D implements EMShape {
 	sb.append("    isShadowOnly = " + isShadowOnly + ";\n");
 	sb.append("    isReflective = " + isReflective + ";\n");
 	sb.append("    isRefractive = " + isRefractive + ";\n");
-	sb.append("\n");
-    sb.append("    material = " + getMaterial().toString() + ";\n}");
-    return sb.toString();
-  }
-
+	sb.append("\n");
+    sb.append("    material = " + getMaterial().toString() + ";\n}");
+    return sb.toString();
+  }
+
 }
@@ -543,6 +543,23 @@ public final class ColorUtil {
     return new Color(clamp(r), clamp(g), clamp(b));
   }
   
+  /**
+   * Same as {@link #bilinearInterpolate(Color, Color, Color, Color, double, double)}
+   * for packed ARGB texels, e.g. from {@link TextureSampler}
+   * Result is always fully opaque (alpha=255)
+   */
+  public static Color bilinearInterpolate(int c00, int c10, int c01, int c11, double tx, double ty) {
+    double w00 = (1-tx)*(1-ty), w10 = tx*(1-ty), w01 = (1-tx)*ty, w11 = tx*ty;
+    int r = (int)(w00*((c00 >> 16) & 0xFF) + w10*((c10 >> 16) & 0xFF) +
+    w01*((c01 >> 16) & 0xFF) + w11*((c11 >> 16) & 0xFF));
+    int g = (int)(w00*((c00 >> 8) & 0xFF) + w10*((c10 >> 8) & 0xFF) +
+    w01*((c01 >> 8) & 0xFF) + w11*((c11 >> 8) & 0xFF));
+    int b = (int)(w00*(c00 & 0xFF) + w10*(c10 & 0xFF) +
+    w01*(c01 & 0xFF) + w11*(c11 & 0xFF));
+    
+    return new Color(clamp(r), clamp(g), clamp(b));
+  }
+  
   /**
    * Blends two colors with given ratio (0.0-1.0)
    * Result is always fully opaque (alpha=255)
@@ -2,16 +2,10 @@ package net.elena.murat.util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 
 public final class ImageUtils3D {
   private ImageUtils3D() {}
   
-  // Cache mechanism with improved key generation
-  private static final ConcurrentHashMap<String, ImageMesh> MESH_CACHE = new ConcurrentHashMap<>();
-  
   public static BufferedImage getBufferedImage(BufferedImage source, double widthScale, double heightScale, int size) {
     final double baseSize = (double)(size);
     int width = (int)(baseSize * widthScale);
@@ -82,106 +76,15 @@ public final class ImageUtils3D {
     return result;
   }
   
-  public static ImageMesh getImageMeshData(boolean[][] pixels, double thickness) {
-    int width = pixels.length;
-    int height = pixels[0].length;
-    
-    String cacheKey = width + "x" + height + "t" + thickness;
-    return MESH_CACHE.computeIfAbsent(cacheKey, k -> {
-        List<Vertex> vertices = new ArrayList<>();
-        List<Face> faces = new ArrayList<>();
-        double halfThickness = thickness / 2;
-        double scaleX = 1.0 / width;
-        double scaleY = 1.0 / height;
-        
-        for (int x = 0; x < width; x++) {
-          for (int y = 0; y < height; y++) {
-            if (pixels[x][y]) {
-              addOptimizedVoxel(vertices, faces, x, y, halfThickness, scaleX, scaleY);
-            }
-          }
-        }
-        
-        return new ImageMesh(vertices, faces);
-    });
-  }
-  
-  private static void addOptimizedVoxel(List<Vertex> vertices, List<Face> faces,
-    int x, int y, double halfThick, double scaleX, double scaleY) {
-    double px = x * scaleX;
-    double py = y * scaleY;
-    int baseIndex = vertices.size();
-    
-    // Create 8 vertices for the voxel
-    vertices.add(new Vertex(px,        py,        -halfThick)); // 0
-    vertices.add(new Vertex(px + scaleX, py,        -halfThick)); // 1
-    vertices.add(new Vertex(px + scaleX, py + scaleY, -halfThick)); // 2
-    vertices.add(new Vertex(px,        py + scaleY, -halfThick)); // 3
-    vertices.add(new Vertex(px,        py,         halfThick)); // 4
-    vertices.add(new Vertex(px + scaleX, py,         halfThick)); // 5
-    vertices.add(new Vertex(px + scaleX, py + scaleY,  halfThick)); // 6
-    vertices.add(new Vertex(px,        py + scaleY,  halfThick)); // 7
-    
-    // Create 12 triangular faces (2 per cube face)
-    int[] faceIndices = {
-      // Front face
-      baseIndex, baseIndex+1, baseIndex+2,
-      baseIndex, baseIndex+2, baseIndex+3,
-      // Back face
-      baseIndex+4, baseIndex+6, baseIndex+5,
-      baseIndex+4, baseIndex+7, baseIndex+6,
-      // Top face
-      baseIndex, baseIndex+4, baseIndex+5,
-      baseIndex, baseIndex+5, baseIndex+1,
-      // Bottom face
-      baseIndex+3, baseIndex+2, baseIndex+6,
-      baseIndex+3, baseIndex+6, baseIndex+7,
-      // Right face
-      baseIndex+1, baseIndex+5, baseIndex+6,
-      baseIndex+1, baseIndex+6, baseIndex+2,
-      // Left face
-      baseIndex, baseIndex+3, baseIndex+7,
-      baseIndex, baseIndex+7, baseIndex+4
-    };
-    
-    for (int i = 0; i < faceIndices.length; i += 3) {
-      faces.add(new Face(
-          faceIndices[i],
-          faceIndices[i+1],
-          faceIndices[i+2]
-      ));
-    }
-  }
-  
-  // Immutable vertex class
-  public static final class Vertex {
-    public final double x, y, z;
-    public Vertex(double x, double y, double z) {
-      this.x = x;
-      this.y = y;
-      this.z = z;
-    }
-  }
-  
-  // Immutable face class
-  public static final class Face {
-    public final int v1, v2, v3;
-    public Face(int v1, int v2, int v3) {
-      this.v1 = v1;
-      this.v2 = v2;
-      this.v3 = v3;
-    }
-  }
-  
-  // Immutable mesh container
-  public static final class ImageMesh {
-    public final List<Vertex> vertices;
-    public final List<Face> faces;
-    
-    public ImageMesh(List<Vertex> vertices, List<Face> faces) {
-      this.vertices = new ArrayList<>(vertices); // Java 6/8 uyumlu defensive copy
-      this.faces = new ArrayList<>(faces);       // Java 6/8 uyumlu defensive copy
-    }
+  /**
+   * Builds the extruded mesh of a pixel mask: greedy-merged caps and
+   * outline walls, see {@link PixelMesh}.
+   * @param pixels Mask from getImagePixelData
+   * @param thickness Extent along z
+   * @return A new mesh
+   */
+  public static PixelMesh getImageMeshData(boolean[][] pixels, double thickness) {
+    return PixelMesh.extrude(pixels, thickness);
   }
   
 }
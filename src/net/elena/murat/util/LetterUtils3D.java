@@ -2,15 +2,18 @@ package net.elena.murat.util;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public final class LetterUtils3D {
   private LetterUtils3D() {}
   
-  // Cache mechanism with improved key generation
-  private static final ConcurrentHashMap<String, LetterMesh> MESH_CACHE = new ConcurrentHashMap<>();
+  // Glyph meshes shared by every Letter3D, least recently used first
+  private static final Map<GlyphKey, PixelMesh> GLYPH_CACHE = new LinkedHashMap<>(64, 0.75f, true);
+  private static int glyphCacheSize = 256;
+  private static long glyphCacheHits;
+  private static long glyphCacheMisses;
   
   public static BufferedImage getLetterImage(char c, Font font, double widthScale, double heightScale, int size) {
     final double baseSize = (double)(size);
@@ -66,105 +69,131 @@ public final class LetterUtils3D {
     return pixels;
   }
   
-  public static LetterMesh getLetterMeshData(boolean[][] pixels, double thickness) {
-    int width = pixels.length;
-    int height = pixels[0].length;
-    
-    String cacheKey = width + "x" + height + "t" + thickness;
-    return MESH_CACHE.computeIfAbsent(cacheKey, k -> {
-        List<Vertex> vertices = new ArrayList<>();
-        List<Face> faces = new ArrayList<>();
-        double halfThickness = thickness / 2;
-        double scaleX = 1.0 / width;
-        double scaleY = 1.0 / height;
-        
-        for (int x = 0; x < width; x++) {
-          for (int y = 0; y < height; y++) {
-            if (pixels[x][y]) {
-              addOptimizedVoxel(vertices, faces, x, y, halfThickness, scaleX, scaleY);
-            }
-          }
-        }
-        
-        return new LetterMesh(vertices, faces);
-    });
+  /**
+   * Builds the extruded mesh of a pixel mask: greedy-merged caps and
+   * outline walls, see {@link PixelMesh}.
+   * @param pixels Mask from getLetterPixelData
+   * @param thickness Extent along z
+   * @return A new mesh
+   */
+  public static PixelMesh getLetterMeshData(boolean[][] pixels, double thickness) {
+    return PixelMesh.extrude(pixels, thickness);
   }
   
-  private static void addOptimizedVoxel(List<Vertex> vertices, List<Face> faces,
-    int x, int y, double halfThick, double scaleX, double scaleY) {
-    double px = x * scaleX;
-    double py = y * scaleY;
-    int baseIndex = vertices.size();
-    
-    // Create 8 vertices for the voxel
-    vertices.add(new Vertex(px,        py,        -halfThick)); // 0
-    vertices.add(new Vertex(px + scaleX, py,        -halfThick)); // 1
-    vertices.add(new Vertex(px + scaleX, py + scaleY, -halfThick)); // 2
-    vertices.add(new Vertex(px,        py + scaleY, -halfThick)); // 3
-    vertices.add(new Vertex(px,        py,         halfThick)); // 4
-    vertices.add(new Vertex(px + scaleX, py,         halfThick)); // 5
-    vertices.add(new Vertex(px + scaleX, py + scaleY,  halfThick)); // 6
-    vertices.add(new Vertex(px,        py + scaleY,  halfThick)); // 7
+  /**
+   * Mesh of one glyph, built on first use and then shared: Letter3D
+   * instances with the same letter, font, scales, size and thickness get
+   * the same immutable mesh and differ only by their transform.
+   * At most {@link #setGlyphCacheSize(int)} meshes are kept; the least
+   * recently used one is dropped first.
+   * @return The glyph's mesh, same as
+   * getLetterMeshData(getLetterPixelData(getLetterImage(...)), thickness)
+   */
+  public static PixelMesh getLetterMesh(char c, Font font, double widthScale, double heightScale,
+    int size, double thickness) {
+    GlyphKey key = new GlyphKey(c, font, widthScale, heightScale, size, thickness);
+    synchronized (GLYPH_CACHE) {
+      PixelMesh mesh = GLYPH_CACHE.get(key);
+      if (mesh != null) {
+        glyphCacheHits++;
+        return mesh;
+      }
+      glyphCacheMisses++;
+    }
     
-    // Create 12 triangular faces (2 per cube face)
-    int[] faceIndices = {
-      // Front face
-      baseIndex, baseIndex+1, baseIndex+2,
-      baseIndex, baseIndex+2, baseIndex+3,
-      // Back face
-      baseIndex+4, baseIndex+6, baseIndex+5,
-      baseIndex+4, baseIndex+7, baseIndex+6,
-      // Top face
-      baseIndex, baseIndex+4, baseIndex+5,
-      baseIndex, baseIndex+5, baseIndex+1,
-      // Bottom face
-      baseIndex+3, baseIndex+2, baseIndex+6,
-      baseIndex+3, baseIndex+6, baseIndex+7,
-      // Right face
-      baseIndex+1, baseIndex+5, baseIndex+6,
-      baseIndex+1, baseIndex+6, baseIndex+2,
-      // Left face
-      baseIndex, baseIndex+3, baseIndex+7,
-      baseIndex, baseIndex+7, baseIndex+4
-    };
+    // Rasterize outside the lock; if two threads race, the first mesh stored wins
+    BufferedImage img = getLetterImage(c, font, widthScale, heightScale, size);
+    PixelMesh built = getLetterMeshData(getLetterPixelData(img), thickness);
     
-    for (int i = 0; i < faceIndices.length; i += 3) {
-      faces.add(new Face(
-          faceIndices[i],
-          faceIndices[i+1],
-          faceIndices[i+2]
-      ));
+    synchronized (GLYPH_CACHE) {
+      PixelMesh mesh = GLYPH_CACHE.get(key);
+      if (mesh != null) return mesh;
+      GLYPH_CACHE.put(key, built);
+      trimGlyphCache();
+      return built;
+    }
+  }
+  
+  /**
+   * @param size Glyph meshes kept in the cache; 0 turns caching off
+   */
+  public static void setGlyphCacheSize(int size) {
+    synchronized (GLYPH_CACHE) {
+      glyphCacheSize = Math.max(0, size);
+      trimGlyphCache();
+    }
+  }
+  
+  public static int getGlyphCacheSize() {
+    synchronized (GLYPH_CACHE) {
+      return glyphCacheSize;
+    }
+  }
+  
+  public static void clearGlyphCache() {
+    synchronized (GLYPH_CACHE) {
+      GLYPH_CACHE.clear();
+      glyphCacheHits = 0;
+      glyphCacheMisses = 0;
     }
   }
   
-  // Immutable vertex class
-  public static final class Vertex {
-    public final double x, y, z;
-    public Vertex(double x, double y, double z) {
-      this.x = x;
-      this.y = y;
-      this.z = z;
+  /**
+   * @return Cached meshes, hits and misses, for logging
+   */
+  public static String getGlyphCacheStats() {
+    synchronized (GLYPH_CACHE) {
+      return "glyphs=" + GLYPH_CACHE.size() + "/" + glyphCacheSize
+      + ", hits=" + glyphCacheHits + ", misses=" + glyphCacheMisses;
     }
   }
   
-  // Immutable face class
-  public static final class Face {
-    public final int v1, v2, v3;
-    public Face(int v1, int v2, int v3) {
-      this.v1 = v1;
-      this.v2 = v2;
-      this.v3 = v3;
+  private static void trimGlyphCache() {
+    Iterator<PixelMesh> it = GLYPH_CACHE.values().iterator();
+    while (GLYPH_CACHE.size() > glyphCacheSize && it.hasNext()) {
+      it.next();
+      it.remove();
     }
   }
   
-  // Immutable mesh container
-  public static final class LetterMesh {
-    public final List<Vertex> vertices;
-    public final List<Face> faces;
+  // Everything the glyph raster depends on; Font.equals covers name, style, size and transform
+  private static final class GlyphKey {
+    private final char c;
+    private final Font font;
+    private final double widthScale;
+    private final double heightScale;
+    private final int size;
+    private final double thickness;
+    
+    GlyphKey(char c, Font font, double widthScale, double heightScale, int size, double thickness) {
+      this.c = c;
+      this.font = font;
+      this.widthScale = widthScale;
+      this.heightScale = heightScale;
+      this.size = size;
+      this.thickness = thickness;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof GlyphKey)) return false;
+      GlyphKey k = (GlyphKey) o;
+      return c == k.c && size == k.size
+      && Double.compare(widthScale, k.widthScale) == 0
+      && Double.compare(heightScale, k.heightScale) == 0
+      && Double.compare(thickness, k.thickness) == 0
+      && font.equals(k.font);
+    }
     
-    public LetterMesh(List<Vertex> vertices, List<Face> faces) {
-      this.vertices = new ArrayList<>(vertices); // Java 6/8 uyumlu defensive copy
-      this.faces = new ArrayList<>(faces);       // Java 6/8 uyumlu defensive copy
+    @Override
+    public int hashCode() {
+      int h = c;
+      h = 31 * h + size;
+      h = 31 * h + Double.hashCode(widthScale);
+      h = 31 * h + Double.hashCode(heightScale);
+      h = 31 * h + Double.hashCode(thickness);
+      return 31 * h + font.hashCode();
     }
   }
   
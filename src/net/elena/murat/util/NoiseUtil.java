@@ -7,6 +7,12 @@ public final class NoiseUtil {
   
   private static final int[] PERMUTATION = new int[512]; // 512-element array
   
+  // Gradient picked by the low four bits of a hash: +-u +-v over two of x, y, z, looked up
+  // rather than branched on, as the hash gives the branches nothing to predict
+  private static final double[] GRAD_X = { 1, -1,  1, -1,  1, -1,  1, -1,  0,  0,  0,  0,  1,  0, -1,  0 };
+  private static final double[] GRAD_Y = { 1,  1, -1, -1,  0,  0,  0,  0,  1, -1,  1, -1,  1, -1,  1, -1 };
+  private static final double[] GRAD_Z = { 0,  0,  0,  0,  1,  1, -1, -1,  1,  1, -1, -1,  0,  1,  0, -1 };
+  
   static {
     // Base permutation table (0-255)
     int[] temp = { 151,160,137,91,90,15,131,13,201,95,96,53,194,233,7,225,
@@ -29,26 +35,49 @@ public final class NoiseUtil {
    * 3D Perlin noise (returns value between -1.0 and 1.0)
    */
   public static double noise(Point3 point) {
-    int xi = (int)Math.floor(point.x) & 255;
-    int yi = (int)Math.floor(point.y) & 255;
-    int zi = (int)Math.floor(point.z) & 255;
+    return noise(PERMUTATION, point.x, point.y, point.z);
+  }
+  
+  /**
+   * 3D Perlin noise (returns value between -1.0 and 1.0), without a Point3
+   */
+  public static double noise(double x, double y, double z) {
+    return noise(PERMUTATION, x, y, z);
+  }
+  
+  /**
+   * 3D Perlin noise over a caller's own permutation table, for noise that
+   * must not look like everybody else's.
+   * @param permutation 512 entries: a permutation of 0..255, then the same again
+   */
+  public static double noise(int[] permutation, double x, double y, double z) {
+    final int[] p = permutation;
+    final double fx = Math.floor(x);
+    final double fy = Math.floor(y);
+    final double fz = Math.floor(z);
+    
+    int xi = (int)fx & 255;
+    int yi = (int)fy & 255;
+    int zi = (int)fz & 255;
     
-    double xf = point.x - Math.floor(point.x);
-    double yf = point.y - Math.floor(point.y);
-    double zf = point.z - Math.floor(point.z);
+    double xf = x - fx;
+    double yf = y - fy;
+    double zf = z - fz;
     
     double u = fade(xf);
     double v = fade(yf);
     double w = fade(zf);
     
-    int aaa = PERMUTATION[PERMUTATION[PERMUTATION[xi] + yi] + zi];
-    int aba = PERMUTATION[PERMUTATION[PERMUTATION[xi] + yi + 1] + zi];
-    int aab = PERMUTATION[PERMUTATION[PERMUTATION[xi] + yi] + zi + 1];
-    int abb = PERMUTATION[PERMUTATION[PERMUTATION[xi] + yi + 1] + zi + 1];
-    int baa = PERMUTATION[PERMUTATION[PERMUTATION[xi + 1] + yi] + zi];
-    int bba = PERMUTATION[PERMUTATION[PERMUTATION[xi + 1] + yi + 1] + zi];
-    int bab = PERMUTATION[PERMUTATION[PERMUTATION[xi + 1] + yi] + zi + 1];
-    int bbb = PERMUTATION[PERMUTATION[PERMUTATION[xi + 1] + yi + 1] + zi + 1];
+    int a = p[xi] + yi;
+    int b = p[xi + 1] + yi;
+    int aaa = p[p[a] + zi];
+    int aba = p[p[a + 1] + zi];
+    int aab = p[p[a] + zi + 1];
+    int abb = p[p[a + 1] + zi + 1];
+    int baa = p[p[b] + zi];
+    int bba = p[p[b + 1] + zi];
+    int bab = p[p[b] + zi + 1];
+    int bbb = p[p[b + 1] + zi + 1];
     
     double x1 = lerp(grad(aaa, xf, yf, zf), grad(baa, xf-1, yf, zf), u);
     double x2 = lerp(grad(aba, xf, yf-1, zf), grad(bba, xf-1, yf-1, zf), u);
@@ -61,23 +90,41 @@ public final class NoiseUtil {
     return lerp(y1, y2, w);
   }
   
+  /**
+   * Noise at count points in one call, for loops that fill arrays of
+   * samples. Same values as calling {@link #noise(double, double, double)}
+   * point by point.
+   * @param xs X coordinates; ys and zs likewise
+   * @param out Receives the noise of point i at index i
+   */
+  public static void noise(double[] xs, double[] ys, double[] zs, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = noise(PERMUTATION, xs[i], ys[i], zs[i]);
+    }
+  }
+  
   /**
    * Turbulence effect (Fractal noise)
    * @param point 3D point
    * @param octaves Number of noise layers
    */
   public static double turbulence(Point3 point, int octaves) {
+    return turbulence(point.x, point.y, point.z, octaves);
+  }
+  
+  /**
+   * Turbulence without a Point3: the sum of |noise| over the octaves, each
+   * at twice the frequency and half the amplitude of the last, divided by
+   * the summed amplitudes. Between 0.0 and 1.0.
+   */
+  public static double turbulence(double x, double y, double z, int octaves) {
     double value = 0.0;
     double size = 1.0;
     double totalAmplitude = 0.0;
     double amplitude = 1.0;
     
     for (int i = 0; i < octaves; i++) {
-      value += amplitude * Math.abs(noise(new Point3(
-            point.x / size,
-            point.y / size,
-            point.z / size
-      )));
+      value += amplitude * Math.abs(noise(PERMUTATION, x / size, y / size, z / size));
       totalAmplitude += amplitude;
       amplitude *= 0.5;
       size *= 0.5;
@@ -86,6 +133,64 @@ public final class NoiseUtil {
     return value / totalAmplitude;
   }
   
+  /**
+   * Turbulence at count points in one call, octave by octave over all of
+   * them. Same values as {@link #turbulence(double, double, double, int)}.
+   * @param out Receives the turbulence of point i at index i
+   */
+  public static void turbulence(double[] xs, double[] ys, double[] zs, int octaves,
+    double[] out, int count) {
+    double size = 1.0;
+    double totalAmplitude = 0.0;
+    double amplitude = 1.0;
+    
+    for (int i = 0; i < count; i++) {
+      out[i] = 0.0;
+    }
+    for (int octave = 0; octave < octaves; octave++) {
+      for (int i = 0; i < count; i++) {
+        out[i] += amplitude * Math.abs(noise(PERMUTATION, xs[i] / size, ys[i] / size, zs[i] / size));
+      }
+      totalAmplitude += amplitude;
+      amplitude *= 0.5;
+      size *= 0.5;
+    }
+    for (int i = 0; i < count; i++) {
+      out[i] /= totalAmplitude;
+    }
+  }
+  
+  /**
+   * Fractal Brownian motion: signed noise summed over the octaves, each at
+   * lacunarity times the frequency and gain times the amplitude of the
+   * last, divided by the summed amplitudes. Between -1.0 and 1.0.
+   */
+  public static double fbm(double x, double y, double z, int octaves,
+    double lacunarity, double gain) {
+    return fbm(PERMUTATION, x, y, z, octaves, lacunarity, gain);
+  }
+  
+  /**
+   * {@link #fbm(double, double, double, int, double, double)} over a
+   * caller's permutation table, as in {@link #noise(int[], double, double, double)}.
+   */
+  public static double fbm(int[] permutation, double x, double y, double z, int octaves,
+    double lacunarity, double gain) {
+    double value = 0.0;
+    double frequency = 1.0;
+    double totalAmplitude = 0.0;
+    double amplitude = 1.0;
+    
+    for (int i = 0; i < octaves; i++) {
+      value += amplitude * noise(permutation, x * frequency, y * frequency, z * frequency);
+      totalAmplitude += amplitude;
+      amplitude *= gain;
+      frequency *= lacunarity;
+    }
+    
+    return totalAmplitude == 0.0 ? 0.0 : value / totalAmplitude;
+  }
+  
   private static double fade(double t) {
     return t * t * t * (t * (t * 6 - 15) + 10);
   }
@@ -96,16 +201,14 @@ public final class NoiseUtil {
   
   private static double grad(int hash, double x, double y, double z) {
     int h = hash & 15;
-    double u = h < 8 ? x : y;
-    double v = h < 4 ? y : h == 12 || h == 14 ? x : z;
-    return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+    return GRAD_X[h] * x + GRAD_Y[h] * y + GRAD_Z[h] * z;
   }
   
   /**
    * Planar noise (2D)
    */
   public static double noise(double x, double y) {
-    return noise(new Point3(x, y, 0));
+    return noise(PERMUTATION, x, y, 0);
   }
   
 }
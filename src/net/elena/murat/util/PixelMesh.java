@@ -0,0 +1,495 @@
+package net.elena.murat.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+//custom imports
+import net.elena.murat.math.BoundingBox;
+import net.elena.murat.math.Vector3;
+
+/**
+ * Triangle mesh of a pixel mask extruded along z, used by Letter3D and Image3D.
+ * <p>
+ * Set pixels are merged greedily into as few rectangles as possible for the
+ * front (z = -thickness/2) and back (z = +thickness/2) caps, and only the
+ * outline of the mask gets side walls, each wall running as far as the
+ * outline stays straight. A glyph that would take thousands of triangles as
+ * one box per pixel takes a few hundred this way.
+ * </p>
+ * <p>
+ * Triangles are kept in flat arrays together with a bounding volume
+ * hierarchy laid out like {@link net.elena.murat.lovert.BVH}: depth-first with
+ * a skip index per node, so queries are a single loop without allocation.
+ * </p>
+ * The mask covers the unit square: pixel (x, y) spans [x/w, (x+1)/w] by
+ * [y/h, (y+1)/h]. Face normals point into the solid, the same way the
+ * per-pixel boxes this mesh replaces were wound. A mesh never changes after
+ * it is built and may be shared by any number of shapes and threads.
+ */
+public final class PixelMesh {
+
+  /**
+   * Receives every triangle hit by {@link #allHits}.
+   */
+  public interface HitVisitor {
+    void hit(double t, int face);
+  }
+
+  private static final int MAX_LEAF_SIZE = 4;
+
+  // Slack on the barycentric tests, so rays through the shared edge of two
+  // merged rectangles never slip between them
+  private static final double EDGE_EPSILON = 1e-9;
+
+  private final double thickness;
+  private final int triangleCount;
+
+  // Per triangle: first vertex, edge to the second vertex, edge to the third
+  private final double[] triangles;
+  // Per triangle: unit normal
+  private final double[] normals;
+
+  // Per node: 6 bounds values, first triangle, triangle count (0 for inner
+  // nodes), and the index of the next node outside this node's subtree
+  private final double[] nodeBounds;
+  private final int[] nodeFirst;
+  private final int[] nodeCount;
+  private final int[] nodeSkip;
+  private int nodeTotal;
+
+  private PixelMesh(double thickness, double[] triangles, double[] normals) {
+    this.thickness = thickness;
+    this.triangleCount = normals.length / 3;
+
+    int maxNodes = Math.max(1, 2 * triangleCount);
+    this.nodeBounds = new double[maxNodes * 6];
+    this.nodeFirst = new int[maxNodes];
+    this.nodeCount = new int[maxNodes];
+    this.nodeSkip = new int[maxNodes];
+
+    if (triangleCount == 0) {
+      this.triangles = triangles;
+      this.normals = normals;
+      return;
+    }
+
+    Integer[] order = new Integer[triangleCount];
+    for (int i = 0; i < triangleCount; i++) order[i] = i;
+    build(order, 0, triangleCount, triangles);
+
+    // Store the triangles in leaf order, so a leaf is a contiguous range
+    this.triangles = new double[triangles.length];
+    this.normals = new double[normals.length];
+    for (int i = 0; i < triangleCount; i++) {
+      System.arraycopy(triangles, order[i] * 9, this.triangles, i * 9, 9);
+      System.arraycopy(normals, order[i] * 3, this.normals, i * 3, 3);
+    }
+  }
+
+  /**
+   * Builds the mesh of a pixel mask.
+   * @param pixels Mask indexed [x][y], y up
+   * @param thickness Extent along z, centered on z = 0
+   * @return The mesh; empty when no pixel is set
+   */
+  public static PixelMesh extrude(boolean[][] pixels, double thickness) {
+    final int width = pixels.length;
+    final int height = width == 0 ? 0 : pixels[0].length;
+    final double halfThick = thickness / 2;
+    final double scaleX = 1.0 / width;
+    final double scaleY = 1.0 / height;
+
+    Builder b = new Builder();
+
+    // Caps: grow each rectangle along x first, then along y while the whole row is free
+    boolean[][] used = new boolean[width][height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (!pixels[x][y] || used[x][y]) continue;
+
+        int x1 = x + 1;
+        while (x1 < width && pixels[x1][y] && !used[x1][y]) x1++;
+
+        int y1 = y + 1;
+        grow:
+        while (y1 < height) {
+          for (int i = x; i < x1; i++) {
+            if (!pixels[i][y1] || used[i][y1]) break grow;
+          }
+          y1++;
+        }
+
+        for (int i = x; i < x1; i++) {
+          for (int j = y; j < y1; j++) used[i][j] = true;
+        }
+
+        double ax = x * scaleX, bx = x1 * scaleX;
+        double ay = y * scaleY, by = y1 * scaleY;
+        b.quad(ax, ay, -halfThick, bx, ay, -halfThick, bx, by, -halfThick, ax, by, -halfThick, 0, 0, 1);
+        b.quad(ax, ay, halfThick, bx, ay, halfThick, bx, by, halfThick, ax, by, halfThick, 0, 0, -1);
+      }
+    }
+
+    // Walls on the outline, between column x-1 and x; a run ends where the side changes
+    for (int x = 0; x <= width; x++) {
+      int runStart = 0;
+      int runSide = 0;
+      for (int y = 0; y <= height; y++) {
+        int side = 0;
+        if (y < height) {
+          boolean left = x > 0 && pixels[x - 1][y];
+          boolean right = x < width && pixels[x][y];
+          side = left == right ? 0 : (left ? -1 : 1);
+        }
+        if (side == runSide) continue;
+        if (runSide != 0) {
+          double px = x * scaleX;
+          double ay = runStart * scaleY, by = y * scaleY;
+          b.quad(px, ay, -halfThick, px, by, -halfThick, px, by, halfThick, px, ay, halfThick, runSide, 0, 0);
+        }
+        runStart = y;
+        runSide = side;
+      }
+    }
+
+    // Walls between row y-1 and y
+    for (int y = 0; y <= height; y++) {
+      int runStart = 0;
+      int runSide = 0;
+      for (int x = 0; x <= width; x++) {
+        int side = 0;
+        if (x < width) {
+          boolean below = y > 0 && pixels[x][y - 1];
+          boolean above = y < height && pixels[x][y];
+          side = below == above ? 0 : (below ? -1 : 1);
+        }
+        if (side == runSide) continue;
+        if (runSide != 0) {
+          double py = y * scaleY;
+          double ax = runStart * scaleX, bx = x * scaleX;
+          b.quad(ax, py, -halfThick, bx, py, -halfThick, bx, py, halfThick, ax, py, halfThick, 0, runSide, 0);
+        }
+        runStart = x;
+        runSide = side;
+      }
+    }
+
+    return new PixelMesh(thickness, b.triangles(), b.normals());
+  }
+
+  /**
+   * Collects triangles as flat arrays, in the layout the mesh stores them.
+   */
+  private static final class Builder {
+    private double[] tris = new double[9 * 64];
+    private double[] norms = new double[3 * 64];
+    private int count;
+
+    /**
+     * Adds the rectangle a-b-c-d as two triangles wound so that their
+     * geometric normal is (nx, ny, nz).
+     */
+    void quad(double ax, double ay, double az, double bx, double by, double bz,
+      double cx, double cy, double cz, double dx, double dy, double dz,
+      double nx, double ny, double nz) {
+      double e1x = bx - ax, e1y = by - ay, e1z = bz - az;
+      double e2x = cx - ax, e2y = cy - ay, e2z = cz - az;
+      double wx = e1y * e2z - e1z * e2y;
+      double wy = e1z * e2x - e1x * e2z;
+      double wz = e1x * e2y - e1y * e2x;
+      if (wx * nx + wy * ny + wz * nz < 0) {
+        triangle(ax, ay, az, dx, dy, dz, cx, cy, cz, nx, ny, nz);
+        triangle(ax, ay, az, cx, cy, cz, bx, by, bz, nx, ny, nz);
+      } else {
+        triangle(ax, ay, az, bx, by, bz, cx, cy, cz, nx, ny, nz);
+        triangle(ax, ay, az, cx, cy, cz, dx, dy, dz, nx, ny, nz);
+      }
+    }
+
+    private void triangle(double ax, double ay, double az, double bx, double by, double bz,
+      double cx, double cy, double cz, double nx, double ny, double nz) {
+      if (count * 9 == tris.length) {
+        tris = Arrays.copyOf(tris, tris.length * 2);
+        norms = Arrays.copyOf(norms, norms.length * 2);
+      }
+      int t = count * 9;
+      tris[t] = ax; tris[t + 1] = ay; tris[t + 2] = az;
+      tris[t + 3] = bx - ax; tris[t + 4] = by - ay; tris[t + 5] = bz - az;
+      tris[t + 6] = cx - ax; tris[t + 7] = cy - ay; tris[t + 8] = cz - az;
+      int n = count * 3;
+      norms[n] = nx; norms[n + 1] = ny; norms[n + 2] = nz;
+      count++;
+    }
+
+    double[] triangles() {
+      return Arrays.copyOf(tris, count * 9);
+    }
+
+    double[] normals() {
+      return Arrays.copyOf(norms, count * 3);
+    }
+  }
+
+  /**
+   * Recursively emits the subtree for order[from, to) in depth-first order.
+   */
+  private void build(Integer[] order, int from, int to, final double[] tris) {
+    int node = nodeTotal++;
+
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+    double cMinX = Double.POSITIVE_INFINITY, cMinY = Double.POSITIVE_INFINITY, cMinZ = Double.POSITIVE_INFINITY;
+    double cMaxX = Double.NEGATIVE_INFINITY, cMaxY = Double.NEGATIVE_INFINITY, cMaxZ = Double.NEGATIVE_INFINITY;
+
+    for (int i = from; i < to; i++) {
+      int t = order[i] * 9;
+      for (int v = 0; v < 3; v++) {
+        double x = tris[t] + (v == 0 ? 0 : tris[t + v * 3]);
+        double y = tris[t + 1] + (v == 0 ? 0 : tris[t + v * 3 + 1]);
+        double z = tris[t + 2] + (v == 0 ? 0 : tris[t + v * 3 + 2]);
+        minX = Math.min(minX, x); minY = Math.min(minY, y); minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x); maxY = Math.max(maxY, y); maxZ = Math.max(maxZ, z);
+      }
+      double cx = centroid(tris, order[i], 0);
+      double cy = centroid(tris, order[i], 1);
+      double cz = centroid(tris, order[i], 2);
+      cMinX = Math.min(cMinX, cx); cMinY = Math.min(cMinY, cy); cMinZ = Math.min(cMinZ, cz);
+      cMaxX = Math.max(cMaxX, cx); cMaxY = Math.max(cMaxY, cy); cMaxZ = Math.max(cMaxZ, cz);
+    }
+
+    int o = node * 6;
+    nodeBounds[o] = minX; nodeBounds[o + 1] = minY; nodeBounds[o + 2] = minZ;
+    nodeBounds[o + 3] = maxX; nodeBounds[o + 4] = maxY; nodeBounds[o + 5] = maxZ;
+
+    int count = to - from;
+    if (count <= MAX_LEAF_SIZE) {
+      nodeFirst[node] = from;
+      nodeCount[node] = count;
+      nodeSkip[node] = nodeTotal;
+      return;
+    }
+
+    // Median split along the axis with the widest spread of centroids
+    double ex = cMaxX - cMinX;
+    double ey = cMaxY - cMinY;
+    double ez = cMaxZ - cMinZ;
+    final int axis = (ex >= ey && ex >= ez) ? 0 : (ey >= ez ? 1 : 2);
+
+    Arrays.sort(order, from, to, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        int c = Double.compare(centroid(tris, a, axis), centroid(tris, b, axis));
+        return c != 0 ? c : Integer.compare(a, b);
+      }
+    });
+
+    int mid = (from + to) >>> 1;
+    nodeFirst[node] = from;
+    nodeCount[node] = 0;
+    build(order, from, mid, tris);
+    build(order, mid, to, tris);
+    nodeSkip[node] = nodeTotal;
+  }
+
+  private static double centroid(double[] tris, int triangle, int axis) {
+    int t = triangle * 9 + axis;
+    return tris[t] + (tris[t + 3] + tris[t + 6]) / 3.0;
+  }
+
+  /**
+   * Finds the closest triangle hit at a distance of at least tMin.
+   * @param tOut Receives the hit distance at index 0 when a triangle is hit
+   * @return Index of the hit triangle, or -1 on a miss
+   */
+  public int closestHit(double ox, double oy, double oz,
+    double dx, double dy, double dz, double tMin, double[] tOut) {
+    int best = -1;
+    double bestT = Double.POSITIVE_INFINITY;
+
+    double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+    int node = 0;
+    while (node < nodeTotal) {
+      int b = node * 6;
+      if (!BoundingBox.intersects(ox, oy, oz, ix, iy, iz,
+          nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+          nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5])) {
+        node = nodeSkip[node];
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        node++;
+        continue;
+      }
+
+      int first = nodeFirst[node];
+      for (int k = first; k < first + count; k++) {
+        double t = intersectTriangle(k, ox, oy, oz, dx, dy, dz);
+        if (t >= tMin && t < bestT) {
+          bestT = t;
+          best = k;
+        }
+      }
+      node = nodeSkip[node];
+    }
+
+    if (best >= 0 && tOut != null) {
+      tOut[0] = bestT;
+    }
+    return best;
+  }
+
+  /**
+   * Reports every triangle hit at a distance of at least tMin, in no
+   * particular order.
+   */
+  public void allHits(double ox, double oy, double oz,
+    double dx, double dy, double dz, double tMin, HitVisitor visitor) {
+    double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+    int node = 0;
+    while (node < nodeTotal) {
+      int b = node * 6;
+      if (!BoundingBox.intersects(ox, oy, oz, ix, iy, iz,
+          nodeBounds[b], nodeBounds[b + 1], nodeBounds[b + 2],
+          nodeBounds[b + 3], nodeBounds[b + 4], nodeBounds[b + 5])) {
+        node = nodeSkip[node];
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        node++;
+        continue;
+      }
+
+      int first = nodeFirst[node];
+      for (int k = first; k < first + count; k++) {
+        double t = intersectTriangle(k, ox, oy, oz, dx, dy, dz);
+        if (t >= tMin) visitor.hit(t, k);
+      }
+      node = nodeSkip[node];
+    }
+  }
+
+  /**
+   * Moller-Trumbore test against one triangle, from either side.
+   * @return Hit distance, or negative infinity on a miss
+   */
+  private double intersectTriangle(int face, double ox, double oy, double oz,
+    double dx, double dy, double dz) {
+    int t = face * 9;
+    double e1x = triangles[t + 3], e1y = triangles[t + 4], e1z = triangles[t + 5];
+    double e2x = triangles[t + 6], e2y = triangles[t + 7], e2z = triangles[t + 8];
+
+    double px = dy * e2z - dz * e2y;
+    double py = dz * e2x - dx * e2z;
+    double pz = dx * e2y - dy * e2x;
+    double det = e1x * px + e1y * py + e1z * pz;
+    if (det > -1e-15 && det < 1e-15) return Double.NEGATIVE_INFINITY;
+    double invDet = 1.0 / det;
+
+    double sx = ox - triangles[t], sy = oy - triangles[t + 1], sz = oz - triangles[t + 2];
+    double u = (sx * px + sy * py + sz * pz) * invDet;
+    if (u < -EDGE_EPSILON || u > 1.0 + EDGE_EPSILON) return Double.NEGATIVE_INFINITY;
+
+    double qx = sy * e1z - sz * e1y;
+    double qy = sz * e1x - sx * e1z;
+    double qz = sx * e1y - sy * e1x;
+    double v = (dx * qx + dy * qy + dz * qz) * invDet;
+    if (v < -EDGE_EPSILON || u + v > 1.0 + EDGE_EPSILON) return Double.NEGATIVE_INFINITY;
+
+    return (e2x * qx + e2y * qy + e2z * qz) * invDet;
+  }
+
+  /**
+   * Finds the triangle closest to a point, for callers that only have a
+   * surface point and not the ray that hit it.
+   * @return Index of the closest triangle, or -1 for an empty mesh
+   */
+  public int nearestFace(double x, double y, double z) {
+    int best = -1;
+    double bestDist = Double.POSITIVE_INFINITY;
+
+    int node = 0;
+    while (node < nodeTotal) {
+      int b = node * 6;
+      if (boxDistance(x, y, z, nodeBounds, b) > bestDist) {
+        node = nodeSkip[node];
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        node++;
+        continue;
+      }
+
+      int first = nodeFirst[node];
+      for (int k = first; k < first + count; k++) {
+        double d = faceDistance(k, x, y, z);
+        if (d < bestDist) {
+          bestDist = d;
+          best = k;
+        }
+      }
+      node = nodeSkip[node];
+    }
+    return best;
+  }
+
+  private static double boxDistance(double x, double y, double z, double[] bounds, int b) {
+    double ex = Math.max(0, Math.max(bounds[b] - x, x - bounds[b + 3]));
+    double ey = Math.max(0, Math.max(bounds[b + 1] - y, y - bounds[b + 4]));
+    double ez = Math.max(0, Math.max(bounds[b + 2] - z, z - bounds[b + 5]));
+    return Math.max(ex, Math.max(ey, ez));
+  }
+
+  // Larger of the distance to the triangle's plane and to its bounding box;
+  // exact enough for the axis-aligned triangles this mesh is made of
+  private double faceDistance(int face, double x, double y, double z) {
+    int t = face * 9;
+    int n = face * 3;
+    double plane = Math.abs((x - triangles[t]) * normals[n]
+      + (y - triangles[t + 1]) * normals[n + 1]
+      + (z - triangles[t + 2]) * normals[n + 2]);
+
+    double box = Math.max(axisDistance(x, triangles[t], triangles[t + 3], triangles[t + 6]),
+      Math.max(axisDistance(y, triangles[t + 1], triangles[t + 4], triangles[t + 7]),
+      axisDistance(z, triangles[t + 2], triangles[t + 5], triangles[t + 8])));
+    return Math.max(plane, box);
+  }
+
+  // Distance from c to the span of a vertex coordinate and the two edges added to it
+  private static double axisDistance(double c, double start, double edge1, double edge2) {
+    double min = start + Math.min(0, Math.min(edge1, edge2));
+    double max = start + Math.max(0, Math.max(edge1, edge2));
+    return Math.max(0, Math.max(min - c, c - max));
+  }
+
+  /**
+   * @return Unit normal of a triangle, pointing into the solid
+   */
+  public Vector3 getNormal(int face) {
+    int n = face * 3;
+    return new Vector3(normals[n], normals[n + 1], normals[n + 2]);
+  }
+
+  public double getThickness() {
+    return thickness;
+  }
+
+  public int getTriangleCount() {
+    return triangleCount;
+  }
+
+  public int getNodeCount() {
+    return nodeTotal;
+  }
+
+  @Override
+  public String toString() {
+    return "PixelMesh[triangles=" + triangleCount + ", nodes=" + nodeTotal + "]";
+  }
+
+}
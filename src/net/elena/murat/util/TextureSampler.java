@@ -0,0 +1,242 @@
+package net.elena.murat.util;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Read-only texel access to a BufferedImage, unpacked once into an int[]
+ * of non-premultiplied ARGB values, the same values BufferedImage.getRGB
+ * returns. Lookups never touch the image or its ColorModel again, allocate
+ * nothing and are safe from any number of threads.
+ * <p>
+ * UV lookups use u to the right and v downwards, both 0..1 over the image;
+ * the wrap mode decides what happens outside that range.
+ * </p>
+ * The image must not be changed after the sampler is made.
+ */
+public final class TextureSampler {
+
+  public enum Wrap {
+    /** Tiles the image */
+    REPEAT,
+    /** Repeats the edge texels */
+    CLAMP,
+    /** Tiles the image, flipping every other tile */
+    MIRROR
+  }
+
+  // Weak keys: an unpacked image lives as long as some material keeps the image
+  private static final Map<BufferedImage, TextureSampler> CACHE =
+  Collections.synchronizedMap(new WeakHashMap<BufferedImage, TextureSampler>());
+
+  private final int width;
+  private final int height;
+  private final int[] texels;
+
+  // Built on the first mip-mapped lookup; level 0 is texels
+  private volatile int[][] mipLevels;
+
+  /**
+   * Unpacks the image. Prefer {@link #of(BufferedImage)}, which shares
+   * the result between materials using the same image.
+   */
+  public TextureSampler(BufferedImage image) {
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.texels = image.getRGB(0, 0, width, height, null, 0, width);
+  }
+
+  /**
+   * @param image Image to sample, or null
+   * @return The shared sampler for this image object, or null for a null image
+   */
+  public static TextureSampler of(BufferedImage image) {
+    if (image == null) return null;
+    synchronized (CACHE) {
+      TextureSampler sampler = CACHE.get(image);
+      if (sampler == null) {
+        sampler = new TextureSampler(image);
+        CACHE.put(image, sampler);
+      }
+      return sampler;
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Same value as BufferedImage.getRGB(x, y); no bounds handling.
+   */
+  public int getARGB(int x, int y) {
+    return texels[y * width + x];
+  }
+
+  /**
+   * Texel at integer coordinates, with the wrap mode applied to both.
+   */
+  public int getARGB(int x, int y, Wrap wrap) {
+    return texels[wrap(y, height, wrap) * width + wrap(x, width, wrap)];
+  }
+
+  /**
+   * Nearest texel: the texel whose square contains (u, v).
+   * @return ARGB of that texel
+   */
+  public int sampleNearest(double u, double v, Wrap wrap) {
+    return getARGB((int) Math.floor(u * width), (int) Math.floor(v * height), wrap);
+  }
+
+  /**
+   * Bilinear blend of the four texels around (u, v), texel centers at
+   * half-integer positions. Channels are blended separately, alpha included.
+   * @return Blended ARGB
+   */
+  public int sampleBilinear(double u, double v, Wrap wrap) {
+    return bilinear(texels, width, height, u, v, wrap);
+  }
+
+  /**
+   * Trilinear lookup in a box-filtered mip chain, for surfaces where one
+   * image pixel covers many texels.
+   * @param footprint Texels covered by one image pixel along its longer
+   * side, at full resolution; 1 or less is a plain bilinear lookup
+   * @return Filtered ARGB
+   */
+  public int sampleMipmap(double u, double v, double footprint, Wrap wrap) {
+    if (!(footprint > 1.0)) return sampleBilinear(u, v, wrap);
+
+    int[][] levels = mipLevels();
+    double lod = Math.min(Math.log(footprint) / Math.log(2.0), levels.length - 1);
+    int lo = (int) lod;
+    int hi = Math.min(lo + 1, levels.length - 1);
+
+    int a = bilinear(levels[lo], levelSize(width, lo), levelSize(height, lo), u, v, wrap);
+    if (hi == lo) return a;
+    int b = bilinear(levels[hi], levelSize(width, hi), levelSize(height, hi), u, v, wrap);
+    return lerpARGB(a, b, lod - lo);
+  }
+
+  /**
+   * @return Number of mip levels, level 0 being the image itself
+   */
+  public int getMipLevelCount() {
+    return mipLevels().length;
+  }
+
+  private int[][] mipLevels() {
+    int[][] levels = mipLevels;
+    if (levels == null) {
+      synchronized (this) {
+        levels = mipLevels;
+        if (levels == null) {
+          levels = buildMipLevels();
+          mipLevels = levels;
+        }
+      }
+    }
+    return levels;
+  }
+
+  private int[][] buildMipLevels() {
+    int count = 1;
+    while (levelSize(width, count - 1) > 1 || levelSize(height, count - 1) > 1) count++;
+
+    int[][] levels = new int[count][];
+    levels[0] = texels;
+    for (int level = 1; level < count; level++) {
+      int srcW = levelSize(width, level - 1);
+      int srcH = levelSize(height, level - 1);
+      int dstW = levelSize(width, level);
+      int dstH = levelSize(height, level);
+      int[] src = levels[level - 1];
+      int[] dst = new int[dstW * dstH];
+
+      // 2x2 box filter; odd edges reuse their last row/column
+      for (int y = 0; y < dstH; y++) {
+        int y0 = Math.min(2 * y, srcH - 1) * srcW;
+        int y1 = Math.min(2 * y + 1, srcH - 1) * srcW;
+        for (int x = 0; x < dstW; x++) {
+          int x0 = Math.min(2 * x, srcW - 1);
+          int x1 = Math.min(2 * x + 1, srcW - 1);
+          dst[y * dstW + x] = average4(src[y0 + x0], src[y0 + x1], src[y1 + x0], src[y1 + x1]);
+        }
+      }
+      levels[level] = dst;
+    }
+    return levels;
+  }
+
+  private static int levelSize(int size, int level) {
+    return Math.max(1, size >> level);
+  }
+
+  private static int bilinear(int[] data, int w, int h, double u, double v, Wrap wrap) {
+    double fx = u * w - 0.5;
+    double fy = v * h - 0.5;
+    int ix = (int) Math.floor(fx);
+    int iy = (int) Math.floor(fy);
+    double tx = fx - ix;
+    double ty = fy - iy;
+
+    int x0 = wrap(ix, w, wrap);
+    int x1 = wrap(ix + 1, w, wrap);
+    int row0 = wrap(iy, h, wrap) * w;
+    int row1 = wrap(iy + 1, h, wrap) * w;
+
+    int c00 = data[row0 + x0];
+    int c10 = data[row0 + x1];
+    int c01 = data[row1 + x0];
+    int c11 = data[row1 + x1];
+
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      double top = ((c00 >>> shift) & 0xFF) * (1.0 - tx) + ((c10 >>> shift) & 0xFF) * tx;
+      double bottom = ((c01 >>> shift) & 0xFF) * (1.0 - tx) + ((c11 >>> shift) & 0xFF) * tx;
+      int channel = (int) (top * (1.0 - ty) + bottom * ty + 0.5);
+      result |= Math.min(255, channel) << shift;
+    }
+    return result;
+  }
+
+  private static int lerpARGB(int a, int b, double t) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int ca = (a >>> shift) & 0xFF;
+      int cb = (b >>> shift) & 0xFF;
+      result |= ((int) (ca + (cb - ca) * t + 0.5)) << shift;
+    }
+    return result;
+  }
+
+  private static int average4(int a, int b, int c, int d) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF)
+      + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+      result |= ((sum + 2) >> 2) << shift;
+    }
+    return result;
+  }
+
+  private static int wrap(int i, int size, Wrap wrap) {
+    switch (wrap) {
+      case CLAMP:
+        return i < 0 ? 0 : (i >= size ? size - 1 : i);
+      case MIRROR: {
+        int m = Math.floorMod(i, 2 * size);
+        return m < size ? m : 2 * size - 1 - m;
+      }
+      default:
+        return Math.floorMod(i, size);
+    }
+  }
+
+}